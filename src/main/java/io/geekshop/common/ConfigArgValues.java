@@ -12,16 +12,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.BooleanUtils;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
+ * The typed values are parsed on first access and then memoized, so that an instance which is bound once to
+ * a configurable operation (e.g. the conditions and actions of a cached Promotion) never re-parses its arguments.
+ *
  * Created on Nov, 2020 by @author bobo
  */
 public class ConfigArgValues {
-    private Map<String, String> argsMap = new HashMap<>();
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> argsMap = new HashMap<>();
+    private final Map<String, Object> parsedValues = new ConcurrentHashMap<>();
 
     public ConfigArgValues(List<ConfigArg> args) {
         if (!CollectionUtils.isEmpty(args)) {
@@ -34,30 +42,33 @@ public class ConfigArgValues {
     }
 
     public Float getFloat(String name) {
-        String value = argsMap.get(name);
-        try {
-            return Float.parseFloat(value);
-        } catch (NumberFormatException nfe) {
-            throw new UserInputException("Fail to parse float with string '" + value + "'");
-        }
+        return this.getParsed(name, Float.class, value -> {
+            try {
+                return Float.parseFloat(value);
+            } catch (NumberFormatException nfe) {
+                throw new UserInputException("Fail to parse float with string '" + value + "'");
+            }
+        });
     }
 
     public Integer getInteger(String name) {
-        String value = argsMap.get(name);
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException nfe) {
-            throw new UserInputException("Fail to parse int with string '" + value + "'");
-        }
+        return this.getParsed(name, Integer.class, value -> {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException nfe) {
+                throw new UserInputException("Fail to parse int with string '" + value + "'");
+            }
+        });
     }
 
     public Long getId(String name) {
-        String value = argsMap.get(name);
-        try {
-            return Long.parseLong(value);
-        } catch (NumberFormatException nfe) {
-            throw new UserInputException("Fail to parse long with string '" + value + "'");
-        }
+        return this.getParsed(name, Long.class, value -> {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException nfe) {
+                throw new UserInputException("Fail to parse long with string '" + value + "'");
+            }
+        });
     }
 
     public Boolean getBoolean(String name) {
@@ -66,18 +77,31 @@ public class ConfigArgValues {
     }
 
     public List<Long> getIdList(String name) {
-        String jsonString = argsMap.get(name);
-        if (jsonString == null) return null;
+        if (argsMap.get(name) == null) return null;
 
-        // 参考
-        // https://stackoverflow.com/questions/6349421/how-to-use-jackson-to-deserialise-an-array-of-objects
-        try {
-            List<Long> idList = objectMapper.readValue(jsonString,
-                    objectMapper.getTypeFactory().constructCollectionType(
-                            List.class, Long.class));
-            return idList;
-        } catch (JsonProcessingException e) {
-            throw new UserInputException("Fail to parse ID list, jsonString = '" + jsonString + "'");
-        }
+        return this.getParsed(name, List.class, jsonString -> {
+            // 参考
+            // https://stackoverflow.com/questions/6349421/how-to-use-jackson-to-deserialise-an-array-of-objects
+            try {
+                List<Long> idList = objectMapper.readValue(jsonString,
+                        objectMapper.getTypeFactory().constructCollectionType(
+                                List.class, Long.class));
+                return Collections.unmodifiableList(idList);
+            } catch (JsonProcessingException e) {
+                throw new UserInputException("Fail to parse ID list, jsonString = '" + jsonString + "'");
+            }
+        });
+    }
+
+    /**
+     * Values which fail to parse are not memoized, so each access throws again.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getParsed(String name, Class<?> type, Function<String, T> parser) {
+        Object parsed = this.parsedValues.get(name);
+        if (type.isInstance(parsed)) return (T) parsed;
+        T value = parser.apply(argsMap.get(name));
+        this.parsedValues.put(name, value);
+        return value;
     }
 }
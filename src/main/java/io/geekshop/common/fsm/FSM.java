@@ -7,7 +7,6 @@ package io.geekshop.common.fsm;
 
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.BooleanUtils;
-import org.springframework.util.CollectionUtils;
 
 import java.util.List;
 
@@ -51,29 +50,38 @@ public class FSM<T, Data> {
      * per the config, then an error will be logged.
      */
     public void transitionTo(T state, Data data) {
-        if (this.canTransitionTo(state)) {
+        this._currentState = transition(this.config, this._currentState, state, data);
+    }
+
+    /**
+     * Attempts to transition from the given state to another one, exactly as {@link #transitionTo(Object, Object)}
+     * does, and returns the resulting state. This allows a single, shared config to be used for many transitions
+     * without creating an FSM instance for each of them.
+     */
+    public static <T, Data> T transition(StateMachineConfig<T, Data> config, T fromState, T toState, Data data) {
+        if (config.canTransition(fromState, toState)) {
             // If the onTransitionStart callback is defined, invoke it. If it returns false,
             // then the transition will be cancelled.
-            Object transitionResult = this.config.onTransitionStart(this._currentState, state, data);
+            Object transitionResult = config.onTransitionStart(fromState, toState, data);
             if (transitionResult != null) {
                 if (transitionResult instanceof Boolean) {
                     Boolean canTransition = (Boolean) transitionResult;
                     if (BooleanUtils.isFalse(canTransition)) {
-                        return;
+                        return fromState;
                     }
                 } else if (transitionResult instanceof String) {
                     String errorMessage = (String) transitionResult;
-                    this.config.onError(this._currentState, state, errorMessage);
-                    return;
+                    config.onError(fromState, toState, errorMessage);
+                    return fromState;
                 }
             }
-            T fromState = this._currentState;
             // All is well, so transition to the new state.
-            this._currentState = state;
             // If the onTransitionEnd callback is defined, invoke it.
-            this.config.onTransitionEnd(fromState, state, data);
+            config.onTransitionEnd(fromState, toState, data);
+            return toState;
         } else {
-            this.config.onError(this._currentState, state, null);
+            config.onError(fromState, toState, null);
+            return fromState;
         }
     }
 
@@ -89,7 +97,7 @@ public class FSM<T, Data> {
      * Returns an array of state to which the machine may transition from the current state.
      */
     public ImmutableList<T> getNextStates() {
-        List<T> nextStates = this.config.getTransitions().get(this._currentState);
+        List<T> nextStates = this.config.getNextStates(this._currentState);
         if (nextStates == null) return ImmutableList.of();
         return ImmutableList.copyOf(nextStates);
     }
@@ -98,9 +106,6 @@ public class FSM<T, Data> {
      * Returns true if the machine can transtion from its current state to the given state.
      */
     public boolean canTransitionTo(T state) {
-        List<T> nextStates = this.config.getTransitions().get(this._currentState);
-        if (CollectionUtils.isEmpty(nextStates)) return false;
-
-        return nextStates.contains(state);
+        return this.config.canTransition(this._currentState, state);
     }
 }
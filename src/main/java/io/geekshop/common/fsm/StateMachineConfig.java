@@ -5,6 +5,8 @@
 
 package io.geekshop.common.fsm;
 
+import java.util.List;
+
 /**
  * The config object used to instantiate a new {@link FSM} instance.
  *
@@ -17,6 +19,23 @@ public interface StateMachineConfig<T, Data> {
      */
     Transitions<T> getTransitions();
 
+    /**
+     * Returns true if the transition from one state to the other is permitted. Configs which keep their
+     * transitions in a precompiled form (see {@link TransitionTableConfig}) override this to avoid looking
+     * through the {@link Transitions}.
+     */
+    default boolean canTransition(T fromState, T toState) {
+        List<T> nextStates = this.getTransitions().get(fromState);
+        return nextStates != null && nextStates.contains(toState);
+    }
+
+    /**
+     * Returns the states to which the machine may transition from the given state.
+     */
+    default List<T> getNextStates(T fromState) {
+        return this.getTransitions().get(fromState);
+    }
+
     /**
      * Called before a transition takes place. If the function resolves to `false` or a string, then the transition
      * will be cancelled. In the case of a string, the string (error message) will be forwarded to the onError handler.
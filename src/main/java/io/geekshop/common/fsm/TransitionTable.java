@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.common.fsm;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.*;
+
+/**
+ * An immutable, precompiled form of {@link Transitions} for state machines whose states are an enum.
+ *
+ * The permitted transitions of each state are kept in an {@link EnumSet} (a bit set), so that testing a transition
+ * neither allocates nor scans a list, and the next states are kept as an {@link ImmutableList} in the order in which
+ * they were defined, so that they can be handed out without being copied. A table is built once (e.g. when the
+ * state machine is initialized) and can then be shared by any number of threads and {@link FSM} instances.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public final class TransitionTable<T extends Enum<T>> {
+    private final Class<T> stateType;
+    private final EnumMap<T, EnumSet<T>> permitted;
+    private final EnumMap<T, ImmutableList<T>> nextStates;
+
+    private TransitionTable(Class<T> stateType, Map<T, List<T>> transitions) {
+        this.stateType = stateType;
+        this.permitted = new EnumMap<>(stateType);
+        this.nextStates = new EnumMap<>(stateType);
+        transitions.forEach((state, toStates) -> {
+            EnumSet<T> permittedStates = EnumSet.noneOf(stateType);
+            ImmutableList.Builder<T> builder = ImmutableList.builder();
+            for(T toState : toStates) {
+                if (permittedStates.add(toState)) {
+                    builder.add(toState);
+                }
+            }
+            this.permitted.put(state, permittedStates);
+            this.nextStates.put(state, builder.build());
+        });
+    }
+
+    public static <T extends Enum<T>> TransitionTable<T> of(Class<T> stateType, Transitions<T> transitions) {
+        return new TransitionTable<>(stateType, transitions);
+    }
+
+    /**
+     * Returns a new table with the given transitions added to the ones of this table. States which are not yet
+     * part of this table are added, and the next states of an existing state are appended to its current ones.
+     */
+    public TransitionTable<T> merge(Transitions<T> transitions) {
+        Map<T, List<T>> merged = new EnumMap<>(this.stateType);
+        this.nextStates.forEach((state, toStates) -> merged.put(state, new ArrayList<>(toStates)));
+        transitions.forEach((state, toStates) ->
+                merged.computeIfAbsent(state, key -> new ArrayList<>()).addAll(toStates));
+        return new TransitionTable<>(this.stateType, merged);
+    }
+
+    public boolean canTransition(T fromState, T toState) {
+        EnumSet<T> permittedStates = this.permitted.get(fromState);
+        return permittedStates != null && permittedStates.contains(toState);
+    }
+
+    public ImmutableList<T> getNextStates(T fromState) {
+        ImmutableList<T> toStates = this.nextStates.get(fromState);
+        return toStates == null ? ImmutableList.of() : toStates;
+    }
+
+    /**
+     * Returns the states defined by this table, in the order of the enum.
+     */
+    public Set<T> getStates() {
+        return Collections.unmodifiableSet(this.nextStates.keySet());
+    }
+
+    /**
+     * Returns a copy of this table as {@link Transitions}.
+     */
+    public Transitions<T> toTransitions() {
+        Transitions<T> transitions = new Transitions<>();
+        transitions.putAll(this.nextStates);
+        return transitions;
+    }
+}
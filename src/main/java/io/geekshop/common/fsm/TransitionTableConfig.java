@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.common.fsm;
+
+import java.util.List;
+
+/**
+ * A {@link StateMachineConfig} whose transitions are defined by a precompiled {@link TransitionTable}, which
+ * lets the {@link FSM} test transitions without any allocation.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public abstract class TransitionTableConfig<T extends Enum<T>, Data> implements StateMachineConfig<T, Data> {
+    private final TransitionTable<T> transitionTable;
+
+    protected TransitionTableConfig(TransitionTable<T> transitionTable) {
+        this.transitionTable = transitionTable;
+    }
+
+    public TransitionTable<T> getTransitionTable() {
+        return this.transitionTable;
+    }
+
+    @Override
+    public Transitions<T> getTransitions() {
+        return this.transitionTable.toTransitions();
+    }
+
+    @Override
+    public boolean canTransition(T fromState, T toState) {
+        return this.transitionTable.canTransition(fromState, toState);
+    }
+
+    @Override
+    public List<T> getNextStates(T fromState) {
+        return this.transitionTable.getNextStates(fromState);
+    }
+}
@@ -6,8 +6,6 @@
 package io.geekshop.config;
 
 import io.geekshop.common.Constant;
-import io.geekshop.common.RequestContext;
-import io.geekshop.common.utils.IdUtil;
 import io.geekshop.config.asset.*;
 import io.geekshop.config.auth.AuthConfig;
 import io.geekshop.config.auth.AuthenticationStrategy;
@@ -19,6 +17,8 @@ import io.geekshop.config.collection.VariantNameCollectionFilter;
 import io.geekshop.config.order.MergeOrdersStrategy;
 import io.geekshop.config.order.OrderCodeGenerator;
 import io.geekshop.config.order.OrderMergeOptions;
+import io.geekshop.config.order.OrderProcessOptions;
+import io.geekshop.config.order.TimeOrderedOrderCodeGenerator;
 import io.geekshop.config.order.UseGuestStrategy;
 import io.geekshop.config.payment_method.ExamplePaymentMethodHandler;
 import io.geekshop.config.payment_method.PaymentOptions;
@@ -32,15 +32,16 @@ import io.geekshop.config.promotion.conditions.ContainsProductsCondition;
 import io.geekshop.config.promotion.conditions.CustomerGroupCondition;
 import io.geekshop.config.promotion.conditions.HasFacetValuesCondition;
 import io.geekshop.config.promotion.conditions.MinimumOrderAmountCondition;
-import io.geekshop.config.session_cache.InMemorySessionCacheStrategy;
-import io.geekshop.config.session_cache.SessionCacheStrategy;
+import io.geekshop.config.session_cache.*;
 import io.geekshop.config.shipping_method.*;
 import io.geekshop.email.EmailSender;
 import io.geekshop.email.FileEmailSender;
 import io.geekshop.email.NoopEmailSender;
 import io.geekshop.email.SmtpEmailSender;
 import io.geekshop.options.ConfigOptions;
+import io.geekshop.options.DistributedSessionCacheOptions;
 import io.geekshop.service.helpers.search_strategy.DbSearchStrategy;
+import io.geekshop.service.helpers.search_strategy.InMemorySearchStrategy;
 import io.geekshop.service.helpers.search_strategy.SearchStrategy;
 import io.geekshop.service.helpers.search_strategy.SearchStrategyUtils;
 import com.google.common.eventbus.AsyncEventBus;
@@ -48,6 +49,7 @@ import com.google.common.eventbus.EventBus;
 import com.mitchellbosecke.pebble.PebbleEngine;
 import com.mitchellbosecke.pebble.loader.ClasspathLoader;
 import com.mitchellbosecke.pebble.loader.Loader;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -57,13 +59,16 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import redis.clients.jedis.JedisPool;
 
+import java.net.URI;
 import java.util.*;
 
 /**
  * Created on Nov, 2020 by @author bobo
  */
 @Configuration
+@Slf4j
 public class AppConfig {
     @Autowired
     private ConfigOptions configOptions;
@@ -133,6 +138,32 @@ public class AppConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(value = "geekshop.auth-options.distributed-session-cache.enabled", havingValue = "true")
+    public JedisPool sessionCacheJedisPool() {
+        return new JedisPool(URI.create(configOptions.getAuthOptions().getDistributedSessionCache().getRedisUri()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "geekshop.auth-options.distributed-session-cache.enabled", havingValue = "true")
+    public RedisSessionCacheInvalidationBus sessionCacheInvalidationBus() {
+        return new RedisSessionCacheInvalidationBus(sessionCacheJedisPool(),
+                configOptions.getAuthOptions().getDistributedSessionCache().getInvalidationChannel());
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "geekshop.auth-options.distributed-session-cache.enabled", havingValue = "true")
+    public SessionCacheStrategy distributedSessionCacheStrategy() {
+        DistributedSessionCacheOptions options = configOptions.getAuthOptions().getDistributedSessionCache();
+        return new DistributedSessionCacheStrategy(
+                new RedisSharedSessionStore(sessionCacheJedisPool(), options.getKeyPrefix()),
+                sessionCacheInvalidationBus(),
+                options.getNearCacheSize(),
+                options.getNearCacheTTL()
+        );
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(SessionCacheStrategy.class)
     public SessionCacheStrategy sessionCacheStrategy() {
         return new InMemorySessionCacheStrategy();
     }
@@ -298,13 +329,36 @@ public class AppConfig {
         );
     }
 
+    /**
+     * Configures custom extensions of the Order process, none by default.
+     */
+    @Bean
+    public OrderProcessOptions orderProcessOptions() {
+        return new OrderProcessOptions(new ArrayList<>());
+    }
+
     @Bean
     public OrderCodeGenerator orderCodeGenerator() {
-        return (RequestContext ctx) -> IdUtil.generatePublicId();
+        Integer nodeId = this.configOptions.getOrderOptions().getOrderCodeNodeId();
+        if (nodeId == null) {
+            if (this.configOptions.getAuthOptions().getDistributedSessionCache().isEnabled()) {
+                log.warn("geekshop.order-options.order-code-node-id is not set although GeekShop runs on several " +
+                        "nodes, so all of them generate Order codes as node 0. Configure a distinct id per node.");
+            }
+            nodeId = 0;
+        }
+        return new TimeOrderedOrderCodeGenerator(nodeId);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "geekshop.search-options.strategy", havingValue = "memory")
+    public InMemorySearchStrategy inMemorySearchStrategy() {
+        return new InMemorySearchStrategy();
     }
 
     @Bean
+    @ConditionalOnMissingBean(SearchStrategy.class)
     public SearchStrategy searchStrategy() {
-        return new DbSearchStrategy();
+        return new DbSearchStrategy(this.configOptions.getSearchOptions().isFacetValueBitmapsEnabled());
     }
 }
@@ -5,7 +5,10 @@
 
 package io.geekshop.config;
 
+import io.geekshop.custom.graphql.PersistedQueryFilter;
 import io.geekshop.custom.scalar.DateTimeScalar;
+import io.geekshop.options.ApiOptions;
+import io.geekshop.options.ConfigOptions;
 import io.geekshop.types.administrator.AdministratorList;
 import io.geekshop.types.asset.AssetList;
 import io.geekshop.types.collection.CollectionList;
@@ -18,7 +21,11 @@ import io.geekshop.types.stock.*;
 import graphql.kickstart.servlet.apollo.ApolloScalars;
 import graphql.kickstart.tools.SchemaParserDictionary;
 import graphql.scalars.ExtendedScalars;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.schema.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -41,4 +48,23 @@ public class GraphQLConfig {
     public GraphQLScalarType json() {
         return ExtendedScalars.Json;
     }
+
+    /**
+     * Serves Automatic Persisted Queries in front of the GraphQL servlet, see {@link PersistedQueryFilter}. The
+     * parsed and validated documents themselves are cached by the
+     * {@link io.geekshop.custom.graphql.CachingPreparsedDocumentProvider}.
+     */
+    @Bean
+    public FilterRegistrationBean<PersistedQueryFilter> persistedQueryFilter(
+            ConfigOptions configOptions,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${graphql.servlet.mapping:/graphql}") String graphqlMapping) {
+        ApiOptions apiOptions = configOptions.getApiOptions();
+        FilterRegistrationBean<PersistedQueryFilter> registration = new FilterRegistrationBean<>(
+                new PersistedQueryFilter(objectMapper, apiOptions.getPersistedQueryCacheSize(), meterRegistry));
+        registration.addUrlPatterns(graphqlMapping);
+        registration.setEnabled(apiOptions.isPersistedQueriesEnabled());
+        return registration;
+    }
 }
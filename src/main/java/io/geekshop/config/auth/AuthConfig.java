@@ -36,7 +36,8 @@ public class AuthConfig {
     /**
      * This strategy defines how sessions will be cached. By default, sessions are cached using a simple
      * in-memory caching strategy which is suitable for development and low-traffic, single-instance
-     * deployments.
+     * deployments. Multi-instance deployments should enable the `DistributedSessionCacheStrategy` via
+     * `geekshop.auth-options.distributed-session-cache.enabled`.
      */
     @Autowired
     private SessionCacheStrategy sessionCacheStrategy;
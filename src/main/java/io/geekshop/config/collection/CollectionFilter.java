@@ -10,6 +10,8 @@ import io.geekshop.common.ConfigurableOperationDef;
 import io.geekshop.entity.ProductVariantEntity;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 
+import java.util.Collection;
+
 /**
  * A CollectionFilter defines a rule which can be used to associate ProductVariants with a Collection.
  * The filtering is done by defining the `apply()` function, which receives a Mybatis-Plus QueryWrapper
@@ -22,4 +24,18 @@ public abstract class CollectionFilter extends ConfigurableOperationDef {
             ConfigArgValues configArgValues,
             QueryWrapper<ProductVariantEntity> resultQueryWrapper
     );
+
+    /**
+     * Like `apply()`, but only the given ProductVariants need to be considered, which is used to update
+     * the Collections after some ProductVariants have changed. The caller already restricts the query to
+     * these ids, so by default this simply delegates to `apply()`. Filters whose `apply()` does work
+     * proportional to the size of the catalog should override this and only do the work for the given ids.
+     */
+    public QueryWrapper<ProductVariantEntity> applyToVariants(
+            ConfigArgValues configArgValues,
+            QueryWrapper<ProductVariantEntity> resultQueryWrapper,
+            Collection<Long> productVariantIds
+    ) {
+        return this.apply(configArgValues, resultQueryWrapper);
+    }
 }
@@ -72,8 +72,30 @@ public class FacetValueCollectionFilter extends CollectionFilter {
     public QueryWrapper<ProductVariantEntity> apply(
             ConfigArgValues configArgValues,
             QueryWrapper<ProductVariantEntity> resultQueryWrapper) {
+        return this.applyInternal(configArgValues, resultQueryWrapper, null);
+    }
+
+    /**
+     * Only loads the FacetValue join rows of the given ProductVariants and of their Products.
+     */
+    @Override
+    public QueryWrapper<ProductVariantEntity> applyToVariants(
+            ConfigArgValues configArgValues,
+            QueryWrapper<ProductVariantEntity> resultQueryWrapper,
+            Collection<Long> productVariantIds) {
+        return this.applyInternal(configArgValues, resultQueryWrapper, productVariantIds);
+    }
+
+    /**
+     * @param productVariantIds if not null, only these ProductVariants are considered
+     */
+    private QueryWrapper<ProductVariantEntity> applyInternal(
+            ConfigArgValues configArgValues,
+            QueryWrapper<ProductVariantEntity> resultQueryWrapper,
+            Collection<Long> productVariantIds) {
         List<Long> facetValueIds = configArgValues.getIdList(CONFIG_NAME_FACET_VALUE_IDS);
-        if (CollectionUtils.isEmpty(facetValueIds)) {
+        if (CollectionUtils.isEmpty(facetValueIds) ||
+                (productVariantIds != null && productVariantIds.isEmpty())) {
             resultQueryWrapper.apply("1 = 0");
             return resultQueryWrapper;
         }
@@ -82,7 +104,9 @@ public class FacetValueCollectionFilter extends CollectionFilter {
         QueryWrapper<ProductVariantFacetValueJoinEntity> variantFacetValueJoinEntityQueryWrapper
                 = new QueryWrapper<>();
         variantFacetValueJoinEntityQueryWrapper.lambda()
-                .in(ProductVariantFacetValueJoinEntity::getFacetValueId, facetValueIds);
+                .in(ProductVariantFacetValueJoinEntity::getFacetValueId, facetValueIds)
+                .in(productVariantIds != null, ProductVariantFacetValueJoinEntity::getProductVariantId,
+                        productVariantIds);
         List<ProductVariantFacetValueJoinEntity> variantFacetValueJoinEntities =
                 this.productVariantFacetValueJoinEntityMapper.selectList(variantFacetValueJoinEntityQueryWrapper);
 
@@ -95,32 +119,50 @@ public class FacetValueCollectionFilter extends CollectionFilter {
         });
 
         // 查询ProductVariant <> Product <> FacetValue关联关系
+        List<ProductVariantEntity> restrictedVariantEntities = null;
         QueryWrapper<ProductFacetValueJoinEntity> productFacetValueJoinEntityQueryWrapper
                 = new QueryWrapper<>();
         productFacetValueJoinEntityQueryWrapper.lambda()
                 .in(ProductFacetValueJoinEntity::getFacetValueId, facetValueIds);
+        if (productVariantIds != null) {
+            QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().in(ProductVariantEntity::getId, productVariantIds)
+                    .select(ProductVariantEntity::getId, ProductVariantEntity::getProductId);
+            restrictedVariantEntities = this.productVariantEntityMapper.selectList(queryWrapper);
+            Set<Long> restrictedProductIds = restrictedVariantEntities.stream()
+                    .map(ProductVariantEntity::getProductId).collect(Collectors.toSet());
+            if (restrictedProductIds.isEmpty()) restrictedProductIds.add(-1L);
+            productFacetValueJoinEntityQueryWrapper.lambda()
+                    .in(ProductFacetValueJoinEntity::getProductId, restrictedProductIds);
+        }
         List<ProductFacetValueJoinEntity> productFacetValueJoinEntities =
                 this.productFacetValueJoinEntityMapper.selectList(productFacetValueJoinEntityQueryWrapper);
         Set<Long> productIds = productFacetValueJoinEntities.stream()
                 .map(ProductFacetValueJoinEntity::getProductId).collect(Collectors.toSet());
 
-        QueryWrapper<ProductVariantEntity> productVariantEntityQueryWrapper = new QueryWrapper<>();
-        productVariantEntityQueryWrapper.lambda()
-                .in(ProductVariantEntity::getProductId, productIds).select()
-                .select(ProductVariantEntity::getId, ProductVariantEntity::getProductId);
-        List<ProductVariantEntity> productVariantEntities =
-                this.productVariantEntityMapper.selectList(productVariantEntityQueryWrapper);
+        List<ProductVariantEntity> productVariantEntities;
+        if (restrictedVariantEntities != null) {
+            productVariantEntities = restrictedVariantEntities.stream()
+                    .filter(v -> productIds.contains(v.getProductId())).collect(Collectors.toList());
+        } else if (productIds.isEmpty()) {
+            productVariantEntities = new ArrayList<>();
+        } else {
+            QueryWrapper<ProductVariantEntity> productVariantEntityQueryWrapper = new QueryWrapper<>();
+            productVariantEntityQueryWrapper.lambda()
+                    .in(ProductVariantEntity::getProductId, productIds)
+                    .select(ProductVariantEntity::getId, ProductVariantEntity::getProductId);
+            productVariantEntities = this.productVariantEntityMapper.selectList(productVariantEntityQueryWrapper);
+        }
 
+        Map<Long, List<ProductFacetValueJoinEntity>> productJoinsByProductId = productFacetValueJoinEntities.stream()
+                .collect(Collectors.groupingBy(ProductFacetValueJoinEntity::getProductId));
         productVariantEntities.forEach(variantEntity -> {
-            Long productId = variantEntity.getProductId();
-            for(ProductFacetValueJoinEntity joinEntity : productFacetValueJoinEntities) {
-                if (productId.equals(joinEntity.getProductId())) {
-                    TempEntry tempEntry = new TempEntry();
-                    tempEntry.setVariantId(variantEntity.getId());
-                    tempEntry.setFacetValueId(joinEntity.getFacetValueId());
-                    if (!tempEntries.contains(tempEntry)) {
-                        tempEntries.add(tempEntry);
-                    }
+            for(ProductFacetValueJoinEntity joinEntity : productJoinsByProductId.get(variantEntity.getProductId())) {
+                TempEntry tempEntry = new TempEntry();
+                tempEntry.setVariantId(variantEntity.getId());
+                tempEntry.setFacetValueId(joinEntity.getFacetValueId());
+                if (!tempEntries.contains(tempEntry)) {
+                    tempEntries.add(tempEntry);
                 }
             }
         });
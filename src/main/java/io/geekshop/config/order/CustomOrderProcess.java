@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.order;
+
+import io.geekshop.common.fsm.Transitions;
+import io.geekshop.service.helpers.order_state_machine.OrderState;
+import io.geekshop.service.helpers.order_state_machine.OrderTransitionData;
+
+/**
+ * A CustomOrderProcess extends the default Order process with additional transitions between the
+ * {@link OrderState}s, and with hooks which are called on each transition of an Order.
+ *
+ * The transitions are merged into the precompiled transition table of the OrderStateMachine once, when the
+ * application starts, so they do not add any cost to the checking of a transition.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public interface CustomOrderProcess {
+    /**
+     * Transitions which are permitted in addition to the default ones.
+     */
+    default Transitions<OrderState> getTransitions() {
+        return new Transitions<>();
+    }
+
+    /**
+     * Called before an Order is transitioned, after the checks of the default process have passed. Returning
+     * `false` or a string (an error message) cancels the transition, exactly as the
+     * {@link io.geekshop.common.fsm.StateMachineConfig#onTransitionStart} of the default process does.
+     */
+    default Object onTransitionStart(OrderState fromState, OrderState toState, OrderTransitionData data) {
+        return null;
+    }
+
+    /**
+     * Called after an Order has been transitioned, after the default process has done its work.
+     */
+    default void onTransitionEnd(OrderState fromState, OrderState toState, OrderTransitionData data) {
+    }
+}
@@ -9,8 +9,8 @@ import io.geekshop.common.RequestContext;
 
 /**
  * Allows a user-defined function to create Order codes. This can be useful when
- * integrating with existing systems. By default, GeekShop will generate a 16-character
- * alphanumeric string.
+ * integrating with existing systems. By default, GeekShop will generate a 21-character
+ * alphanumeric string with the {@link TimeOrderedOrderCodeGenerator}.
  *
  * Note: When using a using a custom function for Order codes, bear in mind the database limit
  * for string types (e.g. 255 chars for a varchar field in MySQL), and also the need
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.order;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderProcessOptions {
+    /**
+     * A list of {@link CustomOrderProcess}es which extend the default Order process. They are applied in
+     * the order of the list.
+     */
+    private final List<CustomOrderProcess> process;
+}
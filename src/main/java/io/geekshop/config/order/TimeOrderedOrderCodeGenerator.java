@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.order;
+
+import io.geekshop.common.RequestContext;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link OrderCodeGenerator}, which generates 21-character codes made of two parts:
+ *
+ * * A 13-character, time-ordered sequence, which is unique without any database round trip: it encodes the
+ *   milliseconds since 2021-01-01 (41 bits), the id of the node (10 bits, `orderOptions.orderCodeNodeId`) and a
+ *   per-node sequence number (12 bits). Since the codes of a node are strictly increasing, new codes are appended
+ *   to the end of the index on the Order code rather than inserted at random positions.
+ * * An 8-character random suffix (40 bits), so that the codes of recent Orders cannot be guessed from each other
+ *   (Orders are accessible by their code, see `orderByCode`).
+ *
+ * The sequence is advanced with a single compare-and-set: if more than 4096 codes are generated within the same
+ * millisecond, or the clock goes backwards, the sequence simply runs ahead of the clock instead of waiting for it.
+ * The codes of different nodes are unique as long as each node is configured with its own node id; even if two
+ * nodes share an id, the random suffix makes a collision very unlikely.
+ *
+ * Both parts use the Crockford Base32 alphabet (no I, L, O or U), whose characters are in ascending order, so
+ * codes sort in the order in which they were generated.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class TimeOrderedOrderCodeGenerator implements OrderCodeGenerator {
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+
+    static final long EPOCH = 1609459200000L; // 2021-01-01T00:00:00Z
+    private static final int NODE_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int SEQUENCE_LENGTH = 13;
+    private static final int RANDOM_LENGTH = 8;
+    private static final SecureRandom random = new SecureRandom();
+
+    private final long nodeId;
+    /**
+     * The timestamp and sequence number of the last code, as `timestamp << SEQUENCE_BITS | sequence`.
+     */
+    private final AtomicLong lastState = new AtomicLong();
+
+    public TimeOrderedOrderCodeGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("The order code node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String generate(RequestContext ctx) {
+        long now = System.currentTimeMillis() - EPOCH;
+        long state = this.lastState.updateAndGet(last -> Math.max(last + 1, now << SEQUENCE_BITS));
+        long timestamp = state >>> SEQUENCE_BITS;
+        long id = (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | (this.nodeId << SEQUENCE_BITS) | (state & SEQUENCE_MASK);
+
+        char[] code = new char[SEQUENCE_LENGTH + RANDOM_LENGTH];
+        encode(id, code, 0, SEQUENCE_LENGTH);
+        encode(random.nextLong(), code, SEQUENCE_LENGTH, RANDOM_LENGTH);
+        return new String(code);
+    }
+
+    private static void encode(long value, char[] target, int offset, int length) {
+        for(int i = offset + length - 1; i >= offset; i--) {
+            target[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+}
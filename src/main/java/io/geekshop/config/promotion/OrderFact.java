@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.promotion;
+
+/**
+ * The facts of an Order which a {@link PromotionCondition} may depend on. They allow the OrderCalculator
+ * to re-use the result of a check for as long as none of the facts it depends on have changed.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public enum OrderFact {
+    /**
+     * The subTotal of the Order, i.e. the total of its OrderLines including item promotions.
+     */
+    SUB_TOTAL,
+    /**
+     * The ProductVariants (and thereby the Facets) and quantities of the OrderLines, but not their prices.
+     */
+    LINES,
+    /**
+     * The Customer of the Order, and thereby its CustomerGroups.
+     */
+    CUSTOMER,
+    /**
+     * The coupon codes applied to the Order.
+     */
+    COUPON_CODES
+}
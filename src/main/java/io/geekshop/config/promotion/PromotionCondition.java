@@ -11,6 +11,8 @@ import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.PromotionEntity;
 import lombok.Getter;
 
+import java.util.Set;
+
 /**
  * PromotionConditions are used to create {@link PromotionEntity}s. The purpose of a PromotionCondition
  * is to check the order against a particular predicate function (the `check` function) and to return `true` if the
@@ -46,4 +48,14 @@ public abstract class PromotionCondition extends ConfigurableOperationDef {
     }
 
     public abstract boolean check(OrderEntity order, ConfigArgValues argValues);
+
+    /**
+     * The facts of the Order which the `check` function depends on. See {@link OrderFact}.
+     *
+     * Defaults to `null`, which means that the check may depend on anything about the Order (e.g. its total
+     * or the prices of its items), so it has to be performed again whenever the Order is tested.
+     */
+    public Set<OrderFact> getOrderFacts() {
+        return null;
+    }
 }
@@ -30,4 +30,15 @@ public abstract class PromotionItemAction extends PromotionAction {
     public abstract float execute(OrderItemEntity orderItem,
                          OrderLineEntity orderLine,
                          ConfigArgValues argValues);
+
+    /**
+     * Whether the result of `execute` depends only on the price & adjustments of the OrderItem and on its
+     * OrderLine, so that it is the same for every item of a group of identical items (see
+     * {@link OrderLineEntity#getItemGroups()}). Such actions are executed once per group instead of once per
+     * item. Actions which can tell the items of a line apart (e.g. "every second item free") must return `false`,
+     * which is the default.
+     */
+    public boolean isUniformPerItemGroup() {
+        return false;
+    }
 }
@@ -56,6 +56,11 @@ public class FacetValuesDiscountAction extends PromotionItemAction {
         return 0.0F;
     }
 
+    @Override
+    public boolean isUniformPerItemGroup() {
+        return true;
+    }
+
     @Override
     public Map<String, ConfigArgDefinition> getArgSpec() {
         return argSpec;
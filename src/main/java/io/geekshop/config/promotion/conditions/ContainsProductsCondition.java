@@ -6,15 +6,18 @@
 package io.geekshop.config.promotion.conditions;
 
 import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.OrderFact;
 import io.geekshop.config.promotion.PromotionCondition;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.OrderLineEntity;
 import io.geekshop.types.common.ConfigArgDefinition;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created on Dec, 2020 by @author bobo
@@ -57,6 +60,11 @@ public class ContainsProductsCondition extends PromotionCondition {
         return matches >= argValues.getInteger("minimum");
     }
 
+    @Override
+    public Set<OrderFact> getOrderFacts() {
+        return EnumSet.of(OrderFact.LINES);
+    }
+
     @Override
     public Map<String, ConfigArgDefinition> getArgSpec() {
         return argSpec;
@@ -6,6 +6,7 @@
 package io.geekshop.config.promotion.conditions;
 
 import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.OrderFact;
 import io.geekshop.config.promotion.PromotionCondition;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.service.CustomerService;
@@ -16,6 +17,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -73,6 +75,11 @@ public class CustomerGroupCondition extends PromotionCondition {
         customerGroupIdsCache.invalidateAll();
     }
 
+    @Override
+    public Set<OrderFact> getOrderFacts() {
+        return EnumSet.of(OrderFact.CUSTOMER);
+    }
+
     @Override
     public Map<String, ConfigArgDefinition> getArgSpec() {
         return argSpec;
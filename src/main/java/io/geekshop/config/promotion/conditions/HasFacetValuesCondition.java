@@ -6,6 +6,7 @@
 package io.geekshop.config.promotion.conditions;
 
 import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.OrderFact;
 import io.geekshop.config.promotion.PromotionCondition;
 import io.geekshop.config.promotion.utils.FacetValueChecker;
 import io.geekshop.entity.OrderEntity;
@@ -14,8 +15,10 @@ import io.geekshop.types.common.ConfigArgDefinition;
 import com.google.common.collect.ImmutableMap;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created on Dec, 2020 by @author bobo
@@ -61,6 +64,11 @@ public class HasFacetValuesCondition extends PromotionCondition {
         return matches >= argValues.getInteger("minimum");
     }
 
+    @Override
+    public Set<OrderFact> getOrderFacts() {
+        return EnumSet.of(OrderFact.LINES);
+    }
+
     @Override
     public Map<String, ConfigArgDefinition> getArgSpec() {
         return argSpec;
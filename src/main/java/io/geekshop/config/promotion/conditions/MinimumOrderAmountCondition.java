@@ -6,13 +6,16 @@
 package io.geekshop.config.promotion.conditions;
 
 import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.OrderFact;
 import io.geekshop.config.promotion.PromotionCondition;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.types.common.ConfigArgDefinition;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created on Dec, 2020 by @author bobo
@@ -40,6 +43,11 @@ public class MinimumOrderAmountCondition extends PromotionCondition {
         return orderEntity.getSubTotal() >= argValues.getInteger("amount");
     }
 
+    @Override
+    public Set<OrderFact> getOrderFacts() {
+        return EnumSet.of(OrderFact.SUB_TOTAL);
+    }
+
     @Override
     public Map<String, ConfigArgDefinition> getArgSpec() {
         return argSpec;
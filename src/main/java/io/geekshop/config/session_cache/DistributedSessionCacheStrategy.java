@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches sessions in a {@link SharedSessionStore} which all server instances can reach, so that a session
+ * which was loaded from the database by one instance is a cache hit on every other instance too.
+ *
+ * Since most requests need the session, each instance additionally keeps a small LRU near-cache in front
+ * of the shared store. Whenever a session is set or deleted, or the cache is cleared, a
+ * {@link SessionCacheInvalidation} is fanned out over the {@link SessionCacheInvalidationBus} so that the
+ * other instances drop their near-cached copy. Entries also expire from the near-cache after
+ * `nearCacheTTL` seconds, which bounds the staleness should an invalidation message get lost.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class DistributedSessionCacheStrategy implements SessionCacheStrategy {
+    private final SharedSessionStore sharedStore;
+    private final SessionCacheInvalidationBus invalidationBus;
+    private final Cache<String, CachedSession> nearCache;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public DistributedSessionCacheStrategy(SharedSessionStore sharedStore,
+                                           SessionCacheInvalidationBus invalidationBus,
+                                           int nearCacheSize,
+                                           long nearCacheTTL) {
+        if (nearCacheSize < 1) {
+            throw new RuntimeException("nearCacheSize must be a positive integer");
+        }
+        this.sharedStore = sharedStore;
+        this.invalidationBus = invalidationBus;
+        this.nearCache = CacheBuilder.newBuilder()
+                .maximumSize(nearCacheSize)
+                .expireAfterWrite(nearCacheTTL, TimeUnit.SECONDS)
+                .build();
+        this.invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public void set(CachedSession session) {
+        this.sharedStore.set(session);
+        this.nearCache.put(session.getToken(), session);
+        // the other instances may hold a previous version of the session (e.g. with another active order)
+        this.invalidationBus.publish(new SessionCacheInvalidation(this.instanceId, session.getToken()));
+    }
+
+    @Override
+    public CachedSession get(String sessionToken) {
+        CachedSession session = this.nearCache.getIfPresent(sessionToken);
+        if (session != null) return session;
+
+        session = this.sharedStore.get(sessionToken);
+        if (session != null) {
+            this.nearCache.put(sessionToken, session);
+        }
+        return session;
+    }
+
+    @Override
+    public void delete(String sessionToken) {
+        this.sharedStore.delete(sessionToken);
+        this.nearCache.invalidate(sessionToken);
+        this.invalidationBus.publish(new SessionCacheInvalidation(this.instanceId, sessionToken));
+    }
+
+    @Override
+    public void clear() {
+        this.sharedStore.clear();
+        this.nearCache.invalidateAll();
+        this.invalidationBus.publish(new SessionCacheInvalidation(this.instanceId, null));
+    }
+
+    private void onInvalidation(SessionCacheInvalidation invalidation) {
+        if (Objects.equals(invalidation.getSourceId(), this.instanceId)) return;
+        if (invalidation.getToken() == null) {
+            this.nearCache.invalidateAll();
+        } else {
+            this.nearCache.invalidate(invalidation.getToken());
+        }
+    }
+}
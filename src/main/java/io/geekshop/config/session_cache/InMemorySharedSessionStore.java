@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link SharedSessionStore} which is only shared within the current process. Useful for testing the
+ * {@link DistributedSessionCacheStrategy} by letting several instances of it share one store.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class InMemorySharedSessionStore implements SharedSessionStore {
+    private final Map<String, CachedSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void set(CachedSession session) {
+        this.sessions.put(session.getToken(), session);
+    }
+
+    @Override
+    public CachedSession get(String sessionToken) {
+        return this.sessions.get(sessionToken);
+    }
+
+    @Override
+    public void delete(String sessionToken) {
+        this.sessions.remove(sessionToken);
+    }
+
+    @Override
+    public void clear() {
+        this.sessions.clear();
+    }
+}
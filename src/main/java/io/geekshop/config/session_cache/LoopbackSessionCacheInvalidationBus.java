@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A {@link SessionCacheInvalidationBus} which synchronously delivers each message to all listeners
+ * within the current process. Useful for testing the {@link DistributedSessionCacheStrategy}.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class LoopbackSessionCacheInvalidationBus implements SessionCacheInvalidationBus {
+    private final List<Consumer<SessionCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(SessionCacheInvalidation invalidation) {
+        this.listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<SessionCacheInvalidation> listener) {
+        this.listeners.add(listener);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A {@link SessionCacheInvalidationBus} using Redis pub/sub. The subscription is held by a dedicated
+ * daemon thread, which re-subscribes after a lost connection.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Slf4j
+public class RedisSessionCacheInvalidationBus implements SessionCacheInvalidationBus, Closeable {
+    private static final long RESUBSCRIBE_DELAY_MS = 1000;
+
+    private static ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JedisPool jedisPool;
+    private final String channel;
+    private final List<Consumer<SessionCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+    private final JedisPubSub pubSub = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            onInvalidationMessage(message);
+        }
+    };
+    private volatile boolean closed;
+
+    public RedisSessionCacheInvalidationBus(JedisPool jedisPool, String channel) {
+        this.jedisPool = jedisPool;
+        this.channel = channel;
+        Thread subscriber = new Thread(this::subscribeLoop, "SessionCacheInvalidation");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @Override
+    public void publish(SessionCacheInvalidation invalidation) {
+        try (Jedis jedis = this.jedisPool.getResource()) {
+            jedis.publish(this.channel, objectMapper.writeValueAsString(invalidation));
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<SessionCacheInvalidation> listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.pubSub.isSubscribed()) {
+            this.pubSub.unsubscribe();
+        }
+    }
+
+    private void subscribeLoop() {
+        while (!this.closed) {
+            try (Jedis jedis = this.jedisPool.getResource()) {
+                jedis.subscribe(this.pubSub, this.channel); // blocks until unsubscribed
+            } catch (Exception ex) {
+                if (this.closed) return;
+                log.warn("Lost the session cache invalidation subscription, re-subscribing", ex);
+                try {
+                    Thread.sleep(RESUBSCRIBE_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void onInvalidationMessage(String message) {
+        SessionCacheInvalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(message, SessionCacheInvalidation.class);
+        } catch (JsonProcessingException ex) {
+            log.warn("Ignoring malformed session cache invalidation message: " + message);
+            return;
+        }
+        this.listeners.forEach(listener -> listener.accept(invalidation));
+    }
+}
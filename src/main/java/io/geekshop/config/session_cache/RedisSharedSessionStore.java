@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.List;
+
+/**
+ * A {@link SharedSessionStore} backed by Redis. Each session is stored as JSON under `keyPrefix + token`
+ * and expires from Redis together with its `cacheExpiry`.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class RedisSharedSessionStore implements SharedSessionStore {
+    private static final int CLEAR_BATCH_SIZE = 500;
+
+    private static ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JedisPool jedisPool;
+    private final String keyPrefix;
+
+    public RedisSharedSessionStore(JedisPool jedisPool, String keyPrefix) {
+        this.jedisPool = jedisPool;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public void set(CachedSession session) {
+        long ttlInSeconds = Math.max(1, (session.getCacheExpiry() - System.currentTimeMillis()) / 1000);
+        try (Jedis jedis = this.jedisPool.getResource()) {
+            jedis.setex(this.keyPrefix + session.getToken(), (int) ttlInSeconds, objectMapper.writeValueAsString(session));
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public CachedSession get(String sessionToken) {
+        String json;
+        try (Jedis jedis = this.jedisPool.getResource()) {
+            json = jedis.get(this.keyPrefix + sessionToken);
+        }
+        if (json == null) return null;
+        try {
+            return objectMapper.readValue(json, CachedSession.class);
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void delete(String sessionToken) {
+        try (Jedis jedis = this.jedisPool.getResource()) {
+            jedis.del(this.keyPrefix + sessionToken);
+        }
+    }
+
+    /**
+     * Deletes the sessions in batches of keys found by `SCAN`, so that Redis is never blocked by a `KEYS`.
+     */
+    @Override
+    public void clear() {
+        ScanParams scanParams = new ScanParams().match(this.keyPrefix + "*").count(CLEAR_BATCH_SIZE);
+        try (Jedis jedis = this.jedisPool.getResource()) {
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> result = jedis.scan(cursor, scanParams);
+                List<String> keys = result.getResult();
+                if (!keys.isEmpty()) {
+                    jedis.del(keys.toArray(new String[0]));
+                }
+                cursor = result.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A message telling the other server instances to drop a session from their near-caches.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionCacheInvalidation {
+    /**
+     * Identifies the instance which sent the message, so that it can ignore its own messages.
+     */
+    private String sourceId;
+    /**
+     * The token of the invalidated session, or `null` if the whole cache was cleared.
+     */
+    private String token;
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Fans out {@link SessionCacheInvalidation} messages to all server instances, such as via Redis pub/sub.
+ * Messages are delivered at most once, so the near-caches must also expire entries on their own.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public interface SessionCacheInvalidationBus {
+    /**
+     * Send the message to all subscribers, including those of the sending instance.
+     */
+    void publish(SessionCacheInvalidation invalidation);
+    /**
+     * Register a listener for the messages sent by any instance.
+     */
+    void subscribe(Consumer<SessionCacheInvalidation> listener);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+/**
+ * The shared tier of the {@link DistributedSessionCacheStrategy}, i.e. a cache which is reachable by all
+ * server instances, such as Redis.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public interface SharedSessionStore {
+    /**
+     * Store the session. Implementations may expire the entry once its `cacheExpiry` has passed.
+     */
+    void set(CachedSession session);
+    /**
+     * Retrieve the session, or `null` if there is none.
+     */
+    CachedSession get(String sessionToken);
+    /**
+     * Delete a session from the store
+     */
+    void delete(String sessionToken);
+    /**
+     * Delete all sessions from the store
+     */
+    void clear();
+}
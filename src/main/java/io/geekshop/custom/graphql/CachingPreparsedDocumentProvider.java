@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.service.ConfigService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Keeps the parsed and validated GraphQL documents of recent queries, keyed by the query text, so that the
+ * (small, fixed) set of queries sent by the storefront is only parsed and validated against the schema once
+ * rather than on every request.
+ *
+ * Documents which fail parsing or validation are not cached, so that arbitrary invalid queries cannot evict the
+ * valid ones. The size of the cache is set by `apiOptions.documentCacheSize`.
+ *
+ * Hits, misses and evictions are exposed as the Micrometer cache metrics, tagged with `cache=graphql.documents`.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider {
+    private final Cache<String, PreparsedDocumentEntry> cache;
+
+    public CachingPreparsedDocumentProvider(ConfigService configService, MeterRegistry meterRegistry) {
+        long documentCacheSize = configService.getApiOptions().getDocumentCacheSize();
+        if (documentCacheSize > 0) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(documentCacheSize).recordStats().build();
+            GuavaCacheMetrics.monitor(meterRegistry, this.cache, "graphql.documents");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                              Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate) {
+        if (this.cache == null) {
+            return parseAndValidate.apply(executionInput);
+        }
+        String query = executionInput.getQuery();
+        PreparsedDocumentEntry entry = this.cache.getIfPresent(query);
+        if (entry == null) {
+            entry = parseAndValidate.apply(executionInput);
+            if (!entry.hasErrors()) {
+                this.cache.put(query, entry);
+            }
+        }
+        return entry;
+    }
+}
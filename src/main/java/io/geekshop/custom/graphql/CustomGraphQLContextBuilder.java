@@ -8,44 +8,22 @@ package io.geekshop.custom.graphql;
 import io.geekshop.common.Constant;
 import io.geekshop.mapper.*;
 import io.geekshop.resolver.dataloader.*;
-import io.geekshop.types.address.Address;
-import io.geekshop.types.administrator.Administrator;
-import io.geekshop.types.asset.Asset;
-import io.geekshop.types.collection.Collection;
-import io.geekshop.types.customer.Customer;
-import io.geekshop.types.customer.CustomerGroup;
-import io.geekshop.types.facet.Facet;
-import io.geekshop.types.facet.FacetValue;
-import io.geekshop.types.order.Fulfillment;
-import io.geekshop.types.order.Order;
-import io.geekshop.types.order.OrderItem;
-import io.geekshop.types.order.OrderLine;
-import io.geekshop.types.payment.Payment;
-import io.geekshop.types.payment.Refund;
-import io.geekshop.types.product.Product;
-import io.geekshop.types.product.ProductOption;
-import io.geekshop.types.product.ProductOptionGroup;
-import io.geekshop.types.product.ProductVariant;
-import io.geekshop.types.promotion.Promotion;
-import io.geekshop.types.role.Role;
-import io.geekshop.types.shipping.ShippingMethod;
-import io.geekshop.types.user.AuthenticationMethod;
-import io.geekshop.types.user.User;
+import io.geekshop.service.helpers.catalog_cache.CatalogEntityCache;
 import graphql.kickstart.execution.context.DefaultGraphQLContext;
 import graphql.kickstart.execution.context.GraphQLContext;
 import graphql.kickstart.servlet.context.DefaultGraphQLServletContext;
 import graphql.kickstart.servlet.context.DefaultGraphQLWebSocketContext;
 import graphql.kickstart.servlet.context.GraphQLServletContextBuilder;
 import lombok.RequiredArgsConstructor;
-import org.dataloader.DataLoader;
 import org.dataloader.DataLoaderRegistry;
+import org.dataloader.MappedBatchLoader;
+import org.dataloader.MappedBatchLoaderWithContext;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.websocket.Session;
 import javax.websocket.server.HandshakeRequest;
-import java.util.List;
 
 /**
  * Created on Nov, 2020 by @author bobo
@@ -86,6 +64,9 @@ public class CustomGraphQLContextBuilder implements GraphQLServletContextBuilder
     private final ShippingMethodEntityMapper shippingMethodEntityMapper;
     private final OrderLineEntityMapper orderLineEntityMapper;
     private final RefundEntityMapper refundEntityMapper;
+    private final DataLoaderExecutor dataLoaderExecutor;
+    private final DataLoaderMetrics dataLoaderMetrics;
+    private final CatalogEntityCache catalogEntityCache;
 
     @Override
     public GraphQLContext build(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) {
@@ -109,265 +90,196 @@ public class CustomGraphQLContextBuilder implements GraphQLServletContextBuilder
     private DataLoaderRegistry buildDataLoaderRegistry() {
         DataLoaderRegistry dataLoaderRegistry = new DataLoaderRegistry();
 
-        DataLoader<Long, User> administratorUserDataLoader = DataLoader.newMappedDataLoader(
-                new AdministratorUserDataLoader(this.userEntityMapper, this.administratorEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_ADMINISTRATOR_USER, administratorUserDataLoader);
-
-        DataLoader<Long, Administrator> historyEntryAdministratorDataLoader = DataLoader.newMappedDataLoader(
-                new HistoryEntryAdministratorDataLoader(this.administratorEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_HISTORY_ENTRY_ADMINISTRATOR,
-                historyEntryAdministratorDataLoader);
-
-        DataLoader<Long, User> customerUserDataLoader = DataLoader.newMappedDataLoader(
-                new CustomerUserDataLoader(this.userEntityMapper, this.customerEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_CUSTOMER_USER, customerUserDataLoader);
-
-        DataLoader<Long, List<Address>> customerAddressesDataLoader = DataLoader.newMappedDataLoader(
-                new CustomerAddressesDataLoader(this.addressEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_CUSTOMER_ADDRESSES, customerAddressesDataLoader);
-
-        DataLoader<Long, List<CustomerGroup>> customerGroupDataLoader = DataLoader.newMappedDataLoader(
-                new CustomerGroupsDataLoader(this.customerGroupJoinEntityMapper, this.customerGroupEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_CUSTOMER_GROUPS, customerGroupDataLoader);
-
-        DataLoader<Long, List<Role>> userRolesDataLoader = DataLoader.newMappedDataLoader(
-                new UserRolesDataLoader(this.userRoleJoinEntityMapper, this.roleEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_USER_ROLES, userRolesDataLoader);
-
-        DataLoader<Long, List<AuthenticationMethod>> userAuthenticationMethodsDataLoader =
-                DataLoader.newMappedDataLoader(
-                        new UserAuthenticationMethodsDataLoader(this.authenticationMethodEntityMapper));
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_USER_AUTHENTICATION_METHODS, userAuthenticationMethodsDataLoader);
-
-        DataLoader<Long, Facet> facetValueFacetDataLoader = DataLoader.newMappedDataLoader(
-                new FacetValueFacetDataLoader((this.facetEntityMapper))
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_FACET_VALUE_FACET, facetValueFacetDataLoader);
-
-        DataLoader<Long, List<FacetValue>> facetValuesDataLoader = DataLoader.newMappedDataLoader(
-                new FacetValuesDataLoader(this.facetValueEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_FACET_VALUES, facetValuesDataLoader);
-
-        DataLoader<Long, List<ProductOption>> productOptionsDataLoader = DataLoader.newMappedDataLoader(
-                new ProductOptionsDataLoader(this.productOptionEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_PRODUCT_OPTIONS, productOptionsDataLoader);
-
-        DataLoader<Long, ProductOptionGroup> productOptionGroupDataLoader = DataLoader.newMappedDataLoader(
-                new ProductOptionGroupDataLoader(this.productOptionGroupEntityMapper)
-        );
-        dataLoaderRegistry.register(Constant.DATA_LOADER_NAME_PRODUCT_OPTION_GROUP, productOptionGroupDataLoader);
-
-        DataLoader<Long, Asset> productFeaturedAssetDataLoader = DataLoader.newMappedDataLoader(
-                new FeaturedAssetDataLoader(this.assetEntityMapper)
-        ) ;
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_FEATURED_ASSET, productFeaturedAssetDataLoader
-        );
-
-        DataLoader<Long, List<Asset>> productAssetsDataLoader = DataLoader.newMappedDataLoader(
-                new ProductAssetsDataLoader(this.productAssetJoinEntityMapper, this.assetEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_ASSETS, productAssetsDataLoader
-        );
-
-        DataLoader<Long, List<ProductVariant>> productVariantsDataLoader = DataLoader.newMappedDataLoader(
-                new ProductVariantsDataLoader(this.productVariantEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANTS, productVariantsDataLoader
-        );
-
-        DataLoader<Long, List<ProductOptionGroup>> productOptionGroupsDataLoader = DataLoader.newMappedDataLoader(
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ADMINISTRATOR_USER,
+                new AdministratorUserDataLoader(
+                        this.userEntityMapper,
+                        this.administratorEntityMapper,
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_HISTORY_ENTRY_ADMINISTRATOR,
+                new HistoryEntryAdministratorDataLoader(this.administratorEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_CUSTOMER_USER,
+                new CustomerUserDataLoader(this.userEntityMapper, this.customerEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_CUSTOMER_ADDRESSES,
+                new CustomerAddressesDataLoader(this.addressEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_CUSTOMER_GROUPS,
+                new CustomerGroupsDataLoader(
+                        this.customerGroupJoinEntityMapper,
+                        this.customerGroupEntityMapper,
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_USER_ROLES,
+                new UserRolesDataLoader(this.userRoleJoinEntityMapper, this.roleEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_USER_AUTHENTICATION_METHODS,
+                new UserAuthenticationMethodsDataLoader(
+                        this.authenticationMethodEntityMapper,
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_FACET_VALUE_FACET,
+                new FacetValueFacetDataLoader(this.facetEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_FACET_VALUES,
+                new FacetValuesDataLoader(this.facetValueEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_OPTIONS,
+                new ProductOptionsDataLoader(this.productOptionEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_OPTION_GROUP,
+                new ProductOptionGroupDataLoader(
+                        this.productOptionGroupEntityMapper,
+                        this.catalogEntityCache.getProductOptionGroups(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_FEATURED_ASSET,
+                new FeaturedAssetDataLoader(
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_ASSETS,
+                new ProductAssetsDataLoader(
+                        this.productAssetJoinEntityMapper,
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANTS,
+                new ProductVariantsDataLoader(this.productVariantEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_OPTION_GROUPS,
                 new ProductOptionGroupsDataLoader(
-                        this.productOptionGroupJoinEntityMapper, this.productOptionGroupEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_OPTION_GROUPS, productOptionGroupsDataLoader
-        );
+                        this.productOptionGroupJoinEntityMapper,
+                        this.productOptionGroupEntityMapper,
+                        this.catalogEntityCache.getProductOptionGroups(),
+                        this.dataLoaderExecutor));
 
-        DataLoader<Long, List<FacetValue>> productFacetValuesDataLoader = DataLoader.newMappedDataLoader(
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_FACET_VALUES,
                 new ProductFacetValuesDataLoader(
                         this.productFacetValueJoinEntityMapper,
                         this.facetValueEntityMapper,
-                        this.facetEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_FACET_VALUES, productFacetValuesDataLoader
-        );
-
-        DataLoader<Long, Asset> productVariantFeaturedAssetDataLoader = DataLoader.newMappedDataLoader(
-                new FeaturedAssetDataLoader(this.assetEntityMapper)
-        ) ;
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_FEATURED_ASSET, productVariantFeaturedAssetDataLoader
-        );
-
-        DataLoader<Long, Product> productVariantProductDataLoader = DataLoader.newMappedDataLoader(
-                new ProductVariantProductDataLoader(this.productEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_PRODUCT, productVariantProductDataLoader
-        );
-
-        DataLoader<Long, List<Asset>> productVariantAssetsDataLoader = DataLoader.newMappedDataLoader(
-                new ProductVariantAssetsDataLoader(this.productVariantAssetJoinEntityMapper, this.assetEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_ASSETS, productVariantAssetsDataLoader
-        );
-
-        DataLoader<Long, List<ProductOption>> productVariantOptionsDataLoader = DataLoader.newMappedDataLoader(
+                        this.facetEntityMapper,
+                        this.catalogEntityCache.getFacetValues(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_FEATURED_ASSET,
+                new FeaturedAssetDataLoader(
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_PRODUCT,
+                new ProductVariantProductDataLoader(
+                        this.productEntityMapper,
+                        this.catalogEntityCache.getProducts(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_ASSETS,
+                new ProductVariantAssetsDataLoader(
+                        this.productVariantAssetJoinEntityMapper,
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_OPTIONS,
                 new ProductVariantOptionsDataLoader(
-                        this.productVariantProductOptionJoinEntityMapper,this.productOptionEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_OPTIONS, productVariantOptionsDataLoader
-        );
+                        this.productVariantProductOptionJoinEntityMapper,
+                        this.productOptionEntityMapper,
+                        this.dataLoaderExecutor));
 
-        DataLoader<Long, List<FacetValue>> productVariantFacetValuesDataLoader = DataLoader.newMappedDataLoader(
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_FACET_VALUES,
                 new ProductVariantFacetValuesDataLoader(
                         this.productVariantFacetValueJoinEntityMapper,
                         this.facetValueEntityMapper,
-                        this.facetEntityMapper
-                )
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PRODUCT_VARIANT_FACET_VALUES, productVariantFacetValuesDataLoader
-        );
-
-        DataLoader<Long, Asset> collectionFeaturedAssetDataLoader = DataLoader.newMappedDataLoader(
-                new FeaturedAssetDataLoader(this.assetEntityMapper)
-        ) ;
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_COLLECTION_FEATURED_ASSET, collectionFeaturedAssetDataLoader
-        );
-
-        DataLoader<Long, List<Asset>> collectionAssetsDataLoader = DataLoader.newMappedDataLoader(
-                new CollectionAssetsDataLoader(this.collectionAssetJoinEntityMapper, this.assetEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_COLLECTION_ASSETS, collectionAssetsDataLoader
-        );
-
-        DataLoader<Long, Collection> collectionParentDataLoader = DataLoader.newMappedDataLoader(
-                new CollectionParentDataLoader(this.collectionEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_COLLECTION_PARENT, collectionParentDataLoader
-        );
-
-        DataLoader<Long, List<Collection>> collectionChildrenDataLoader = DataLoader.newMappedDataLoader(
-                new CollectionChildrenDataLoader(this.collectionEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_COLLECTION_CHILDREN, collectionChildrenDataLoader
-        );
-
-        DataLoader<Long, ProductVariant> orderLineProductVariantDataLoader = DataLoader.newMappedDataLoader(
-                new ProductVariantDataLoader(this.productVariantEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_LINE_PRODUCT_VARIANT, orderLineProductVariantDataLoader
-        );
-
-        DataLoader<Long, Asset> orderLineFeaturedAssetDataLoader = DataLoader.newMappedDataLoader(
-                new FeaturedAssetDataLoader(this.assetEntityMapper)
-        ) ;
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_LINE_FEATURED_ASSET, orderLineFeaturedAssetDataLoader
-        );
-
-        DataLoader<Long, Order> orderLineOrderDataLoader = DataLoader.newMappedDataLoader(
-                new OrderDataLoader(this.orderEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_LINE_ORDER, orderLineOrderDataLoader
-        );
-
-        DataLoader<Long, Fulfillment> orderItemFulfillmentDataLoader = DataLoader.newMappedDataLoader(
-                new FulfillmentDataLoader(this.fulfillmentEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_ITEM_FULFILLMENT, orderItemFulfillmentDataLoader
-        );
-
-        DataLoader<Long, List<OrderItem>> fulfillmentOrderItemsDataLoader = DataLoader.newMappedDataLoader(
-                new FulfillmentOrderItemsDataLoder(this.orderItemEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_FULFILLMENT_ORDER_ITEMS, fulfillmentOrderItemsDataLoader
-        );
-
-        DataLoader<Long, Customer> orderCustomerDataLoader = DataLoader.newMappedDataLoader(
-                new CustomerDataLoader(this.customerEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_CUSTOMER, orderCustomerDataLoader
-        );
-
-        DataLoader<Long, List<Promotion>> orderPromotionsDataLoader = DataLoader.newMappedDataLoader(
+                        this.facetEntityMapper,
+                        this.catalogEntityCache.getFacetValues(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_COLLECTION_FEATURED_ASSET,
+                new FeaturedAssetDataLoader(
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_COLLECTION_ASSETS,
+                new CollectionAssetsDataLoader(
+                        this.collectionAssetJoinEntityMapper,
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_COLLECTION_PARENT,
+                new CollectionParentDataLoader(this.collectionEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_COLLECTION_CHILDREN,
+                new CollectionChildrenDataLoader(this.collectionEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_LINE_PRODUCT_VARIANT,
+                new ProductVariantDataLoader(
+                        this.productVariantEntityMapper,
+                        this.catalogEntityCache.getProductVariants(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_LINE_FEATURED_ASSET,
+                new FeaturedAssetDataLoader(
+                        this.assetEntityMapper,
+                        this.catalogEntityCache.getAssets(),
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_LINE_ORDER,
+                new OrderDataLoader(this.orderEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_ITEM_FULFILLMENT,
+                new FulfillmentDataLoader(this.fulfillmentEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_FULFILLMENT_ORDER_ITEMS,
+                new FulfillmentOrderItemsDataLoder(this.orderItemEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_CUSTOMER,
+                new CustomerDataLoader(this.customerEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_PROMOTIONS,
                 new OrderPromotionsDataLoader(
                         this.orderPromotionJoinEntityMapper,
-                        this.promotionEntityMapper
-                )
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_PROMOTIONS, orderPromotionsDataLoader
-        );
-
-        DataLoader<Long, List<Payment>> orderPaymentsDataLoader = DataLoader.newMappedDataLoader(
-                new OrderPaymentsDataLoader(this.paymentEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_PAYMENTS, orderPaymentsDataLoader
-        );
-
-        DataLoader<Long, ShippingMethod> orderShippingMethodDataLoader = DataLoader.newMappedDataLoader(
-                new ShippingMethodDataLoader(this.shippingMethodEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_SHIPPING_METHOD, orderShippingMethodDataLoader
-        );
-
-        DataLoader<Long, List<OrderItem>> orderLineItemsDataLoader = DataLoader.newMappedDataLoader(
-                new OrderLineItemsDataLoader(this.orderItemEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_LINE_ITEMS, orderLineItemsDataLoader
-        );
-
-        DataLoader<Long, List<OrderLine>> orderLinesDataLoader = DataLoader.newMappedDataLoader(
-                new OrderLinesDataLoader(this.orderLineEntityMapper, this.orderItemEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_ORDER_LINES, orderLinesDataLoader
-        );
-
-        DataLoader<Long, List<Refund>> paymentRefundsDataLoader = DataLoader.newMappedDataLoader(
-                new PaymentRefundsDataLoader(this.refundEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_PAYMENT_REFUNDS, paymentRefundsDataLoader
-        );
-
-        DataLoader<Long, List<OrderItem>> refundOrderItemsDataLoader = DataLoader.newMappedDataLoader(
-                new RefundOrderItemsDataLoader(this.orderItemEntityMapper)
-        );
-        dataLoaderRegistry.register(
-                Constant.DATA_LOADER_NAME_REFUND_ORDER_ITEMS, refundOrderItemsDataLoader
-        );
+                        this.promotionEntityMapper,
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_PAYMENTS,
+                new OrderPaymentsDataLoader(this.paymentEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_SHIPPING_METHOD,
+                new ShippingMethodDataLoader(this.shippingMethodEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_LINE_ITEMS,
+                new OrderLineItemsDataLoader(this.orderItemEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_ORDER_LINES,
+                new OrderLinesDataLoader(
+                        this.orderLineEntityMapper,
+                        this.orderItemEntityMapper,
+                        this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_PAYMENT_REFUNDS,
+                new PaymentRefundsDataLoader(this.refundEntityMapper, this.dataLoaderExecutor));
+
+        this.register(dataLoaderRegistry, Constant.DATA_LOADER_NAME_REFUND_ORDER_ITEMS,
+                new RefundOrderItemsDataLoader(this.orderItemEntityMapper, this.dataLoaderExecutor));
 
         return dataLoaderRegistry;
     }
+
+    private <K, V> void register(DataLoaderRegistry dataLoaderRegistry,
+                                 String name,
+                                 MappedBatchLoader<K, V> batchLoader) {
+        dataLoaderRegistry.register(name, this.dataLoaderMetrics.newMappedDataLoader(name, batchLoader));
+    }
+
+    private <K, V> void register(DataLoaderRegistry dataLoaderRegistry,
+                                 String name,
+                                 MappedBatchLoaderWithContext<K, V> batchLoader) {
+        dataLoaderRegistry.register(name, this.dataLoaderMetrics.newMappedDataLoader(name, batchLoader));
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ApiOptions;
+import io.geekshop.options.DataLoaderExecutorType;
+import io.geekshop.service.ConfigService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link Executor} on which the DataLoaders run their batch loads, instead of the shared
+ * `ForkJoinPool.commonPool()`, whose few threads would otherwise be blocked on the database by slow batches while
+ * parallel streams and other async work wait for them.
+ *
+ * Depending on `apiOptions.dataLoaderExecutor`, batch loads are either executed in a dedicated pool of
+ * `apiOptions.dataLoaderPoolSize` threads, or inline on the thread which dispatches the DataLoaders. The queue of
+ * the pool is bounded: once it is full, batch loads are executed on the dispatching thread as well, so that an
+ * overloaded pool slows down the requests issuing the batch loads rather than queueing work without limit.
+ *
+ * The pool is monitored with the Micrometer executor metrics (e.g. `executor.queued`, `executor.active`),
+ * tagged with `name=geekshop.dataloader`.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+public class DataLoaderExecutor implements Executor {
+    private final ExecutorService pool;
+
+    public DataLoaderExecutor(ConfigService configService, MeterRegistry meterRegistry) {
+        ApiOptions apiOptions = configService.getApiOptions();
+        if (apiOptions.getDataLoaderExecutor() == DataLoaderExecutorType.pool) {
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    apiOptions.getDataLoaderPoolSize(),
+                    apiOptions.getDataLoaderPoolSize(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(apiOptions.getDataLoaderQueueCapacity()),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "DataLoader-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    // unlike CallerRunsPolicy, also runs the task once the pool is shut down, so that no
+                    // DataLoader is left with a future which never completes
+                    (runnable, executor) -> runnable.run());
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.pool = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "geekshop.dataloader");
+        } else {
+            this.pool = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (this.pool == null) {
+            command.run();
+        } else {
+            this.pool.execute(command);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+        }
+    }
+}
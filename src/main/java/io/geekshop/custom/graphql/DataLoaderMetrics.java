@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.service.ConfigService;
+import io.micrometer.core.instrument.*;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.MappedBatchLoader;
+import org.dataloader.MappedBatchLoaderWithContext;
+import org.dataloader.stats.SimpleStatisticsCollector;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates the DataLoaders of each request and records their statistics as metrics, so that the effectiveness of
+ * each DataLoader can be observed across requests (the statistics of a DataLoader itself only cover the request
+ * it belongs to).
+ *
+ * Exposes the following metrics, each tagged by `loader` (the name the DataLoader is registered under):
+ * * `geekshop.dataloader.loads`: the number of keys loaded
+ * * `geekshop.dataloader.cache.hits`: the number of keys answered from the cache of the DataLoader
+ * * `geekshop.dataloader.cache.hit.ratio`: the ratio of the above two
+ * * `geekshop.dataloader.batch.size`: the number of keys of each batch load
+ * * `geekshop.dataloader.batch`: the latency of each batch load, including the time it waits for a thread
+ * * `geekshop.dataloader.batch.errors`: the number of batch loads which failed
+ *
+ * Metrics are only recorded if `apiOptions.dataLoaderMetricsEnabled` is set.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+public class DataLoaderMetrics {
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final ConcurrentMap<String, LoaderMeters> loaderMeters = new ConcurrentHashMap<>();
+
+    public DataLoaderMetrics(ConfigService configService, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = configService.getApiOptions().isDataLoaderMetricsEnabled();
+    }
+
+    public <K, V> DataLoader<K, V> newMappedDataLoader(String name, MappedBatchLoader<K, V> batchLoader) {
+        if (!this.enabled) {
+            return DataLoader.newMappedDataLoader(batchLoader);
+        }
+        LoaderMeters meters = this.loaderMeters.computeIfAbsent(name, LoaderMeters::new);
+        return DataLoader.newMappedDataLoader(keys -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            return batchLoader.load(keys).whenComplete((result, ex) -> sample.stop(meters.batchTimer));
+        }, DataLoaderOptions.newOptions().setStatisticsCollector(() -> new MeteredStatisticsCollector(meters)));
+    }
+
+    public <K, V> DataLoader<K, V> newMappedDataLoader(String name, MappedBatchLoaderWithContext<K, V> batchLoader) {
+        if (!this.enabled) {
+            return DataLoader.newMappedDataLoader(batchLoader);
+        }
+        LoaderMeters meters = this.loaderMeters.computeIfAbsent(name, LoaderMeters::new);
+        return DataLoader.newMappedDataLoader((keys, environment) -> {
+            Timer.Sample sample = Timer.start(this.meterRegistry);
+            return batchLoader.load(keys, environment).whenComplete((result, ex) -> sample.stop(meters.batchTimer));
+        }, DataLoaderOptions.newOptions().setStatisticsCollector(() -> new MeteredStatisticsCollector(meters)));
+    }
+
+    private class LoaderMeters {
+        private final Counter loadCounter;
+        private final Counter cacheHitCounter;
+        private final Counter batchErrorCounter;
+        private final DistributionSummary batchSizeSummary;
+        private final Timer batchTimer;
+
+        LoaderMeters(String name) {
+            MeterRegistry registry = DataLoaderMetrics.this.meterRegistry;
+            this.loadCounter = registry.counter("geekshop.dataloader.loads", "loader", name);
+            this.cacheHitCounter = registry.counter("geekshop.dataloader.cache.hits", "loader", name);
+            this.batchErrorCounter = registry.counter("geekshop.dataloader.batch.errors", "loader", name);
+            this.batchSizeSummary = registry.summary("geekshop.dataloader.batch.size", "loader", name);
+            this.batchTimer = registry.timer("geekshop.dataloader.batch", "loader", name);
+            Gauge.builder("geekshop.dataloader.cache.hit.ratio", this, LoaderMeters::getCacheHitRatio)
+                    .tag("loader", name)
+                    .register(registry);
+        }
+
+        private double getCacheHitRatio() {
+            double loads = this.loadCounter.count();
+            return loads == 0 ? 0 : this.cacheHitCounter.count() / loads;
+        }
+    }
+
+    /**
+     * Keeps the statistics of the DataLoader (see {@link DataLoader#getStatistics()}) and records them as metrics.
+     */
+    private static class MeteredStatisticsCollector extends SimpleStatisticsCollector {
+        private final LoaderMeters meters;
+
+        MeteredStatisticsCollector(LoaderMeters meters) {
+            this.meters = meters;
+        }
+
+        @Override
+        public long incrementLoadCount() {
+            this.meters.loadCounter.increment();
+            return super.incrementLoadCount();
+        }
+
+        @Override
+        public long incrementBatchLoadCountBy(long delta) {
+            this.meters.batchSizeSummary.record(delta);
+            return super.incrementBatchLoadCountBy(delta);
+        }
+
+        @Override
+        public long incrementCacheHitCount() {
+            this.meters.cacheHitCounter.increment();
+            return super.incrementCacheHitCount();
+        }
+
+        @Override
+        public long incrementBatchLoadExceptionCount() {
+            this.meters.batchErrorCounter.increment();
+            return super.incrementBatchLoadExceptionCount();
+        }
+    }
+}
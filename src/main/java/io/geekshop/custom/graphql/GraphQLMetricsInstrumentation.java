@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ApiOptions;
+import io.geekshop.service.ConfigService;
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of GraphQL operations and of the fields they fetch as metrics, so that slow resolvers can
+ * be told apart from slow DataLoaders (whose batch loads are timed by {@link DataLoaderMetrics}).
+ *
+ * Exposes the following metrics:
+ * * `geekshop.graphql.operation`: the latency of each operation, tagged by `operation` (its name), `type`
+ *   (query, mutation or subscription) and `outcome` (success or error). Its count is the number of operations.
+ * * `geekshop.graphql.field`: the latency of each field fetch, tagged by `field` (e.g. `Product.variants`) and
+ *   `outcome`. For fields resolved through a DataLoader, this includes the time waiting for the batch load.
+ *   Trivial fields, which are merely read from their parent object, are not timed.
+ *
+ * Operations are always timed, at the cost of one timer update per request. Fields are only timed for the
+ * `apiOptions.tracingFieldSampleRate` fraction of operations, so that the instrumentation is cheap enough to
+ * be left on in production. Percentile histograms are published as configured by
+ * `management.metrics.distribution.percentiles-histogram`, by default only for the operation timer, since
+ * one histogram per field would multiply the number of time series.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+public class GraphQLMetricsInstrumentation extends SimpleInstrumentation {
+    private static final String ANONYMOUS_OPERATION = "anonymous";
+    private static final String OTHER_OPERATION = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double fieldSampleRate;
+    private final int maxOperationNames;
+    private final Set<String> operationNames = ConcurrentHashMap.newKeySet();
+
+    public GraphQLMetricsInstrumentation(ConfigService configService, MeterRegistry meterRegistry) {
+        ApiOptions apiOptions = configService.getApiOptions();
+        this.meterRegistry = meterRegistry;
+        this.enabled = apiOptions.isTracingEnabled();
+        this.fieldSampleRate = apiOptions.getTracingFieldSampleRate();
+        this.maxOperationNames = apiOptions.getTracingMaxOperationNames();
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        if (!this.enabled) return null;
+        boolean sampled = this.fieldSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.fieldSampleRate;
+        return new MetricsState(sampled);
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters) {
+        MetricsState state = parameters.getInstrumentationState();
+        if (state == null) return SimpleInstrumentationContext.noOp();
+        long startNanos = System.nanoTime();
+        return new OnCompleted<ExecutionResult>() {
+            @Override
+            public void onCompleted(ExecutionResult result, Throwable t) {
+                boolean failed = t != null || (result != null && !result.getErrors().isEmpty());
+                Timer.builder("geekshop.graphql.operation")
+                        .tag("operation", getOperationTag(state.operationName))
+                        .tag("type", state.operationType)
+                        .tag("outcome", failed ? "error" : "success")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters) {
+        MetricsState state = parameters.getInstrumentationState();
+        if (state != null) {
+            OperationDefinition operation = parameters.getExecutionContext().getOperationDefinition();
+            state.operationName = operation.getName();
+            state.operationType = operation.getOperation().name().toLowerCase();
+        }
+        return SimpleInstrumentationContext.noOp();
+    }
+
+    @Override
+    public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+        MetricsState state = parameters.getInstrumentationState();
+        if (state == null || !state.sampled || parameters.isTrivialDataFetcher()) {
+            return SimpleInstrumentationContext.noOp();
+        }
+        long startNanos = System.nanoTime();
+        DataFetchingEnvironment environment = parameters.getEnvironment();
+        String field = GraphQLTypeUtil.simplePrint(environment.getParentType())
+                + "." + environment.getFieldDefinition().getName();
+        return new OnCompleted<Object>() {
+            @Override
+            public void onCompleted(Object result, Throwable t) {
+                Timer.builder("geekshop.graphql.field")
+                        .tag("field", field)
+                        .tag("outcome", t != null ? "error" : "success")
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private String getOperationTag(String operationName) {
+        if (operationName == null) return ANONYMOUS_OPERATION;
+        if (this.operationNames.contains(operationName)) return operationName;
+        // only approximately bounded under concurrency, which is good enough to bound the number of meters
+        if (this.operationNames.size() >= this.maxOperationNames) return OTHER_OPERATION;
+        this.operationNames.add(operationName);
+        return operationName;
+    }
+
+    private static class MetricsState implements InstrumentationState {
+        private final boolean sampled;
+        private volatile String operationName;
+        private volatile String operationType = "unknown";
+
+        MetricsState(boolean sampled) {
+            this.sampled = sampled;
+        }
+    }
+
+    private abstract static class OnCompleted<T> implements InstrumentationContext<T> {
+        @Override
+        public void onDispatched(CompletableFuture<T> result) {
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implements the Apollo Automatic Persisted Queries protocol in front of the GraphQL servlet: clients send the
+ * SHA-256 hash of a query in `extensions.persistedQuery.sha256Hash` instead of its full text.
+ *
+ * * If the hash is known, the request is passed on with the full query text.
+ * * If it is not, the client is answered with a `PersistedQueryNotFound` error, upon which it sends the hash
+ *   together with the full query. The query is then remembered, once its hash has been verified.
+ *
+ * Both JSON POST requests and GET requests (with the `extensions` parameter) are supported. All other requests,
+ * e.g. multipart uploads or batched queries, are passed on unchanged.
+ *
+ * The number of remembered queries is bounded by `apiOptions.persistedQueryCacheSize`. Hits, misses and
+ * evictions are exposed as the Micrometer cache metrics, tagged with `cache=graphql.persistedQueries`.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class PersistedQueryFilter extends OncePerRequestFilter {
+    private final ObjectMapper objectMapper;
+    private final Cache<String, String> queries;
+
+    public PersistedQueryFilter(ObjectMapper objectMapper, long cacheSize, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.queries = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+        GuavaCacheMetrics.monitor(meterRegistry, this.queries, "graphql.persistedQueries");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (HttpMethod.GET.matches(request.getMethod())) {
+            this.filterGet(request, response, chain);
+        } else if (HttpMethod.POST.matches(request.getMethod()) && isJson(request)) {
+            this.filterPost(request, response, chain);
+        } else {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private void filterGet(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        JsonNode persistedQuery = this.getPersistedQuery(this.readJson(request.getParameter("extensions")));
+        if (persistedQuery == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String query;
+        try {
+            query = this.resolveQuery(persistedQuery, request.getParameter("query"));
+        } catch (PersistedQueryException ex) {
+            this.writeError(response, ex);
+            return;
+        }
+        chain.doFilter(new ParameterRequestWrapper(request, "query", query), response);
+    }
+
+    private void filterPost(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        JsonNode json = this.readJson(new String(body, StandardCharsets.UTF_8));
+        JsonNode persistedQuery = json != null ? this.getPersistedQuery(json.get("extensions")) : null;
+        if (persistedQuery == null) {
+            chain.doFilter(new BodyRequestWrapper(request, body), response);
+            return;
+        }
+        ObjectNode graphQLRequest = (ObjectNode) json;
+        String query;
+        try {
+            query = this.resolveQuery(persistedQuery, graphQLRequest.path("query").asText(null));
+        } catch (PersistedQueryException ex) {
+            this.writeError(response, ex);
+            return;
+        }
+        graphQLRequest.put("query", query);
+        chain.doFilter(new BodyRequestWrapper(request, this.objectMapper.writeValueAsBytes(graphQLRequest)), response);
+    }
+
+    /**
+     * Reads a JSON object, or returns null if the value is not one. Malformed requests are left to the
+     * GraphQL servlet to report.
+     */
+    private JsonNode readJson(String value) {
+        if (StringUtils.isEmpty(value)) return null;
+        try {
+            JsonNode json = this.objectMapper.readTree(value);
+            return json != null && json.isObject() ? json : null;
+        } catch (JsonProcessingException ex) {
+            return null;
+        }
+    }
+
+    private JsonNode getPersistedQuery(JsonNode extensions) {
+        if (extensions == null || !extensions.isObject()) return null;
+        return extensions.get("persistedQuery");
+    }
+
+    /**
+     * Returns the full text of the query to execute, remembering it if the client sent it along with its hash.
+     */
+    private String resolveQuery(JsonNode persistedQuery, String query) {
+        String hash = persistedQuery.path("sha256Hash").asText("").toLowerCase();
+        if (persistedQuery.path("version").asInt() != 1 || hash.isEmpty()) {
+            throw new PersistedQueryException("PersistedQueryNotSupported", "PERSISTED_QUERY_NOT_SUPPORTED");
+        }
+        if (StringUtils.isEmpty(query)) {
+            String persistedQueryText = this.queries.getIfPresent(hash);
+            if (persistedQueryText == null) {
+                throw new PersistedQueryException("PersistedQueryNotFound", "PERSISTED_QUERY_NOT_FOUND");
+            }
+            return persistedQueryText;
+        }
+        if (!hash.equals(sha256(query))) {
+            throw new PersistedQueryException("provided sha does not match query", "BAD_USER_INPUT");
+        }
+        this.queries.put(hash, query);
+        return query;
+    }
+
+    private void writeError(HttpServletResponse response, PersistedQueryException ex) throws IOException {
+        Map<String, Object> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("extensions", Collections.singletonMap("code", ex.code));
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        this.objectMapper.writeValue(response.getOutputStream(),
+                Collections.singletonMap("errors", Collections.singletonList(error)));
+    }
+
+    static String sha256(String query) {
+        return Hashing.sha256().hashString(query, StandardCharsets.UTF_8).toString();
+    }
+
+    private static boolean isJson(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith(MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    /**
+     * Replays the (possibly rewritten) body of a request which has already been read.
+     */
+    private static class BodyRequestWrapper extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BodyRequestWrapper(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public int getContentLength() {
+            return this.body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return this.body.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(this.body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The whole body is already in memory, so the listener is notified right away.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!this.isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(this.getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class PersistedQueryException extends RuntimeException {
+        private final String code;
+
+        PersistedQueryException(String message, String code) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    /**
+     * Overrides a single request parameter.
+     */
+    private static class ParameterRequestWrapper extends HttpServletRequestWrapper {
+        private final String name;
+        private final String value;
+
+        ParameterRequestWrapper(HttpServletRequest request, String name, String value) {
+            super(request);
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return this.name.equals(name) ? this.value : super.getParameter(name);
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return this.name.equals(name) ? new String[] { this.value } : super.getParameterValues(name);
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            Map<String, String[]> parameterMap = new HashMap<>(super.getParameterMap());
+            parameterMap.put(this.name, new String[] { this.value });
+            return Collections.unmodifiableMap(parameterMap);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.mybatis_plus;
+
+import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.nologging.NoLoggingImpl;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A {@link BaseMapper} which can also insert and update many entities at once.
+ *
+ * The statements are executed on a MyBatis `ExecutorType.BATCH` session, which joins the current
+ * Spring transaction (if any), so that all rows are sent to the database in one JDBC batch (i.e. one
+ * round trip per statement type) instead of one round trip per row. The same `insert` and `updateById`
+ * statements of the BaseMapper are used, so auto-fill (e.g. the {@link AuditHandler}), type handlers
+ * and the generated ids behave exactly as with single-row calls.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public interface BatchMapper<T> extends BaseMapper<T> {
+    int DEFAULT_BATCH_SIZE = 1000;
+
+    // outside of a transaction each batch is simply committed on its own, which needs no warning
+    Log log = new NoLoggingImpl(BatchMapper.class.getName());
+
+    /**
+     * Inserts all entities and fills in their generated ids.
+     */
+    default void insertBatch(Collection<T> entities) {
+        if (entities == null || entities.isEmpty()) return;
+        Class<?> entityClass = entities.iterator().next().getClass();
+        String statement = this.getMappedStatementId(SqlMethod.INSERT_ONE);
+        SqlHelper.executeBatch(entityClass, log, entities, DEFAULT_BATCH_SIZE,
+                (sqlSession, entity) -> sqlSession.insert(statement, entity));
+    }
+
+    /**
+     * Updates all entities by their ids, with the same semantics as {@link BaseMapper#updateById}.
+     */
+    default void updateBatchById(Collection<T> entities) {
+        if (entities == null || entities.isEmpty()) return;
+        Class<?> entityClass = entities.iterator().next().getClass();
+        String statement = this.getMappedStatementId(SqlMethod.UPDATE_BY_ID);
+        SqlHelper.executeBatch(entityClass, log, entities, DEFAULT_BATCH_SIZE, (sqlSession, entity) -> {
+            MapperMethod.ParamMap<T> param = new MapperMethod.ParamMap<>();
+            param.put(Constants.ENTITY, entity);
+            sqlSession.update(statement, param);
+        });
+    }
+
+    /**
+     * The statements of a mapper are registered under the name of the concrete mapper interface (e.g.
+     * `io.geekshop.mapper.OrderItemEntityMapper.insert`), which is implemented by the mapper proxy.
+     */
+    default String getMappedStatementId(SqlMethod sqlMethod) {
+        Class<?> mapperInterface = Arrays.stream(this.getClass().getInterfaces())
+                .filter(BatchMapper.class::isAssignableFrom)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Not a mapper proxy: " + this.getClass()));
+        return mapperInterface.getName() + "." + sqlMethod.getMethod();
+    }
+}
@@ -17,6 +17,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A importer to import entities into the database. This replaces the regular
  * `create` methods of the importer layer with faster versions which skip much of the defensive checks
@@ -46,21 +49,25 @@ public class FastImporterService {
         productEntityMapper.insert(productEntity);
 
         if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
+            List<ProductFacetValueJoinEntity> joinEntities = new ArrayList<>();
             for(Long facetValueId : input.getFacetValueIds()) {
                 ProductFacetValueJoinEntity productFacetValueJoinEntity = new ProductFacetValueJoinEntity();
                 productFacetValueJoinEntity.setProductId(productEntity.getId());
                 productFacetValueJoinEntity.setFacetValueId(facetValueId);
-                productFacetValueJoinEntityMapper.insert(productFacetValueJoinEntity);
+                joinEntities.add(productFacetValueJoinEntity);
             }
+            productFacetValueJoinEntityMapper.insertBatch(joinEntities);
         }
 
         if (!CollectionUtils.isEmpty(input.getAssetIds())) {
+            List<ProductAssetJoinEntity> joinEntities = new ArrayList<>();
             for(Long assetId : input.getAssetIds()) {
                 ProductAssetJoinEntity productAssetJoinEntity = new ProductAssetJoinEntity();
                 productAssetJoinEntity.setProductId(productEntity.getId());
                 productAssetJoinEntity.setAssetId(assetId);
-                this.productAssetJoinEntityMapper.insert(productAssetJoinEntity);
+                joinEntities.add(productAssetJoinEntity);
             }
+            this.productAssetJoinEntityMapper.insertBatch(joinEntities);
         }
         return productEntity.getId();
     }
@@ -100,40 +107,46 @@ public class FastImporterService {
         this.productVariantEntityMapper.insert(createdVariantEntity);
 
         if (!CollectionUtils.isEmpty(input.getOptionIds())) {
+            List<ProductVariantProductOptionJoinEntity> joinEntities = new ArrayList<>();
             for(Long optionId : input.getOptionIds()) {
                 ProductVariantProductOptionJoinEntity productVariantProductOptionJoinEntity =
                         new ProductVariantProductOptionJoinEntity();
                 productVariantProductOptionJoinEntity.setProductVariantId(createdVariantEntity.getId());
                 productVariantProductOptionJoinEntity.setProductOptionId(optionId);
-                this.productVariantProductOptionJoinEntityMapper.insert(productVariantProductOptionJoinEntity);
+                joinEntities.add(productVariantProductOptionJoinEntity);
             }
+            this.productVariantProductOptionJoinEntityMapper.insertBatch(joinEntities);
         }
 
         if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
+            List<ProductVariantFacetValueJoinEntity> joinEntities = new ArrayList<>();
             for(Long facetValueId : input.getFacetValueIds()) {
                 ProductVariantFacetValueJoinEntity productVariantFacetValueJoinEntity =
                         new ProductVariantFacetValueJoinEntity();
                 productVariantFacetValueJoinEntity.setProductVariantId(createdVariantEntity.getId());
                 productVariantFacetValueJoinEntity.setFacetValueId(facetValueId);
-                this.productVariantFacetValueJoinEntityMapper.insert(productVariantFacetValueJoinEntity);
+                joinEntities.add(productVariantFacetValueJoinEntity);
             }
+            this.productVariantFacetValueJoinEntityMapper.insertBatch(joinEntities);
         }
 
         if (!CollectionUtils.isEmpty(input.getAssetIds())) {
             int pos = 0;
+            List<ProductVariantAssetJoinEntity> joinEntities = new ArrayList<>();
             for(Long assetId : input.getAssetIds()) {
                 ProductVariantAssetJoinEntity productVariantAssetJoinEntity = new ProductVariantAssetJoinEntity();
                 productVariantAssetJoinEntity.setProductVariantId(createdVariantEntity.getId());
                 productVariantAssetJoinEntity.setAssetId(assetId);
                 productVariantAssetJoinEntity.setPosition(pos);
-                this.productVariantAssetJoinEntityMapper.insert(productVariantAssetJoinEntity);
+                joinEntities.add(productVariantAssetJoinEntity);
                 pos++;
             }
+            this.productVariantAssetJoinEntityMapper.insertBatch(joinEntities);
         }
 
         if (input.getStockOnHand() != null && input.getStockOnHand() != 0) {
-            this.stockMovementService.adjustProductVariantStock(
-                    createdVariantEntity.getId(), 0, input.getStockOnHand());
+            this.stockMovementService.createInitialStockAdjustment(
+                    createdVariantEntity.getId(), input.getStockOnHand());
         }
 
         return createdVariantEntity.getId();
@@ -29,7 +29,7 @@ public class BaseEntity {
     @TableField(fill = FieldFill.INSERT)
     private Date createdAt;
     @TableField(fill = FieldFill.INSERT_UPDATE)
-    private Date updatedBy;
+    private String updatedBy;
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private Date updatedAt;
 }
@@ -13,8 +13,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +49,21 @@ public class OrderLineEntity extends BaseEntity {
         return this.items.stream().filter(i -> !i.isCancelled()).collect(Collectors.toList());
     }
 
+    /**
+     * Groups the OrderItems which are interchangeable for pricing purposes, i.e. which have the same
+     * unit price, adjustments and cancellation state. The items of a line in an active Order usually
+     * form a single group, so per-unit work (e.g. applying promotions) only needs to be done once per group.
+     */
+    public Collection<List<OrderItemEntity>> getItemGroups() {
+        Map<List<Object>, List<OrderItemEntity>> groups = new LinkedHashMap<>();
+        for(OrderItemEntity item : this.items) {
+            List<Object> key = Arrays.asList(
+                    item.getUnitPrice(), item.isCancelled(), new ArrayList<>(item.getPendingAdjustments()));
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+        return groups.values();
+    }
+
     public List<Adjustment> getAdjustments() {
         List<Adjustment> result = new ArrayList<>();
         this.getActiveItems().forEach(item -> result.addAll(item.getAdjustments()));
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.entity;
+
+import io.geekshop.service.helpers.order_outbox.OrderSideEffectType;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Date;
+
+/**
+ * A side-effect of an Order transition which has been recorded together with the transition, and which is
+ * applied asynchronously by the OrderOutbox.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@TableName(value = "tb_order_outbox_entry")
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class OrderOutboxEntryEntity extends BaseEntity {
+    private Long orderId;
+    private OrderSideEffectType type;
+    /**
+     * The JSON encoded arguments of the side-effect.
+     */
+    private String payload;
+    private int attempts;
+    private Date nextAttemptAt;
+    private String lastError;
+}
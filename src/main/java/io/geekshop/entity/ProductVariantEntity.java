@@ -5,6 +5,9 @@
 
 package io.geekshop.entity;
 
+import io.geekshop.service.helpers.StockLedger;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -29,6 +32,17 @@ public class ProductVariantEntity extends BaseEntity {
     private Integer price;
     private Long featuredAssetId;
     private Long productId;
+    /**
+     * Only ever changed by the {@link StockLedger} (including stock adjustments made by administrators), so
+     * updates of the entity never write it and cannot overwrite concurrent Sales.
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
     private Integer stockOnHand = 0;
+    /**
+     * The stock allocated to Orders which are arranging payment, see `OrderOptions.stockAllocationEnabled`.
+     * It is only ever changed by the {@link StockLedger}, so updates of the entity never write it.
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Integer stockAllocated = 0;
     private boolean trackInventory;
 }
@@ -14,9 +14,11 @@ import io.geekshop.types.common.AdjustmentType;
 import io.geekshop.types.common.ConfigurableOperation;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
@@ -67,11 +69,27 @@ public class PromotionEntity extends AdjustmentSource {
                 promotionActions.stream().collect(toMap(PromotionAction::getCode, action -> action));
     }
 
+    private PromotionEntity(PromotionEntity source) {
+        this.setType(source.getType());
+        this.allConditions = source.allConditions;
+        this.allActions = source.allActions;
+    }
+
     @TableField(exist = false)
     private final Map<String, PromotionAction> allActions;
     @TableField(exist = false)
     private final Map<String, PromotionCondition> allConditions;
 
+    /**
+     * The conditions and actions bound to their parsed arguments. Built on first use and reset whenever the
+     * conditions or actions change, so that a cached Promotion never looks up or re-parses them again.
+     */
+    @TableField(exist = false)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile BoundOperations boundOperations;
+
     private Date deletedAt; // SoftDelete
     private Date startsAt;
     private Date endsAt;
@@ -99,6 +117,16 @@ public class PromotionEntity extends AdjustmentSource {
      */
     private Integer priorityScore;
 
+    public void setConditions(List<ConfigurableOperation> conditions) {
+        this.conditions = conditions;
+        this.boundOperations = null;
+    }
+
+    public void setActions(List<ConfigurableOperation> actions) {
+        this.actions = actions;
+        this.boundOperations = null;
+    }
+
     @Override
     public boolean test(Object... args) {
         if (this.endsAt != null && this.endsAt.getTime() < new Date().getTime()) {
@@ -111,10 +139,8 @@ public class PromotionEntity extends AdjustmentSource {
         if (!StringUtils.isEmpty(this.couponCode) && !orderEntity.getCouponCodes().contains(this.couponCode)) {
             return false;
         }
-        for(ConfigurableOperation condition : this.conditions) {
-            PromotionCondition promotionCondition = this.allConditions.get(condition.getCode());
-            if (promotionCondition != null &&
-                    !promotionCondition.check(orderEntity, new ConfigArgValues(condition.getArgs()))) {
+        for(Pair<PromotionCondition, ConfigArgValues> condition : this.getBoundOperations().conditions) {
+            if (!condition.getLeft().check(orderEntity, condition.getRight())) {
                 return false;
             }
         }
@@ -125,32 +151,17 @@ public class PromotionEntity extends AdjustmentSource {
     public Adjustment apply(Object... args) {
         int amount = 0;
 
-        for(ConfigurableOperation action : this.actions) {
-            PromotionAction promotionAction = this.allActions.get(action.getCode());
-            if (promotionAction instanceof PromotionItemAction) {
-                if (args[0] instanceof OrderItemEntity) {
-                    PromotionItemAction promotionItemAction = (PromotionItemAction) promotionAction;
-                    OrderItemEntity orderItemEntity = (OrderItemEntity) args[0];
-                    OrderLineEntity orderLineEntity = (OrderLineEntity) args[1];
-                    amount += Math.round(
-                            promotionItemAction.execute(
-                                    orderItemEntity,
-                                    orderLineEntity,
-                                    new ConfigArgValues(action.getArgs())
-                            )
-                    );
-                }
-            } else {
-                if (args[0] instanceof OrderEntity) {
-                    PromotionOrderAction promotionOrderAction = (PromotionOrderAction) promotionAction;
-                    OrderEntity orderEntity = (OrderEntity) args[0];
-                    amount += Math.round(
-                            promotionOrderAction.execute(
-                                    orderEntity,
-                                    new ConfigArgValues(action.getArgs())
-                            )
-                    );
-                }
+        BoundOperations operations = this.getBoundOperations();
+        if (args[0] instanceof OrderItemEntity) {
+            OrderItemEntity orderItemEntity = (OrderItemEntity) args[0];
+            OrderLineEntity orderLineEntity = (OrderLineEntity) args[1];
+            for(Pair<PromotionItemAction, ConfigArgValues> action : operations.itemActions) {
+                amount += Math.round(action.getLeft().execute(orderItemEntity, orderLineEntity, action.getRight()));
+            }
+        } else if (args[0] instanceof OrderEntity) {
+            OrderEntity orderEntity = (OrderEntity) args[0];
+            for(Pair<PromotionOrderAction, ConfigArgValues> action : operations.orderActions) {
+                amount += Math.round(action.getLeft().execute(orderEntity, action.getRight()));
             }
         }
 
@@ -164,4 +175,102 @@ public class PromotionEntity extends AdjustmentSource {
         }
         return null;
     }
+
+    /**
+     * Returns a copy of this Promotion which shares its bound conditions and actions, so that a cached Promotion
+     * can be handed out without being parsed again, and without callers seeing (or making) changes to it.
+     */
+    public PromotionEntity snapshot() {
+        PromotionEntity snapshot = new PromotionEntity(this);
+        snapshot.setId(this.getId());
+        snapshot.setCreatedBy(this.getCreatedBy());
+        snapshot.setCreatedAt(copyOf(this.getCreatedAt()));
+        snapshot.setUpdatedBy(this.getUpdatedBy());
+        snapshot.setUpdatedAt(copyOf(this.getUpdatedAt()));
+        snapshot.deletedAt = copyOf(this.deletedAt);
+        snapshot.startsAt = copyOf(this.startsAt);
+        snapshot.endsAt = copyOf(this.endsAt);
+        snapshot.couponCode = this.couponCode;
+        snapshot.perCustomerUsageLimit = this.perCustomerUsageLimit;
+        snapshot.name = this.name;
+        snapshot.enabled = this.enabled;
+        snapshot.priorityScore = this.priorityScore;
+        snapshot.conditions = Collections.unmodifiableList(new ArrayList<>(this.conditions));
+        snapshot.actions = Collections.unmodifiableList(new ArrayList<>(this.actions));
+        snapshot.boundOperations = this.getBoundOperations();
+        return snapshot;
+    }
+
+    private static Date copyOf(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    /**
+     * The facts of the Order which the result of `test` depends on, or `null` if it may depend on anything
+     * about the Order. See {@link OrderFact}.
+     */
+    public Set<OrderFact> getOrderFacts() {
+        Set<OrderFact> conditionFacts = this.getBoundOperations().orderFacts;
+        if (conditionFacts == null) return null;
+        Set<OrderFact> orderFacts = EnumSet.copyOf(conditionFacts);
+        if (!StringUtils.isEmpty(this.couponCode)) {
+            orderFacts.add(OrderFact.COUPON_CODES);
+        }
+        return orderFacts;
+    }
+
+    /**
+     * Whether all item actions of the Promotion give the same result for every item of a group of identical
+     * items, so that it only needs to be applied to one item per group. See
+     * {@link PromotionItemAction#isUniformPerItemGroup()}.
+     */
+    public boolean isUniformPerItemGroup() {
+        return this.getBoundOperations().uniformPerItemGroup;
+    }
+
+    private BoundOperations getBoundOperations() {
+        BoundOperations operations = this.boundOperations;
+        if (operations == null) {
+            operations = new BoundOperations(this.conditions, this.actions);
+            this.boundOperations = operations;
+        }
+        return operations;
+    }
+
+    /**
+     * Never changed once built, so it can be shared by a Promotion and its snapshots.
+     */
+    private class BoundOperations {
+        final List<Pair<PromotionCondition, ConfigArgValues>> conditions = new ArrayList<>();
+        final List<Pair<PromotionItemAction, ConfigArgValues>> itemActions = new ArrayList<>();
+        final List<Pair<PromotionOrderAction, ConfigArgValues>> orderActions = new ArrayList<>();
+        Set<OrderFact> orderFacts = EnumSet.noneOf(OrderFact.class);
+        boolean uniformPerItemGroup = true;
+
+        BoundOperations(List<ConfigurableOperation> conditions, List<ConfigurableOperation> actions) {
+            for(ConfigurableOperation condition : Optional.ofNullable(conditions).orElse(Collections.emptyList())) {
+                PromotionCondition promotionCondition = allConditions.get(condition.getCode());
+                if (promotionCondition != null) {
+                    this.conditions.add(Pair.of(promotionCondition, new ConfigArgValues(condition.getArgs())));
+                    Set<OrderFact> conditionFacts = promotionCondition.getOrderFacts();
+                    if (conditionFacts == null) {
+                        this.orderFacts = null;
+                    } else if (this.orderFacts != null) {
+                        this.orderFacts.addAll(conditionFacts);
+                    }
+                }
+            }
+            for(ConfigurableOperation action : Optional.ofNullable(actions).orElse(Collections.emptyList())) {
+                PromotionAction promotionAction = allActions.get(action.getCode());
+                if (promotionAction instanceof PromotionItemAction) {
+                    this.itemActions.add(
+                            Pair.of((PromotionItemAction) promotionAction, new ConfigArgValues(action.getArgs())));
+                    this.uniformPerItemGroup &= ((PromotionItemAction) promotionAction).isUniformPerItemGroup();
+                } else if (promotionAction instanceof PromotionOrderAction) {
+                    this.orderActions.add(
+                            Pair.of((PromotionOrderAction) promotionAction, new ConfigArgValues(action.getArgs())));
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * One row per (ProductVariant, Collection) pair of the search index, so that collection filters
+ * (by id or by slug) can be answered by an indexed lookup.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@TableName(value = "tb_search_index_collection")
+@Data
+public class SearchIndexCollectionEntity {
+    private Long productVariantId;
+    private Long collectionId;
+    private String collectionSlug;
+}
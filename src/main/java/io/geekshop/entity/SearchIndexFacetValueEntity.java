@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+/**
+ * One row per (ProductVariant, FacetValue) pair of the search index, so that facet filters
+ * can be answered by an indexed lookup rather than by matching the `facet_value_ids` column.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@TableName(value = "tb_search_index_facet_value")
+@Data
+public class SearchIndexFacetValueEntity {
+    private Long productVariantId;
+    private Long facetValueId;
+}
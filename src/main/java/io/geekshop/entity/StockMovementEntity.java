@@ -22,6 +22,6 @@ public class StockMovementEntity extends BaseEntity {
     private StockMovementType type;
     private Long productVariantId;
     private Integer quantity;
-    private Long orderLineId; // for Sale & Cancellation
+    private Long orderLineId; // for Sale, Cancellation, Allocation & Release
     private Long orderItemId; // for Return
 }
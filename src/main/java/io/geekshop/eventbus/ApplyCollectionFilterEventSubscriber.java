@@ -20,6 +20,7 @@ import io.geekshop.service.ConfigService;
 import io.geekshop.types.common.ConfigurableOperation;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import lombok.RequiredArgsConstructor;
@@ -29,12 +30,18 @@ import org.springframework.util.CollectionUtils;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 /**
  * Updates collections on the background event handler because running the CollectionFilters
  * is computationally expensive.
  *
+ * When the event names the changed ProductVariants, only the membership of those variants is
+ * re-evaluated, so a Product change costs O(collections x changed variants) rather than
+ * O(collections x variants). In both cases only the join rows which actually changed are
+ * deleted or inserted, in batch.
+ *
  * Created on Nov, 2020 by @author bobo
  */
 @Component
@@ -49,6 +56,12 @@ public class ApplyCollectionFilterEventSubscriber {
 
     private final EventBus eventBus;
 
+    /**
+     * Events for the same Collection may be handled concurrently, so the read-diff-write of its
+     * join rows is guarded by a lock per Collection.
+     */
+    private final Striped<Lock> collectionLocks = Striped.lock(64);
+
     @PostConstruct
     void init() {
         eventBus.register(this);
@@ -60,7 +73,14 @@ public class ApplyCollectionFilterEventSubscriber {
         log.info("Processing " + collectionIds.size() + " Collections");
         List<CollectionEntity> collectionEntities = this.collectionEntityMapper.selectBatchIds(collectionIds);
         for(CollectionEntity collectionEntity : collectionEntities) {
-            Set<Long> affectedVariantIds = this.applyCollectionFiltersInternal(collectionEntity);
+            Set<Long> affectedVariantIds;
+            Lock lock = this.collectionLocks.get(collectionEntity.getId());
+            lock.lock();
+            try {
+                affectedVariantIds = this.applyCollectionFiltersInternal(collectionEntity, event.getProductVariantIds());
+            } finally {
+                lock.unlock();
+            }
             if (!CollectionUtils.isEmpty(affectedVariantIds)) {
                 CollectionModificationEvent collectionModificationEvent =
                         new CollectionModificationEvent(event.getCtx(), collectionEntity, affectedVariantIds);
@@ -71,45 +91,68 @@ public class ApplyCollectionFilterEventSubscriber {
 
     /**
      * Applies the CollectionFilters and returns an array of all affected ProductVariant ids.
+     *
+     * @param productVariantIds if not null, only the membership of these ProductVariants is re-evaluated
      */
-    private Set<Long> applyCollectionFiltersInternal(CollectionEntity collectionEntity) {
+    private Set<Long> applyCollectionFiltersInternal(CollectionEntity collectionEntity,
+                                                     Collection<Long> productVariantIds) {
+        if (productVariantIds != null && productVariantIds.isEmpty()) return new HashSet<>();
+
         List<ConfigurableOperation> filters = new ArrayList<>();
         List<CollectionEntity> ancestors = this.collectionService.getAncestors(collectionEntity.getId());
         for (CollectionEntity ancestor : ancestors) {
             filters.addAll(ancestor.getFilters());
         }
-
-        Set<Long> preIds = this.collectionService.getCollectionProductVariantIds(collectionEntity.getId());
         filters.addAll(collectionEntity.getFilters());
-        List<ProductVariantEntity> productVariantEntities = this.getFilteredProductVariants(filters);
-        Set<Long> postIds = productVariantEntities.stream()
-                .map(ProductVariantEntity::getId).collect(Collectors.toSet());
 
-        // 清除现有关联关系
-        QueryWrapper<ProductVariantCollectionJoinEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(ProductVariantCollectionJoinEntity::getCollectionId, collectionEntity.getId());
-        this.productVariantCollectionJoinEntityMapper.delete(queryWrapper);
-        // 添加新的关联关系
-        for(Long productVariantId : postIds) {
-            ProductVariantCollectionJoinEntity joinEntity = new ProductVariantCollectionJoinEntity();
-            joinEntity.setCollectionId(collectionEntity.getId());
-            joinEntity.setProductVariantId(productVariantId);
-            this.productVariantCollectionJoinEntityMapper.insert(joinEntity);
+        Set<Long> preIds;
+        if (productVariantIds == null) {
+            preIds = this.collectionService.getCollectionProductVariantIds(collectionEntity.getId());
+        } else {
+            QueryWrapper<ProductVariantCollectionJoinEntity> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().eq(ProductVariantCollectionJoinEntity::getCollectionId, collectionEntity.getId())
+                    .in(ProductVariantCollectionJoinEntity::getProductVariantId, productVariantIds)
+                    .select(ProductVariantCollectionJoinEntity::getProductVariantId);
+            preIds = this.productVariantCollectionJoinEntityMapper.selectList(queryWrapper).stream()
+                    .map(ProductVariantCollectionJoinEntity::getProductVariantId).collect(Collectors.toSet());
+        }
+        Set<Long> postIds = this.getFilteredProductVariantIds(filters, productVariantIds);
+
+        Set<Long> removedIds = Sets.difference(preIds, postIds);
+        Set<Long> addedIds = Sets.difference(postIds, preIds);
+        if (!removedIds.isEmpty()) {
+            QueryWrapper<ProductVariantCollectionJoinEntity> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().eq(ProductVariantCollectionJoinEntity::getCollectionId, collectionEntity.getId())
+                    .in(ProductVariantCollectionJoinEntity::getProductVariantId, removedIds);
+            this.productVariantCollectionJoinEntityMapper.delete(queryWrapper);
+        }
+        if (!addedIds.isEmpty()) {
+            List<ProductVariantCollectionJoinEntity> joinEntities = new ArrayList<>(addedIds.size());
+            for (Long productVariantId : addedIds) {
+                ProductVariantCollectionJoinEntity joinEntity = new ProductVariantCollectionJoinEntity();
+                joinEntity.setProductVariantId(productVariantId);
+                joinEntity.setCollectionId(collectionEntity.getId());
+                joinEntities.add(joinEntity);
+            }
+            this.productVariantCollectionJoinEntityMapper.insertBatch(joinEntities);
         }
 
-        Set<Long> difference = Sets.symmetricDifference(preIds, postIds);
-        return difference;
+        return Sets.union(removedIds, addedIds).immutableCopy();
     }
 
     /**
-     * Applies the CollectionFilters and returns an array of ProductVariant entities which match.
+     * Applies the CollectionFilters and returns the ids of the ProductVariants which match.
      */
-    private List<ProductVariantEntity> getFilteredProductVariants(List<ConfigurableOperation> filters) {
-        if (CollectionUtils.isEmpty(filters)) return new ArrayList<>();
+    private Set<Long> getFilteredProductVariantIds(List<ConfigurableOperation> filters,
+                                                   Collection<Long> productVariantIds) {
+        if (CollectionUtils.isEmpty(filters)) return new HashSet<>();
 
         List<CollectionFilter> collectionFilters = this.configService.getCatalogConfig().getCollectionFilters();
 
         QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+        if (productVariantIds != null) {
+            queryWrapper.lambda().in(ProductVariantEntity::getId, productVariantIds);
+        }
 
         for(CollectionFilter filterType : collectionFilters) {
             List<ConfigurableOperation> filtersOfType = filters.stream()
@@ -117,11 +160,16 @@ public class ApplyCollectionFilterEventSubscriber {
                     .collect(Collectors.toList());
             if (!CollectionUtils.isEmpty(filtersOfType)) {
                 for(ConfigurableOperation filter : filtersOfType) {
-                    queryWrapper = filterType.apply(new ConfigArgValues(filter.getArgs()), queryWrapper);
+                    ConfigArgValues configArgValues = new ConfigArgValues(filter.getArgs());
+                    queryWrapper = productVariantIds == null ?
+                            filterType.apply(configArgValues, queryWrapper) :
+                            filterType.applyToVariants(configArgValues, queryWrapper, productVariantIds);
                 }
             }
         }
 
-        return this.productVariantEntityMapper.selectList(queryWrapper);
+        queryWrapper.lambda().select(ProductVariantEntity::getId);
+        return this.productVariantEntityMapper.selectList(queryWrapper).stream()
+                .map(ProductVariantEntity::getId).collect(Collectors.toSet());
     }
 }
@@ -7,10 +7,13 @@ package io.geekshop.eventbus;
 
 import io.geekshop.common.RequestContext;
 import io.geekshop.entity.CollectionEntity;
+import io.geekshop.entity.ProductVariantEntity;
 import io.geekshop.eventbus.events.ApplyCollectionFilterEvent;
 import io.geekshop.eventbus.events.ProductEvent;
 import io.geekshop.eventbus.events.ProductVariantEvent;
 import io.geekshop.mapper.CollectionEntityMapper;
+import io.geekshop.mapper.ProductVariantEntityMapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import lombok.RequiredArgsConstructor;
@@ -18,10 +21,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
+ * Re-evaluates the Collection membership of the ProductVariants affected by a Product or ProductVariant change.
+ *
  * Created on Nov, 2020 by @author bobo
  */
 @Component
@@ -30,6 +37,7 @@ import java.util.stream.Collectors;
 public class ProductRelatedEventSubscriber {
 
     private final CollectionEntityMapper collectionEntityMapper;
+    private final ProductVariantEntityMapper productVariantEntityMapper;
     private final EventBus eventBus;
 
     @PostConstruct
@@ -39,20 +47,32 @@ public class ProductRelatedEventSubscriber {
 
     @Subscribe
     public void onEvent(ProductEvent productEvent) {
-        this.handle(productEvent.getCtx());
+        QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(ProductVariantEntity::getProductId, productEvent.getProduct().getId())
+                .select(ProductVariantEntity::getId);
+        List<Long> variantIds = this.productVariantEntityMapper.selectList(queryWrapper)
+                .stream().map(ProductVariantEntity::getId).collect(Collectors.toList());
+        this.handle(productEvent.getCtx(), variantIds);
     }
 
     @Subscribe
     public void onEvent(ProductVariantEvent productVariantEvent) {
-        this.handle(productVariantEvent.getCtx());
+        // CollectionFilters do not depend on stock levels
+        if (Objects.equals(productVariantEvent.getType(), "stock_updated")) return;
+        List<Long> variantIds = productVariantEvent.getVariants()
+                .stream().map(ProductVariantEntity::getId).collect(Collectors.toList());
+        this.handle(productVariantEvent.getCtx(), variantIds);
     }
 
-    private void handle(RequestContext ctx) {
-        List<Long> collectionIds = collectionEntityMapper.selectList(null)
+    private void handle(RequestContext ctx, Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) return;
+        QueryWrapper<CollectionEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().select(CollectionEntity::getId);
+        List<Long> collectionIds = collectionEntityMapper.selectList(queryWrapper)
                 .stream().map(CollectionEntity::getId).collect(Collectors.toList());
 
         ApplyCollectionFilterEvent applyCollectionFilterEvent =
-                new ApplyCollectionFilterEvent(ctx, collectionIds);
+                new ApplyCollectionFilterEvent(ctx, collectionIds, variantIds);
         this.eventBus.post(applyCollectionFilterEvent);
     }
 }
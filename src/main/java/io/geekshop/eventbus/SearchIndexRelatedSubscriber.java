@@ -8,6 +8,7 @@ package io.geekshop.eventbus;
 import io.geekshop.entity.ProductVariantEntity;
 import io.geekshop.eventbus.events.*;
 import io.geekshop.service.SearchIndexService;
+import io.geekshop.service.helpers.search_index.SearchIndexUpdateQueue;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,8 @@ import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
+ * Index updates are coalesced by the {@link SearchIndexUpdateQueue}; a reindex is performed immediately.
+ *
  * Created on Jan, 2021 by @author bobo
  */
 @Component
@@ -29,45 +32,52 @@ import java.util.stream.Collectors;
 public class SearchIndexRelatedSubscriber {
     private final EventBus eventBus;
     private final SearchIndexService searchIndexService;
+    private final SearchIndexUpdateQueue searchIndexUpdateQueue;
 
     @PostConstruct
     void init() {
         eventBus.register(this);
+        if (this.searchIndexService.isIndexOutdated()) {
+            log.info("Search index was built by an older version or not completely, scheduling a reindex");
+            eventBus.post(new ReIndexEvent());
+        }
     }
 
     @Subscribe
     public void onEvent(ProductEvent event) {
         if (Objects.equals(event.getType(), "deleted")) {
-            this.searchIndexService.deleteProduct(event.getProduct().getId());
+            this.searchIndexUpdateQueue.deleteProduct(event.getProduct().getId());
         } else {
-            this.searchIndexService.updateProduct(event.getProduct().getId());
+            this.searchIndexUpdateQueue.updateProduct(event.getProduct().getId());
         }
     }
 
     @Subscribe
     public void onEvent(ProductVariantEvent event) {
+        // stock levels are not part of the search index
+        if (Objects.equals(event.getType(), "stock_updated")) return;
         List<Long> variantIds = event.getVariants().stream()
                 .map(ProductVariantEntity::getId).collect(Collectors.toList());
         if (Objects.equals(event.getType(), "deleted")) {
-            this.searchIndexService.deleteVariants(variantIds);
+            this.searchIndexUpdateQueue.deleteVariants(variantIds);
         } else {
-            this.searchIndexService.updateVariants(variantIds);
+            this.searchIndexUpdateQueue.updateVariants(variantIds);
         }
     }
 
     @Subscribe
     public void onEvent(AssetEvent event) {
         if (Objects.equals(event.getType(), "updated")) {
-            this.searchIndexService.updateAsset(event.getAsset());
+            this.searchIndexUpdateQueue.updateAsset(event.getAsset());
         }
         if (Objects.equals(event.getType(), "deleted")) {
-            this.searchIndexService.deleteAsset(event.getAsset().getId());
+            this.searchIndexUpdateQueue.deleteAsset(event.getAsset().getId());
         }
     }
 
     @Subscribe
     public void onEvent(CollectionModificationEvent event) {
-        this.searchIndexService.updateVariants(new ArrayList<>(event.getProductVariantIds()));
+        this.searchIndexUpdateQueue.updateVariants(new ArrayList<>(event.getProductVariantIds()));
     }
 
     @Subscribe
@@ -9,9 +9,13 @@ import io.geekshop.common.RequestContext;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
+ * Requests the Collections to be updated by (re-)applying their CollectionFilters. When `productVariantIds`
+ * is given, only the membership of those ProductVariants is re-evaluated, otherwise all ProductVariants are.
+ *
  * Created on Nov, 2020 by @author bobo
  */
 @EqualsAndHashCode(callSuper = true)
@@ -19,4 +23,16 @@ import java.util.List;
 public class ApplyCollectionFilterEvent extends BaseEvent {
     private final RequestContext ctx;
     private final List<Long> collectionIds;
+    private final Collection<Long> productVariantIds;
+
+    public ApplyCollectionFilterEvent(RequestContext ctx, List<Long> collectionIds) {
+        this(ctx, collectionIds, null);
+    }
+
+    public ApplyCollectionFilterEvent(RequestContext ctx, List<Long> collectionIds,
+                                      Collection<Long> productVariantIds) {
+        this.ctx = ctx;
+        this.collectionIds = collectionIds;
+        this.productVariantIds = productVariantIds;
+    }
 }
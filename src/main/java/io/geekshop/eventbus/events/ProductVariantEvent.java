@@ -17,6 +17,9 @@ import java.util.List;
  * This event is fired whenever a {@link io.geekshop.types.product.ProductVariant} is added, updated
  * or deleted.
  *
+ * The "stock_updated" type is fired when only the stock levels of the ProductVariants have changed (e.g. an
+ * Order has been placed). Such events carry no RequestContext, and their variants only have their ids set.
+ *
  * Created on Nov, 2020 by @author bobo
  */
 @EqualsAndHashCode(callSuper = true)
@@ -52,7 +52,9 @@ public enum ErrorCode {
 
     COUPON_CODE_LIMIT_REACHED("Coupon code limit has been reached"),
 
-    ORDER_ITEMS_LIMIT_EXCEEDED("Order item limit exceeded");
+    ORDER_ITEMS_LIMIT_EXCEEDED("Order item limit exceeded"),
+
+    INSUFFICIENT_STOCK("Insufficient stock");
 
     public final String defaultMessage;
 
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.exception;
+
+import io.geekshop.options.OrderOptions;
+
+import java.util.List;
+
+/**
+ * This exception should be thrown when the stock of an Order cannot be allocated because not enough stock
+ * is available, see the `stockAllocationEnabled` setting in {@link OrderOptions}
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class InsufficientStockException extends AbstractGraphqlException {
+    public InsufficientStockException(List<String> skus) {
+        super(String.format("Insufficient stock for { %s }", String.join(", ", skus)),
+                ErrorCode.INSUFFICIENT_STOCK);
+    }
+}
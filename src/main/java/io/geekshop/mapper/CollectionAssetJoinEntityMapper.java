@@ -5,13 +5,13 @@
 
 package io.geekshop.mapper;
 
+import io.geekshop.custom.mybatis_plus.BatchMapper;
 import io.geekshop.entity.CollectionAssetJoinEntity;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 
 /**
  * Created on Nov, 2020 by @author bobo
  */
 @Mapper
-public interface CollectionAssetJoinEntityMapper extends BaseMapper<CollectionAssetJoinEntity> {
+public interface CollectionAssetJoinEntityMapper extends BatchMapper<CollectionAssetJoinEntity> {
 }
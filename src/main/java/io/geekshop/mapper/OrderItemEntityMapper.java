@@ -5,13 +5,13 @@
 
 package io.geekshop.mapper;
 
+import io.geekshop.custom.mybatis_plus.BatchMapper;
 import io.geekshop.entity.OrderItemEntity;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 
 /**
  * Created on Dec, 2020 by @author bobo
  */
 @Mapper
-public interface OrderItemEntityMapper extends BaseMapper<OrderItemEntity> {
+public interface OrderItemEntityMapper extends BatchMapper<OrderItemEntity> {
 }
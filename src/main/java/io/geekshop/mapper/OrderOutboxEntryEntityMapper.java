@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.mapper;
+
+import io.geekshop.custom.mybatis_plus.BatchMapper;
+import io.geekshop.entity.OrderOutboxEntryEntity;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+@Mapper
+public interface OrderOutboxEntryEntityMapper extends BatchMapper<OrderOutboxEntryEntity> {
+}
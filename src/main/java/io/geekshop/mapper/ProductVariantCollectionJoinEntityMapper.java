@@ -5,13 +5,13 @@
 
 package io.geekshop.mapper;
 
+import io.geekshop.custom.mybatis_plus.BatchMapper;
 import io.geekshop.entity.ProductVariantCollectionJoinEntity;
-import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 
 /**
  * Created on Nov, 2020 by @author bobo
  */
 @Mapper
-public interface ProductVariantCollectionJoinEntityMapper extends BaseMapper<ProductVariantCollectionJoinEntity> {
+public interface ProductVariantCollectionJoinEntityMapper extends BatchMapper<ProductVariantCollectionJoinEntity> {
 }
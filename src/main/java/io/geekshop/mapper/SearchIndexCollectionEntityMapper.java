@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.mapper;
+
+import io.geekshop.entity.SearchIndexCollectionEntity;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+@Mapper
+public interface SearchIndexCollectionEntityMapper extends BaseMapper<SearchIndexCollectionEntity> {
+}
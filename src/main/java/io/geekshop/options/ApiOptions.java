@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+import lombok.Data;
+
+/**
+ * Configuration settings for the GraphQL APIs.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Data
+public class ApiOptions {
+    /**
+     * Where the batch loads of the DataLoaders are executed.
+     *
+     * @default pool
+     */
+    private DataLoaderExecutorType dataLoaderExecutor = DataLoaderExecutorType.pool;
+
+    /**
+     * The number of threads of the DataLoader pool. Batch loads block on the database, so the pool should
+     * be sized after the database connection pool rather than the number of cores.
+     *
+     * @default 10
+     */
+    private int dataLoaderPoolSize = 10;
+
+    /**
+     * The number of batch loads which may wait for a thread of the DataLoader pool. Once the queue is full,
+     * further batch loads are executed on the thread which dispatches them, which slows down the requests
+     * issuing them instead of queueing more work.
+     *
+     * @default 1000
+     */
+    private int dataLoaderQueueCapacity = 1000;
+
+    /**
+     * Whether the batch sizes, cache hits and batch load latencies of each DataLoader are recorded as metrics.
+     *
+     * @default true
+     */
+    private boolean dataLoaderMetricsEnabled = true;
+
+    /**
+     * The number of distinct GraphQL documents which are kept parsed and validated, so that repeated queries
+     * skip parsing and validation against the schema. A value of 0 disables the cache.
+     *
+     * @default 500
+     */
+    private long documentCacheSize = 500;
+
+    /**
+     * Whether clients may send the SHA-256 hash of a query instead of its full text, following the Apollo
+     * Automatic Persisted Queries protocol.
+     *
+     * @default true
+     */
+    private boolean persistedQueriesEnabled = true;
+
+    /**
+     * The number of persisted queries which are remembered. Once exceeded, the least-recently-used queries are
+     * forgotten, and clients sending their hash are asked to send the full query again.
+     *
+     * @default 1000
+     */
+    private long persistedQueryCacheSize = 1000;
+
+    /**
+     * Whether the latency of each GraphQL operation is recorded as metrics, see
+     * {@link io.geekshop.custom.graphql.GraphQLMetricsInstrumentation}.
+     *
+     * @default true
+     */
+    private boolean tracingEnabled = true;
+
+    /**
+     * The fraction (between 0 and 1) of GraphQL operations whose fields are timed individually as well.
+     * Timing every field of every operation is expensive, while a small sample is enough to tell the slow
+     * resolvers apart.
+     *
+     * @default 0.05
+     */
+    private double tracingFieldSampleRate = 0.05;
+
+    /**
+     * The number of distinct operation names which are recorded as tags. Operations with further names are
+     * recorded as `other`, so that clients cannot create an unbounded number of metrics.
+     *
+     * @default 200
+     */
+    private int tracingMaxOperationNames = 200;
+}
@@ -71,6 +71,60 @@ public class AuthOptions {
      */
     private int sessionCacheTTL = 300;
 
+    /**
+     * The maximum number of unknown (invalid, expired or deleted) session tokens which are remembered, so
+     * that requests replaying such a token do not query the database each time.
+     *
+     * @default 10000
+     */
+    private int unknownSessionCacheSize = 10000;
+
+    /**
+     * The length of time (in seconds) that an unknown session token is remembered.
+     *
+     * @default 60
+     */
+    private int unknownSessionCacheTTL = 60;
+
+    /**
+     * When enabled, changes to the expiry and active order of a session are applied to the cached session
+     * immediately, but written to the database by a background thread. This takes the session table off the
+     * hot path of e.g. cart updates. Pending changes are written on shutdown, but may be lost if the
+     * process crashes.
+     *
+     * @default false
+     */
+    private boolean sessionWriteBehind = false;
+
+    /**
+     * The interval (in milliseconds) at which pending session changes are written when `sessionWriteBehind`
+     * is enabled.
+     *
+     * @default 1000
+     */
+    private long sessionWriteBehindInterval = 1000;
+
+    /**
+     * The interval (in seconds) at which expired and invalidated sessions are deleted from the database.
+     * A value of 0 disables the reaper.
+     *
+     * @default 600
+     */
+    private long sessionReaperInterval = 600;
+
+    /**
+     * The maximum number of sessions deleted by a single statement of the session reaper, which bounds the
+     * time the session table is locked for.
+     *
+     * @default 1000
+     */
+    private int sessionReaperBatchSize = 1000;
+
+    /**
+     * Options for sharing the session cache between server instances.
+     */
+    private DistributedSessionCacheOptions distributedSessionCache = new DistributedSessionCacheOptions();
+
     /**
      * Determines whether new User accounts require verification of their email address.
      *
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+import lombok.Data;
+
+/**
+ * Configures the cache of catalog entities (Products, ProductVariants, Assets, FacetValues and
+ * ProductOptionGroups) which the GraphQL DataLoaders share across requests.
+ *
+ * The cache is held in the memory of each node, and changes are only evicted on the node which made them.
+ * When GeekShop runs on several nodes, the other nodes keep serving their cached entities until the `ttl`
+ * expires, so the `ttl` bounds how stale the catalog may be on them. Disable the cache if that is not
+ * acceptable.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Data
+public class CatalogCacheOptions {
+    /**
+     * Whether the DataLoaders consult the cache before querying the database.
+     *
+     * @default true
+     */
+    private boolean enabled = true;
+
+    /**
+     * The maximum number of entities cached per entity type. Once reached, the least-recently-used
+     * entities are evicted.
+     *
+     * @default 10000
+     */
+    private long maximumSize = 10000;
+
+    /**
+     * The number of seconds an entity is cached after it has been loaded. Changes are evicted from the
+     * cache of this node once they have been committed, so this only bounds how long a change made on
+     * another node, or outside of GeekShop (e.g. directly in the database), may go unnoticed.
+     *
+     * @default 30
+     */
+    private long ttl = 30;
+}
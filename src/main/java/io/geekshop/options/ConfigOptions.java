@@ -38,4 +38,19 @@ public class ConfigOptions {
      * Configuration settings governing how orders are handled.
      */
     private OrderOptions orderOptions = new OrderOptions();
+
+    /**
+     * Configuration settings for product search.
+     */
+    private SearchOptions searchOptions = new SearchOptions();
+
+    /**
+     * Configuration settings for the GraphQL APIs.
+     */
+    private ApiOptions apiOptions = new ApiOptions();
+
+    /**
+     * Configuration settings for the cache of catalog entities shared by the GraphQL DataLoaders.
+     */
+    private CatalogCacheOptions catalogCacheOptions = new CatalogCacheOptions();
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public enum DataLoaderExecutorType {
+    /**
+     * Executes batch loads in a dedicated, bounded thread pool.
+     */
+    pool("pool"),
+    /**
+     * Executes batch loads on the thread which dispatches the DataLoaders, i.e. the thread executing the
+     * GraphQL request.
+     */
+    inline("inline");
+
+    private final String name;
+
+    DataLoaderExecutorType(String s) {
+        name = s;
+    }
+
+    public boolean equalsName(String otherName) {
+        return name.equals(otherName);
+    }
+
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+import lombok.Data;
+
+/**
+ * Options for the {@link io.geekshop.config.session_cache.DistributedSessionCacheStrategy}, which shares
+ * the session cache between server instances via Redis.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Data
+public class DistributedSessionCacheOptions {
+    /**
+     * Use the distributed session cache instead of the per-instance in-memory cache. Should be enabled
+     * whenever more than one server instance is running behind a load balancer.
+     *
+     * @default false
+     */
+    private boolean enabled = false;
+
+    /**
+     * The Redis server which holds the shared sessions and relays the invalidation messages.
+     *
+     * @default 'redis://localhost:6379'
+     */
+    private String redisUri = "redis://localhost:6379";
+
+    /**
+     * The prefix of the Redis keys under which sessions are stored.
+     *
+     * @default 'geekshop:session:'
+     */
+    private String keyPrefix = "geekshop:session:";
+
+    /**
+     * The Redis pub/sub channel over which invalidations are fanned out to the other instances.
+     *
+     * @default 'geekshop:session-invalidation'
+     */
+    private String invalidationChannel = "geekshop:session-invalidation";
+
+    /**
+     * The maximum number of sessions kept in the local near-cache of each instance.
+     *
+     * @default 1000
+     */
+    private int nearCacheSize = 1000;
+
+    /**
+     * The length of time (in seconds) that a session is kept in the local near-cache. This bounds how long
+     * an instance may serve a stale session, should an invalidation message get lost.
+     *
+     * @default 10
+     */
+    private long nearCacheTTL = 10;
+}
@@ -5,6 +5,7 @@
 
 package io.geekshop.options;
 
+import io.geekshop.exception.InsufficientStockException;
 import lombok.Data;
 
 /**
@@ -25,4 +26,87 @@ public class OrderOptions {
      * @default 999
      */
     private Integer orderItemsLimit = 999;
+
+    /**
+     * Whether the stock of ProductVariants which track their inventory is allocated to an Order when it
+     * transitions to the "ArrangingPayment" state. The allocation only succeeds if enough stock is available,
+     * i.e. stockOnHand minus the stock already allocated to other Orders, otherwise the transition fails with an
+     * {@link InsufficientStockException}. The allocated stock is released if the Order goes back to "AddingItems"
+     * or is cancelled, and is taken from the stockOnHand once the Order is paid. Orders which stay in the
+     * "ArrangingPayment" state for longer than `stockAllocationTimeout` are moved back to "AddingItems", which
+     * releases their stock.
+     *
+     * This prevents overselling when many customers check out the same ProductVariant at once (e.g. in a flash
+     * sale). When disabled, the stock is only taken when the Order is paid, and stockOnHand may become negative.
+     *
+     * @default false
+     */
+    private boolean stockAllocationEnabled = false;
+
+    /**
+     * The number of seconds after which the stock allocated to an Order which is still arranging payment (e.g.
+     * an abandoned checkout) is released, by moving the Order back to the "AddingItems" state.
+     *
+     * @default 1800
+     */
+    private long stockAllocationTimeout = 1800;
+
+    /**
+     * The interval (in seconds) at which Orders whose stock allocation has timed out are looked for. A value of 0
+     * disables the periodic release, in which case allocations are only released when their Orders go back to
+     * "AddingItems" or are cancelled.
+     *
+     * @default 60
+     */
+    private long stockAllocationReaperInterval = 60;
+
+    /**
+     * Whether the non-critical side-effects of Order, Payment and Refund transitions (the OrderHistoryEntries and the
+     * record of the Promotions used by a placed Order) are applied asynchronously. They are then recorded in an
+     * outbox table in the same transaction as the transition itself, and applied in batches by a background drainer,
+     * which retries failed side-effects and applies those of a single Order in order. This takes their cost off the
+     * checkout request, at the price of the OrderHistory and the Promotions listed for an Order lagging slightly
+     * behind. The usage counts which enforce the `perCustomerUsageLimit` of Promotions are always updated in the
+     * transaction of the transition.
+     *
+     * @default false
+     */
+    private boolean asyncSideEffectsEnabled = false;
+
+    /**
+     * The interval (in milliseconds) at which the outbox of asynchronous side-effects is drained, in addition to
+     * after each transaction which recorded side-effects. A value of 0 disables the periodic draining.
+     *
+     * @default 1000
+     */
+    private long outboxDrainInterval = 1000;
+
+    /**
+     * The maximum number of outbox entries applied in a single transaction.
+     *
+     * @default 100
+     */
+    private int outboxBatchSize = 100;
+
+    /**
+     * The id (0 to 1023) of this node, which is part of the Order codes generated by the default
+     * OrderCodeGenerator. When GeekShop runs on several nodes which share a database, each node should be
+     * configured with its own id, so that their Order codes are guaranteed not to collide.
+     *
+     * If left unset, 0 is used, and a warning is logged on startup when the distributed session cache is
+     * enabled (i.e. when GeekShop runs on several nodes).
+     *
+     * @default null
+     */
+    private Integer orderCodeNodeId;
+
+    /**
+     * The number of seconds the active Promotions are cached for pricing Orders. Changes to Promotions made
+     * on this node take effect immediately, so this only bounds how long other nodes which share the database
+     * keep applying a Promotion as it was before it changed. A value of 0 re-loads the Promotions for every
+     * price calculation.
+     *
+     * @default 30
+     */
+    private long activePromotionsCacheTtl = 30;
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+import lombok.Data;
+
+/**
+ * Defines how product searches are performed.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Data
+public class SearchOptions {
+    /**
+     * The SearchStrategy used to answer product searches.
+     *
+     * @default db
+     */
+    private SearchStrategyType strategy = SearchStrategyType.db;
+
+    /**
+     * Whether the `db` strategy counts search facets with in-memory bitmaps of ProductVariant ids per
+     * FacetValue, rather than by reading the facet values of the whole result set from the database.
+     *
+     * The bitmaps are held per JVM and only follow the search index changes made by the same server, so on
+     * a multi-server setup the counts of the other servers drift until they are restarted. Only enable this
+     * on single-server setups.
+     *
+     * @default false
+     */
+    private boolean facetValueBitmapsEnabled = false;
+
+    /**
+     * The number of ProductVariants which are loaded, built and written together during a reindex.
+     *
+     * @default 500
+     */
+    private int reindexBatchSize = 500;
+
+    /**
+     * Search index updates triggered by Product, ProductVariant, Asset and Collection changes are collected
+     * for this many milliseconds and then applied together, so that bursts of edits to the same entities
+     * (e.g. bulk admin operations or imports) only update each index item once.
+     *
+     * A value of 0 applies each update immediately.
+     *
+     * @default 200
+     */
+    private long indexUpdateWindow = 200;
+
+    /**
+     * Pending search index updates are applied without waiting for the end of the window
+     * once this many distinct ids are pending.
+     *
+     * @default 1000
+     */
+    private int indexUpdateMaxBatchSize = 1000;
+}
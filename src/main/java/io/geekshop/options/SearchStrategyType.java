@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.options;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public enum SearchStrategyType {
+    /**
+     * Searches the `search_index_item` table directly with weighted `LIKE '%term%'` predicates.
+     */
+    db("db"),
+    /**
+     * Keeps a tokenized, in-process inverted index over the `search_index_item` table and answers
+     * searches from it. The index is loaded on startup and kept current by the SearchIndexService.
+     */
+    memory("memory");
+
+    private final String name;
+
+    SearchStrategyType(String s) {
+        name = s;
+    }
+
+    public boolean equalsName(String otherName) {
+        return name.equals(otherName);
+    }
+
+    public String toString() {
+        return this.name;
+    }
+}
@@ -10,6 +10,7 @@ import io.geekshop.entity.AssetEntity;
 import io.geekshop.entity.CollectionAssetJoinEntity;
 import io.geekshop.mapper.AssetEntityMapper;
 import io.geekshop.mapper.CollectionAssetJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.asset.Asset;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +20,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +32,8 @@ public class CollectionAssetsDataLoader implements MappedBatchLoader<Long, List<
 
     private final CollectionAssetJoinEntityMapper collectionAssetJoinEntityMapper;
     private final AssetEntityMapper assetEntityMapper;
+    private final EntityCache<AssetEntity> assetCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<Asset>>> load(Set<Long> collectionIds) {
@@ -45,7 +49,8 @@ public class CollectionAssetsDataLoader implements MappedBatchLoader<Long, List<
 
             Set<Long> assetIds = collectionAssetJoinEntities.stream()
                     .map(CollectionAssetJoinEntity::getAssetId).collect(Collectors.toSet());
-            List<AssetEntity> assetEntityList = assetEntityMapper.selectBatchIds(assetIds);
+            List<AssetEntity> assetEntityList =
+                    this.assetCache.getByIds(assetIds, this.assetEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(assetEntityList)) return collectionAssetsMap;
 
             Map<Long, AssetEntity> assetEntityMap = assetEntityList.stream()
@@ -61,6 +66,6 @@ public class CollectionAssetsDataLoader implements MappedBatchLoader<Long, List<
             });
 
             return collectionAssetsMap;
-        });
+        }, this.executor);
     }
 }
@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CollectionParentDataLoader implements MappedBatchLoader<Long, Collection> {
     private final CollectionEntityMapper collectionEntityMapper;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, Collection>> load(Set<Long> parentIds) {
@@ -37,6 +39,6 @@ public class CollectionParentDataLoader implements MappedBatchLoader<Long, Colle
             Map<Long, Collection> collectionMap =
                     collections.stream().collect(Collectors.toMap(Collection::getId, c -> c));
             return collectionMap;
-        });
+        }, this.executor);
     }
 }
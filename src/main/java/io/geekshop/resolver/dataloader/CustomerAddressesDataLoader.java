@@ -15,6 +15,7 @@ import org.dataloader.MappedBatchLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -22,9 +23,11 @@ import java.util.stream.Collectors;
  */
 public class CustomerAddressesDataLoader implements MappedBatchLoader<Long, List<Address>> {
     private final AddressEntityMapper addressEntityMapper;
+    private final Executor executor;
 
-    public CustomerAddressesDataLoader(AddressEntityMapper addressEntityMapper) {
+    public CustomerAddressesDataLoader(AddressEntityMapper addressEntityMapper, Executor executor) {
         this.addressEntityMapper = addressEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -47,6 +50,6 @@ public class CustomerAddressesDataLoader implements MappedBatchLoader<Long, List
                             )));
 
             return groupByCustomerId;
-        });
+        }, this.executor);
     }
 }
@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,9 +24,11 @@ import java.util.stream.Collectors;
  */
 public class CustomerDataLoader implements MappedBatchLoader<Long, Customer> {
     private final CustomerEntityMapper customerEntityMapper;
+    private final Executor executor;
 
-    public CustomerDataLoader(CustomerEntityMapper customerEntityMapper) {
+    public CustomerDataLoader(CustomerEntityMapper customerEntityMapper, Executor executor) {
         this.customerEntityMapper = customerEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -39,6 +42,6 @@ public class CustomerDataLoader implements MappedBatchLoader<Long, Customer> {
             Map<Long, Customer> customerMap = customers.stream()
                     .collect(Collectors.toMap(Customer::getId, c -> c));
             return customerMap;
-        });
+        }, this.executor);
     }
 }
@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -27,10 +28,13 @@ import java.util.stream.Collectors;
 public class CustomerUserDataLoader implements MappedBatchLoader<Long, User> {
     private final UserEntityMapper userEntityMapper;
     private final CustomerEntityMapper customerEntityMapper;
+    private final Executor executor;
 
-    public CustomerUserDataLoader(UserEntityMapper userEntityMapper, CustomerEntityMapper customerEntityMapper) {
+    public CustomerUserDataLoader(UserEntityMapper userEntityMapper, CustomerEntityMapper customerEntityMapper,
+                                  Executor executor) {
         this.userEntityMapper = userEntityMapper;
         this.customerEntityMapper = customerEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -61,6 +65,6 @@ public class CustomerUserDataLoader implements MappedBatchLoader<Long, User> {
             });
 
             return customerUserMap;
-        });
+        }, this.executor);
     }
 }
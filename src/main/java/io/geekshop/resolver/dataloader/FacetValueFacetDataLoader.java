@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,9 +24,11 @@ import java.util.stream.Collectors;
  */
 public class FacetValueFacetDataLoader implements MappedBatchLoader<Long, Facet> {
     private final FacetEntityMapper facetEntityMapper;
+    private final Executor executor;
 
-    public FacetValueFacetDataLoader(FacetEntityMapper facetEntityMapper) {
+    public FacetValueFacetDataLoader(FacetEntityMapper facetEntityMapper, Executor executor) {
         this.facetEntityMapper = facetEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -36,6 +39,6 @@ public class FacetValueFacetDataLoader implements MappedBatchLoader<Long, Facet>
                     .map(facetEntity -> BeanMapper.map(facetEntity, Facet.class)).collect(Collectors.toList());
             Map<Long, Facet> facetMap = facetList.stream().collect(Collectors.toMap(Facet::getId, facet -> facet));
             return facetMap;
-        });
+        }, this.executor);
     }
 }
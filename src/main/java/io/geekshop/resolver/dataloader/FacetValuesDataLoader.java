@@ -15,6 +15,7 @@ import org.dataloader.MappedBatchLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -22,9 +23,11 @@ import java.util.stream.Collectors;
  */
 public class FacetValuesDataLoader implements MappedBatchLoader<Long, List<FacetValue>> {
     private final FacetValueEntityMapper facetValueEntityMapper;
+    private final Executor executor;
 
-    public FacetValuesDataLoader(FacetValueEntityMapper facetValueEntityMapper) {
+    public FacetValuesDataLoader(FacetValueEntityMapper facetValueEntityMapper, Executor executor) {
         this.facetValueEntityMapper = facetValueEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -47,6 +50,6 @@ public class FacetValuesDataLoader implements MappedBatchLoader<Long, List<Facet
                             )));
 
             return groupByFacetId;
-        });
+        }, this.executor);
     }
 }
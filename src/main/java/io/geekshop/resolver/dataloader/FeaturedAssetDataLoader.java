@@ -8,6 +8,7 @@ package io.geekshop.resolver.dataloader;
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.entity.AssetEntity;
 import io.geekshop.mapper.AssetEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.asset.Asset;
 import org.dataloader.MappedBatchLoader;
 
@@ -16,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,20 +26,26 @@ import java.util.stream.Collectors;
 
 public class FeaturedAssetDataLoader implements MappedBatchLoader<Long, Asset> {
     private final AssetEntityMapper assetEntityMapper;
+    private final EntityCache<AssetEntity> assetCache;
+    private final Executor executor;
 
-    public FeaturedAssetDataLoader(AssetEntityMapper assetEntityMapper) {
+    public FeaturedAssetDataLoader(AssetEntityMapper assetEntityMapper, EntityCache<AssetEntity> assetCache,
+                                   Executor executor) {
         this.assetEntityMapper = assetEntityMapper;
+        this.assetCache = assetCache;
+        this.executor = executor;
     }
 
     @Override
     public CompletionStage<Map<Long, Asset>> load(Set<Long> assetIds) {
         return CompletableFuture.supplyAsync(() -> {
-            List<AssetEntity> assetEntityList = this.assetEntityMapper.selectBatchIds(assetIds);
+            List<AssetEntity> assetEntityList =
+                    this.assetCache.getByIds(assetIds, this.assetEntityMapper::selectBatchIds);
             List<Asset> assetList = assetEntityList.stream()
                     .map(assetEntity -> BeanMapper.map(assetEntity, Asset.class)).collect(Collectors.toList());
             Map<Long, Asset> featuredAssetMap = assetList.stream()
                     .collect(Collectors.toMap(Asset::getId, asset -> asset));
             return featuredAssetMap;
-        });
+        }, this.executor);
     }
 }
@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,9 +25,11 @@ import java.util.stream.Collectors;
 public class FulfillmentDataLoader implements MappedBatchLoader<Long, Fulfillment> {
 
     private final FulfillmentEntityMapper fulfillmentEntityMapper;
+    private final Executor executor;
 
-    public FulfillmentDataLoader(FulfillmentEntityMapper fulfillmentEntityMapper) {
+    public FulfillmentDataLoader(FulfillmentEntityMapper fulfillmentEntityMapper, Executor executor) {
         this.fulfillmentEntityMapper = fulfillmentEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -40,6 +43,6 @@ public class FulfillmentDataLoader implements MappedBatchLoader<Long, Fulfillmen
             Map<Long, Fulfillment> fulfillmentMap = fulfillments.stream()
                     .collect(Collectors.toMap(Fulfillment::getId, f -> f));
             return fulfillmentMap;
-        });
+        }, this.executor);
     }
 }
@@ -16,6 +16,7 @@ import org.dataloader.MappedBatchLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,9 +25,11 @@ import java.util.stream.Collectors;
 @SuppressWarnings("Duplicates")
 public class FulfillmentOrderItemsDataLoder implements MappedBatchLoader<Long, List<OrderItem>> {
     private final OrderItemEntityMapper orderItemEntityMapper;
+    private final Executor executor;
 
-    public FulfillmentOrderItemsDataLoder(OrderItemEntityMapper orderItemEntityMapper) {
+    public FulfillmentOrderItemsDataLoder(OrderItemEntityMapper orderItemEntityMapper, Executor executor) {
         this.orderItemEntityMapper = orderItemEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -50,6 +53,6 @@ public class FulfillmentOrderItemsDataLoder implements MappedBatchLoader<Long, L
                             )));
 
             return groupByFulfillmentId;
-        });
+        }, this.executor);
     }
 }
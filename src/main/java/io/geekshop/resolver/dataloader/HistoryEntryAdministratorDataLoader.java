@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,9 +25,11 @@ import java.util.stream.Collectors;
 public class HistoryEntryAdministratorDataLoader implements MappedBatchLoader<Long, Administrator> {
 
     private final AdministratorEntityMapper administratorEntityMapper;
+    private final Executor executor;
 
-    public HistoryEntryAdministratorDataLoader(AdministratorEntityMapper administratorEntityMapper) {
+    public HistoryEntryAdministratorDataLoader(AdministratorEntityMapper administratorEntityMapper, Executor executor) {
         this.administratorEntityMapper = administratorEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -38,6 +41,6 @@ public class HistoryEntryAdministratorDataLoader implements MappedBatchLoader<Lo
                             .collect(Collectors.toMap(AdministratorEntity::getId,
                                     administratorEntity -> BeanMapper.map(administratorEntity, Administrator.class)));
             return administratorMap;
-        });
+        }, this.executor);
     }
 }
@@ -19,6 +19,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -30,6 +31,7 @@ public class OrderLinesDataLoader implements MappedBatchLoader<Long, List<OrderL
 
     private final OrderLineEntityMapper orderLineEntityMapper;
     private final OrderItemEntityMapper orderItemEntityMapper;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<OrderLine>>> load(Set<Long> orderIds) {
@@ -71,6 +73,6 @@ public class OrderLinesDataLoader implements MappedBatchLoader<Long, List<OrderL
                             )));
 
             return groupByOrderId;
-        });
+        }, this.executor);
     }
 }
@@ -16,6 +16,7 @@ import org.dataloader.MappedBatchLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PaymentRefundsDataLoader implements MappedBatchLoader<Long, List<Refund>> {
     private final RefundEntityMapper refundEntityMapper;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<Refund>>> load(Set<Long> paymentIds) {
@@ -46,6 +48,6 @@ public class PaymentRefundsDataLoader implements MappedBatchLoader<Long, List<Re
                             )));
 
             return groupByPaymentId;
-        });
+        }, this.executor);
     }
 }
@@ -10,6 +10,7 @@ import io.geekshop.entity.AssetEntity;
 import io.geekshop.entity.ProductAssetJoinEntity;
 import io.geekshop.mapper.AssetEntityMapper;
 import io.geekshop.mapper.ProductAssetJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.asset.Asset;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +20,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +31,8 @@ import java.util.stream.Collectors;
 public class ProductAssetsDataLoader implements MappedBatchLoader<Long, List<Asset>> {
     private final ProductAssetJoinEntityMapper productAssetJoinEntityMapper;
     private final AssetEntityMapper assetEntityMapper;
+    private final EntityCache<AssetEntity> assetCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<Asset>>> load(Set<Long> productIds) {
@@ -44,7 +48,8 @@ public class ProductAssetsDataLoader implements MappedBatchLoader<Long, List<Ass
 
             Set<Long> assetIds = joinEntities.stream()
                     .map(ProductAssetJoinEntity::getAssetId).collect(Collectors.toSet());
-            List<AssetEntity> assetEntityList = assetEntityMapper.selectBatchIds(assetIds);
+            List<AssetEntity> assetEntityList =
+                    this.assetCache.getByIds(assetIds, this.assetEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(assetEntityList)) return productAssetsMap;
 
             Map<Long, AssetEntity> assetEntityMap = assetEntityList.stream()
@@ -60,6 +65,6 @@ public class ProductAssetsDataLoader implements MappedBatchLoader<Long, List<Ass
             });
 
             return productAssetsMap;
-        });
+        }, this.executor);
     }
 }
@@ -14,6 +14,7 @@ import io.geekshop.entity.ProductFacetValueJoinEntity;
 import io.geekshop.mapper.FacetEntityMapper;
 import io.geekshop.mapper.FacetValueEntityMapper;
 import io.geekshop.mapper.ProductFacetValueJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.facet.FacetValue;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -25,6 +26,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toMap;
@@ -38,6 +40,8 @@ public class ProductFacetValuesDataLoader implements MappedBatchLoaderWithContex
     private final ProductFacetValueJoinEntityMapper productFacetValueJoinEntityMapper;
     private final FacetValueEntityMapper facetValueEntityMapper;
     private final FacetEntityMapper facetEntityMapper;
+    private final EntityCache<FacetValueEntity> facetValueCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<FacetValue>>> load(Set<Long> productIds, BatchLoaderEnvironment environment) {
@@ -53,7 +57,8 @@ public class ProductFacetValuesDataLoader implements MappedBatchLoaderWithContex
 
             Set<Long> facetValueIds = joinEntities.stream()
                     .map(ProductFacetValueJoinEntity::getFacetValueId).collect(Collectors.toSet());
-            List<FacetValueEntity> facetValueEntities = facetValueEntityMapper.selectBatchIds(facetValueIds);
+            List<FacetValueEntity> facetValueEntities =
+                    this.facetValueCache.getByIds(facetValueIds, this.facetValueEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(facetValueEntities)) return facetValuesMap;
 
             Map<Object, Object> optionsMap = environment.getKeyContexts();
@@ -87,6 +92,6 @@ public class ProductFacetValuesDataLoader implements MappedBatchLoaderWithContex
             });
 
             return facetValuesMap;
-        });
+        }, this.executor);
     }
 }
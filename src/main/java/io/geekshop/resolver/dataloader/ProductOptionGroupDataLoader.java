@@ -8,6 +8,7 @@ package io.geekshop.resolver.dataloader;
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.entity.ProductOptionGroupEntity;
 import io.geekshop.mapper.ProductOptionGroupEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.product.ProductOptionGroup;
 import org.dataloader.MappedBatchLoader;
 
@@ -16,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,22 +26,29 @@ import java.util.stream.Collectors;
 public class ProductOptionGroupDataLoader implements MappedBatchLoader<Long, ProductOptionGroup> {
 
     private final ProductOptionGroupEntityMapper productOptionGroupEntityMapper;
+    private final EntityCache<ProductOptionGroupEntity> productOptionGroupCache;
+    private final Executor executor;
 
-    public ProductOptionGroupDataLoader(ProductOptionGroupEntityMapper productOptionGroupEntityMapper) {
+    public ProductOptionGroupDataLoader(ProductOptionGroupEntityMapper productOptionGroupEntityMapper,
+                                        EntityCache<ProductOptionGroupEntity> productOptionGroupCache,
+                                        Executor executor) {
         this.productOptionGroupEntityMapper = productOptionGroupEntityMapper;
+        this.productOptionGroupCache = productOptionGroupCache;
+        this.executor = executor;
     }
 
     @Override
     public CompletionStage<Map<Long, ProductOptionGroup>> load(Set<Long> groupIds) {
         return CompletableFuture.supplyAsync(() -> {
             List<ProductOptionGroupEntity> productOptionGroupEntities =
-                    this.productOptionGroupEntityMapper.selectBatchIds(groupIds);
+                    this.productOptionGroupCache.getByIds(
+                            groupIds, this.productOptionGroupEntityMapper::selectBatchIds);
             List<ProductOptionGroup> productOptionGroups = productOptionGroupEntities.stream()
                     .map(optionGroupEntity -> BeanMapper.map(optionGroupEntity, ProductOptionGroup.class))
                     .collect(Collectors.toList());
             Map<Long, ProductOptionGroup> optionGroupMap = productOptionGroups.stream()
                     .collect(Collectors.toMap(ProductOptionGroup::getId, group -> group));
             return optionGroupMap;
-        });
+        }, this.executor);
     }
 }
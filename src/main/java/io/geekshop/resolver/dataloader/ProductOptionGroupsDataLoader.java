@@ -10,6 +10,7 @@ import io.geekshop.entity.ProductOptionGroupEntity;
 import io.geekshop.entity.ProductOptionGroupJoinEntity;
 import io.geekshop.mapper.ProductOptionGroupEntityMapper;
 import io.geekshop.mapper.ProductOptionGroupJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.product.ProductOptionGroup;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +20,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +31,8 @@ import java.util.stream.Collectors;
 public class ProductOptionGroupsDataLoader implements MappedBatchLoader<Long, List<ProductOptionGroup>> {
     private final ProductOptionGroupJoinEntityMapper productOptionGroupJoinEntityMapper;
     private final ProductOptionGroupEntityMapper productOptionGroupEntityMapper;
+    private final EntityCache<ProductOptionGroupEntity> productOptionGroupCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<ProductOptionGroup>>> load(Set<Long> productIds) {
@@ -45,7 +49,8 @@ public class ProductOptionGroupsDataLoader implements MappedBatchLoader<Long, Li
             Set<Long> optionGroupIds = joinEntities.stream()
                     .map(ProductOptionGroupJoinEntity::getOptionGroupId).collect(Collectors.toSet());
             List<ProductOptionGroupEntity> productOptionGroupEntities =
-                    productOptionGroupEntityMapper.selectBatchIds(optionGroupIds);
+                    this.productOptionGroupCache.getByIds(
+                            optionGroupIds, this.productOptionGroupEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(productOptionGroupEntities)) return optionGroupsMap;
 
             Map<Long, ProductOptionGroupEntity> optionGroupEntityMap = productOptionGroupEntities.stream()
@@ -62,6 +67,6 @@ public class ProductOptionGroupsDataLoader implements MappedBatchLoader<Long, Li
             });
 
             return optionGroupsMap;
-        });
+        }, this.executor);
     }
 }
@@ -15,6 +15,7 @@ import org.dataloader.MappedBatchLoader;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,9 +24,11 @@ import java.util.stream.Collectors;
 public class ProductOptionsDataLoader implements MappedBatchLoader<Long, List<ProductOption>> {
 
     private final ProductOptionEntityMapper productOptionEntityMapper;
+    private final Executor executor;
 
-    public ProductOptionsDataLoader(ProductOptionEntityMapper productOptionEntityMapper) {
+    public ProductOptionsDataLoader(ProductOptionEntityMapper productOptionEntityMapper, Executor executor) {
         this.productOptionEntityMapper = productOptionEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -48,6 +51,6 @@ public class ProductOptionsDataLoader implements MappedBatchLoader<Long, List<Pr
                             )));
 
             return groupByGroupId;
-        });
+        }, this.executor);
     }
 }
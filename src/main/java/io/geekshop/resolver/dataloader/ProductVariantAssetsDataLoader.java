@@ -10,6 +10,7 @@ import io.geekshop.entity.AssetEntity;
 import io.geekshop.entity.ProductVariantAssetJoinEntity;
 import io.geekshop.mapper.AssetEntityMapper;
 import io.geekshop.mapper.ProductVariantAssetJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.asset.Asset;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +20,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +31,8 @@ import java.util.stream.Collectors;
 public class ProductVariantAssetsDataLoader implements MappedBatchLoader<Long, List<Asset>> {
     private final ProductVariantAssetJoinEntityMapper productVariantAssetJoinEntityMapper;
     private final AssetEntityMapper assetEntityMapper;
+    private final EntityCache<AssetEntity> assetCache;
+    private final Executor executor;
 
 
     @Override
@@ -45,7 +49,8 @@ public class ProductVariantAssetsDataLoader implements MappedBatchLoader<Long, L
 
             Set<Long> assetIds = joinEntities.stream()
                     .map(ProductVariantAssetJoinEntity::getAssetId).collect(Collectors.toSet());
-            List<AssetEntity> assetEntityList = assetEntityMapper.selectBatchIds(assetIds);
+            List<AssetEntity> assetEntityList =
+                    this.assetCache.getByIds(assetIds, this.assetEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(assetEntityList)) return variantAssetsMap;
 
             Map<Long, AssetEntity> assetEntityMap = assetEntityList.stream()
@@ -61,6 +66,6 @@ public class ProductVariantAssetsDataLoader implements MappedBatchLoader<Long, L
             });
 
             return variantAssetsMap;
-        });
+        }, this.executor);
     }
 }
@@ -8,6 +8,7 @@ package io.geekshop.resolver.dataloader;
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.entity.ProductVariantEntity;
 import io.geekshop.mapper.ProductVariantEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.product.ProductVariant;
 import org.dataloader.MappedBatchLoader;
 
@@ -16,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,22 +25,29 @@ import java.util.stream.Collectors;
  */
 public class ProductVariantDataLoader implements MappedBatchLoader<Long, ProductVariant> {
     private final ProductVariantEntityMapper productVariantEntityMapper;
+    private final EntityCache<ProductVariantEntity> productVariantCache;
+    private final Executor executor;
 
-    public ProductVariantDataLoader(ProductVariantEntityMapper productVariantEntityMapper) {
+    public ProductVariantDataLoader(ProductVariantEntityMapper productVariantEntityMapper,
+                                    EntityCache<ProductVariantEntity> productVariantCache,
+                                    Executor executor) {
         this.productVariantEntityMapper = productVariantEntityMapper;
+        this.productVariantCache = productVariantCache;
+        this.executor = executor;
     }
 
     @Override
     public CompletionStage<Map<Long, ProductVariant>> load(Set<Long> productVariantIds) {
         return CompletableFuture.supplyAsync(() -> {
             List<ProductVariantEntity> productVariantEntities =
-                    this.productVariantEntityMapper.selectBatchIds(productVariantIds);
+                    this.productVariantCache.getByIds(
+                            productVariantIds, this.productVariantEntityMapper::selectBatchIds);
             List<ProductVariant> productVariants = productVariantEntities.stream()
                     .map(productVariantEntity -> BeanMapper.map(productVariantEntity, ProductVariant.class))
                     .collect(Collectors.toList());
             Map<Long, ProductVariant> productVariantMap = productVariants.stream()
                     .collect(Collectors.toMap(ProductVariant::getId, productVariant -> productVariant));
             return productVariantMap;
-        });
+        }, this.executor);
     }
 }
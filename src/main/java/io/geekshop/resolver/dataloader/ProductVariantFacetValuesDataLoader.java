@@ -14,6 +14,7 @@ import io.geekshop.entity.ProductVariantFacetValueJoinEntity;
 import io.geekshop.mapper.FacetEntityMapper;
 import io.geekshop.mapper.FacetValueEntityMapper;
 import io.geekshop.mapper.ProductVariantFacetValueJoinEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.facet.FacetValue;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +25,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toMap;
@@ -37,6 +39,8 @@ public class ProductVariantFacetValuesDataLoader implements MappedBatchLoaderWit
     private final ProductVariantFacetValueJoinEntityMapper productVariantFacetValueJoinEntityMapper;
     private final FacetValueEntityMapper facetValueEntityMapper;
     private final FacetEntityMapper facetEntityMapper;
+    private final EntityCache<FacetValueEntity> facetValueCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<FacetValue>>> load(
@@ -53,7 +57,8 @@ public class ProductVariantFacetValuesDataLoader implements MappedBatchLoaderWit
 
             Set<Long> facetValueIds = joinEntities.stream()
                     .map(ProductVariantFacetValueJoinEntity::getFacetValueId).collect(Collectors.toSet());
-            List<FacetValueEntity> facetValueEntities = facetValueEntityMapper.selectBatchIds(facetValueIds);
+            List<FacetValueEntity> facetValueEntities =
+                    this.facetValueCache.getByIds(facetValueIds, this.facetValueEntityMapper::selectBatchIds);
             if (CollectionUtils.isEmpty(facetValueEntities)) return variantFacetValuesMap;
 
             Map<Object, Object> optionsMap = environment.getKeyContexts();
@@ -89,6 +94,6 @@ public class ProductVariantFacetValuesDataLoader implements MappedBatchLoaderWit
             });
 
             return variantFacetValuesMap;
-        });
+        }, this.executor);
     }
 }
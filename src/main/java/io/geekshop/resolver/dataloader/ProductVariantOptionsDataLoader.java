@@ -19,6 +19,7 @@ import org.springframework.util.CollectionUtils;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +30,7 @@ import java.util.stream.Collectors;
 public class ProductVariantOptionsDataLoader implements MappedBatchLoader<Long, List<ProductOption>> {
     private final ProductVariantProductOptionJoinEntityMapper productVariantProductOptionJoinEntityMapper;
     private final ProductOptionEntityMapper productOptionEntityMapper;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<ProductOption>>> load(Set<Long> productVariantIds) {
@@ -62,6 +64,6 @@ public class ProductVariantOptionsDataLoader implements MappedBatchLoader<Long,
             });
 
             return variantOptionsMap;
-        });
+        }, this.executor);
     }
 }
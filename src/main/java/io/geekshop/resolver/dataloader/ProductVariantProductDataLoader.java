@@ -8,6 +8,7 @@ package io.geekshop.resolver.dataloader;
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.entity.ProductEntity;
 import io.geekshop.mapper.ProductEntityMapper;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
 import io.geekshop.types.product.Product;
 import lombok.RequiredArgsConstructor;
 import org.dataloader.MappedBatchLoader;
@@ -17,6 +18,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -26,16 +28,19 @@ import java.util.stream.Collectors;
 public class ProductVariantProductDataLoader implements MappedBatchLoader<Long, Product> {
 
     private final ProductEntityMapper productEntityMapper;
+    private final EntityCache<ProductEntity> productCache;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, Product>> load(Set<Long> productIds) {
         return CompletableFuture.supplyAsync(() -> {
-            List<ProductEntity> productEntities = this.productEntityMapper.selectBatchIds(productIds);
+            List<ProductEntity> productEntities =
+                    this.productCache.getByIds(productIds, this.productEntityMapper::selectBatchIds);
             List<Product> products = productEntities.stream()
                     .map(productEntity -> BeanMapper.map(productEntity, Product.class)).collect(Collectors.toList());
             Map<Long, Product> productMap = products.stream()
                     .collect(Collectors.toMap(Product::getId, product -> product));
             return productMap;
-        });
+        }, this.executor);
     }
 }
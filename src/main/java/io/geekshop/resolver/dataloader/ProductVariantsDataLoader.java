@@ -19,6 +19,7 @@ import org.dataloader.MappedBatchLoaderWithContext;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -29,6 +30,7 @@ import static java.util.stream.Collectors.groupingBy;
 @RequiredArgsConstructor
 public class ProductVariantsDataLoader implements MappedBatchLoaderWithContext<Long, List<ProductVariant>> {
     private final ProductVariantEntityMapper productVariantEntityMapper;
+    private final Executor executor;
 
     @Override
     public CompletionStage<Map<Long, List<ProductVariant>>> load(
@@ -59,6 +61,6 @@ public class ProductVariantsDataLoader implements MappedBatchLoaderWithContext<L
                                             BeanMapper.map(productVariantEntity, ProductVariant.class),
                                     Collectors.toList())));
             return groupByProductIdMap;
-        });
+        }, this.executor);
     }
 }
@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -23,9 +24,11 @@ import java.util.stream.Collectors;
  */
 public class ShippingMethodDataLoader implements MappedBatchLoader<Long, ShippingMethod> {
     private final ShippingMethodEntityMapper shippingMethodEntityMapper;
+    private final Executor executor;
 
-    public ShippingMethodDataLoader(ShippingMethodEntityMapper shippingMethodEntityMapper) {
+    public ShippingMethodDataLoader(ShippingMethodEntityMapper shippingMethodEntityMapper, Executor executor) {
         this.shippingMethodEntityMapper = shippingMethodEntityMapper;
+        this.executor = executor;
     }
 
     @Override
@@ -39,6 +42,6 @@ public class ShippingMethodDataLoader implements MappedBatchLoader<Long, Shippin
             Map<Long, ShippingMethod> shippingMethodMap = shippingMethods.stream()
                     .collect(Collectors.toMap(ShippingMethod::getId, m -> m));
             return shippingMethodMap;
-        });
+        }, this.executor);
     }
 }
@@ -160,7 +160,7 @@ public class AssetService {
             AssetEntity assetEntity = this.createAssetInternal(stream, fileName, mimeType);
 
             AssetEvent assetEvent = new AssetEvent(ctx, assetEntity, "create");
-            this.eventBus.post(assetEvent);
+            ServiceHelper.postAfterCommit(this.eventBus, assetEvent);
             return assetEntity;
         } catch (IOException ioEx) {
             log.error("IO exception during asset creation", ioEx);
@@ -186,7 +186,7 @@ public class AssetService {
         }
 
         this.assetEntityMapper.updateById(assetEntity);
-        this.eventBus.post(new AssetEvent(ctx, assetEntity, "updated"));
+        ServiceHelper.postAfterCommit(this.eventBus, new AssetEvent(ctx, assetEntity, "updated"));
         return assetEntity;
     }
 
@@ -232,7 +232,7 @@ public class AssetService {
             this.assetEntityMapper.deleteById(assetEntity.getId());
             this.assetStorageStrategy.deleteFile(assetEntity.getSource());
             this.assetStorageStrategy.deleteFile(assetEntity.getPreview());
-            this.eventBus.post(new AssetEvent(ctx, assetEntity, "deleted"));
+            ServiceHelper.postAfterCommit(this.eventBus, new AssetEvent(ctx, assetEntity, "deleted"));
         }
 
         deletionResponse.setResult(DeletionResult.DELETED);
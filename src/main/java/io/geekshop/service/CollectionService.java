@@ -239,7 +239,7 @@ public class CollectionService {
 
         ApplyCollectionFilterEvent event =
                 new ApplyCollectionFilterEvent(ctx, Arrays.asList(collectionEntity.getId()));
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
 
         return collectionEntity;
     }
@@ -284,7 +284,7 @@ public class CollectionService {
         if (!CollectionUtils.isEmpty(input.getFilters())) {
             ApplyCollectionFilterEvent event =
                     new ApplyCollectionFilterEvent(ctx, Arrays.asList(collectionEntity.getId()));
-            this.eventBus.post(event);
+            ServiceHelper.postAfterCommit(this.eventBus, event);
         }
 
         return collectionEntity;
@@ -318,7 +318,7 @@ public class CollectionService {
             Set<Long> affectedVariantIds = this.getCollectionProductVariantIds(coll.getId());
             CollectionModificationEvent event =
                     new CollectionModificationEvent(ctx, collectionEntity, affectedVariantIds);
-            this.eventBus.post(event);
+            ServiceHelper.postAfterCommit(this.eventBus, event);
         }
 
         DeletionResponse deletionResponse = new DeletionResponse();
@@ -352,7 +352,7 @@ public class CollectionService {
 
         ApplyCollectionFilterEvent event =
                 new ApplyCollectionFilterEvent(ctx, Arrays.asList(target.getId()));
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
 
         return target;
     }
@@ -388,14 +388,16 @@ public class CollectionService {
 
     private void joinCollectionWithAssets(Long collectionId, List<Long> assetIds) {
         int pos = 0;
+        List<CollectionAssetJoinEntity> joinEntities = new ArrayList<>();
         for(Long assetId : assetIds) {
             CollectionAssetJoinEntity joinEntity = new CollectionAssetJoinEntity();
             joinEntity.setCollectionId(collectionId);
             joinEntity.setAssetId(assetId);
             joinEntity.setPosition(pos);
-            this.collectionAssetJoinEntityMapper.insert(joinEntity);
+            joinEntities.add(joinEntity);
             pos++;
         }
+        this.collectionAssetJoinEntityMapper.insertBatch(joinEntities);
     }
 
     /**
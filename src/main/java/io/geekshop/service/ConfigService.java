@@ -79,4 +79,6 @@ public class ConfigService {
     }
 
     public OrderOptions getOrderOptions() { return this.configOptions.getOrderOptions(); }
+
+    public ApiOptions getApiOptions() { return this.configOptions.getApiOptions(); }
 }
@@ -13,6 +13,7 @@ import io.geekshop.mapper.FacetValueEntityMapper;
 import io.geekshop.service.helpers.PageInfo;
 import io.geekshop.service.helpers.QueryHelper;
 import io.geekshop.service.helpers.ServiceHelper;
+import io.geekshop.service.helpers.catalog_cache.CatalogEntityCache;
 import io.geekshop.types.common.DeletionResponse;
 import io.geekshop.types.common.DeletionResult;
 import io.geekshop.types.facet.*;
@@ -38,6 +39,7 @@ public class FacetService {
     private final FacetValueService facetValueService;
     private final FacetEntityMapper facetEntityMapper;
     private final FacetValueEntityMapper facetValueEntityMapper;
+    private final CatalogEntityCache catalogEntityCache;
 
     public FacetList findAll(FacetListOptions options) {
         PageInfo pageInfo = ServiceHelper.getListOptions(options);
@@ -154,6 +156,7 @@ public class FacetService {
             queryWrapperFVE.lambda().eq(FacetValueEntity::getFacetId, id);
             this.facetValueEntityMapper.delete(queryWrapperFVE);
             this.facetEntityMapper.deleteById(id);
+            ServiceHelper.afterCommit(() -> this.catalogEntityCache.getFacetValues().invalidateAll(facetValueIds));
             result = DeletionResult.DELETED;
         } else {
             message = "The selected Facet includes FacetValues which are assigned to " +
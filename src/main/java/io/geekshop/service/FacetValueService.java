@@ -15,6 +15,7 @@ import io.geekshop.mapper.FacetValueEntityMapper;
 import io.geekshop.mapper.ProductFacetValueJoinEntityMapper;
 import io.geekshop.mapper.ProductVariantFacetValueJoinEntityMapper;
 import io.geekshop.service.helpers.ServiceHelper;
+import io.geekshop.service.helpers.catalog_cache.CatalogEntityCache;
 import io.geekshop.types.common.DeletionResponse;
 import io.geekshop.types.common.DeletionResult;
 import io.geekshop.types.facet.CreateFacetValueInput;
@@ -40,6 +41,7 @@ public class FacetValueService {
     private final FacetEntityMapper facetEntityMapper;
     private final ProductFacetValueJoinEntityMapper productFacetValueJoinEntityMapper;
     private final ProductVariantFacetValueJoinEntityMapper productVariantFacetValueJoinEntityMapper;
+    private final CatalogEntityCache catalogEntityCache;
 
     public List<FacetValueEntity> findAll() {
         return facetValueEntityMapper.selectList(null);
@@ -75,6 +77,8 @@ public class FacetValueService {
                 ServiceHelper.getEntityOrThrow(facetValueEntityMapper, FacetValueEntity.class, input.getId());
         BeanMapper.patch(input, facetValueEntity);
         facetValueEntityMapper.updateById(facetValueEntity);
+        ServiceHelper.afterCommit(() ->
+                this.catalogEntityCache.getFacetValues().invalidate(facetValueEntity.getId()));
         return facetValueEntity;
     }
 
@@ -91,6 +95,7 @@ public class FacetValueService {
         if (!isInUse) {
             ServiceHelper.getEntityOrThrow(this.facetValueEntityMapper, FacetValueEntity.class, id);
             this.facetValueEntityMapper.deleteById(id);
+            ServiceHelper.afterCommit(() -> this.catalogEntityCache.getFacetValues().invalidate(id));
             result = DeletionResult.DELETED;
         } else {
             message = "The selected FacetValue is assigned to " +
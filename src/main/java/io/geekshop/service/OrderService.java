@@ -6,6 +6,7 @@
 package io.geekshop.service;
 
 import io.geekshop.common.RequestContext;
+import io.geekshop.common.fsm.TransitionTable;
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.config.order.OrderCodeGenerator;
 import io.geekshop.config.payment_method.SettlePaymentResult;
@@ -18,6 +19,7 @@ import io.geekshop.mapper.*;
 import io.geekshop.service.args.CreateOrderHistoryEntryArgs;
 import io.geekshop.service.args.UpdateOrderHistoryEntryArgs;
 import io.geekshop.service.helpers.OrderHelper;
+import io.geekshop.service.helpers.OrderItemWriter;
 import io.geekshop.service.helpers.PageInfo;
 import io.geekshop.service.helpers.QueryHelper;
 import io.geekshop.service.helpers.ServiceHelper;
@@ -56,6 +58,7 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Created on Dec, 2020 by @author bobo
@@ -91,14 +94,17 @@ public class OrderService {
     private final PaymentMethodService paymentMethodService;
     private final StockMovementService stockMovementService;
     private final OrderHelper orderHelper;
+    private final OrderItemWriter orderItemWriter;
     private final OrderCodeGenerator orderCodeGenerator;
 
     public List<OrderProcessState> getOrderProcessStates() {
-        return this.orderStateMachine.getOrderStateTransitions().entrySet().stream()
-                .map(entry -> {
+        TransitionTable<OrderState> transitionTable = this.orderStateMachine.getTransitionTable();
+        return transitionTable.getStates().stream()
+                .map(state -> {
                     OrderProcessState ops = new OrderProcessState();
-                    ops.setName(entry.getKey().name());
-                    ops.getTo().addAll(entry.getValue().stream().map(s -> s.name()).collect(Collectors.toList()));
+                    ops.setName(state.name());
+                    ops.getTo().addAll(transitionTable.getNextStates(state).stream()
+                            .map(s -> s.name()).collect(Collectors.toList()));
                     return ops;
                 }).collect(Collectors.toList());
     }
@@ -124,6 +130,7 @@ public class OrderService {
     public OrderEntity findOneWithItemsByCode(String orderCode) {
         QueryWrapper<OrderEntity> queryWrapper = new QueryWrapper<>();
         queryWrapper.lambda().eq(OrderEntity::getCode, orderCode);
+        queryWrapper.lambda().select(OrderEntity::getId);
         OrderEntity order = this.orderEntityMapper.selectOne(queryWrapper);
         if (order == null) return null;
         return this.findOneWithItems(order.getId());
@@ -154,9 +161,13 @@ public class OrderService {
         if (CollectionUtils.isEmpty(orderEntityPage.getRecords()))
             return orderList; // 返回空
 
+        // 再次批量获取Order并填充Items，保持分页结果的顺序
+        List<Long> orderIds = orderEntityPage.getRecords().stream()
+                .map(OrderEntity::getId).collect(Collectors.toList());
+        List<OrderEntity> ordersWithItems = this.orderHelper.findOrdersWithItems(orderIds);
+
         // 将持久化实体类型转换成GraphQL传输类型
-        orderEntityPage.getRecords().forEach(orderEntity -> {
-            OrderEntity orderWithItems = this.findOneWithItems(orderEntity.getId()); // 再次获取Order并填充Items
+        ordersWithItems.forEach(orderWithItems -> {
             Order order = ServiceHelper.mapOrderEntityToOrder(orderWithItems);
             orderList.getItems().add(order);
         });
@@ -207,22 +218,26 @@ public class OrderService {
     }
 
     public OrderEntity getActiveOrderForUser(Long userId, boolean withItems) {
-        CustomerEntity customer = this.customerService.findOneByUserId(userId);
-        if (customer != null) {
-            QueryWrapper<OrderEntity> queryWrapper = new QueryWrapper<>();
-            queryWrapper.lambda().eq(OrderEntity::getCustomerId, customer.getId())
-                    .eq(OrderEntity::isActive, true)
-                    .orderByDesc(OrderEntity::getCreatedAt);
-            List<OrderEntity> activeOrders = this.orderEntityMapper.selectList(queryWrapper);
-            if (!CollectionUtils.isEmpty(activeOrders)) {
-                if (withItems) {
-                    return this.findOneWithItems(activeOrders.get(0).getId());
-                } else {
-                    return activeOrders.get(0);
-                }
-            }
+        OrderEntity activeOrder = this.findActiveOrderForUser(userId);
+        if (activeOrder != null && withItems) {
+            return this.findOneWithItems(activeOrder.getId());
         }
-        return null;
+        return activeOrder;
+    }
+
+    /**
+     * Returns the latest active Order of the Customer of the User, without its OrderLines.
+     */
+    private OrderEntity findActiveOrderForUser(Long userId) {
+        CustomerEntity customer = this.customerService.findOneByUserId(userId);
+        if (customer == null) return null;
+        QueryWrapper<OrderEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(OrderEntity::getCustomerId, customer.getId())
+                .eq(OrderEntity::isActive, true)
+                .orderByDesc(OrderEntity::getCreatedAt)
+                .orderByDesc(OrderEntity::getId);
+        queryWrapper.last("limit 1");
+        return this.orderEntityMapper.selectOne(queryWrapper);
     }
 
     public OrderEntity create(RequestContext ctx, Long userId) {
@@ -284,13 +299,8 @@ public class OrderService {
             if (quantity > currentQuantity) {
                 ProductVariantEntity productVariant =
                         this.productVariantEntityMapper.selectById(orderLine.getProductVariantId());
-                for(int i = currentQuantity; i < quantity; i++) {
-                    OrderItemEntity orderItem = new OrderItemEntity();
-                    orderItem.setOrderLineId(orderLineId);
-                    orderItem.setUnitPrice(productVariant.getPrice());
-                    this.orderItemEntityMapper.insert(orderItem);
-                    orderLine.getItems().add(orderItem);
-                }
+                orderLine.getItems().addAll(this.orderItemWriter.insertItems(
+                        orderLineId, productVariant.getPrice(), quantity - currentQuantity));
             } else if (quantity < currentQuantity) {
                 List<OrderItemEntity> oldItems = orderLine.getItems();
                 orderLine.setItems(orderLine.getItems().subList(0, quantity));
@@ -524,10 +534,8 @@ public class OrderService {
         fulfillment.setMethod(input.getMethod());
         this.fulfillmentEntityMapper.insert(fulfillment);
 
-        for(OrderItemEntity item : items) {
-            item.setFulfillmentId(fulfillment.getId());
-            orderItemEntityMapper.updateById(item);
-        }
+        items.forEach(item -> item.setFulfillmentId(fulfillment.getId()));
+        this.orderItemEntityMapper.updateBatchById(items);
 
         for (OrderEntity order : orders) {
             CreateOrderHistoryEntryArgs args =
@@ -634,10 +642,8 @@ public class OrderService {
 
         // Perform the cancellation
         this.stockMovementService.createCancellationsForOrderItems(items);
-        items.forEach(item -> {
-            item.setCancelled(true);
-            this.orderItemEntityMapper.updateById(item);
-        });
+        items.forEach(item -> item.setCancelled(true));
+        this.orderItemEntityMapper.updateBatchById(items);
 
         OrderEntity orderWithItems = this.getOrderWithItemsOrThrow(order.getId());
         CreateOrderHistoryEntryArgs args = ServiceHelper.buildCreateOrderHistoryEntryArgs(
@@ -769,6 +775,35 @@ public class OrderService {
         return response;
     }
 
+    /**
+     * Merges the guest Order (if any) of a User who has just signed in with the active Order of their Customer,
+     * see {@link #mergeOrders}, and returns the id of the resulting active Order (or null if there is none).
+     *
+     * Both Orders are first only loaded with their OrderLines (see {@link OrderHelper#populateOrdersWithLinesOnly}),
+     * which is enough to tell whether either of them is empty. Only if neither is empty are their OrderItems loaded,
+     * since then the OrderMergeStrategy has to compare their contents.
+     */
+    @Transactional
+    public Long mergeOrdersOnLogin(Long userId, Long guestOrderId) {
+        OrderEntity guestOrder = guestOrderId != null ? this.orderEntityMapper.selectById(guestOrderId) : null;
+        OrderEntity existingOrder = this.findActiveOrderForUser(userId);
+        if (guestOrder != null && guestOrder.getCustomerId() != null) {
+            // not a guest Order, so there is nothing to merge (see mergeOrders)
+            return existingOrder != null ? existingOrder.getId() : null;
+        }
+        this.orderHelper.populateOrdersWithLinesOnly(Stream.of(guestOrder, existingOrder)
+                .filter(Objects::nonNull).collect(Collectors.toList()));
+        if (guestOrder != null && !CollectionUtils.isEmpty(guestOrder.getLines())
+                && existingOrder != null && !CollectionUtils.isEmpty(existingOrder.getLines())) {
+            List<OrderEntity> orders = this.orderHelper.findOrdersWithItems(
+                    Arrays.asList(guestOrder.getId(), existingOrder.getId()));
+            guestOrder = orders.get(0);
+            existingOrder = orders.get(1);
+        }
+        OrderEntity order = this.mergeOrders(userId, guestOrder, existingOrder);
+        return order != null ? order.getId() : null;
+    }
+
     /**
      * When a guest user with an anonymous Order signs in and has an existing Order associated with that Customer,
      * we need to reconcile the contents of the two orders.
@@ -787,10 +822,13 @@ public class OrderService {
         List<LineItem> linesToInsert = mergeResult.getLinesToInsert();
         OrderEntity order = mergeResult.getOrder();
         if (orderToDelete != null) {
-            orderToDelete.getLines().forEach(line -> {
-                line.getItems().forEach(item -> this.orderItemEntityMapper.deleteById(item.getId()));
-                this.orderLineEntityMapper.deleteById(line.getId());
-            });
+            List<Long> lineIds = this.orderHelper.getOrderLineIds(orderToDelete);
+            if (!CollectionUtils.isEmpty(lineIds)) {
+                QueryWrapper<OrderItemEntity> queryWrapper = new QueryWrapper<>();
+                queryWrapper.lambda().in(OrderItemEntity::getOrderLineId, lineIds);
+                this.orderItemEntityMapper.delete(queryWrapper);
+                this.orderLineEntityMapper.deleteBatchIds(lineIds);
+            }
             this.orderEntityMapper.deleteById(orderToDelete.getId());
         }
         if (order != null && !CollectionUtils.isEmpty(linesToInsert)) {
@@ -895,17 +933,13 @@ public class OrderService {
 
     @Transactional
     OrderEntity applyPriceAdjustments(OrderEntity order, OrderLineEntity updatedOrderLine) {
-        QueryWrapper<PromotionEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(PromotionEntity::isEnabled, true).isNull(PromotionEntity::getDeletedAt)
-                .orderByAsc(PromotionEntity::getPriorityScore);
-        List<PromotionEntity> promotions = promotionEntityMapper.selectList(queryWrapper);
+        List<PromotionEntity> promotions = this.promotionService.getActivePromotions();
 
         List<OrderItemEntity> updatedItems =
                 orderCalculator.applyPriceAdjustments(order, promotions, updatedOrderLine);
+        this.orderItemWriter.updatePendingAdjustments(updatedItems);
+        // 通过mapper最后写入，同时清除MyBatis的本地缓存
         this.orderEntityMapper.updateById(order);
-        for(OrderItemEntity item : updatedItems) {
-            this.orderItemEntityMapper.updateById(item);
-        }
         return order;
     }
 
@@ -208,10 +208,8 @@ public class PaymentMethodService {
             refund.setMetadata(createRefundResult.getMetadata());
         }
         this.refundEntityMapper.insert(refund);
-        for(OrderItemEntity item : items) {
-            item.setRefundId(refund.getId());
-            this.orderItemEntityMapper.updateById(item);
-        }
+        items.forEach(item -> item.setRefundId(refund.getId()));
+        this.orderItemEntityMapper.updateBatchById(items);
         if (createRefundResult != null) {
             RefundState fromState = refund.getState();
             this.refundStateMachine.transition(ctx, order, refund, createRefundResult.getState());
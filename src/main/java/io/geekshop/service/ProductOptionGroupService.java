@@ -11,6 +11,7 @@ import io.geekshop.entity.ProductOptionGroupJoinEntity;
 import io.geekshop.mapper.ProductOptionGroupEntityMapper;
 import io.geekshop.mapper.ProductOptionGroupJoinEntityMapper;
 import io.geekshop.service.helpers.ServiceHelper;
+import io.geekshop.service.helpers.catalog_cache.CatalogEntityCache;
 import io.geekshop.types.product.CreateProductOptionGroupInput;
 import io.geekshop.types.product.CreateProductOptionInput;
 import io.geekshop.types.product.UpdateProductOptionGroupInput;
@@ -33,6 +34,7 @@ public class ProductOptionGroupService {
     private final ProductOptionGroupEntityMapper productOptionGroupEntityMapper;
     private final ProductOptionGroupJoinEntityMapper productOptionGroupJoinEntityMapper;
     private final ProductOptionService productOptionService;
+    private final CatalogEntityCache catalogEntityCache;
 
     public List<ProductOptionGroupEntity> findAll(String filterTerm) {
         QueryWrapper<ProductOptionGroupEntity> queryWrapper = new QueryWrapper<>();
@@ -84,6 +86,8 @@ public class ProductOptionGroupService {
                         productOptionGroupEntityMapper, ProductOptionGroupEntity.class, input.getId());
         BeanMapper.patch(input, productOptionGroupEntity);
         productOptionGroupEntityMapper.updateById(productOptionGroupEntity);
+        ServiceHelper.afterCommit(() ->
+                this.catalogEntityCache.getProductOptionGroups().invalidate(productOptionGroupEntity.getId()));
         return productOptionGroupEntity;
     }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -150,7 +151,7 @@ public class ProductService {
         }
 
         ProductEvent event = new ProductEvent(ctx, productEntity, "created");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
 
         return productEntity;
     }
@@ -194,7 +195,7 @@ public class ProductService {
         }
 
         ProductEvent event = new ProductEvent(ctx, existingProductEntity, "updated");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
 
         return existingProductEntity;
     }
@@ -206,7 +207,7 @@ public class ProductService {
         this.productEntityMapper.updateById(productEntity);
 
         ProductEvent event = new ProductEvent(ctx, productEntity, "deleted");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
 
         DeletionResponse deletionResponse = new DeletionResponse();
         deletionResponse.setResult(DeletionResult.DELETED);
@@ -266,12 +267,14 @@ public class ProductService {
                 .select(FacetValueEntity::getId);
         List<Long> validFacetValueIds = this.facetValueEntityMapper.selectList(queryWrapper)
                 .stream().map(FacetValueEntity::getId).collect(Collectors.toList());
+        List<ProductFacetValueJoinEntity> joinEntities = new ArrayList<>();
         for(Long facetValueId : validFacetValueIds) {
             ProductFacetValueJoinEntity joinEntity = new ProductFacetValueJoinEntity();
             joinEntity.setProductId(productId);
             joinEntity.setFacetValueId(facetValueId);
-            this.productFacetValueJoinEntityMapper.insert(joinEntity);
+            joinEntities.add(joinEntity);
         }
+        this.productFacetValueJoinEntityMapper.insertBatch(joinEntities);
     }
 
     private void joinProductWithAsset(List<Long> assetIds, Long productId) {
@@ -281,14 +284,16 @@ public class ProductService {
         List<Long> validAssetIds = this.assetEntityMapper.selectList(queryWrapper)
                 .stream().map(AssetEntity::getId).collect(Collectors.toList());
         int pos = 0;
+        List<ProductAssetJoinEntity> joinEntities = new ArrayList<>();
         for(Long assetId : validAssetIds) {
             ProductAssetJoinEntity joinEntity = new ProductAssetJoinEntity();
             joinEntity.setProductId(productId);
             joinEntity.setAssetId(assetId);
             joinEntity.setPosition(pos);
-            this.productAssetJoinEntityMapper.insert(joinEntity);
+            joinEntities.add(joinEntity);
             pos++;
         }
+        this.productAssetJoinEntityMapper.insertBatch(joinEntities);
     }
 
     // 参考
@@ -224,7 +224,7 @@ public class ProductVariantService {
             createdVariants.add(createdVariant);
         }
         ProductVariantEvent event = new ProductVariantEvent(ctx, createdVariants, "created");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
         return createdVariants;
     }
 
@@ -235,7 +235,7 @@ public class ProductVariantService {
             updatedVariants.add(updatedVariant);
         }
         ProductVariantEvent event = new ProductVariantEvent(ctx, updatedVariants, "updated");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
         return updatedVariants;
     }
 
@@ -245,7 +245,7 @@ public class ProductVariantService {
         variant.setDeletedAt(new Date());
         this.productVariantEntityMapper.updateById(variant);
         ProductVariantEvent event = new ProductVariantEvent(ctx, Arrays.asList(variant), "deleted");
-        this.eventBus.post(event);
+        ServiceHelper.postAfterCommit(this.eventBus, event);
         DeletionResponse deletionResponse = new DeletionResponse();
         deletionResponse.setResult(DeletionResult.DELETED);
         return deletionResponse;
@@ -263,6 +263,7 @@ public class ProductVariantService {
             ServiceHelper.getEntityOrThrow(this.assetEntityMapper, AssetEntity.class, input.getFeaturedAssetId());
         }
         BeanMapper.patch(input, existingVariant);
+        // the stockOnHand is never written back here, but adjusted relatively below
         this.productVariantEntityMapper.updateById(existingVariant);
 
         if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
@@ -317,12 +318,14 @@ public class ProductVariantService {
                     .select(ProductOptionEntity::getId);
             List<Long> validOptionIds = this.productOptionEntityMapper.selectList(queryWrapper)
                     .stream().map(ProductOptionEntity::getId).collect(Collectors.toList());
+            List<ProductVariantProductOptionJoinEntity> joinEntities = new ArrayList<>();
             for(Long optionId : validOptionIds) {
                 ProductVariantProductOptionJoinEntity joinEntity = new ProductVariantProductOptionJoinEntity();
                 joinEntity.setProductVariantId(createdVariant.getId());
                 joinEntity.setProductOptionId(optionId);
-                this.productVariantProductOptionJoinEntityMapper.insert(joinEntity);
+                joinEntities.add(joinEntity);
             }
+            this.productVariantProductOptionJoinEntityMapper.insertBatch(joinEntities);
         }
 
         if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
@@ -334,9 +337,8 @@ public class ProductVariantService {
         }
 
         if (input.getStockOnHand() != null && input.getStockOnHand() != 0) {
-            this.stockMovementService.adjustProductVariantStock(
+            this.stockMovementService.createInitialStockAdjustment(
                     createdVariant.getId(),
-                    0,
                     input.getStockOnHand()
             );
         }
@@ -350,12 +352,14 @@ public class ProductVariantService {
                 .select(FacetValueEntity::getId);
         List<Long> validFacetValueIds = this.facetValueEntityMapper.selectList(queryWrapper)
                 .stream().map(FacetValueEntity::getId).collect(Collectors.toList());
+        List<ProductVariantFacetValueJoinEntity> joinEntities = new ArrayList<>();
         for(Long facetValueId : validFacetValueIds) {
             ProductVariantFacetValueJoinEntity joinEntity = new ProductVariantFacetValueJoinEntity();
             joinEntity.setProductVariantId(variantId);
             joinEntity.setFacetValueId(facetValueId);
-            this.productVariantFacetValueJoinEntityMapper.insert(joinEntity);
+            joinEntities.add(joinEntity);
         }
+        this.productVariantFacetValueJoinEntityMapper.insertBatch(joinEntities);
     }
 
     private void joinVariantWithAsset(List<Long> assetIds, Long variantId) {
@@ -365,14 +369,16 @@ public class ProductVariantService {
         List<Long> validAssetIds = this.assetEntityMapper.selectList(queryWrapper)
                 .stream().map(AssetEntity::getId).collect(Collectors.toList());
         int pos = 0;
+        List<ProductVariantAssetJoinEntity> joinEntities = new ArrayList<>();
         for(Long assetId : validAssetIds) {
             ProductVariantAssetJoinEntity joinEntity = new ProductVariantAssetJoinEntity();
             joinEntity.setProductVariantId(variantId);
             joinEntity.setAssetId(assetId);
             joinEntity.setPosition(pos);
-            this.productVariantAssetJoinEntityMapper.insert(joinEntity);
+            joinEntities.add(joinEntity);
             pos++;
         }
+        this.productVariantAssetJoinEntityMapper.insertBatch(joinEntities);
     }
 
     private void validateVariantOptionIds(CreateProductVariantInput input) {
@@ -14,10 +14,10 @@ import io.geekshop.exception.CouponCodeExpiredException;
 import io.geekshop.exception.CouponCodeInvalidException;
 import io.geekshop.exception.CouponCodeLimitException;
 import io.geekshop.exception.UserInputException;
-import io.geekshop.mapper.OrderEntityMapper;
 import io.geekshop.mapper.OrderPromotionJoinEntityMapper;
 import io.geekshop.mapper.PromotionEntityMapper;
 import io.geekshop.service.helpers.PageInfo;
+import io.geekshop.service.helpers.PromotionUsageCounter;
 import io.geekshop.service.helpers.QueryHelper;
 import io.geekshop.service.helpers.ServiceHelper;
 import io.geekshop.types.common.*;
@@ -29,11 +29,14 @@ import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.BooleanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -46,7 +49,8 @@ public class PromotionService {
     private final PromotionOptions promotionOptions;
     private final PromotionEntityMapper promotionEntityMapper;
     private final OrderPromotionJoinEntityMapper orderPromotionJoinEntityMapper;
-    private final OrderEntityMapper orderEntityMapper;
+    private final PromotionUsageCounter promotionUsageCounter;
+    private final ConfigService configService;
     private List<PromotionCondition> availableConditions;
     private List<PromotionAction> availableActions;
 
@@ -54,8 +58,15 @@ public class PromotionService {
      * All active AdjustmentSources are checked in memory because they are needed
      * every item an order is changed, which will happen often. Caching them means
      * a DB call is not required newly each time.
+     *
+     * `null` means the cache has been invalidated, and is re-loaded on next access. The version is bumped on
+     * each invalidation, so that a load which raced with a promotion change does not overwrite the cache.
+     *
+     * Changes made on this node invalidate the cache right away. Changes made on other nodes which share the
+     * database are only picked up once the cache expires, after `orderOptions.activePromotionsCacheTtl`.
      */
-    private List<PromotionEntity> activePromotions = new ArrayList<>();
+    private volatile CachedPromotions activePromotions;
+    private final AtomicLong activePromotionsVersion = new AtomicLong();
 
     @PostConstruct
     void init() {
@@ -132,13 +143,33 @@ public class PromotionService {
     }
 
     /**
-     * Returns all active AdjustmentSources.
+     * Returns all active AdjustmentSources, ordered by their priorityScore.
+     *
+     * Each caller gets its own snapshots of the cached promotions (see {@link PromotionEntity#snapshot()}), which
+     * share their parsed conditions and actions, so that the cached promotions are never modified.
      */
     public List<PromotionEntity> getActivePromotions() {
-        if (CollectionUtils.isEmpty(activePromotions)) {
-            this.updatePromotions();
+        CachedPromotions cached = this.activePromotions;
+        if (cached == null || cached.expiresAt <= System.currentTimeMillis()) {
+            cached = this.loadActivePromotions();
         }
-        return this.activePromotions;
+        return cached.promotions.stream().map(PromotionEntity::snapshot).collect(Collectors.toList());
+    }
+
+    private CachedPromotions loadActivePromotions() {
+        long version = this.activePromotionsVersion.get();
+        QueryWrapper<PromotionEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(PromotionEntity::isEnabled, true).isNull(PromotionEntity::getDeletedAt)
+                .orderByAsc(PromotionEntity::getPriorityScore);
+        long ttl = this.configService.getOrderOptions().getActivePromotionsCacheTtl();
+        CachedPromotions cached = new CachedPromotions(
+                this.promotionEntityMapper.selectList(queryWrapper), System.currentTimeMillis() + ttl * 1000);
+        synchronized (this.activePromotionsVersion) {
+            if (this.activePromotionsVersion.get() == version) {
+                this.activePromotions = cached;
+            }
+        }
+        return cached;
     }
 
     public PromotionEntity createPromotion(CreatePromotionInput input) {
@@ -184,6 +215,7 @@ public class PromotionService {
                 ServiceHelper.getEntityOrThrow(this.promotionEntityMapper, PromotionEntity.class, promotionId);
         promotion.setDeletedAt(new Date());
         this.promotionEntityMapper.updateById(promotion);
+        this.updatePromotions();
 
         DeletionResponse response = new DeletionResponse();
         response.setResult(DeletionResult.DELETED);
@@ -217,34 +249,56 @@ public class PromotionService {
 
     @Transactional
     public OrderEntity addPromotionsToOrder(OrderEntity order) {
+        List<OrderPromotionJoinEntity> joinEntities = new ArrayList<>();
+        for(Long promotionId : this.getAppliedPromotionIds(order)) {
+            OrderPromotionJoinEntity joinEntity = new OrderPromotionJoinEntity();
+            joinEntity.setPromotionId(promotionId);
+            joinEntity.setOrderId(order.getId());
+            joinEntities.add(joinEntity);
+        }
+        this.orderPromotionJoinEntityMapper.insertBatch(joinEntities);
+        this.promotionUsageCounter.addUsages(order.getCustomerId(),
+                joinEntities.stream().map(OrderPromotionJoinEntity::getPromotionId).collect(Collectors.toList()), 1);
+        return order;
+    }
+
+    /**
+     * Reverses the usages of the Promotions which have been recorded for the (placed) Order by
+     * {@link #addPromotionsToOrder}, e.g. when the Order is cancelled, so that they no longer count towards the
+     * `perCustomerUsageLimit` of the Promotions.
+     */
+    @Transactional
+    public void removePromotionUsagesOfOrder(OrderEntity order) {
+        this.promotionUsageCounter.addUsages(order.getCustomerId(), this.getRecordedPromotionIds(order.getId()), -1);
+    }
+
+    /**
+     * Returns the ids of the Promotions which have been recorded for the Order by {@link #addPromotionsToOrder}.
+     */
+    public List<Long> getRecordedPromotionIds(Long orderId) {
+        QueryWrapper<OrderPromotionJoinEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(OrderPromotionJoinEntity::getOrderId, orderId);
+        return this.orderPromotionJoinEntityMapper.selectList(queryWrapper).stream()
+                .map(OrderPromotionJoinEntity::getPromotionId).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the ids of the Promotions which have been applied to the Order or its OrderLines.
+     */
+    public Set<Long> getAppliedPromotionIds(OrderEntity order) {
         List<Adjustment> allAdjustments = new ArrayList<>();
         for(OrderLineEntity line : order.getLines()) {
             allAdjustments.addAll(line.getAdjustments());
         }
         allAdjustments.addAll(order.getAdjustments());
-        Set<Long> promotionIds = allAdjustments.stream()
+        return allAdjustments.stream()
                 .filter(a -> Objects.equals(a.getType(), AdjustmentType.PROMOTION))
                 .map(a -> AdjustmentSource.decodeSourceId(a.getAdjustmentSource()).getId())
                 .collect(Collectors.toSet());
-        for(Long promotionId : promotionIds) {
-            OrderPromotionJoinEntity joinEntity = new OrderPromotionJoinEntity();
-            joinEntity.setPromotionId(promotionId);
-            joinEntity.setOrderId(order.getId());
-            this.orderPromotionJoinEntityMapper.insert(joinEntity);
-        }
-        return order;
     }
 
     private Integer countPromotionUsagesForCustomer(Long promotionId, Long customerId) {
-        QueryWrapper<OrderPromotionJoinEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(OrderPromotionJoinEntity::getPromotionId, promotionId);
-        List<Long> orderIds = this.orderPromotionJoinEntityMapper.selectList(queryWrapper)
-                .stream().map(OrderPromotionJoinEntity::getOrderId).collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(orderIds)) return 0;
-
-        QueryWrapper<OrderEntity> orderEntityQueryWrapper = new QueryWrapper<>();
-        orderEntityQueryWrapper.lambda().in(OrderEntity::getId, orderIds).eq(OrderEntity::getCustomerId, customerId);
-        return orderEntityMapper.selectCount(orderEntityQueryWrapper);
+        return this.promotionUsageCounter.getUsages(promotionId, customerId);
     }
 
     /**
@@ -308,11 +362,37 @@ public class PromotionService {
 
     /**
      * Update the activeSource cache.
+     *
+     * The cache is invalidated right away and, within a transaction, once more after commit, since a load in
+     * between would not yet see the change.
      */
     private void updatePromotions() {
-        QueryWrapper<PromotionEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(PromotionEntity::isEnabled, true);
-        activePromotions = this.promotionEntityMapper.selectList(queryWrapper);
+        this.invalidateActivePromotions();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateActivePromotions();
+                }
+            });
+        }
+    }
+
+    private void invalidateActivePromotions() {
+        synchronized (this.activePromotionsVersion) {
+            this.activePromotionsVersion.incrementAndGet();
+            this.activePromotions = null;
+        }
+    }
+
+    private static class CachedPromotions {
+        private final List<PromotionEntity> promotions;
+        private final long expiresAt;
+
+        CachedPromotions(List<PromotionEntity> promotions, long expiresAt) {
+            this.promotions = Collections.unmodifiableList(promotions);
+            this.expiresAt = expiresAt;
+        }
     }
 
     /**
@@ -7,6 +7,9 @@ package io.geekshop.service;
 
 import io.geekshop.entity.*;
 import io.geekshop.mapper.*;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.helpers.search_index.SearchIndexBulkWriter;
+import io.geekshop.service.helpers.search_strategy.SearchStrategy;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +17,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +32,8 @@ import java.util.stream.Collectors;
 @SuppressWarnings("Duplicates")
 public class SearchIndexService {
     private final SearchIndexItemEntityMapper searchIndexItemEntityMapper;
+    private final SearchIndexFacetValueEntityMapper searchIndexFacetValueEntityMapper;
+    private final SearchIndexCollectionEntityMapper searchIndexCollectionEntityMapper;
     private final ProductVariantFacetValueJoinEntityMapper productVariantFacetValueJoinEntityMapper;
     private final ProductFacetValueJoinEntityMapper productFacetValueJoinEntityMapper;
     private final FacetValueEntityMapper facetValueEntityMapper;
@@ -35,47 +42,104 @@ public class SearchIndexService {
     private final ProductVariantCollectionJoinEntityMapper productVariantCollectionJoinEntityMapper;
     private final CollectionEntityMapper collectionEntityMapper;
     private final ProductVariantEntityMapper productVariantEntityMapper;
-
+    private final SearchStrategy searchStrategy;
+    private final SearchIndexBulkWriter searchIndexBulkWriter;
+    private final ConfigOptions configOptions;
+
+    /**
+     * The version of the layout of the search index tables, recorded once an index has been fully built. Bump it
+     * whenever a change to the indexing requires existing indexes to be rebuilt.
+     *
+     * 1: the facet value & collection join tables
+     */
+    public static final int INDEX_VERSION = 1;
+
+    private final AtomicBoolean reindexing = new AtomicBoolean(false);
+    private final Set<Long> updatedDuringReindex = ConcurrentHashMap.newKeySet();
+    /**
+     * Index items are written by the SearchIndexUpdateQueue as well as by a reindex, so the
+     * select-then-insert of the items must not interleave.
+     */
+    private final Object indexWriteLock = new Object();
+
+    /**
+     * Rebuilds the whole index. ProductVariants are streamed in keyed batches, the index items of each batch
+     * are built in memory from a handful of set-based queries and JDBC-batch inserted into the shadow tables,
+     * which are then swapped in. Searches are served from the old index until the swap.
+     *
+     * Incremental updates which arrive while a reindex is running are applied to the old index, so they are
+     * recorded and re-applied to the new index after the swap.
+     */
     public boolean reindex() {
-        List<ProductVariantEntity> productVariants = getAllValidProductVariants();
-        log.info("Reindexing " + productVariants.size() + " variants");
-
-        this.searchIndexItemEntityMapper.delete(new QueryWrapper<>());
-        log.info("Deleted existing index items");
+        if (!this.reindexing.compareAndSet(false, true)) {
+            log.warn("A reindex is already running, ignoring the request");
+            return false;
+        }
+        try {
+            this.searchIndexBulkWriter.prepare();
+
+            int batchSize = this.configOptions.getSearchOptions().getReindexBatchSize();
+            long lastId = 0L;
+            int indexed = 0;
+            while (true) {
+                QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+                queryWrapper.lambda().isNull(ProductVariantEntity::getDeletedAt) // 未删除
+                        .gt(ProductVariantEntity::getId, lastId)
+                        .orderByAsc(ProductVariantEntity::getId)
+                        .last("limit " + batchSize);
+                List<ProductVariantEntity> batch = this.productVariantEntityMapper.selectList(queryWrapper);
+                if (batch.isEmpty()) break;
+
+                List<SearchIndexItemEntity> items = this.buildIndexItems(batch);
+                this.searchIndexBulkWriter.write(items);
+                indexed += items.size();
+                lastId = batch.get(batch.size() - 1).getId();
+                if (batch.size() < batchSize) break;
+            }
 
-        this.saveVariants(productVariants);
-        log.info("Completed reindexing");
+            this.searchIndexBulkWriter.swap();
+            this.searchIndexBulkWriter.setIndexVersion(INDEX_VERSION);
+            log.info("Reindexed " + indexed + " variants");
+        } finally {
+            this.reindexing.set(false);
+        }
 
+        this.searchStrategy.onIndexRebuilt();
+        this.replayUpdatesDuringReindex();
         return true;
     }
 
-    private List<ProductVariantEntity> getAllValidProductVariants() {
-        QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().isNull(ProductVariantEntity::getDeletedAt); // 未删除
-        List<ProductVariantEntity> productVariants = this.productVariantEntityMapper.selectList(queryWrapper);
-
-        if (CollectionUtils.isEmpty(productVariants)) return new ArrayList<>();
+    private void replayUpdatesDuringReindex() {
+        List<Long> variantIds = new ArrayList<>(this.updatedDuringReindex);
+        this.updatedDuringReindex.removeAll(variantIds);
+        if (variantIds.isEmpty()) return;
 
-        List<Long> productIds = productVariants.stream()
-                .map(ProductVariantEntity::getProductId).collect(Collectors.toList());
-
-        QueryWrapper<ProductEntity> productEntityQueryWrapper = new QueryWrapper<>();
-        productEntityQueryWrapper.lambda().in(ProductEntity::getId, productIds)
-                .isNotNull(ProductEntity::getDeletedAt) // 已删除
-                .select(ProductEntity::getId);
-        Set<Long> deletedProductIds = this.productEntityMapper.selectList(productEntityQueryWrapper)
-                .stream().map(ProductEntity::getId).collect(Collectors.toSet());
+        log.info("Re-applying " + variantIds.size() + " index updates made during the reindex");
+        this.removeSearchIndexItems(variantIds);
+        this._updateVariants(variantIds);
+    }
 
-        if (!CollectionUtils.isEmpty(deletedProductIds)) {
-            // 确保对应的Product没有删除
-            productVariants = productVariants.stream()
-                    .filter(v -> !deletedProductIds.contains(v.getProductId())).collect(Collectors.toList());
-        }
-        return productVariants;
+    /**
+     * Whether the search index tables were built by an older version of the indexing, or not recorded as built at
+     * all, e.g. indexes built before the facet value & collection join tables existed, whose facet and collection
+     * filters would match nothing until the next reindex.
+     *
+     * An empty index is up to date by definition, since it is filled by the incremental updates, so it is
+     * recorded as such.
+     */
+    public boolean isIndexOutdated() {
+        if (this.searchIndexBulkWriter.getIndexVersion() >= INDEX_VERSION) return false;
+        if (this.searchIndexItemEntityMapper.selectCount(null) > 0) return true;
+        this.searchIndexBulkWriter.setIndexVersion(INDEX_VERSION);
+        return false;
     }
 
     public boolean updateProduct(Long productId) {
-        return _updateProduct(productId);
+        return this.updateProducts(Arrays.asList(productId));
+    }
+
+    public boolean updateProducts(Collection<Long> productIds) {
+        return this._updateProducts(productIds);
     }
 
     public boolean updateVariants(List<Long> variantIds) {
@@ -83,7 +147,11 @@ public class SearchIndexService {
     }
 
     public boolean deleteProduct(Long productId) {
-        return this._deleteProduct(productId);
+        return this.deleteProducts(Arrays.asList(productId));
+    }
+
+    public boolean deleteProducts(Collection<Long> productIds) {
+        return this._deleteProducts(productIds);
     }
 
     public boolean deleteVariants(List<Long> variantIds) {
@@ -98,6 +166,7 @@ public class SearchIndexService {
         if (!CollectionUtils.isEmpty(indexItems)) {
             indexItems.forEach(item -> item.setProductPreviewFocalPoint(null));
             indexItems.forEach(item -> this.searchIndexItemEntityMapper.updateById(item));
+            this.searchStrategy.onIndexItemsSaved(indexItems);
         }
 
         queryWrapper = new QueryWrapper<>();
@@ -106,6 +175,7 @@ public class SearchIndexService {
         if (!CollectionUtils.isEmpty(indexItems)) {
             indexItems.forEach(item -> item.setProductPreviewFocalPoint(null));
             indexItems.forEach(item -> this.searchIndexItemEntityMapper.updateById(item));
+            this.searchStrategy.onIndexItemsSaved(indexItems);
         }
         return true;
     }
@@ -117,6 +187,7 @@ public class SearchIndexService {
         if (!CollectionUtils.isEmpty(indexItems)) {
             indexItems.forEach(item -> item.setProductPreviewFocalPoint(asset.getFocalPoint()));
             indexItems.forEach(item -> this.searchIndexItemEntityMapper.updateById(item));
+            this.searchStrategy.onIndexItemsSaved(indexItems);
         }
 
         queryWrapper = new QueryWrapper<>();
@@ -125,24 +196,23 @@ public class SearchIndexService {
         if (!CollectionUtils.isEmpty(indexItems)) {
             indexItems.forEach(item -> item.setProductPreviewFocalPoint(asset.getFocalPoint()));
             indexItems.forEach(item -> this.searchIndexItemEntityMapper.updateById(item));
+            this.searchStrategy.onIndexItemsSaved(indexItems);
         }
         return true;
     }
 
-    private boolean _updateProduct(Long productId) {
-        ProductEntity product = this.productEntityMapper.selectById(productId);
-        if (product != null) {
-            QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
-            queryWrapper.lambda().eq(ProductVariantEntity::getProductId, productId)
-                    .isNull(ProductVariantEntity::getDeletedAt);
-            List<ProductVariantEntity> variants = this.productVariantEntityMapper.selectList(queryWrapper);
-            if (!product.isEnabled()) {
-                variants.forEach(v -> v.setEnabled(false));
-            }
-            log.info("Updating " + variants.size() + " variants");
-            if (variants.size() > 0) {
-                this.saveVariants(variants);
-            }
+    /**
+     * Disabled Products are handled by {@link #buildIndexItems(List)}, which disables all their variants.
+     */
+    private boolean _updateProducts(Collection<Long> productIds) {
+        if (CollectionUtils.isEmpty(productIds)) return true;
+        QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().in(ProductVariantEntity::getProductId, productIds)
+                .isNull(ProductVariantEntity::getDeletedAt);
+        List<ProductVariantEntity> variants = this.productVariantEntityMapper.selectList(queryWrapper);
+        log.info("Updating " + variants.size() + " variants");
+        if (variants.size() > 0) {
+            this.saveVariants(variants);
         }
         return true;
     }
@@ -158,9 +228,10 @@ public class SearchIndexService {
         return true;
     }
 
-    private boolean _deleteProduct(Long productId) {
+    private boolean _deleteProducts(Collection<Long> productIds) {
+        if (CollectionUtils.isEmpty(productIds)) return true;
         QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(ProductVariantEntity::getProductId, productId)
+        queryWrapper.lambda().in(ProductVariantEntity::getProductId, productIds)
                 .select(ProductVariantEntity::getId);
         List<Long> productVariantIds = this.productVariantEntityMapper.selectList(queryWrapper)
                 .stream().map(ProductVariantEntity::getId)
@@ -172,12 +243,79 @@ public class SearchIndexService {
     }
 
     private void saveVariants(List<ProductVariantEntity> variants) {
+        List<SearchIndexItemEntity> items = this.buildIndexItems(variants);
+        if (items.isEmpty()) return;
+
+        List<Long> variantIds = items.stream()
+                .map(SearchIndexItemEntity::getProductVariantId).collect(Collectors.toList());
+        this.recordUpdateDuringReindex(variantIds);
+
+        synchronized (this.indexWriteLock) {
+            QueryWrapper<SearchIndexItemEntity> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().in(SearchIndexItemEntity::getProductVariantId, variantIds)
+                    .select(SearchIndexItemEntity::getProductVariantId);
+            Set<Long> existingIds = this.searchIndexItemEntityMapper.selectList(queryWrapper).stream()
+                    .map(SearchIndexItemEntity::getProductVariantId).collect(Collectors.toSet());
+
+            for(SearchIndexItemEntity item : items) {
+                if (existingIds.contains(item.getProductVariantId())) {
+                    this.searchIndexItemEntityMapper.updateById(item);
+                } else {
+                    this.searchIndexItemEntityMapper.insert(item);
+                }
+            }
+            this.saveJoinRows(items);
+            this.searchStrategy.onIndexItemsSaved(items);
+        }
+    }
+
+    /**
+     * Builds the index items of the given variants with one query per related table, rather than
+     * several queries per variant. Variants whose Product has been deleted are skipped.
+     */
+    private List<SearchIndexItemEntity> buildIndexItems(List<ProductVariantEntity> variants) {
+        if (CollectionUtils.isEmpty(variants)) return new ArrayList<>();
+
+        Set<Long> productIds = variants.stream().map(ProductVariantEntity::getProductId).collect(Collectors.toSet());
+        Map<Long, ProductEntity> productMap = this.productEntityMapper.selectBatchIds(productIds).stream()
+                .filter(p -> p.getDeletedAt() == null) // 确保对应的Product没有删除
+                .collect(Collectors.toMap(ProductEntity::getId, p -> p));
+
+        variants = variants.stream()
+                .filter(v -> productMap.containsKey(v.getProductId())).collect(Collectors.toList());
+        if (variants.isEmpty()) return new ArrayList<>();
+        List<Long> variantIds = variants.stream().map(ProductVariantEntity::getId).collect(Collectors.toList());
+
+        Set<Long> assetIds = new HashSet<>();
+        productMap.values().stream().map(ProductEntity::getFeaturedAssetId).filter(Objects::nonNull)
+                .forEach(assetIds::add);
+        variants.stream().map(ProductVariantEntity::getFeaturedAssetId).filter(Objects::nonNull)
+                .forEach(assetIds::add);
+        Map<Long, AssetEntity> assetMap = assetIds.isEmpty() ? new HashMap<>() :
+                this.assetEntityMapper.selectBatchIds(assetIds).stream()
+                        .collect(Collectors.toMap(AssetEntity::getId, a -> a));
+
+        Map<Long, Set<Long>> facetValueIdsByVariant = this.getFacetValueIds(variants);
+        Set<Long> allFacetValueIds = facetValueIdsByVariant.values().stream()
+                .flatMap(Set::stream).collect(Collectors.toSet());
+        Map<Long, Long> facetIdByFacetValueId = new HashMap<>();
+        if (!allFacetValueIds.isEmpty()) {
+            QueryWrapper<FacetValueEntity> queryWrapper = new QueryWrapper<>();
+            queryWrapper.lambda().in(FacetValueEntity::getId, allFacetValueIds)
+                    .select(FacetValueEntity::getId, FacetValueEntity::getFacetId);
+            this.facetValueEntityMapper.selectList(queryWrapper)
+                    .forEach(fv -> facetIdByFacetValueId.put(fv.getId(), fv.getFacetId()));
+        }
+
+        Map<Long, List<CollectionEntity>> collectionsByVariant = this.getCollections(variantIds);
+
+        List<SearchIndexItemEntity> items = new ArrayList<>(variants.size());
         for(ProductVariantEntity variant : variants) {
+            ProductEntity product = productMap.get(variant.getProductId());
+
             SearchIndexItemEntity item = new SearchIndexItemEntity();
             item.setProductVariantId(variant.getId());
             item.setSku(variant.getSku());
-
-            ProductEntity product = productEntityMapper.selectById(variant.getProductId());
             item.setEnabled(product.isEnabled() ? variant.isEnabled(): false);
             item.setSlug(product.getSlug());
             item.setPrice(variant.getPrice());
@@ -186,91 +324,140 @@ public class SearchIndexService {
             item.setDescription(product.getDescription());
             item.setProductVariantName(variant.getName());
 
-            if (product.getFeaturedAssetId() != null) {
-                AssetEntity featuredAsset = assetEntityMapper.selectById(product.getFeaturedAssetId());
-                item.setProductAssetId(featuredAsset.getId());
-                item.setProductPreviewFocalPoint(featuredAsset.getFocalPoint());
-                item.setProductPreview(featuredAsset.getPreview());
+            AssetEntity productAsset = product.getFeaturedAssetId() == null ? null :
+                    assetMap.get(product.getFeaturedAssetId());
+            if (productAsset != null) {
+                item.setProductAssetId(productAsset.getId());
+                item.setProductPreviewFocalPoint(productAsset.getFocalPoint());
+                item.setProductPreview(productAsset.getPreview());
             }
-            if (variant.getFeaturedAssetId() != null) {
-                AssetEntity featuredAsset = assetEntityMapper.selectById(variant.getFeaturedAssetId());
-                item.setProductVariantPreviewFocalPoint(featuredAsset.getFocalPoint());
-                item.setProductVariantAssetId(featuredAsset.getId());
-                item.setProductPreview(featuredAsset.getPreview());
+            AssetEntity variantAsset = variant.getFeaturedAssetId() == null ? null :
+                    assetMap.get(variant.getFeaturedAssetId());
+            if (variantAsset != null) {
+                item.setProductVariantPreviewFocalPoint(variantAsset.getFocalPoint());
+                item.setProductVariantAssetId(variantAsset.getId());
+                item.setProductVariantPreview(variantAsset.getPreview());
             }
-            item.setFacetIds(this.getFacetIds(variant));
-            item.setFacetValueIds(this.getFacetValueIds(variant));
 
-            List<CollectionEntity> collections = this.getCollections(variant.getId());
+            Set<Long> facetValueIds = facetValueIdsByVariant.getOrDefault(variant.getId(), new LinkedHashSet<>());
+            item.setFacetValueIds(new ArrayList<>(facetValueIds));
+            item.setFacetIds(facetValueIds.stream().map(facetIdByFacetValueId::get).filter(Objects::nonNull)
+                    .distinct().collect(Collectors.toList()));
+
+            List<CollectionEntity> collections = collectionsByVariant.getOrDefault(variant.getId(), new ArrayList<>());
             item.setCollectionIds(collections.stream().map(CollectionEntity::getId).collect(Collectors.toList()));
             item.setCollectionSlugs(collections.stream().map(CollectionEntity::getSlug).collect(Collectors.toList()));
 
-            if (checkExists(item.getProductVariantId())) {
-                this.searchIndexItemEntityMapper.updateById(item);
-            } else {
-                this.searchIndexItemEntityMapper.insert(item);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private void saveJoinRows(List<SearchIndexItemEntity> items) {
+        if (CollectionUtils.isEmpty(items)) return;
+        this.removeJoinRows(items.stream()
+                .map(SearchIndexItemEntity::getProductVariantId).collect(Collectors.toList()));
+
+        for(SearchIndexItemEntity item : items) {
+            for(Long facetValueId : new LinkedHashSet<>(item.getFacetValueIds())) {
+                SearchIndexFacetValueEntity facetValueRow = new SearchIndexFacetValueEntity();
+                facetValueRow.setProductVariantId(item.getProductVariantId());
+                facetValueRow.setFacetValueId(facetValueId);
+                this.searchIndexFacetValueEntityMapper.insert(facetValueRow);
+            }
+            for(int i = 0; i < item.getCollectionIds().size(); i++) {
+                SearchIndexCollectionEntity collectionRow = new SearchIndexCollectionEntity();
+                collectionRow.setProductVariantId(item.getProductVariantId());
+                collectionRow.setCollectionId(item.getCollectionIds().get(i));
+                collectionRow.setCollectionSlug(item.getCollectionSlugs().get(i));
+                this.searchIndexCollectionEntityMapper.insert(collectionRow);
             }
         }
     }
 
-    private boolean checkExists(Long productVariantId) {
-        QueryWrapper<SearchIndexItemEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(SearchIndexItemEntity::getProductVariantId, productVariantId);
-        return this.searchIndexItemEntityMapper.selectCount(queryWrapper) > 0;
+    private void removeJoinRows(List<Long> variantIds) {
+        if (CollectionUtils.isEmpty(variantIds)) return;
+        QueryWrapper<SearchIndexFacetValueEntity> facetValueQueryWrapper = new QueryWrapper<>();
+        facetValueQueryWrapper.lambda().in(SearchIndexFacetValueEntity::getProductVariantId, variantIds);
+        this.searchIndexFacetValueEntityMapper.delete(facetValueQueryWrapper);
+
+        QueryWrapper<SearchIndexCollectionEntity> collectionQueryWrapper = new QueryWrapper<>();
+        collectionQueryWrapper.lambda().in(SearchIndexCollectionEntity::getProductVariantId, variantIds);
+        this.searchIndexCollectionEntityMapper.delete(collectionQueryWrapper);
     }
 
-    private List<CollectionEntity> getCollections(Long productVariantId) {
+    private Map<Long, List<CollectionEntity>> getCollections(List<Long> productVariantIds) {
         QueryWrapper<ProductVariantCollectionJoinEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(ProductVariantCollectionJoinEntity::getProductVariantId, productVariantId);
-
-        List<Long> collectionIds = this.productVariantCollectionJoinEntityMapper.selectList(queryWrapper)
-                .stream().map(ProductVariantCollectionJoinEntity::getCollectionId)
-                .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(collectionIds)) return new ArrayList<>();
+        queryWrapper.lambda().in(ProductVariantCollectionJoinEntity::getProductVariantId, productVariantIds);
+        List<ProductVariantCollectionJoinEntity> joins = this.productVariantCollectionJoinEntityMapper
+                .selectList(queryWrapper);
+        if (CollectionUtils.isEmpty(joins)) return new HashMap<>();
 
+        Set<Long> collectionIds = joins.stream()
+                .map(ProductVariantCollectionJoinEntity::getCollectionId).collect(Collectors.toSet());
         QueryWrapper<CollectionEntity> collectionEntityQueryWrapper = new QueryWrapper<>();
         collectionEntityQueryWrapper.lambda().in(CollectionEntity::getId, collectionIds);
         collectionEntityQueryWrapper.lambda().select(CollectionEntity::getId, CollectionEntity::getSlug);
-        return this.collectionEntityMapper.selectList(collectionEntityQueryWrapper);
+        Map<Long, CollectionEntity> collectionMap = this.collectionEntityMapper.selectList(collectionEntityQueryWrapper)
+                .stream().collect(Collectors.toMap(CollectionEntity::getId, c -> c));
+
+        Map<Long, List<CollectionEntity>> result = new HashMap<>();
+        joins.stream()
+                .sorted(Comparator.comparing(ProductVariantCollectionJoinEntity::getCollectionId))
+                .forEach(join -> {
+                    CollectionEntity collection = collectionMap.get(join.getCollectionId());
+                    if (collection != null) {
+                        result.computeIfAbsent(join.getProductVariantId(), k -> new ArrayList<>()).add(collection);
+                    }
+                });
+        return result;
     }
 
-    private List<Long> getFacetIds(ProductVariantEntity productVariant) {
-        List<Long> facetValueIds = this.getFacetValueIds(productVariant);
-        if (CollectionUtils.isEmpty(facetValueIds)) return new ArrayList<>();
+    /**
+     * Returns the union of the FacetValues of each variant and of its Product.
+     */
+    private Map<Long, Set<Long>> getFacetValueIds(List<ProductVariantEntity> productVariants) {
+        List<Long> variantIds = productVariants.stream().map(ProductVariantEntity::getId).collect(Collectors.toList());
+        Set<Long> productIds = productVariants.stream()
+                .map(ProductVariantEntity::getProductId).collect(Collectors.toSet());
 
-        QueryWrapper<FacetValueEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().in(FacetValueEntity::getId, facetValueIds).select(FacetValueEntity::getFacetId);
-        List<Long> facetIds = this.facetValueEntityMapper.selectList(queryWrapper)
-                .stream().map(FacetValueEntity::getFacetId)
-                .collect(Collectors.toList());
-
-        return facetIds;
-    }
-
-    private List<Long> getFacetValueIds(ProductVariantEntity productVariant) {
         QueryWrapper<ProductVariantFacetValueJoinEntity> queryWrapper = new QueryWrapper<>();
-        queryWrapper.lambda().eq(ProductVariantFacetValueJoinEntity::getProductVariantId, productVariant.getId());
-        List<Long> variantFacetValueIds = this.productVariantFacetValueJoinEntityMapper
+        queryWrapper.lambda().in(ProductVariantFacetValueJoinEntity::getProductVariantId, variantIds);
+        Map<Long, List<Long>> variantFacetValueIds = this.productVariantFacetValueJoinEntityMapper
                 .selectList(queryWrapper).stream()
-                .map(ProductVariantFacetValueJoinEntity::getFacetValueId)
-                .collect(Collectors.toList());
+                .collect(Collectors.groupingBy(ProductVariantFacetValueJoinEntity::getProductVariantId,
+                        Collectors.mapping(ProductVariantFacetValueJoinEntity::getFacetValueId, Collectors.toList())));
 
         QueryWrapper<ProductFacetValueJoinEntity> productFacetValueJoinEntityQueryWrapper = new QueryWrapper<>();
         productFacetValueJoinEntityQueryWrapper.lambda()
-                .eq(ProductFacetValueJoinEntity::getProductId, productVariant.getProductId());
-        List<Long> productFacetValueIds = this.productFacetValueJoinEntityMapper
+                .in(ProductFacetValueJoinEntity::getProductId, productIds);
+        Map<Long, List<Long>> productFacetValueIds = this.productFacetValueJoinEntityMapper
                 .selectList(productFacetValueJoinEntityQueryWrapper).stream()
-                .map(ProductFacetValueJoinEntity::getFacetValueId)
-                .collect(Collectors.toList());
-
-        Set<Long> set = new HashSet<>();
-        set.addAll(variantFacetValueIds);
-        set.addAll(productFacetValueIds);
-
-        return new ArrayList<>(set);
+                .collect(Collectors.groupingBy(ProductFacetValueJoinEntity::getProductId,
+                        Collectors.mapping(ProductFacetValueJoinEntity::getFacetValueId, Collectors.toList())));
+
+        Map<Long, Set<Long>> result = new HashMap<>();
+        for(ProductVariantEntity variant : productVariants) {
+            Set<Long> set = new LinkedHashSet<>();
+            set.addAll(variantFacetValueIds.getOrDefault(variant.getId(), new ArrayList<>()));
+            set.addAll(productFacetValueIds.getOrDefault(variant.getProductId(), new ArrayList<>()));
+            result.put(variant.getId(), set);
+        }
+        return result;
     }
 
     private void removeSearchIndexItems(List<Long> variantIds) {
-        this.searchIndexItemEntityMapper.deleteBatchIds(variantIds);
+        this.recordUpdateDuringReindex(variantIds);
+        synchronized (this.indexWriteLock) {
+            this.searchIndexItemEntityMapper.deleteBatchIds(variantIds);
+            this.removeJoinRows(variantIds);
+            this.searchStrategy.onIndexItemsRemoved(variantIds);
+        }
+    }
+
+    private void recordUpdateDuringReindex(List<Long> variantIds) {
+        if (this.reindexing.get()) {
+            this.updatedDuringReindex.addAll(variantIds);
+        }
     }
 }
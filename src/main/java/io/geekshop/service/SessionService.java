@@ -13,17 +13,24 @@ import io.geekshop.common.utils.TokenUtil;
 import io.geekshop.config.session_cache.CachedSession;
 import io.geekshop.config.session_cache.CachedSessionUser;
 import io.geekshop.config.session_cache.SessionCacheStrategy;
-import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.SessionEntity;
 import io.geekshop.mapper.SessionEntityMapper;
+import io.geekshop.service.helpers.session.SessionWriteBehindQueue;
 import io.geekshop.types.order.Order;
 import io.geekshop.types.user.User;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created on Nov, 2020 by @author bobo
@@ -37,6 +44,26 @@ public class SessionService {
     private final SessionEntityMapper sessionEntityMapper;
     private final UserService userService;
     private final OrderService orderService;
+    private final SessionWriteBehindQueue sessionWriteBehindQueue;
+
+    /**
+     * Tokens for which no valid session exists. Bots and stale cookies tend to replay the same dead
+     * token over and over, which would otherwise cost a database query each time.
+     */
+    private Cache<String, Boolean> unknownTokens;
+    /**
+     * The session loads in progress, so that concurrent requests carrying the same token (e.g. the many
+     * GraphQL calls of one storefront page) wait for a single database load rather than each doing one.
+     */
+    private final Map<String, CompletableFuture<CachedSession>> inFlightLoads = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        this.unknownTokens = CacheBuilder.newBuilder()
+                .maximumSize(this.configService.getAuthOptions().getUnknownSessionCacheSize())
+                .expireAfterWrite(this.configService.getAuthOptions().getUnknownSessionCacheTTL(), TimeUnit.SECONDS)
+                .build();
+    }
 
     private long getSessionDurationInMs() {
         return TimeSpanUtil.toMs(this.configService.getAuthOptions().getSessionDuration());
@@ -58,11 +85,8 @@ public class SessionService {
     public CachedSession createNewAuthenticatedSession(
             RequestContext ctx, User user, String authenticationStrategyName) {
         String token = this.generateSessionToken();
-        OrderEntity guestOrder = ctx.getSession() != null && ctx.getSession().getActiveOrderId() != null
-                ? this.orderService.findOneWithItems(ctx.getSession().getActiveOrderId())
-                : null;
-        OrderEntity existingOrder = this.orderService.getActiveOrderForUser(user.getId(), true);
-        OrderEntity activeOrder = this.orderService.mergeOrders(user.getId(), guestOrder, existingOrder);
+        Long guestOrderId = ctx.getSession() != null ? ctx.getSession().getActiveOrderId() : null;
+        Long activeOrderId = this.orderService.mergeOrdersOnLogin(user.getId(), guestOrderId);
 
         SessionEntity sessionEntity = new SessionEntity();
         sessionEntity.setToken(token);
@@ -71,12 +95,13 @@ public class SessionService {
         sessionEntity.setExpires(this.getExpiryDate(this.getSessionDurationInMs()));
         sessionEntity.setInvalidated(false);
         sessionEntity.setAnonymous(false);
-        sessionEntity.setActiveOrderId(activeOrder != null ? activeOrder.getId() : null);
+        sessionEntity.setActiveOrderId(activeOrderId);
 
         this.sessionEntityMapper.insert(sessionEntity);
 
         CachedSession authenticatedSession = this.serializeSession(sessionEntity, user);
         this.getSessionCacheStrategy().set(authenticatedSession);
+        this.unknownTokens.invalidate(token);
 
         return authenticatedSession;
     }
@@ -96,6 +121,7 @@ public class SessionService {
         this.sessionEntityMapper.insert(newSession);
         CachedSession serializedSession = this.serializeSession(newSession, null);
         this.getSessionCacheStrategy().set(serializedSession);
+        this.unknownTokens.invalidate(token);
         return serializedSession;
     }
 
@@ -107,14 +133,42 @@ public class SessionService {
 
         if (serializedSession != null && !stale && !expired) return serializedSession;
 
+        if (this.unknownTokens.getIfPresent(sessionToken) != null) return null;
+
+        CompletableFuture<CachedSession> load = new CompletableFuture<>();
+        CompletableFuture<CachedSession> inFlightLoad = this.inFlightLoads.putIfAbsent(sessionToken, load);
+        if (inFlightLoad != null) {
+            try {
+                return inFlightLoad.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+                throw ex;
+            }
+        }
+        try {
+            serializedSession = this.loadSession(sessionToken);
+            load.complete(serializedSession);
+            return serializedSession;
+        } catch (RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            this.inFlightLoads.remove(sessionToken, load);
+        }
+    }
+
+    private CachedSession loadSession(String sessionToken) {
         SessionEntity session = this.findSessionByToken(sessionToken);
-        if (session == null) return null;
+        if (session == null) {
+            this.unknownTokens.put(sessionToken, true);
+            return null;
+        }
 
         User user = null;
         if (session.getUserId() != null) {
             user = this.userService.findUserWithRolesById(session.getUserId());
         }
-        serializedSession = this.serializeSession(session, user);
+        CachedSession serializedSession = this.serializeSession(session, user);
         this.getSessionCacheStrategy().set(serializedSession);
         return serializedSession;
     }
@@ -134,6 +188,10 @@ public class SessionService {
      * Deletes all existing sessions with the given activeOrder
      */
     public void deleteSessionsByActiveOrderId(Long activeOrderId) {
+        if (this.sessionWriteBehindQueue.isEnabled()) {
+            // the active order of a session may not have been written yet
+            this.sessionWriteBehindQueue.flush();
+        }
         QueryWrapper<SessionEntity> queryWrapper = new QueryWrapper<>();
         queryWrapper.lambda().eq(SessionEntity::getActiveOrderId, activeOrderId);
         List<SessionEntity> sessions = this.sessionEntityMapper.selectList(queryWrapper);
@@ -142,6 +200,12 @@ public class SessionService {
     }
 
     public CachedSession setActiveOrder(CachedSession serializedSession, Long orderId) {
+        if (this.sessionWriteBehindQueue.isEnabled()) {
+            this.sessionWriteBehindQueue.updateActiveOrder(serializedSession.getId(), orderId);
+            CachedSession updatedSerializedSession = this.copyWithActiveOrder(serializedSession, orderId);
+            this.getSessionCacheStrategy().set(updatedSerializedSession);
+            return updatedSerializedSession;
+        }
         SessionEntity session = this.sessionEntityMapper.selectById(serializedSession.getId());
         if (session != null) {
             session.setActiveOrderId(orderId);
@@ -158,6 +222,12 @@ public class SessionService {
     }
 
     public CachedSession unsetActiveOrder(CachedSession serializedSession) {
+        if (serializedSession.getActiveOrderId() != null && this.sessionWriteBehindQueue.isEnabled()) {
+            this.sessionWriteBehindQueue.updateActiveOrder(serializedSession.getId(), null);
+            CachedSession updatedSerializedSession = this.copyWithActiveOrder(serializedSession, null);
+            this.getSessionCacheStrategy().set(updatedSerializedSession);
+            return updatedSerializedSession;
+        }
         if (serializedSession.getActiveOrderId() != null) {
             SessionEntity session = this.sessionEntityMapper.selectById(serializedSession.getId());
             if (session != null) {
@@ -182,6 +252,9 @@ public class SessionService {
         QueryWrapper<SessionEntity> queryWrapper = new QueryWrapper<>();
         queryWrapper.lambda().eq(SessionEntity::isInvalidated, false).eq(SessionEntity::getToken, token);
         SessionEntity session = this.sessionEntityMapper.selectOne(queryWrapper);
+        if (session != null && this.sessionWriteBehindQueue.isEnabled()) {
+            this.sessionWriteBehindQueue.applyPending(session);
+        }
         if (session != null && session.getExpires().getTime() > new Date().getTime()) {
             this.updateSessionExpiry(session);
             return session;
@@ -201,10 +274,26 @@ public class SessionService {
         if (durationBeforeExpiry > 0 && durationBeforeExpiry < this.getSessionDurationInMs() / 2) {
             Date newExpiryDate = this.getExpiryDate(this.getSessionDurationInMs());
             session.setExpires(newExpiryDate);
-            this.sessionEntityMapper.updateById(session);
+            if (this.sessionWriteBehindQueue.isEnabled()) {
+                this.sessionWriteBehindQueue.updateExpires(session.getId(), newExpiryDate);
+            } else {
+                this.sessionEntityMapper.updateById(session);
+            }
         }
     }
 
+    private CachedSession copyWithActiveOrder(CachedSession serializedSession, Long activeOrderId) {
+        CachedSession copy = new CachedSession();
+        copy.setCacheExpiry(serializedSession.getCacheExpiry());
+        copy.setId(serializedSession.getId());
+        copy.setToken(serializedSession.getToken());
+        copy.setExpires(serializedSession.getExpires());
+        copy.setActiveOrderId(activeOrderId);
+        copy.setAuthenticationStrategy(serializedSession.getAuthenticationStrategy());
+        copy.setUser(serializedSession.getUser());
+        return copy;
+    }
+
     private CachedSession serializeSession(SessionEntity session, User user) {
         long expiry = new Date().getTime() + this.configService.getAuthOptions().getSessionCacheTTL() * 1000;
         CachedSession serializedSession = new CachedSession();
@@ -232,7 +321,7 @@ public class SessionService {
         return new Date(System.currentTimeMillis() + timeToExpireInMs);
     }
 
-    private String generateSessionToken() {
+    String generateSessionToken() {
         return TokenUtil.generateNewToken(32);
     }
 }
@@ -7,12 +7,14 @@ package io.geekshop.service;
 
 import io.geekshop.common.utils.BeanMapper;
 import io.geekshop.entity.*;
+import io.geekshop.exception.InsufficientStockException;
 import io.geekshop.exception.InternalServerError;
 import io.geekshop.mapper.OrderLineEntityMapper;
 import io.geekshop.mapper.ProductVariantEntityMapper;
 import io.geekshop.mapper.StockMovementEntityMapper;
 import io.geekshop.service.helpers.PageInfo;
 import io.geekshop.service.helpers.ServiceHelper;
+import io.geekshop.service.helpers.StockLedger;
 import io.geekshop.types.order.Order;
 import io.geekshop.types.order.OrderItem;
 import io.geekshop.types.order.OrderLine;
@@ -28,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Created on Nov, 2020 by @author bobo
@@ -39,6 +42,7 @@ public class StockMovementService {
     private final StockMovementEntityMapper stockMovementEntityMapper;
     private final ProductVariantEntityMapper productVariantEntityMapper;
     private final OrderLineEntityMapper orderLineEntityMapper;
+    private final StockLedger stockLedger;
 
     public StockMovementList getStockMovementsByProductVariantId(
             Long productVariantId, StockMovementListOptions options) {
@@ -67,6 +71,11 @@ public class StockMovementService {
         return stockMovementList;
     }
 
+    /**
+     * Changes the stockOnHand of an existing ProductVariant from the old to the new stock level, by adding the
+     * difference through the {@link StockLedger}, so that Sales made since the old level was read are not lost.
+     */
+    @Transactional
     public StockMovement adjustProductVariantStock(
             Long productVariantId, Integer oldStockLevel, Integer newStockLevel) {
         if (Objects.equals(oldStockLevel, newStockLevel)) {
@@ -74,10 +83,22 @@ public class StockMovementService {
         }
 
         Integer delta = newStockLevel - oldStockLevel;
+        StockMovement adjustment = this.createAdjustment(productVariantId, delta);
+        this.stockLedger.adjustStockOnHand(Collections.singletonMap(productVariantId, delta));
+        return adjustment;
+    }
+
+    /**
+     * Records the initial stockOnHand of a ProductVariant which has just been inserted with it.
+     */
+    public StockMovement createInitialStockAdjustment(Long productVariantId, Integer stockOnHand) {
+        return this.createAdjustment(productVariantId, stockOnHand);
+    }
 
+    private StockMovement createAdjustment(Long productVariantId, Integer quantity) {
         StockMovementEntity adjustment = new StockMovementEntity();
         adjustment.setType(StockMovementType.ADJUSTMENT);
-        adjustment.setQuantity(delta);
+        adjustment.setQuantity(quantity);
         adjustment.setProductVariantId(productVariantId);
 
         this.stockMovementEntityMapper.insert(adjustment);
@@ -91,58 +112,144 @@ public class StockMovementService {
             throw new InternalServerError("Cannot create a Sale for an Order which is still active");
         }
 
+        Map<Long, Integer> allocatedByLineId = this.getAllocatedQuantities(orderEntity);
         List<StockMovementEntity> saleList = new ArrayList<>();
+        Map<Long, Integer> allocatedByVariantId = new HashMap<>();
+        Map<Long, Integer> unallocatedByVariantId = new HashMap<>();
         for(OrderLineEntity lineEntity : orderEntity.getLines()) {
             StockMovementEntity saleEntity = new StockMovementEntity();
             saleEntity.setType(StockMovementType.SALE);
             saleEntity.setQuantity(lineEntity.getQuantity() * -1);
             saleEntity.setProductVariantId(lineEntity.getProductVariantId());
             saleEntity.setOrderLineId(lineEntity.getId());
-
-            this.stockMovementEntityMapper.insert(saleEntity);
-
-            ProductVariantEntity productVariantEntity =
-                    this.productVariantEntityMapper.selectById(lineEntity.getProductVariantId());
-            if (productVariantEntity.isTrackInventory()) {
-                Integer stockOnHand = productVariantEntity.getStockOnHand() - lineEntity.getQuantity();
-                productVariantEntity.setStockOnHand(stockOnHand);
-                this.productVariantEntityMapper.updateById(productVariantEntity);
-            }
-
             saleList.add(saleEntity);
+            int allocated = Math.min(allocatedByLineId.getOrDefault(lineEntity.getId(), 0), lineEntity.getQuantity());
+            allocatedByVariantId.merge(lineEntity.getProductVariantId(), allocated, Integer::sum);
+            unallocatedByVariantId.merge(
+                    lineEntity.getProductVariantId(), lineEntity.getQuantity() - allocated, Integer::sum);
         }
+        this.stockMovementEntityMapper.insertBatch(saleList);
+        this.stockLedger.sellAllocated(allocatedByVariantId);
+        this.stockLedger.decrementStockOnHand(unallocatedByVariantId);
 
         return saleList;
     }
 
+    /**
+     * Allocates the stock of the Order's lines, see `OrderOptions.stockAllocationEnabled`. Throws an
+     * {@link InsufficientStockException} (and allocates nothing) if any ProductVariant has not enough stock.
+     */
+    @Transactional
+    public List<StockMovementEntity> createAllocationsForOrder(OrderEntity orderEntity) {
+        List<StockMovementEntity> allocations = new ArrayList<>();
+        Map<Long, Integer> quantityByVariantId = new HashMap<>();
+        Set<Long> trackedVariantIds = this.getTrackedVariantIds(orderEntity);
+        for(OrderLineEntity lineEntity : orderEntity.getLines()) {
+            if (!trackedVariantIds.contains(lineEntity.getProductVariantId())) continue;
+            StockMovementEntity allocation = new StockMovementEntity();
+            allocation.setType(StockMovementType.ALLOCATION);
+            allocation.setQuantity(lineEntity.getQuantity());
+            allocation.setProductVariantId(lineEntity.getProductVariantId());
+            allocation.setOrderLineId(lineEntity.getId());
+            allocations.add(allocation);
+            quantityByVariantId.merge(lineEntity.getProductVariantId(), lineEntity.getQuantity(), Integer::sum);
+        }
+        Set<Long> insufficientVariantIds = this.stockLedger.allocate(quantityByVariantId);
+        if (!insufficientVariantIds.isEmpty()) {
+            List<String> skus = this.productVariantEntityMapper.selectBatchIds(insufficientVariantIds).stream()
+                    .map(ProductVariantEntity::getSku).collect(Collectors.toList());
+            throw new InsufficientStockException(skus);
+        }
+        this.stockMovementEntityMapper.insertBatch(allocations);
+        return allocations;
+    }
+
+    /**
+     * Releases the stock which is still allocated to the Order's lines.
+     */
+    @Transactional
+    public List<StockMovementEntity> createReleasesForOrder(OrderEntity orderEntity) {
+        Map<Long, Integer> allocatedByLineId = this.getAllocatedQuantities(orderEntity);
+        List<StockMovementEntity> releases = new ArrayList<>();
+        if (allocatedByLineId.isEmpty()) return releases;
+
+        Map<Long, Integer> quantityByVariantId = new HashMap<>();
+        for(OrderLineEntity lineEntity : orderEntity.getLines()) {
+            Integer allocated = allocatedByLineId.get(lineEntity.getId());
+            if (allocated == null) continue;
+            StockMovementEntity release = new StockMovementEntity();
+            release.setType(StockMovementType.RELEASE);
+            release.setQuantity(allocated);
+            release.setProductVariantId(lineEntity.getProductVariantId());
+            release.setOrderLineId(lineEntity.getId());
+            releases.add(release);
+            quantityByVariantId.merge(lineEntity.getProductVariantId(), allocated, Integer::sum);
+        }
+        this.stockMovementEntityMapper.insertBatch(releases);
+        this.stockLedger.release(quantityByVariantId);
+        return releases;
+    }
+
+    @Transactional
     public List<StockMovement> createCancellationsForOrderItems(List<OrderItemEntity> items) {
         List<StockMovement> stockMovements = new ArrayList<>();
-        Map<Long, ProductVariantEntity> variantsMap = new HashMap<>();
+        if (CollectionUtils.isEmpty(items)) return stockMovements;
+
+        Set<Long> orderLineIds = items.stream().map(OrderItemEntity::getOrderLineId).collect(Collectors.toSet());
+        Map<Long, OrderLineEntity> linesMap = this.orderLineEntityMapper.selectBatchIds(orderLineIds).stream()
+                .collect(Collectors.toMap(OrderLineEntity::getId, line -> line));
+        List<StockMovementEntity> cancellations = new ArrayList<>();
+        Map<Long, Integer> quantityByVariantId = new HashMap<>();
         for(OrderItemEntity item : items) {
-            ProductVariantEntity productVariant = null;
-            OrderLineEntity line = orderLineEntityMapper.selectById(item.getOrderLineId());
-            Long productVariantId = line.getProductVariantId();
-            if (variantsMap.containsKey(productVariantId)) {
-                productVariant = variantsMap.get(productVariantId);
-            } else {
-                productVariant = this.productVariantEntityMapper.selectById(productVariantId);
-                variantsMap.put(productVariantId, productVariant);
-            }
+            Long productVariantId = linesMap.get(item.getOrderLineId()).getProductVariantId();
             StockMovementEntity cancellation = new StockMovementEntity();
             cancellation.setProductVariantId(productVariantId);
             cancellation.setQuantity(1);
             cancellation.setOrderItemId(item.getId());
             cancellation.setOrderLineId(item.getOrderLineId());
             cancellation.setType(StockMovementType.CANCELLATION);
-            this.stockMovementEntityMapper.insert(cancellation);
+            cancellations.add(cancellation);
+            quantityByVariantId.merge(productVariantId, 1, Integer::sum);
+        }
+        this.stockMovementEntityMapper.insertBatch(cancellations);
+        for(int i = 0; i < items.size(); i++) {
+            StockMovementEntity cancellation = cancellations.get(i);
+            items.get(i).setCancellationId(cancellation.getId()); // 预填充cancellationId
             stockMovements.add(BeanMapper.map(cancellation, StockMovement.class));
-            item.setCancellationId(cancellation.getId()); // 预填充cancellationId
-
-            if (productVariant.isTrackInventory()) {
-                productVariant.setStockOnHand(productVariant.getStockOnHand() + 1);
-                this.productVariantEntityMapper.updateById(productVariant);
-            }
         }
+        this.stockLedger.incrementStockOnHand(quantityByVariantId);
         return stockMovements;
     }
+
+    private Set<Long> getTrackedVariantIds(OrderEntity orderEntity) {
+        Set<Long> variantIds = orderEntity.getLines().stream()
+                .map(OrderLineEntity::getProductVariantId).collect(Collectors.toSet());
+        if (variantIds.isEmpty()) return variantIds;
+        QueryWrapper<ProductVariantEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().in(ProductVariantEntity::getId, variantIds)
+                .eq(ProductVariantEntity::isTrackInventory, true)
+                .select(ProductVariantEntity::getId);
+        return this.productVariantEntityMapper.selectList(queryWrapper).stream()
+                .map(ProductVariantEntity::getId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the quantities which are still allocated to the Order's lines (allocations minus releases), by line id.
+     */
+    private Map<Long, Integer> getAllocatedQuantities(OrderEntity orderEntity) {
+        Map<Long, Integer> allocatedByLineId = new HashMap<>();
+        Set<Long> orderLineIds = orderEntity.getLines().stream()
+                .map(OrderLineEntity::getId).collect(Collectors.toSet());
+        if (orderLineIds.isEmpty()) return allocatedByLineId;
+        QueryWrapper<StockMovementEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().in(StockMovementEntity::getOrderLineId, orderLineIds)
+                .in(StockMovementEntity::getType, StockMovementType.ALLOCATION, StockMovementType.RELEASE);
+        for(StockMovementEntity movement : this.stockMovementEntityMapper.selectList(queryWrapper)) {
+            int quantity = movement.getType() == StockMovementType.ALLOCATION
+                    ? movement.getQuantity() : -movement.getQuantity();
+            allocatedByLineId.merge(movement.getOrderLineId(), quantity, Integer::sum);
+        }
+        allocatedByLineId.values().removeIf(quantity -> quantity <= 0);
+        return allocatedByLineId;
+    }
 }
@@ -21,6 +21,8 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.stream.Collectors;
+
 /**
  * This is a helpers importer which exposes methods related to looking up and creating Users based on an
  * external {@link io.geekshop.config.auth.AuthenticationStrategy}
@@ -178,12 +180,12 @@ public class ExternalAuthenticationService {
         userEntity.setVerified(true);
         this.userEntityMapper.insert(userEntity);
 
-        input.getRoles().forEach(roleEntity -> {
+        this.userRoleJoinEntityMapper.insertBatch(input.getRoles().stream().map(roleEntity -> {
             UserRoleJoinEntity userRoleJoinEntity = new UserRoleJoinEntity();
             userRoleJoinEntity.setUserId(userEntity.getId());
             userRoleJoinEntity.setRoleId(roleEntity.getId());
-            this.userRoleJoinEntityMapper.insert(userRoleJoinEntity);
-        });
+            return userRoleJoinEntity;
+        }).collect(Collectors.toList()));
 
         AuthenticationMethodEntity authenticationMethodEntity = new AuthenticationMethodEntity();
         authenticationMethodEntity.setExternalIdentifier(input.getExternalIdentifier());
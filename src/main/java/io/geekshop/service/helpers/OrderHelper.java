@@ -17,10 +17,9 @@ import io.geekshop.service.helpers.payment_state_machine.PaymentState;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -115,20 +114,78 @@ public class OrderHelper {
         return order;
     }
 
+    /**
+     * Fetches the Orders with the given ids and populates their OrderLines and OrderItems. The Orders are
+     * returned in the order of the given ids, with missing ids being skipped.
+     *
+     * Regardless of the number of Orders, this issues exactly three queries (orders, lines and items),
+     * instead of one query per Order and per OrderLine.
+     */
+    public List<OrderEntity> findOrdersWithItems(Collection<Long> orderIds) {
+        if (CollectionUtils.isEmpty(orderIds)) return new ArrayList<>();
+        Map<Long, OrderEntity> orderMap = this.orderEntityMapper.selectBatchIds(orderIds).stream()
+                .collect(Collectors.toMap(OrderEntity::getId, order -> order));
+        List<OrderEntity> orders = orderIds.stream()
+                .distinct().map(orderMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+
+        populateOrdersWithItems(orders);
+
+        return orders;
+    }
+
+    /**
+     * Populates the OrderLines of the given Orders with a single query, but without their OrderItems. This is
+     * enough to tell which Orders are empty (e.g. when merging a guest Order on login) without loading all of
+     * their OrderItems. The quantities and prices of such OrderLines are meaningless, so such Orders must not be
+     * handed out to callers which expect them to be fully loaded.
+     */
+    public void populateOrdersWithLinesOnly(List<OrderEntity> orders) {
+        if (CollectionUtils.isEmpty(orders)) return;
+        List<Long> orderIds = orders.stream().map(OrderEntity::getId).collect(Collectors.toList());
+
+        QueryWrapper<OrderLineEntity> orderLineEntityQueryWrapper = new QueryWrapper<>();
+        orderLineEntityQueryWrapper.lambda().in(OrderLineEntity::getOrderId, orderIds)
+                .orderByAsc(OrderLineEntity::getCreatedAt).orderByAsc(OrderLineEntity::getId);
+        Map<Long, List<OrderLineEntity>> orderLinesByOrderId =
+                this.orderLineEntityMapper.selectList(orderLineEntityQueryWrapper).stream()
+                        .collect(Collectors.groupingBy(OrderLineEntity::getOrderId));
+        for(OrderEntity order : orders) {
+            order.setLines(orderLinesByOrderId.getOrDefault(order.getId(), new ArrayList<>()));
+        }
+    }
+
     private void populateOrderWithItems(OrderEntity order) {
+        populateOrdersWithItems(Arrays.asList(order));
+    }
+
+    private void populateOrdersWithItems(List<OrderEntity> orders) {
+        if (CollectionUtils.isEmpty(orders)) return;
+        List<Long> orderIds = orders.stream().map(OrderEntity::getId).collect(Collectors.toList());
+
         QueryWrapper<OrderLineEntity> orderLineEntityQueryWrapper = new QueryWrapper<>();
-        orderLineEntityQueryWrapper.lambda().eq(OrderLineEntity::getOrderId, order.getId())
-                .orderByAsc(OrderLineEntity::getCreatedAt);
+        orderLineEntityQueryWrapper.lambda().in(OrderLineEntity::getOrderId, orderIds)
+                .orderByAsc(OrderLineEntity::getCreatedAt).orderByAsc(OrderLineEntity::getId);
         List<OrderLineEntity> orderLines = this.orderLineEntityMapper.selectList(orderLineEntityQueryWrapper);
-        order.setLines(orderLines);
 
         // 预填充OrderItems
-        for(OrderLineEntity orderLine : orderLines) {
+        Map<Long, List<OrderItemEntity>> orderItemsByLineId = new HashMap<>();
+        if (!CollectionUtils.isEmpty(orderLines)) {
             QueryWrapper<OrderItemEntity> orderItemEntityQueryWrapper = new QueryWrapper<>();
-            orderItemEntityQueryWrapper.lambda().eq(OrderItemEntity::getOrderLineId, orderLine.getId())
-                    .orderByAsc(OrderItemEntity::getCreatedAt);
-            List<OrderItemEntity> orderItems = this.orderItemEntityMapper.selectList(orderItemEntityQueryWrapper);
-            orderLine.setItems(orderItems);
+            orderItemEntityQueryWrapper.lambda()
+                    .in(OrderItemEntity::getOrderLineId,
+                            orderLines.stream().map(OrderLineEntity::getId).collect(Collectors.toList()))
+                    .orderByAsc(OrderItemEntity::getCreatedAt).orderByAsc(OrderItemEntity::getId);
+            orderItemsByLineId = this.orderItemEntityMapper.selectList(orderItemEntityQueryWrapper).stream()
+                    .collect(Collectors.groupingBy(OrderItemEntity::getOrderLineId));
+        }
+
+        Map<Long, List<OrderLineEntity>> orderLinesByOrderId = new HashMap<>();
+        for(OrderLineEntity orderLine : orderLines) {
+            orderLine.setItems(orderItemsByLineId.getOrDefault(orderLine.getId(), new ArrayList<>()));
+            orderLinesByOrderId.computeIfAbsent(orderLine.getOrderId(), id -> new ArrayList<>()).add(orderLine);
+        }
+        for(OrderEntity order : orders) {
+            order.setLines(orderLinesByOrderId.getOrDefault(order.getId(), new ArrayList<>()));
         }
     }
 }
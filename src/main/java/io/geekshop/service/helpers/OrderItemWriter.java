@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.OrderItemEntity;
+import io.geekshop.mapper.OrderItemEntityMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Writes {@link OrderItemEntity}s in bulk, so that changing the quantity of an OrderLine or re-applying
+ * promotions to an Order costs one round trip per statement type instead of one per unit.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderItemWriter {
+    private final OrderItemEntityMapper orderItemEntityMapper;
+
+    /**
+     * Inserts `quantity` new OrderItems into the OrderLine with a single JDBC batch, and returns them.
+     */
+    public List<OrderItemEntity> insertItems(Long orderLineId, Integer unitPrice, int quantity) {
+        List<OrderItemEntity> items = new ArrayList<>(Math.max(quantity, 0));
+        for (int i = 0; i < quantity; i++) {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setOrderLineId(orderLineId);
+            item.setUnitPrice(unitPrice);
+            items.add(item);
+        }
+        this.orderItemEntityMapper.insertBatch(items);
+        return items;
+    }
+
+    /**
+     * Persists the pendingAdjustments of the given OrderItems with a single JDBC batch. The items are written
+     * through the `updateById` statement of the mapper, so the adjustments are serialized by the
+     * AdjustmentListTypeHandler of the entity and the audit fields are filled in as for single-row updates.
+     */
+    public void updatePendingAdjustments(Collection<OrderItemEntity> items) {
+        this.orderItemEntityMapper.updateBatchById(items);
+    }
+}
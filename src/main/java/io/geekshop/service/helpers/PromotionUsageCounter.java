@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Maintains the number of placed Orders in which each Customer has used each Promotion, so that the
+ * `perCustomerUsageLimit` of a Promotion can be checked with a single keyed lookup instead of counting the
+ * Orders of all redemptions of the Promotion.
+ *
+ * The counters are changed with atomic, relative updates in the transaction which records (or cancels) the use of
+ * the Promotions, and in the order of their keys, so that concurrent transactions lock the rows in the same order.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@RequiredArgsConstructor
+public class PromotionUsageCounter {
+    private static final String INCREMENT_USAGES =
+            "insert into tb_promotion_customer_usage (promotion_id, customer_id, usages) values (?, ?, ?) " +
+                    "on duplicate key update usages = usages + ?";
+    private static final String DECREMENT_USAGES =
+            "update tb_promotion_customer_usage set usages = greatest(usages - ?, 0) " +
+                    "where promotion_id = ? and customer_id = ?";
+    private static final String SELECT_USAGES =
+            "select usages from tb_promotion_customer_usage where promotion_id = ? and customer_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int getUsages(Long promotionId, Long customerId) {
+        List<Integer> usages = this.jdbcTemplate.queryForList(SELECT_USAGES, Integer.class, promotionId, customerId);
+        return usages.isEmpty() ? 0 : usages.get(0);
+    }
+
+    /**
+     * Adds the given number of usages, keyed by (promotionId, customerId). Negative numbers remove usages.
+     */
+    public void addUsages(Map<Pair<Long, Long>, Integer> usagesByPromotionAndCustomer) {
+        List<Object[]> increments = new ArrayList<>();
+        List<Object[]> decrements = new ArrayList<>();
+        new TreeMap<>(usagesByPromotionAndCustomer).forEach((key, usages) -> {
+            if (key.getRight() == null || usages == 0) return;
+            if (usages > 0) {
+                increments.add(new Object[] { key.getLeft(), key.getRight(), usages, usages });
+            } else {
+                decrements.add(new Object[] { -usages, key.getLeft(), key.getRight() });
+            }
+        });
+        if (!increments.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(INCREMENT_USAGES, increments);
+        }
+        if (!decrements.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(DECREMENT_USAGES, decrements);
+        }
+    }
+
+    public void addUsages(Long customerId, Collection<Long> promotionIds, int usages) {
+        Map<Pair<Long, Long>, Integer> usagesByPromotionAndCustomer = new HashMap<>();
+        for(Long promotionId : promotionIds) {
+            usagesByPromotionAndCustomer.merge(Pair.of(promotionId, customerId), usages, Integer::sum);
+        }
+        this.addUsages(usagesByPromotionAndCustomer);
+    }
+}
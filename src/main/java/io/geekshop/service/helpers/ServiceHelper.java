@@ -22,6 +22,9 @@ import io.geekshop.types.order.Order;
 import io.geekshop.types.order.OrderItem;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.google.common.eventbus.EventBus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.util.Arrays;
@@ -52,6 +55,31 @@ public abstract class ServiceHelper {
         return entity;
     }
 
+    /**
+     * Runs the action once the current transaction has committed, or right away if there is none. Used for
+     * anything which must see the committed changes, such as evicting them from a cache shared across requests.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Posts the event once the current transaction has committed, since its subscribers run on the background
+     * event handler and must see the changes the event is about.
+     */
+    public static void postAfterCommit(EventBus eventBus, Object event) {
+        afterCommit(() -> eventBus.post(event));
+    }
+
     private static Set<String> getAllFields(final Class<?> type) {
         return Arrays.stream(type.getDeclaredFields()).map(field -> field.getName()).collect(Collectors.toSet());
     }
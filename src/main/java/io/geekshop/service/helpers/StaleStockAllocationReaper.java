@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.common.ApiType;
+import io.geekshop.common.RequestContext;
+import io.geekshop.options.OrderOptions;
+import io.geekshop.service.ConfigService;
+import io.geekshop.service.OrderService;
+import io.geekshop.service.helpers.order_state_machine.OrderState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically releases the stock allocated to Orders which have been left in the "ArrangingPayment" state (e.g. an
+ * abandoned checkout) for longer than `orderOptions.stockAllocationTimeout`, see
+ * `orderOptions.stockAllocationEnabled`. Otherwise that stock could never be sold to anyone else.
+ *
+ * Such Orders are transitioned back to "AddingItems", which releases their allocations as if the customer had done
+ * so. A customer who still wants to check out then simply transitions to "ArrangingPayment" again, which allocates
+ * the stock anew if it is still available.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@Slf4j
+public class StaleStockAllocationReaper {
+    /**
+     * Orders which are arranging payment and whose latest allocation was made before the given time.
+     */
+    private static final String SELECT_STALE_ORDER_IDS =
+            "select ol.order_id from tb_stock_movement sm " +
+                    "join tb_order_line ol on ol.id = sm.order_line_id " +
+                    "join tb_order o on o.id = ol.order_id " +
+                    "where sm.type = 'ALLOCATION' and o.state = ? " +
+                    "group by ol.order_id having max(sm.created_at) <= ? " +
+                    "order by ol.order_id limit ?";
+    private static final int BATCH_SIZE = 100;
+
+    private final ConfigService configService;
+    private final OrderService orderService;
+    private final JdbcTemplate jdbcTemplate;
+    private ScheduledExecutorService scheduler;
+
+    public StaleStockAllocationReaper(ConfigService configService,
+                                      OrderService orderService,
+                                      JdbcTemplate jdbcTemplate) {
+        this.configService = configService;
+        this.orderService = orderService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void init() {
+        long interval = this.configService.getOrderOptions().getStockAllocationReaperInterval();
+        if (interval <= 0) return;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "StaleStockAllocationReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::reapSafely, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Releases the stock of all Orders whose allocations have timed out, and returns the number of such Orders.
+     */
+    public int reap() {
+        OrderOptions orderOptions = this.configService.getOrderOptions();
+        if (!orderOptions.isStockAllocationEnabled()) return 0;
+        Timestamp cutoff =
+                new Timestamp(System.currentTimeMillis() - orderOptions.getStockAllocationTimeout() * 1000);
+        RequestContext ctx = this.createRequestContext();
+        int total = 0;
+        while (true) {
+            List<Long> orderIds = this.jdbcTemplate.queryForList(SELECT_STALE_ORDER_IDS, Long.class,
+                    OrderState.ArrangingPayment.name(), cutoff, BATCH_SIZE);
+            int released = 0;
+            for(Long orderId : orderIds) {
+                try {
+                    this.orderService.transitionToState(ctx, orderId, OrderState.AddingItems);
+                    released++;
+                } catch (Exception ex) {
+                    // e.g. the Order has been paid in the meantime
+                    log.warn("Failed to release the stock allocated to Order " + orderId, ex);
+                }
+            }
+            total += released;
+            // an Order which failed to transition would be selected again
+            if (orderIds.size() < BATCH_SIZE || released < orderIds.size()) break;
+        }
+        if (total > 0) {
+            log.info("Released the stock allocated to " + total + " stale Orders");
+        }
+        return total;
+    }
+
+    private RequestContext createRequestContext() {
+        RequestContext ctx = new RequestContext();
+        ctx.setApiType(ApiType.ADMIN);
+        ctx.setAuthorized(true);
+        ctx.setAuthorizedAsOwnerOnly(false);
+        return ctx;
+    }
+
+    private void reapSafely() {
+        try {
+            this.reap();
+        } catch (Exception ex) {
+            log.error("Failed to release stale stock allocations", ex);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.ProductVariantEntity;
+import io.geekshop.eventbus.events.ProductVariantEvent;
+import com.google.common.eventbus.EventBus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stock changes to {@link ProductVariantEntity}s with atomic, relative updates (e.g.
+ * `stock_on_hand = stock_on_hand - ?`) instead of reading, modifying and writing back the whole entity, so
+ * that concurrent checkouts of the same ProductVariant neither lose updates nor have to lock its row for longer
+ * than a single statement.
+ *
+ * The changes are aggregated per ProductVariant and applied in the order of their ids, so that concurrent
+ * transactions always lock the rows in the same order. Only ProductVariants which track their inventory
+ * are changed, except for the stock adjustments made by administrators.
+ *
+ * The changed ProductVariants are announced with a "stock_updated" {@link ProductVariantEvent} once the
+ * transaction has committed, which evicts them from the catalog cache.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@RequiredArgsConstructor
+public class StockLedger {
+    private static final String ADD_STOCK_ON_HAND =
+            "update tb_product_variant set stock_on_hand = stock_on_hand + ?, updated_at = ? " +
+                    "where id = ? and track_inventory = true";
+    private static final String ADJUST_STOCK_ON_HAND =
+            "update tb_product_variant set stock_on_hand = stock_on_hand + ?, updated_at = ? where id = ?";
+    private static final String ALLOCATE_STOCK =
+            "update tb_product_variant set stock_allocated = stock_allocated + ?, updated_at = ? " +
+                    "where id = ? and track_inventory = true and stock_on_hand - stock_allocated >= ?";
+    private static final String RELEASE_STOCK =
+            "update tb_product_variant set stock_allocated = stock_allocated - ?, updated_at = ? " +
+                    "where id = ? and track_inventory = true";
+    private static final String SELL_ALLOCATED_STOCK =
+            "update tb_product_variant set stock_on_hand = stock_on_hand - ?, " +
+                    "stock_allocated = stock_allocated - ?, updated_at = ? where id = ? and track_inventory = true";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EventBus eventBus;
+
+    /**
+     * Takes the quantities from the stockOnHand, which may become negative (i.e. a backorder).
+     */
+    public void decrementStockOnHand(Map<Long, Integer> quantityByVariantId) {
+        this.batchUpdate(ADD_STOCK_ON_HAND, quantityByVariantId,
+                (quantity, now, variantId) -> new Object[] { -quantity, now, variantId });
+    }
+
+    public void incrementStockOnHand(Map<Long, Integer> quantityByVariantId) {
+        this.batchUpdate(ADD_STOCK_ON_HAND, quantityByVariantId,
+                (quantity, now, variantId) -> new Object[] { quantity, now, variantId });
+    }
+
+    /**
+     * Adds the quantities (which may be negative) to the stockOnHand whether or not the ProductVariants track
+     * their inventory, e.g. for the stock adjustments made by administrators.
+     */
+    public void adjustStockOnHand(Map<Long, Integer> quantityByVariantId) {
+        this.batchUpdate(ADJUST_STOCK_ON_HAND, quantityByVariantId,
+                (quantity, now, variantId) -> new Object[] { quantity, now, variantId });
+    }
+
+    /**
+     * Allocates the quantities, each only if the ProductVariant has enough unallocated stock (i.e. stockOnHand
+     * minus the stock already allocated) left.
+     *
+     * Either all quantities are allocated, or none is: if any of the ProductVariants does not have enough stock,
+     * the allocations which succeeded are released again, and the ids of the ProductVariants without enough stock
+     * are returned.
+     */
+    public Set<Long> allocate(Map<Long, Integer> quantityByVariantId) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Map<Long, Integer> allocated = new TreeMap<>();
+        Set<Long> insufficient = new TreeSet<>();
+        // one statement per ProductVariant, since the update count tells whether the allocation succeeded
+        new TreeMap<>(quantityByVariantId).forEach((variantId, quantity) -> {
+            int updated = this.jdbcTemplate.update(ALLOCATE_STOCK, quantity, now, variantId, quantity);
+            if (updated == 1) {
+                allocated.put(variantId, quantity);
+            } else {
+                insufficient.add(variantId);
+            }
+        });
+        if (!insufficient.isEmpty()) {
+            this.release(allocated);
+        }
+        this.postStockUpdated(allocated.keySet());
+        return insufficient;
+    }
+
+    public void release(Map<Long, Integer> quantityByVariantId) {
+        this.batchUpdate(RELEASE_STOCK, quantityByVariantId,
+                (quantity, now, variantId) -> new Object[] { quantity, now, variantId });
+    }
+
+    /**
+     * Takes previously allocated quantities from both the stockOnHand and the allocated stock.
+     */
+    public void sellAllocated(Map<Long, Integer> quantityByVariantId) {
+        this.batchUpdate(SELL_ALLOCATED_STOCK, quantityByVariantId,
+                (quantity, now, variantId) -> new Object[] { quantity, quantity, now, variantId });
+    }
+
+    private void batchUpdate(String sql, Map<Long, Integer> quantityByVariantId, RowMapper rowMapper) {
+        if (quantityByVariantId.isEmpty()) return;
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new TreeMap<>(quantityByVariantId).entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> rowMapper.map(entry.getValue(), now, entry.getKey()))
+                .collect(Collectors.toList());
+        if (rows.isEmpty()) return;
+        this.jdbcTemplate.batchUpdate(sql, rows);
+        this.postStockUpdated(quantityByVariantId.keySet());
+    }
+
+    private void postStockUpdated(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) return;
+        List<ProductVariantEntity> variants = variantIds.stream().map(variantId -> {
+            ProductVariantEntity variant = new ProductVariantEntity();
+            variant.setId(variantId);
+            return variant;
+        }).collect(Collectors.toList());
+        ServiceHelper.postAfterCommit(this.eventBus, new ProductVariantEvent(null, variants, "stock_updated"));
+    }
+
+    private interface RowMapper {
+        Object[] map(Integer quantity, Timestamp now, Long variantId);
+    }
+}
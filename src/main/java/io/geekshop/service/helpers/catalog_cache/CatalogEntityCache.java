@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.catalog_cache;
+
+import io.geekshop.entity.*;
+import io.geekshop.eventbus.events.AssetEvent;
+import io.geekshop.eventbus.events.CollectionModificationEvent;
+import io.geekshop.eventbus.events.ProductEvent;
+import io.geekshop.eventbus.events.ProductVariantEvent;
+import io.geekshop.options.CatalogCacheOptions;
+import io.geekshop.options.ConfigOptions;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.stream.Collectors;
+
+/**
+ * The catalog entities which the GraphQL DataLoaders load by id, cached across requests. The DataLoaders
+ * themselves only cache for the duration of a single request, yet every storefront page view reads the same
+ * Products, ProductVariants, Assets, FacetValues and ProductOptionGroups.
+ *
+ * Products, ProductVariants and Assets are evicted by their {@link ProductEvent}, {@link ProductVariantEvent} and
+ * {@link AssetEvent}, which are posted once the change has been committed. The ProductVariants of a
+ * {@link CollectionModificationEvent} are evicted as well, so that they are reloaded along with their new
+ * Collections. FacetValues and ProductOptionGroups do not have events, so the services changing them evict them
+ * directly, after the commit as well. Evicting any earlier would let a concurrent request cache the entity as it
+ * was before the change.
+ *
+ * Hits, misses, evictions and sizes are exposed as the Micrometer cache metrics (e.g. `cache.gets`), tagged
+ * with `cache=catalog.<type>`, e.g. `cache=catalog.products`.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+public class CatalogEntityCache {
+    @Getter
+    private final EntityCache<ProductEntity> products;
+    @Getter
+    private final EntityCache<ProductVariantEntity> productVariants;
+    @Getter
+    private final EntityCache<AssetEntity> assets;
+    @Getter
+    private final EntityCache<FacetValueEntity> facetValues;
+    @Getter
+    private final EntityCache<ProductOptionGroupEntity> productOptionGroups;
+
+    private final EventBus eventBus;
+
+    public CatalogEntityCache(ConfigOptions configOptions, MeterRegistry meterRegistry, EventBus eventBus) {
+        CatalogCacheOptions options = configOptions.getCatalogCacheOptions();
+        this.products = new EntityCache<>("products", options, meterRegistry);
+        this.productVariants = new EntityCache<>("productVariants", options, meterRegistry);
+        this.assets = new EntityCache<>("assets", options, meterRegistry);
+        this.facetValues = new EntityCache<>("facetValues", options, meterRegistry);
+        this.productOptionGroups = new EntityCache<>("productOptionGroups", options, meterRegistry);
+        this.eventBus = eventBus;
+    }
+
+    @PostConstruct
+    void init() {
+        this.eventBus.register(this);
+    }
+
+    @Subscribe
+    public void onEvent(ProductEvent event) {
+        this.products.invalidate(event.getProduct().getId());
+    }
+
+    @Subscribe
+    public void onEvent(ProductVariantEvent event) {
+        this.productVariants.invalidateAll(event.getVariants().stream()
+                .map(ProductVariantEntity::getId).collect(Collectors.toList()));
+    }
+
+    @Subscribe
+    public void onEvent(AssetEvent event) {
+        this.assets.invalidate(event.getAsset().getId());
+    }
+
+    @Subscribe
+    public void onEvent(CollectionModificationEvent event) {
+        this.productVariants.invalidateAll(event.getProductVariantIds());
+    }
+}
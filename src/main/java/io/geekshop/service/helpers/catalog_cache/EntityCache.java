@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.catalog_cache;
+
+import io.geekshop.entity.BaseEntity;
+import io.geekshop.options.CatalogCacheOptions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A size-bounded, TTL-based cache of the entities of one type, keyed by id.
+ *
+ * Entities are read through {@link #getByIds(Collection, Function)}: the cached entities are returned as they are,
+ * and only the missing ids are loaded, with a single call of the given loader. A load which overlaps with an
+ * invalidation does not populate the cache, since it may have read the entity before the change.
+ *
+ * The cached entities are shared, so callers must not modify them.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class EntityCache<E extends BaseEntity> {
+    private final Cache<Long, E> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public EntityCache(String name, CatalogCacheOptions options, MeterRegistry meterRegistry) {
+        if (options.isEnabled()) {
+            this.cache = CacheBuilder.newBuilder()
+                    .maximumSize(options.getMaximumSize())
+                    .expireAfterWrite(options.getTtl(), TimeUnit.SECONDS)
+                    .recordStats()
+                    .build();
+            GuavaCacheMetrics.monitor(meterRegistry, this.cache, "catalog." + name);
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns the entities with the given ids, in no particular order. Ids which do not exist are
+     * left out, and are not cached.
+     */
+    public List<E> getByIds(Collection<Long> ids, Function<Collection<Long>, List<E>> loader) {
+        if (this.cache == null) {
+            return loader.apply(ids);
+        }
+        Map<Long, E> cached = this.cache.getAllPresent(ids);
+        if (cached.size() == ids.size()) {
+            return new ArrayList<>(cached.values());
+        }
+        Set<Long> missingIds = new HashSet<>(ids);
+        missingIds.removeAll(cached.keySet());
+
+        long generationBeforeLoad = this.generation.get();
+        List<E> loaded = loader.apply(missingIds);
+        synchronized (this.generation) {
+            if (this.generation.get() == generationBeforeLoad) {
+                loaded.forEach(entity -> this.cache.put(entity.getId(), entity));
+            }
+        }
+
+        List<E> entities = new ArrayList<>(cached.values());
+        entities.addAll(loaded);
+        return entities;
+    }
+
+    public void invalidate(Long id) {
+        this.invalidateAll(Collections.singletonList(id));
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        if (this.cache == null) return;
+        synchronized (this.generation) {
+            this.generation.incrementAndGet();
+            this.cache.invalidateAll(ids);
+        }
+    }
+
+    public void invalidateAll() {
+        if (this.cache == null) return;
+        synchronized (this.generation) {
+            this.generation.incrementAndGet();
+            this.cache.invalidateAll();
+        }
+    }
+}
@@ -43,16 +43,17 @@ public class OrderCalculator {
         if (updatedOrderLine != null) {
             updatedOrderLine.getActiveItems().forEach(item -> updatedOrderItems.add(item));
         }
+        OrderPricingContext context = new OrderPricingContext(order);
         order.clearAdjustments(null);
-        this.calculatoOrderTotal(order);
+        context.calculateSubTotal();
         if (!CollectionUtils.isEmpty(order.getLines())) {
             // Test and apply promotions
-            List<OrderItemEntity> itemsModifiedByPromotions = this.applyPromotions(order, promotions);
+            List<OrderItemEntity> itemsModifiedByPromotions = this.applyPromotions(order, promotions, context);
             itemsModifiedByPromotions.forEach(item -> updatedOrderItems.add(item));
 
             this.applyShipping(order);
         }
-        this.calculatoOrderTotal(order);
+        context.calculateSubTotal();
         return new ArrayList<>(updatedOrderItems);
     }
 
@@ -60,9 +61,10 @@ public class OrderCalculator {
      * Applies any eligible promotions to each OrderItem in the order. Returns a list of
      * any OrderItems which had their Adjustments modified
      */
-    private List<OrderItemEntity> applyPromotions(OrderEntity order, List<PromotionEntity> promotions) {
-        List<OrderItemEntity> updatedItems = this.applyOrderItemPromotions(order, promotions);
-        this.applyOrderPromotions(order, promotions);
+    private List<OrderItemEntity> applyPromotions(
+            OrderEntity order, List<PromotionEntity> promotions, OrderPricingContext context) {
+        List<OrderItemEntity> updatedItems = this.applyOrderItemPromotions(order, promotions, context);
+        this.applyOrderPromotions(order, promotions, context);
         return updatedItems;
     }
 
@@ -70,8 +72,12 @@ public class OrderCalculator {
      * Applies promotions to OrderItems. This is quite complex function, due to the inherent complexity
      * of applying the promotions, and also due to added complexity in the name of performance optimization.
      * Therefore it is heavily annotated so that the purpose of each step is clear.
+     *
+     * The tests of the promotions and the calculation of the subTotal go through the {@link OrderPricingContext},
+     * which only re-tests the promotions and re-calculates the lines whose inputs have changed.
      */
-    private List<OrderItemEntity> applyOrderItemPromotions(OrderEntity order, List<PromotionEntity> promotions) {
+    private List<OrderItemEntity> applyOrderItemPromotions(
+            OrderEntity order, List<PromotionEntity> promotions, OrderPricingContext context) {
         /**
          * The naive implementation updates *every* OrderItem after this function is run.
          * However, on a very large order with hundreds or thousands of OrderItems, this results in
@@ -88,7 +94,7 @@ public class OrderCalculator {
              * which affected the order price.
              */
             List<PromotionEntity> applicablePromotions = promotions.stream()
-                    .filter(p -> p.test(order)).collect(Collectors.toList());
+                    .filter(context::test).collect(Collectors.toList());
 
             boolean lineHasExistingPromotions = line.getItems().get(0).getPendingAdjustments().stream()
                                     .anyMatch(a -> a.getType() == AdjustmentType.PROMOTION);
@@ -96,6 +102,7 @@ public class OrderCalculator {
 
             if (forceUpdateItems || lineHasExistingPromotions) {
                 line.clearAdjustments(AdjustmentType.PROMOTION);
+                context.lineModified(line);
             }
             if (forceUpdateItems) {
                 /**
@@ -113,17 +120,25 @@ public class OrderCalculator {
                  * This is because the previous Promotions may have adjusted the Order in such a way
                  * as to render later promotions no longer applicable.
                  */
-                if (promotion.test(order)) {
-                    for(OrderItemEntity item : line.getItems()) {
-                        Adjustment adjustment = promotion.apply(item, line);
+                if (context.test(promotion)) {
+                    /**
+                     * The items of a group are priced identically, so a promotion whose actions only look at
+                     * the price of an item needs to be applied to one of them, no matter how large the quantity
+                     * of the line is. Any other promotion is applied to each item.
+                     */
+                    Collection<List<OrderItemEntity>> groups = promotion.isUniformPerItemGroup() ? line.getItemGroups() :
+                            line.getItems().stream().map(Collections::singletonList).collect(Collectors.toList());
+                    for(List<OrderItemEntity> group : groups) {
+                        Adjustment adjustment = promotion.apply(group.get(0), line);
                         if (adjustment != null) {
-                            item.getPendingAdjustments().add(adjustment);
+                            group.forEach(item -> item.getPendingAdjustments().add(adjustment));
                             priceAdjusted = true;
-                            updatedOrderItems.add(item);
+                            updatedOrderItems.addAll(group);
                         }
                     }
                     if (priceAdjusted) {
-                        this.calculatoOrderTotal(order);
+                        context.lineModified(line);
+                        context.calculateSubTotal();
                     }
                 }
             }
@@ -137,10 +152,10 @@ public class OrderCalculator {
                 /**
                  * If we are forcing an update, we need to ensure that totals get
                  * re-calculated *even if* there are no applicable promotions (i.e.
-                 * the other call to `this.calculateOrderTotals()` inside the `for...:`
+                 * the other call to `context.calculateSubTotal()` inside the `for...:`
                  * loop was never invoked).
                  */
-                this.calculatoOrderTotal(order);
+                context.calculateSubTotal();
             }
         }
         return new ArrayList<>(updatedOrderItems);
@@ -156,8 +171,8 @@ public class OrderCalculator {
      */
     private boolean orderLineHasInapplicablePromotions(
             List<PromotionEntity> applicablePromotions, OrderLineEntity line) {
-        List<String> applicablePromotionIds = applicablePromotions.stream()
-                .map(PromotionEntity::getSourceId).collect(Collectors.toList());
+        Set<String> applicablePromotionIds = applicablePromotions.stream()
+                .map(PromotionEntity::getSourceId).collect(Collectors.toSet());
         List<String> linePromotionIds = line.getAdjustments().stream()
                 .filter(a -> a.getType() == AdjustmentType.PROMOTION)
                 .map(Adjustment::getAdjustmentSource).collect(Collectors.toList());
@@ -166,22 +181,23 @@ public class OrderCalculator {
         return hasPromotionsThatAreNoLongerApplicable;
     }
 
-    private void applyOrderPromotions(OrderEntity order, List<PromotionEntity> promotions) {
+    private void applyOrderPromotions(
+            OrderEntity order, List<PromotionEntity> promotions, OrderPricingContext context) {
         order.clearAdjustments(AdjustmentType.PROMOTION);
         List<PromotionEntity> applicableOrderPromotions = promotions.stream()
-                .filter(p -> p.test(order)).collect(Collectors.toList());
+                .filter(context::test).collect(Collectors.toList());
         if (!CollectionUtils.isEmpty(applicableOrderPromotions)) {
             for (PromotionEntity promotion : applicableOrderPromotions) {
                 // re-test the promotion on each iteration, since the order total
                 // may be modified by a previously-applied promotion
-                if (promotion.test(order)) {
+                if (context.test(promotion)) {
                     Adjustment adjustment = promotion.apply(order);
                     if (adjustment != null) {
                         order.getPendingAdjustments().add(adjustment);
                     }
                 }
             }
-            this.calculatoOrderTotal(order);
+            context.calculateSubTotal();
         }
     }
 
@@ -199,13 +215,4 @@ public class OrderCalculator {
             order.setShipping(selected.getResult().getPrice());
         }
     }
-
-    private void calculatoOrderTotal(OrderEntity order) {
-        int totalPrice = 0;
-
-        for(OrderLineEntity line : order.getLines()) {
-            totalPrice += line.getTotalPrice();
-        }
-        order.setSubTotal(totalPrice);
-    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.order_calculator;
+
+import io.geekshop.config.promotion.OrderFact;
+import io.geekshop.entity.OrderEntity;
+import io.geekshop.entity.OrderLineEntity;
+import io.geekshop.entity.PromotionEntity;
+
+import java.util.*;
+
+/**
+ * The state of a single {@link OrderCalculator} run, which lets the calculator skip the work that does not need
+ * to be repeated for each OrderLine and each applied Promotion:
+ *
+ * * The subTotal is maintained incrementally, i.e. only the totals of the OrderLines which were modified since the
+ *   last calculation are calculated again.
+ * * The result of testing a Promotion is re-used as long as the {@link OrderFact}s it depends on are unchanged.
+ *   During a run only the prices of the OrderLines (and thereby the subTotal) change, so a Promotion which does not
+ *   depend on the subTotal is tested once, and one which does is tested again only when the subTotal has changed.
+ *   Promotions with conditions that do not declare their OrderFacts are tested every time.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+class OrderPricingContext {
+    private final OrderEntity order;
+    private final Map<OrderLineEntity, Integer> lineTotals = new IdentityHashMap<>();
+    private final Set<OrderLineEntity> modifiedLines = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<PromotionEntity, PromotionTest> promotionTests = new IdentityHashMap<>();
+    private int subTotal;
+
+    OrderPricingContext(OrderEntity order) {
+        this.order = order;
+    }
+
+    boolean test(PromotionEntity promotion) {
+        PromotionTest promotionTest = this.promotionTests.get(promotion);
+        if (promotionTest == null) {
+            promotionTest = new PromotionTest(promotion.getOrderFacts());
+            this.promotionTests.put(promotion, promotionTest);
+        }
+        if (promotionTest.orderFacts == null) {
+            return promotion.test(this.order);
+        }
+        Integer subTotal = promotionTest.orderFacts.contains(OrderFact.SUB_TOTAL) ? this.order.getSubTotal() : null;
+        if (!promotionTest.tested || !Objects.equals(promotionTest.subTotal, subTotal)) {
+            promotionTest.result = promotion.test(this.order);
+            promotionTest.subTotal = subTotal;
+            promotionTest.tested = true;
+        }
+        return promotionTest.result;
+    }
+
+    /**
+     * Marks the adjustments of the OrderLine as changed, so that its total is calculated again.
+     */
+    void lineModified(OrderLineEntity line) {
+        this.modifiedLines.add(line);
+    }
+
+    void calculateSubTotal() {
+        for(OrderLineEntity line : this.order.getLines()) {
+            Integer previousTotal = this.lineTotals.get(line);
+            if (previousTotal == null || this.modifiedLines.contains(line)) {
+                int lineTotal = line.getTotalPrice();
+                this.subTotal += lineTotal - (previousTotal == null ? 0 : previousTotal);
+                this.lineTotals.put(line, lineTotal);
+            }
+        }
+        this.modifiedLines.clear();
+        this.order.setSubTotal(this.subTotal);
+    }
+
+    private static class PromotionTest {
+        final Set<OrderFact> orderFacts;
+        boolean tested;
+        Integer subTotal;
+        boolean result;
+
+        PromotionTest(Set<OrderFact> orderFacts) {
+            this.orderFacts = orderFacts;
+        }
+    }
+}
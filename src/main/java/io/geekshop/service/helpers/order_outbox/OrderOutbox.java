@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.order_outbox;
+
+import io.geekshop.entity.AdministratorEntity;
+import io.geekshop.entity.OrderEntity;
+import io.geekshop.entity.OrderHistoryEntryEntity;
+import io.geekshop.entity.OrderOutboxEntryEntity;
+import io.geekshop.entity.OrderPromotionJoinEntity;
+import io.geekshop.mapper.OrderHistoryEntryEntityMapper;
+import io.geekshop.mapper.OrderOutboxEntryEntityMapper;
+import io.geekshop.mapper.OrderPromotionJoinEntityMapper;
+import io.geekshop.service.AdministratorService;
+import io.geekshop.service.ConfigService;
+import io.geekshop.service.HistoryService;
+import io.geekshop.service.PromotionService;
+import io.geekshop.service.args.CreateOrderHistoryEntryArgs;
+import io.geekshop.service.helpers.PromotionUsageCounter;
+import io.geekshop.types.history.HistoryEntryType;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the non-critical side-effects of Order, Payment and Refund transitions (see {@link OrderSideEffectType})
+ * either directly or, when `orderOptions.asyncSideEffectsEnabled` is set, through a transactional outbox:
+ *
+ * * The side-effect is recorded as an {@link OrderOutboxEntryEntity} in the transaction of the transition, so it
+ *   is committed (or rolled back) together with the new state.
+ * * After the commit, and every `orderOptions.outboxDrainInterval` milliseconds, a background thread drains the
+ *   outbox: the entries are applied in batches of `orderOptions.outboxBatchSize`, each batch in one transaction
+ *   which also deletes the applied entries.
+ * * If a batch fails, its entries are applied one by one, and a failing entry is retried later with an
+ *   exponential backoff. The entries of an Order are always applied in the order in which they were recorded,
+ *   so the later entries of an Order wait until its failing entry has been applied.
+ *
+ * An entry is deleted in the same transaction in which it is applied, and a batch is rolled back if any of its
+ * entries has already been deleted, so an entry is applied exactly once even if several instances drain the
+ * same outbox.
+ *
+ * Exposes the following metrics:
+ * * `geekshop.order.outbox.applied`: the number of applied entries
+ * * `geekshop.order.outbox.failed`: the number of failed attempts to apply an entry
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@Slf4j
+public class OrderOutbox {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final long MIN_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 10 * 60 * 1000;
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final ConfigService configService;
+    private final HistoryService historyService;
+    private final PromotionService promotionService;
+    private final AdministratorService administratorService;
+    private final OrderOutboxEntryEntityMapper orderOutboxEntryEntityMapper;
+    private final OrderHistoryEntryEntityMapper orderHistoryEntryEntityMapper;
+    private final OrderPromotionJoinEntityMapper orderPromotionJoinEntityMapper;
+    private final PromotionUsageCounter promotionUsageCounter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter appliedCounter;
+    private final Counter failedCounter;
+    private final AtomicBoolean drainPending = new AtomicBoolean();
+    private final Object drainLock = new Object();
+    private ScheduledExecutorService scheduler;
+
+    public OrderOutbox(ConfigService configService,
+                       HistoryService historyService,
+                       PromotionService promotionService,
+                       AdministratorService administratorService,
+                       OrderOutboxEntryEntityMapper orderOutboxEntryEntityMapper,
+                       OrderHistoryEntryEntityMapper orderHistoryEntryEntityMapper,
+                       OrderPromotionJoinEntityMapper orderPromotionJoinEntityMapper,
+                       PromotionUsageCounter promotionUsageCounter,
+                       TransactionTemplate transactionTemplate,
+                       MeterRegistry meterRegistry) {
+        this.configService = configService;
+        this.historyService = historyService;
+        this.promotionService = promotionService;
+        this.administratorService = administratorService;
+        this.orderOutboxEntryEntityMapper = orderOutboxEntryEntityMapper;
+        this.orderHistoryEntryEntityMapper = orderHistoryEntryEntityMapper;
+        this.orderPromotionJoinEntityMapper = orderPromotionJoinEntityMapper;
+        this.promotionUsageCounter = promotionUsageCounter;
+        this.transactionTemplate = transactionTemplate;
+        this.appliedCounter = meterRegistry.counter("geekshop.order.outbox.applied");
+        this.failedCounter = meterRegistry.counter("geekshop.order.outbox.failed");
+    }
+
+    @PostConstruct
+    void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "OrderOutbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = this.configService.getOrderOptions().getOutboxDrainInterval();
+        if (interval > 0) {
+            this.scheduler.scheduleWithFixedDelay(this::drainSafely, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    public void createHistoryEntryForOrder(CreateOrderHistoryEntryArgs args) {
+        if (!this.configService.getOrderOptions().isAsyncSideEffectsEnabled()) {
+            this.historyService.createHistoryEntryForOrder(args);
+            return;
+        }
+        HistoryEntryPayload payload = new HistoryEntryPayload();
+        payload.setType(args.getType());
+        payload.setUserId(args.getCtx().getActiveUserId());
+        payload.setData(args.getData());
+        this.record(args.getOrderId(), OrderSideEffectType.HISTORY_ENTRY, payload);
+    }
+
+    public void addPromotionsToOrder(OrderEntity order) {
+        if (!this.configService.getOrderOptions().isAsyncSideEffectsEnabled()) {
+            this.promotionService.addPromotionsToOrder(order);
+            return;
+        }
+        Set<Long> promotionIds = this.promotionService.getAppliedPromotionIds(order);
+        if (promotionIds.isEmpty()) return;
+        // the usages count towards the perCustomerUsageLimit right away, only the record of the Promotions is deferred
+        this.promotionUsageCounter.addUsages(order.getCustomerId(), promotionIds, 1);
+        OrderPromotionsPayload payload = new OrderPromotionsPayload();
+        payload.setCustomerId(order.getCustomerId());
+        payload.setPromotionIds(new ArrayList<>(promotionIds));
+        this.record(order.getId(), OrderSideEffectType.ORDER_PROMOTIONS, payload);
+    }
+
+    public void removePromotionUsagesOfOrder(OrderEntity order) {
+        if (!this.configService.getOrderOptions().isAsyncSideEffectsEnabled()) {
+            this.promotionService.removePromotionUsagesOfOrder(order);
+            return;
+        }
+        this.promotionUsageCounter.addUsages(order.getCustomerId(), this.getRecordedPromotionIds(order.getId()), -1);
+    }
+
+    /**
+     * Returns the ids of the Promotions recorded for the Order, including those whose record is still in the
+     * outbox. The outbox is read first, so that a record applied in the meantime is found in the join table.
+     */
+    private Set<Long> getRecordedPromotionIds(Long orderId) {
+        QueryWrapper<OrderOutboxEntryEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(OrderOutboxEntryEntity::getOrderId, orderId)
+                .eq(OrderOutboxEntryEntity::getType, OrderSideEffectType.ORDER_PROMOTIONS);
+        Set<Long> promotionIds = new HashSet<>();
+        for(OrderOutboxEntryEntity entry : this.orderOutboxEntryEntityMapper.selectList(queryWrapper)) {
+            promotionIds.addAll(this.fromJson(entry.getPayload(), OrderPromotionsPayload.class).getPromotionIds());
+        }
+        promotionIds.addAll(this.promotionService.getRecordedPromotionIds(orderId));
+        return promotionIds;
+    }
+
+    private void record(Long orderId, OrderSideEffectType type, Object payload) {
+        OrderOutboxEntryEntity entry = new OrderOutboxEntryEntity();
+        entry.setOrderId(orderId);
+        entry.setType(type);
+        entry.setPayload(this.toJson(payload));
+        entry.setNextAttemptAt(new Date());
+        this.orderOutboxEntryEntityMapper.insert(entry);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    OrderOutbox.this.scheduleDrain();
+                }
+            });
+        } else {
+            this.scheduleDrain();
+        }
+    }
+
+    /**
+     * Drains the outbox in the background, unless a drain is already pending.
+     */
+    private void scheduleDrain() {
+        if (this.drainPending.compareAndSet(false, true)) {
+            this.scheduler.execute(() -> {
+                this.drainPending.set(false);
+                this.drainSafely();
+            });
+        }
+    }
+
+    /**
+     * Applies all entries of the outbox which are due, and returns their number.
+     */
+    public int drain() {
+        synchronized (this.drainLock) {
+            int batchSize = this.configService.getOrderOptions().getOutboxBatchSize();
+            Date now = new Date();
+            Set<Long> blockedOrderIds = new HashSet<>();
+            long lastId = 0;
+            int applied = 0;
+            while (true) {
+                QueryWrapper<OrderOutboxEntryEntity> queryWrapper = new QueryWrapper<>();
+                queryWrapper.lambda().gt(OrderOutboxEntryEntity::getId, lastId)
+                        .orderByAsc(OrderOutboxEntryEntity::getId);
+                queryWrapper.last("limit " + batchSize);
+                List<OrderOutboxEntryEntity> entries = this.orderOutboxEntryEntityMapper.selectList(queryWrapper);
+                if (entries.isEmpty()) break;
+                lastId = entries.get(entries.size() - 1).getId();
+
+                List<OrderOutboxEntryEntity> dueEntries = new ArrayList<>();
+                for(OrderOutboxEntryEntity entry : entries) {
+                    if (blockedOrderIds.contains(entry.getOrderId())) continue;
+                    if (entry.getNextAttemptAt() != null && entry.getNextAttemptAt().after(now)) {
+                        // an entry waiting for its retry holds back all later entries of its Order
+                        blockedOrderIds.add(entry.getOrderId());
+                        continue;
+                    }
+                    dueEntries.add(entry);
+                }
+                applied += this.applyBatch(dueEntries, blockedOrderIds);
+                if (entries.size() < batchSize) break;
+            }
+            return applied;
+        }
+    }
+
+    private int applyBatch(List<OrderOutboxEntryEntity> entries, Set<Long> blockedOrderIds) {
+        if (entries.isEmpty()) return 0;
+        if (entries.size() > 1) {
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> this.apply(entries));
+                this.appliedCounter.increment(entries.size());
+                return entries.size();
+            } catch (Exception ex) {
+                log.debug("Failed to apply a batch of outbox entries, applying them one by one", ex);
+            }
+        }
+        int applied = 0;
+        for(OrderOutboxEntryEntity entry : entries) {
+            if (blockedOrderIds.contains(entry.getOrderId())) continue;
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> this.apply(Collections.singletonList(entry)));
+                this.appliedCounter.increment();
+                applied++;
+            } catch (AlreadyAppliedException ex) {
+                // applied by another instance in the meantime
+            } catch (Exception ex) {
+                blockedOrderIds.add(entry.getOrderId());
+                this.recordFailure(entry, ex);
+            }
+        }
+        return applied;
+    }
+
+    private void apply(List<OrderOutboxEntryEntity> entries) {
+        // deleting the entries first locks them, so that no other instance can apply them concurrently
+        List<Long> ids = entries.stream().map(OrderOutboxEntryEntity::getId).collect(Collectors.toList());
+        if (this.orderOutboxEntryEntityMapper.deleteBatchIds(ids) != ids.size()) {
+            throw new AlreadyAppliedException();
+        }
+
+        List<OrderHistoryEntryEntity> historyEntries = new ArrayList<>();
+        List<OrderPromotionJoinEntity> joinEntities = new ArrayList<>();
+        Map<Long, Long> administratorIdByUserId = new HashMap<>();
+        for(OrderOutboxEntryEntity entry : entries) {
+            switch (entry.getType()) {
+                case HISTORY_ENTRY:
+                    HistoryEntryPayload historyEntryPayload =
+                            this.fromJson(entry.getPayload(), HistoryEntryPayload.class);
+                    OrderHistoryEntryEntity historyEntry = new OrderHistoryEntryEntity();
+                    historyEntry.setOrderId(entry.getOrderId());
+                    historyEntry.setType(historyEntryPayload.getType());
+                    historyEntry.setData(historyEntryPayload.getData());
+                    historyEntry.setAdministratorId(
+                            this.getAdministratorId(historyEntryPayload.getUserId(), administratorIdByUserId));
+                    // keep the time and user of the transition, rather than those of the drain
+                    historyEntry.setCreatedAt(entry.getCreatedAt());
+                    historyEntry.setCreatedBy(entry.getCreatedBy());
+                    historyEntries.add(historyEntry);
+                    break;
+                case ORDER_PROMOTIONS:
+                    OrderPromotionsPayload orderPromotionsPayload =
+                            this.fromJson(entry.getPayload(), OrderPromotionsPayload.class);
+                    for(Long promotionId : orderPromotionsPayload.getPromotionIds()) {
+                        OrderPromotionJoinEntity joinEntity = new OrderPromotionJoinEntity();
+                        joinEntity.setOrderId(entry.getOrderId());
+                        joinEntity.setPromotionId(promotionId);
+                        joinEntities.add(joinEntity);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown order side-effect type { " + entry.getType() + " }");
+            }
+        }
+        this.orderHistoryEntryEntityMapper.insertBatch(historyEntries);
+        this.orderPromotionJoinEntityMapper.insertBatch(joinEntities);
+    }
+
+    private Long getAdministratorId(Long userId, Map<Long, Long> administratorIdByUserId) {
+        if (userId == null) return null;
+        if (!administratorIdByUserId.containsKey(userId)) {
+            AdministratorEntity administratorEntity = this.administratorService.findOneEntityByUserId(userId);
+            administratorIdByUserId.put(userId, administratorEntity == null ? null : administratorEntity.getId());
+        }
+        return administratorIdByUserId.get(userId);
+    }
+
+    private void recordFailure(OrderOutboxEntryEntity entry, Exception ex) {
+        this.failedCounter.increment();
+        int attempts = entry.getAttempts() + 1;
+        long delay = MAX_RETRY_DELAY;
+        if (attempts < 30) {
+            delay = Math.min(MIN_RETRY_DELAY << (attempts - 1), MAX_RETRY_DELAY);
+        }
+        log.warn("Failed to apply outbox entry { " + entry.getId() + " } of Order { " + entry.getOrderId() +
+                " } (attempt " + attempts + "), retrying in " + delay + " ms", ex);
+        OrderOutboxEntryEntity update = new OrderOutboxEntryEntity();
+        update.setId(entry.getId());
+        update.setAttempts(attempts);
+        update.setNextAttemptAt(new Date(System.currentTimeMillis() + delay));
+        update.setLastError(StringUtils.abbreviate(String.valueOf(ex.getMessage()), MAX_ERROR_LENGTH));
+        try {
+            this.orderOutboxEntryEntityMapper.updateById(update);
+        } catch (Exception updateEx) {
+            log.error("Failed to record the failure of outbox entry { " + entry.getId() + " }", updateEx);
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            this.drain();
+        } catch (Exception ex) {
+            log.error("Failed to drain the order outbox", ex);
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to encode the payload of an order side-effect", ex);
+        }
+    }
+
+    private <T> T fromJson(String payload, Class<T> payloadType) {
+        try {
+            return objectMapper.readValue(payload, payloadType);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to decode the payload of an order side-effect", ex);
+        }
+    }
+
+    @Data
+    static class HistoryEntryPayload {
+        private HistoryEntryType type;
+        private Long userId;
+        private Map<String, String> data = new HashMap<>();
+    }
+
+    @Data
+    static class OrderPromotionsPayload {
+        private Long customerId;
+        private List<Long> promotionIds = new ArrayList<>();
+    }
+
+    private static class AlreadyAppliedException extends RuntimeException {
+    }
+}
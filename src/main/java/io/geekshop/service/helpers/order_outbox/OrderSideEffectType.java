@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.order_outbox;
+
+/**
+ * The side-effects of Order transitions which may be applied asynchronously by the {@link OrderOutbox}.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public enum OrderSideEffectType {
+    /**
+     * Creates an OrderHistoryEntry.
+     */
+    HISTORY_ENTRY,
+    /**
+     * Records which Promotions have been used by a placed Order. Their usages by the Customer are counted right
+     * away, in the transaction of the transition, so that the `perCustomerUsageLimit` cannot be exceeded.
+     */
+    ORDER_PROMOTIONS
+}
@@ -7,8 +7,11 @@ package io.geekshop.service.helpers.order_state_machine;
 
 import io.geekshop.common.RequestContext;
 import io.geekshop.common.fsm.FSM;
-import io.geekshop.common.fsm.StateMachineConfig;
+import io.geekshop.common.fsm.TransitionTable;
+import io.geekshop.common.fsm.TransitionTableConfig;
 import io.geekshop.common.fsm.Transitions;
+import io.geekshop.config.order.CustomOrderProcess;
+import io.geekshop.config.order.OrderProcessOptions;
 import io.geekshop.entity.FulfillmentEntity;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.OrderItemEntity;
@@ -17,12 +20,12 @@ import io.geekshop.exception.IllegalOperationException;
 import io.geekshop.mapper.OrderEntityMapper;
 import io.geekshop.mapper.OrderItemEntityMapper;
 import io.geekshop.mapper.OrderLineEntityMapper;
-import io.geekshop.service.HistoryService;
-import io.geekshop.service.PromotionService;
+import io.geekshop.service.ConfigService;
 import io.geekshop.service.StockMovementService;
 import io.geekshop.service.args.CreateOrderHistoryEntryArgs;
 import io.geekshop.service.helpers.OrderHelper;
 import io.geekshop.service.helpers.ServiceHelper;
+import io.geekshop.service.helpers.order_outbox.OrderOutbox;
 import io.geekshop.service.helpers.payment_state_machine.PaymentState;
 import io.geekshop.types.history.HistoryEntryType;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
@@ -46,32 +49,37 @@ public class OrderStateMachine {
     private final OrderHelper orderHelper;
     private final OrderEntityMapper orderEntityMapper;
     private final StockMovementService stockMovementService;
-    private final PromotionService promotionService;
-    private final HistoryService historyService;
+    private final OrderOutbox orderOutbox;
+    private final ConfigService configService;
+    private final OrderProcessOptions orderProcessOptions;
 
     private final OrderState initialState = OrderState.AddingItems;
-    private StateMachineConfig<OrderState, OrderTransitionData> config;
+    private TransitionTableConfig<OrderState, OrderTransitionData> config;
 
     public OrderState getInitialState() {
         return this.initialState;
     }
 
     public boolean canTransition(OrderState currentState, OrderState newState) {
-        return new FSM(this.config, currentState).canTransitionTo(newState);
+        return this.config.canTransition(currentState, newState);
     }
 
     public List<OrderState> getNextStates(OrderEntity orderEntity) {
-        FSM<OrderState, OrderTransitionData> fsm = new FSM(this.config, orderEntity.getState());
-        return fsm.getNextStates();
+        return this.config.getNextStates(orderEntity.getState());
     }
 
     public void transition(RequestContext ctx, OrderEntity orderEntity, OrderState state) {
-        FSM<OrderState, OrderTransitionData> fsm = new FSM(this.config, orderEntity.getState());
         OrderTransitionData data = new OrderTransitionData();
         data.setCtx(ctx);
         data.setOrderEntity(orderEntity);
-        fsm.transitionTo(state, data);
-        orderEntity.setState(fsm.getCurrentState());
+        orderEntity.setState(FSM.transition(this.config, orderEntity.getState(), state, data));
+    }
+
+    /**
+     * Returns the permitted transitions of the Order process, including those of any {@link CustomOrderProcess}.
+     */
+    public TransitionTable<OrderState> getTransitionTable() {
+        return this.config.getTransitionTable();
     }
 
     /**
@@ -114,6 +122,12 @@ public class OrderStateMachine {
                 return "Cannot transition Order to the \"Fulfilled\" state unless all OrderItems are fulfilled";
             }
         }
+        for(CustomOrderProcess process : this.orderProcessOptions.getProcess()) {
+            Object result = process.onTransitionStart(fromState, toState, data);
+            if (Boolean.FALSE.equals(result) || result instanceof String) {
+                return result;
+            }
+        }
         return null;
     }
 
@@ -121,14 +135,26 @@ public class OrderStateMachine {
      * Specific business logic to be executed after Order state transition completes.
      */
     private void onTransitionEnd(OrderState fromState, OrderState toState, OrderTransitionData data) {
+        if (toState == OrderState.ArrangingPayment &&
+                this.configService.getOrderOptions().isStockAllocationEnabled()) {
+            this.stockMovementService.createAllocationsForOrder(data.getOrderEntity());
+        }
+        if (fromState == OrderState.ArrangingPayment &&
+                (toState == OrderState.AddingItems || toState == OrderState.Cancelled)) {
+            this.stockMovementService.createReleasesForOrder(data.getOrderEntity());
+        }
         if (toState == OrderState.PaymentAuthorized || toState == OrderState.PaymentSettled) {
             data.getOrderEntity().setActive(false);
             data.getOrderEntity().setOrderPlacedAt(new Date());
             this.stockMovementService.createSalesForOrder(data.getOrderEntity());
-            this.promotionService.addPromotionsToOrder(data.getOrderEntity());
+            this.orderOutbox.addPromotionsToOrder(data.getOrderEntity());
         }
         if (toState == OrderState.Cancelled) {
             data.getOrderEntity().setActive(false);
+            if (fromState != OrderState.AddingItems && fromState != OrderState.ArrangingPayment) {
+                // the Order was placed, so its Promotions have been recorded
+                this.orderOutbox.removePromotionUsagesOfOrder(data.getOrderEntity());
+            }
         }
         CreateOrderHistoryEntryArgs args = ServiceHelper.buildCreateOrderHistoryEntryArgs(
                 data.getCtx(),
@@ -136,17 +162,20 @@ public class OrderStateMachine {
                 HistoryEntryType.ORDER_STATE_TRANSITION,
                 ImmutableMap.of("from", fromState.name(), "to", toState.name())
         );
-        this.historyService.createHistoryEntryForOrder(args);
+        this.orderOutbox.createHistoryEntryForOrder(args);
+        for(CustomOrderProcess process : this.orderProcessOptions.getProcess()) {
+            process.onTransitionEnd(fromState, toState, data);
+        }
     }
 
     @PostConstruct
     void initConfig() {
-        this.config = new StateMachineConfig<OrderState, OrderTransitionData>() {
-            @Override
-            public Transitions<OrderState> getTransitions() {
-                return OrderStateMachine.this.getOrderStateTransitions();
-            }
-
+        TransitionTable<OrderState> transitionTable =
+                TransitionTable.of(OrderState.class, this.getOrderStateTransitions());
+        for(CustomOrderProcess process : this.orderProcessOptions.getProcess()) {
+            transitionTable = transitionTable.merge(process.getTransitions());
+        }
+        this.config = new TransitionTableConfig<OrderState, OrderTransitionData>(transitionTable) {
             @Override
             public Object onTransitionStart(
                     OrderState fromState, OrderState toState, OrderTransitionData orderTransitionData) {
@@ -169,7 +198,10 @@ public class OrderStateMachine {
         };
     }
 
-    public Transitions<OrderState> getOrderStateTransitions() {
+    /**
+     * The transitions of the default Order process.
+     */
+    private Transitions<OrderState> getOrderStateTransitions() {
         Transitions<OrderState> transitions = new Transitions<>();
         transitions.put(OrderState.AddingItems,
                 Arrays.asList(
@@ -7,15 +7,16 @@ package io.geekshop.service.helpers.payment_state_machine;
 
 import io.geekshop.common.RequestContext;
 import io.geekshop.common.fsm.FSM;
-import io.geekshop.common.fsm.StateMachineConfig;
+import io.geekshop.common.fsm.TransitionTable;
+import io.geekshop.common.fsm.TransitionTableConfig;
 import io.geekshop.common.fsm.Transitions;
 import io.geekshop.config.payment_method.PaymentMethodHandler;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.PaymentEntity;
 import io.geekshop.exception.IllegalOperationException;
 import io.geekshop.service.ConfigService;
-import io.geekshop.service.HistoryService;
 import io.geekshop.service.args.CreateOrderHistoryEntryArgs;
+import io.geekshop.service.helpers.order_outbox.OrderOutbox;
 import io.geekshop.types.history.HistoryEntryType;
 import com.google.common.collect.ImmutableMap;
 import lombok.RequiredArgsConstructor;
@@ -33,36 +34,29 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class PaymentStateMachine {
     private final ConfigService configService;
-    private final HistoryService historyService;
+    private final OrderOutbox orderOutbox;
 
-    private StateMachineConfig<PaymentState, PaymentTransitionData> config;
+    private TransitionTableConfig<PaymentState, PaymentTransitionData> config;
 
     public List<PaymentState> getNextStates(PaymentEntity paymentEntity) {
-        FSM<PaymentState, PaymentTransitionData> fsm = new FSM<>(this.config, paymentEntity.getState());
-        return fsm.getNextStates();
+        return this.config.getNextStates(paymentEntity.getState());
     }
 
     public void transition(
             RequestContext ctx, OrderEntity orderEntity, PaymentEntity paymentEntity, PaymentState state) {
-        FSM<PaymentState, PaymentTransitionData> fsm = new FSM<>(this.config, paymentEntity.getState());
         PaymentTransitionData data = new PaymentTransitionData();
         data.setCtx(ctx);
         data.setOrderEntity(orderEntity);
         data.setPaymentEntity(paymentEntity);
-        fsm.transitionTo(state, data);
-        paymentEntity.setState(fsm.getCurrentState());
+        paymentEntity.setState(FSM.transition(this.config, paymentEntity.getState(), state, data));
     }
 
     @PostConstruct
     void initConfig() {
         final List<PaymentMethodHandler> paymentMethodHandlers =
                 this.configService.getPaymentOptions().getPaymentMethodHandlers();
-        this.config = new StateMachineConfig<PaymentState, PaymentTransitionData>() {
-            @Override
-            public Transitions<PaymentState> getTransitions() {
-                return getPaymentStateTransitions();
-            }
-
+        this.config = new TransitionTableConfig<PaymentState, PaymentTransitionData>(
+                TransitionTable.of(PaymentState.class, this.getPaymentStateTransitions())) {
             @Override
             public Object onTransitionStart(
                     PaymentState fromState, PaymentState toState, PaymentTransitionData data) {
@@ -85,7 +79,7 @@ public class PaymentStateMachine {
                         "paymentId", data.getPaymentEntity().getId().toString(),
                         "from", fromState.name(),
                         "to", toState.name()));
-                PaymentStateMachine.this.historyService.createHistoryEntryForOrder(args);
+                PaymentStateMachine.this.orderOutbox.createHistoryEntryForOrder(args);
             }
 
             @Override
@@ -7,13 +7,14 @@ package io.geekshop.service.helpers.refund_state_machine;
 
 import io.geekshop.common.RequestContext;
 import io.geekshop.common.fsm.FSM;
-import io.geekshop.common.fsm.StateMachineConfig;
+import io.geekshop.common.fsm.TransitionTable;
+import io.geekshop.common.fsm.TransitionTableConfig;
 import io.geekshop.common.fsm.Transitions;
 import io.geekshop.entity.OrderEntity;
 import io.geekshop.entity.RefundEntity;
 import io.geekshop.exception.IllegalOperationException;
-import io.geekshop.service.HistoryService;
 import io.geekshop.service.args.CreateOrderHistoryEntryArgs;
+import io.geekshop.service.helpers.order_outbox.OrderOutbox;
 import io.geekshop.types.history.HistoryEntryType;
 import com.google.common.collect.ImmutableMap;
 import lombok.RequiredArgsConstructor;
@@ -29,33 +30,26 @@ import java.util.List;
 @Component
 @RequiredArgsConstructor
 public class RefundStateMachine {
-    private final HistoryService historyService;
+    private final OrderOutbox orderOutbox;
 
-    private StateMachineConfig<RefundState, RefundTransitionData> config;
+    private TransitionTableConfig<RefundState, RefundTransitionData> config;
 
     public List<RefundState> getNextStates(RefundEntity refundEntity) {
-        FSM<RefundState, RefundTransitionData> fsm = new FSM<>(this.config, refundEntity.getState());
-        return fsm.getNextStates();
+        return this.config.getNextStates(refundEntity.getState());
     }
 
     public void transition(RequestContext ctx, OrderEntity orderEntity, RefundEntity refundEntity, RefundState state) {
-        FSM<RefundState, RefundTransitionData> fsm = new FSM<>(this.config, refundEntity.getState());
         RefundTransitionData data = new RefundTransitionData();
         data.setCtx(ctx);
         data.setOrderEntity(orderEntity);
         data.setRefundEntity(refundEntity);
-        fsm.transitionTo(state, data);
-        refundEntity.setState(fsm.getCurrentState());
+        refundEntity.setState(FSM.transition(this.config, refundEntity.getState(), state, data));
     }
 
     @PostConstruct
     void initConfig() {
-        this.config = new StateMachineConfig<RefundState, RefundTransitionData>() {
-            @Override
-            public Transitions<RefundState> getTransitions() {
-                return RefundStateMachine.this.getRefundStateTransitions();
-            }
-
+        this.config = new TransitionTableConfig<RefundState, RefundTransitionData>(
+                TransitionTable.of(RefundState.class, this.getRefundStateTransitions())) {
             @Override
             public Object onTransitionStart(
                     RefundState fromState, RefundState toState, RefundTransitionData refundTransitionData) {
@@ -74,7 +68,7 @@ public class RefundStateMachine {
                         "from", fromState.name(),
                         "to", toState.name(),
                         "reason", data.getRefundEntity().getReason()));
-                RefundStateMachine.this.historyService.createHistoryEntryForOrder(args);
+                RefundStateMachine.this.orderOutbox.createHistoryEntryForOrder(args);
             }
 
             @Override
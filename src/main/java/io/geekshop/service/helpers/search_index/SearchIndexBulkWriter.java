@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.search_index;
+
+import io.geekshop.common.Constant;
+import io.geekshop.entity.SearchIndexItemEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Writes a complete search index into a set of shadow tables with JDBC batch inserts, and then swaps
+ * the shadow tables with the live ones. Searches keep being served from the live tables for the whole
+ * duration of a reindex.
+ *
+ * The live tables become the shadow tables after a swap, and are emptied at the start of the next reindex.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchIndexBulkWriter {
+    private static final String SHADOW_SUFFIX = "_shadow";
+    private static final String SWAP_SUFFIX = "_swap";
+    private static final List<String> TABLES = Arrays.asList(
+            "tb_search_index_item",
+            "tb_search_index_facet_value",
+            "tb_search_index_collection"
+    );
+
+    private static final String SELECT_VERSION = "select version from tb_search_index_version where id = 1";
+    private static final String UPDATE_VERSION = "update tb_search_index_version set version = ? where id = 1";
+    private static final String INSERT_VERSION = "insert into tb_search_index_version (id, version) values (1, ?)";
+
+    private static final String INSERT_ITEM = "insert into tb_search_index_item" + SHADOW_SUFFIX + " (" +
+            "product_variant_id, product_id, enabled, product_name, product_variant_name, description, " +
+            "slug, sku, price, facet_ids, facet_value_ids, collection_ids, collection_slugs, " +
+            "product_preview, product_preview_focal_point, product_variant_preview, " +
+            "product_variant_preview_focal_point, product_asset_id, product_variant_asset_id) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FACET_VALUE = "insert into tb_search_index_facet_value" + SHADOW_SUFFIX +
+            " (product_variant_id, facet_value_id) values (?, ?)";
+    private static final String INSERT_COLLECTION = "insert into tb_search_index_collection" + SHADOW_SUFFIX +
+            " (product_variant_id, collection_id, collection_slug) values (?, ?, ?)";
+
+    // same (default) serialization as the LongListTypeHandler & JacksonTypeHandler of the entity
+    private static ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${database:h2}")
+    private String dbName;
+
+    /**
+     * Empties the shadow tables, ready for a new index to be written.
+     */
+    public void prepare() {
+        for (String table : TABLES) {
+            this.jdbcTemplate.execute("truncate table " + table + SHADOW_SUFFIX);
+        }
+    }
+
+    /**
+     * Writes the items, along with their facet value & collection join rows, to the shadow tables.
+     * One JDBC batch is issued per table.
+     */
+    public void write(List<SearchIndexItemEntity> items) {
+        if (items.isEmpty()) return;
+
+        List<Object[]> itemRows = new ArrayList<>(items.size());
+        List<Object[]> facetValueRows = new ArrayList<>();
+        List<Object[]> collectionRows = new ArrayList<>();
+        for (SearchIndexItemEntity item : items) {
+            itemRows.add(new Object[] {
+                    item.getProductVariantId(),
+                    item.getProductId(),
+                    item.isEnabled(),
+                    item.getProductName(),
+                    item.getProductVariantName(),
+                    item.getDescription(),
+                    item.getSlug(),
+                    item.getSku(),
+                    item.getPrice(),
+                    toJson(item.getFacetIds()),
+                    toJson(item.getFacetValueIds()),
+                    toJson(item.getCollectionIds()),
+                    toJson(item.getCollectionSlugs()),
+                    item.getProductPreview(),
+                    toJson(item.getProductPreviewFocalPoint()),
+                    item.getProductVariantPreview(),
+                    toJson(item.getProductVariantPreviewFocalPoint()),
+                    item.getProductAssetId(),
+                    item.getProductVariantAssetId()
+            });
+            for (Long facetValueId : new LinkedHashSet<>(item.getFacetValueIds())) {
+                facetValueRows.add(new Object[] { item.getProductVariantId(), facetValueId });
+            }
+            for (int i = 0; i < item.getCollectionIds().size(); i++) {
+                collectionRows.add(new Object[] {
+                        item.getProductVariantId(), item.getCollectionIds().get(i), item.getCollectionSlugs().get(i)
+                });
+            }
+        }
+
+        this.jdbcTemplate.batchUpdate(INSERT_ITEM, itemRows);
+        if (!facetValueRows.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(INSERT_FACET_VALUE, facetValueRows);
+        }
+        if (!collectionRows.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(INSERT_COLLECTION, collectionRows);
+        }
+    }
+
+    /**
+     * Makes the shadow tables live. On MySQL all tables are swapped by a single, atomic `rename table`.
+     * H2 only supports renaming one table per statement, so there is a brief moment during which a
+     * table is missing; acceptable for an embedded development database.
+     */
+    public void swap() {
+        if (Constant.DB_NAME_H2.equalsIgnoreCase(this.dbName)) {
+            for (String table : TABLES) {
+                this.jdbcTemplate.execute("alter table " + table + " rename to " + table + SWAP_SUFFIX);
+                this.jdbcTemplate.execute("alter table " + table + SHADOW_SUFFIX + " rename to " + table);
+                this.jdbcTemplate.execute("alter table " + table + SWAP_SUFFIX + " rename to " + table + SHADOW_SUFFIX);
+            }
+        } else {
+            StringJoiner renames = new StringJoiner(", ", "rename table ", "");
+            for (String table : TABLES) {
+                renames.add(table + " to " + table + SWAP_SUFFIX);
+                renames.add(table + SHADOW_SUFFIX + " to " + table);
+                renames.add(table + SWAP_SUFFIX + " to " + table + SHADOW_SUFFIX);
+            }
+            this.jdbcTemplate.execute(renames.toString());
+        }
+    }
+
+    /**
+     * Returns the version of the indexing which built the live tables, or 0 if none was recorded.
+     */
+    public int getIndexVersion() {
+        List<Integer> versions = this.jdbcTemplate.queryForList(SELECT_VERSION, Integer.class);
+        return versions.isEmpty() || versions.get(0) == null ? 0 : versions.get(0);
+    }
+
+    public void setIndexVersion(int version) {
+        if (this.jdbcTemplate.update(UPDATE_VERSION, version) == 0) {
+            this.jdbcTemplate.update(INSERT_VERSION, version);
+        }
+    }
+
+    private static String toJson(Object value) {
+        if (value == null) return null;
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
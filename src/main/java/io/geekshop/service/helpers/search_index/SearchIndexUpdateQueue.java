@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.search_index;
+
+import io.geekshop.entity.AssetEntity;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.SearchIndexService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A dedicated queue for search index updates. Bulk admin edits and imports emit many events for the same
+ * Products and ProductVariants in quick succession, so rather than updating the index for each event,
+ * the ids are collected (last operation wins per id) for the configured window and then flushed as one
+ * batched call per operation type on a single background thread.
+ *
+ * Exposes the following metrics:
+ * * `geekshop.search.index.queue.depth`: the number of distinct pending ids
+ * * `geekshop.search.index.queue.events`: the number of index operations enqueued
+ * * `geekshop.search.index.queue.flush`: the latency of each flush
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@Slf4j
+public class SearchIndexUpdateQueue {
+    private enum Operation { UPDATE, DELETE }
+
+    private final SearchIndexService searchIndexService;
+    private final long windowMs;
+    private final int maxBatchSize;
+
+    private final Map<Long, Operation> pendingProducts = new LinkedHashMap<>();
+    private final Map<Long, Operation> pendingVariants = new LinkedHashMap<>();
+    private final Map<Long, AssetEntity> pendingAssetUpdates = new LinkedHashMap<>();
+    private final Set<Long> pendingAssetDeletes = new LinkedHashSet<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SearchIndexQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Counter eventCounter;
+    private final Timer flushTimer;
+
+    public SearchIndexUpdateQueue(SearchIndexService searchIndexService,
+                                  ConfigOptions configOptions,
+                                  MeterRegistry meterRegistry) {
+        this.searchIndexService = searchIndexService;
+        this.windowMs = configOptions.getSearchOptions().getIndexUpdateWindow();
+        this.maxBatchSize = configOptions.getSearchOptions().getIndexUpdateMaxBatchSize();
+
+        meterRegistry.gauge("geekshop.search.index.queue.depth", this, SearchIndexUpdateQueue::getDepth);
+        this.eventCounter = meterRegistry.counter("geekshop.search.index.queue.events");
+        this.flushTimer = meterRegistry.timer("geekshop.search.index.queue.flush");
+    }
+
+    public void updateProduct(Long productId) {
+        enqueue(() -> pendingProducts.put(productId, Operation.UPDATE));
+    }
+
+    public void deleteProduct(Long productId) {
+        enqueue(() -> pendingProducts.put(productId, Operation.DELETE));
+    }
+
+    public void updateVariants(Collection<Long> variantIds) {
+        enqueue(() -> variantIds.forEach(id -> pendingVariants.put(id, Operation.UPDATE)));
+    }
+
+    public void deleteVariants(Collection<Long> variantIds) {
+        enqueue(() -> variantIds.forEach(id -> pendingVariants.put(id, Operation.DELETE)));
+    }
+
+    public void updateAsset(AssetEntity asset) {
+        enqueue(() -> {
+            pendingAssetDeletes.remove(asset.getId());
+            pendingAssetUpdates.put(asset.getId(), asset);
+        });
+    }
+
+    public void deleteAsset(Long assetId) {
+        enqueue(() -> {
+            pendingAssetUpdates.remove(assetId);
+            pendingAssetDeletes.add(assetId);
+        });
+    }
+
+    public synchronized int getDepth() {
+        return pendingProducts.size() + pendingVariants.size() +
+                pendingAssetUpdates.size() + pendingAssetDeletes.size();
+    }
+
+    /**
+     * Whether there are neither pending nor in-flight updates.
+     */
+    public synchronized boolean isIdle() {
+        return getDepth() == 0 && !flushing.get();
+    }
+
+    /**
+     * Applies all pending updates to the index on the calling thread. Only one flush runs at a time, so that
+     * the updates of the same ids are applied in order: if a flush is already running, it also applies the
+     * updates pending now, and this call returns immediately.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        // updates enqueued after the last drain of a running flush, but before it released the flag, are
+        // picked up by the next iteration
+        do {
+            if (!flushing.compareAndSet(false, true)) return;
+            try {
+                drain();
+            } finally {
+                flushing.set(false);
+            }
+        } while (getDepth() > 0);
+    }
+
+    private void drain() {
+        while (true) {
+            Map<Long, Operation> products;
+            Map<Long, Operation> variants;
+            Map<Long, AssetEntity> assetUpdates;
+            Set<Long> assetDeletes;
+            synchronized (this) {
+                if (getDepth() == 0) return;
+                products = new LinkedHashMap<>(pendingProducts);
+                variants = new LinkedHashMap<>(pendingVariants);
+                assetUpdates = new LinkedHashMap<>(pendingAssetUpdates);
+                assetDeletes = new LinkedHashSet<>(pendingAssetDeletes);
+                pendingProducts.clear();
+                pendingVariants.clear();
+                pendingAssetUpdates.clear();
+                pendingAssetDeletes.clear();
+            }
+            try {
+                flushTimer.record(() -> apply(products, variants, assetUpdates, assetDeletes));
+            } catch (Exception ex) {
+                log.error("Failed to flush search index updates", ex);
+            }
+        }
+    }
+
+    private void apply(Map<Long, Operation> products, Map<Long, Operation> variants,
+                       Map<Long, AssetEntity> assetUpdates, Set<Long> assetDeletes) {
+        List<Long> deletedProductIds = idsWith(products, Operation.DELETE);
+        if (!deletedProductIds.isEmpty()) this.searchIndexService.deleteProducts(deletedProductIds);
+        List<Long> deletedVariantIds = idsWith(variants, Operation.DELETE);
+        if (!deletedVariantIds.isEmpty()) this.searchIndexService.deleteVariants(deletedVariantIds);
+
+        List<Long> updatedProductIds = idsWith(products, Operation.UPDATE);
+        if (!updatedProductIds.isEmpty()) this.searchIndexService.updateProducts(updatedProductIds);
+        List<Long> updatedVariantIds = idsWith(variants, Operation.UPDATE);
+        if (!updatedVariantIds.isEmpty()) this.searchIndexService.updateVariants(updatedVariantIds);
+
+        assetUpdates.values().forEach(this.searchIndexService::updateAsset);
+        assetDeletes.forEach(this.searchIndexService::deleteAsset);
+    }
+
+    private void enqueue(Runnable addToPending) {
+        eventCounter.increment();
+        boolean flushNow;
+        synchronized (this) {
+            addToPending.run();
+            flushNow = windowMs <= 0;
+            if (!flushNow) {
+                if (getDepth() >= maxBatchSize) {
+                    reschedule(0);
+                } else if (scheduledFlush == null) {
+                    reschedule(windowMs);
+                }
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    private void reschedule(long delayMs) {
+        if (scheduledFlush != null) scheduledFlush.cancel(false);
+        scheduledFlush = scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<Long> idsWith(Map<Long, Operation> operations, Operation operation) {
+        List<Long> ids = new ArrayList<>();
+        operations.forEach((id, op) -> {
+            if (op == operation) ids.add(id);
+        });
+        return ids;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
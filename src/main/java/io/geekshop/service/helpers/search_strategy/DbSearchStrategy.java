@@ -15,10 +15,12 @@ import io.geekshop.types.search.SearchResult;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -26,6 +28,11 @@ import java.util.stream.Collectors;
  * A rather native search for H2/MySQL Database. Rather than proper full-text searching,
  * it uses a weighted `LIKE '%term%'` operator instead.
  *
+ * Facet counts are read from the facet values of the result set. Alternatively, they can be answered by a
+ * {@link FacetValueBitmapIndex}, which is loaded from the search index table on startup and kept current by the
+ * SearchIndexService. The bitmaps only follow the index changes made by this JVM, so they are opt-in
+ * (`searchOptions.facetValueBitmapsEnabled`) and only suitable for single-server setups.
+ *
  * Created on Jan, 2021 by @author bobo
  */
 public class DbSearchStrategy implements SearchStrategy {
@@ -34,6 +41,20 @@ public class DbSearchStrategy implements SearchStrategy {
     @Autowired
     private SearchStrategyUtils searchStrategyUtils;
     private final Integer minTermLength = 2;
+    private final FacetValueBitmapIndex facetValueIndex;
+
+    public DbSearchStrategy(boolean facetValueBitmapsEnabled) {
+        this.facetValueIndex = facetValueBitmapsEnabled ? new FacetValueBitmapIndex() : null;
+    }
+
+    @PostConstruct
+    void init() {
+        if (this.facetValueIndex == null) return;
+        QueryWrapper<SearchIndexItemEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda()
+                .select(SearchIndexItemEntity::getProductVariantId, SearchIndexItemEntity::getFacetValueIds);
+        this.facetValueIndex.rebuild(this.searchIndexItemEntityMapper.selectList(queryWrapper));
+    }
 
     @Override
     public List<SearchResult> getSearchResults(SearchInput input, boolean enabledOnly) {
@@ -122,26 +143,46 @@ public class DbSearchStrategy implements SearchStrategy {
     public Map<Long, Integer> getFacetValueIds(SearchInput input, boolean enabledOnly) {
         QueryWrapper<SearchIndexItemEntity> queryWrapper = new QueryWrapper<>();
         applyTermAndFilters(queryWrapper, input);
-        queryWrapper.lambda()
-                .select(SearchIndexItemEntity::getProductVariantId)
-                .select(SearchIndexItemEntity::getFacetValueIds);
 
         if (enabledOnly) {
             queryWrapper.lambda().eq(SearchIndexItemEntity::isEnabled, true);
         }
 
-        List<SearchIndexItemEntity> indexItems = this.searchIndexItemEntityMapper.selectList(queryWrapper);
-
-        // 参考：
-        // https://stackoverflow.com/questions/81346/most-efficient-way-to-increment-a-map-value-in-java
-        Map<Long, Integer> result = new HashMap<>();
-        for(SearchIndexItemEntity item : indexItems) {
-            for (Long facetValueId : item.getFacetValueIds()) {
-                result.merge(facetValueId, 1, Integer::sum);
+        if (this.facetValueIndex == null) {
+            queryWrapper.lambda().select(SearchIndexItemEntity::getFacetValueIds);
+            Map<Long, Integer> result = new HashMap<>();
+            for (SearchIndexItemEntity item : this.searchIndexItemEntityMapper.selectList(queryWrapper)) {
+                if (item.getFacetValueIds() == null) continue;
+                for (Long facetValueId : item.getFacetValueIds()) {
+                    result.merge(facetValueId, 1, Integer::sum);
+                }
             }
+            return result;
+        }
+
+        // only the ids of the result set are fetched, the counting is done by bitmap intersections
+        queryWrapper.lambda().select(SearchIndexItemEntity::getProductVariantId);
+        RoaringBitmap resultSet = new RoaringBitmap();
+        for (Object id : this.searchIndexItemEntityMapper.selectObjs(queryWrapper)) {
+            resultSet.add(FacetValueBitmapIndex.toIntId(((Number) id).longValue()));
         }
 
-        return result;
+        return this.facetValueIndex.count(resultSet);
+    }
+
+    @Override
+    public void onIndexItemsSaved(List<SearchIndexItemEntity> items) {
+        if (this.facetValueIndex != null) this.facetValueIndex.putAll(items);
+    }
+
+    @Override
+    public void onIndexItemsRemoved(List<Long> productVariantIds) {
+        if (this.facetValueIndex != null) this.facetValueIndex.removeAll(productVariantIds);
+    }
+
+    @Override
+    public void onIndexRebuilt() {
+        this.init();
     }
 
     private List<String> applyTermAndFilters(
@@ -161,33 +202,32 @@ public class DbSearchStrategy implements SearchStrategy {
                             "end as score";
             selectColumns.add(scoreColumn);
 
-            queryWrapper.lambda().like(SearchIndexItemEntity::getSku, term)
+            queryWrapper.and(w -> w.lambda().like(SearchIndexItemEntity::getSku, term)
                     .or().like(SearchIndexItemEntity::getProductName, term)
                     .or().like(SearchIndexItemEntity::getProductVariantName, term)
-                    .or().like(SearchIndexItemEntity::getDescription, term);
+                    .or().like(SearchIndexItemEntity::getDescription, term));
         }
 
+        // facet & collection filters are indexed lookups on the normalized join tables
         if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
-            String likeColumn = "regexp_replace(facet_value_ids, '[\\[|\\]]', ',')";
-            queryWrapper.and(w -> {
-                for(Long id: input.getFacetValueIds()) {
-                    String likeTerm = "," + id + ",";
-                    if (Objects.equals(input.getFacetValueOperator(), LogicalOperator.AND)) {
-                        w.like(likeColumn, likeTerm);
-                    } else {
-                        w.or().like(likeColumn, likeTerm);
-                    }
-                }
-            });
-
+            Set<Long> facetValueIds = new LinkedHashSet<>(input.getFacetValueIds());
+            String idList = facetValueIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+            String subQuery = "select product_variant_id from tb_search_index_facet_value " +
+                    "where facet_value_id in (" + idList + ")";
+            if (Objects.equals(input.getFacetValueOperator(), LogicalOperator.AND)) {
+                subQuery += " group by product_variant_id having count(*) = " + facetValueIds.size();
+            }
+            queryWrapper.inSql("product_variant_id", subQuery);
         }
 
         if (input.getCollectionId() != null) {
-            queryWrapper.like("regexp_replace(collection_ids, '[\\[|\\]]', ',')", "," + input.getCollectionId() + ",");
+            queryWrapper.inSql("product_variant_id",
+                    "select product_variant_id from tb_search_index_collection " +
+                            "where collection_id = " + input.getCollectionId());
         }
         if (!StringUtils.isEmpty(input.getCollectionSlug())) {
-            queryWrapper.like("collection_slugs",
-                    "\"" + input.getCollectionSlug().trim() + "\"");
+            queryWrapper.apply("product_variant_id in (select product_variant_id from tb_search_index_collection " +
+                    "where collection_slug = {0})", input.getCollectionSlug().trim());
         }
 
         return selectColumns;
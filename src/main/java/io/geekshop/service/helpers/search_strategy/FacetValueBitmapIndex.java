@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.search_strategy;
+
+import io.geekshop.entity.SearchIndexItemEntity;
+import io.geekshop.types.common.LogicalOperator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A facet aggregation engine which keeps one compressed bitmap of ProductVariant ids per FacetValue.
+ *
+ * Facet counts for a search are then the cardinalities of the intersections of each bitmap with the
+ * bitmap of the result set, so no index item needs to be loaded or decoded to count facets.
+ *
+ * ProductVariant ids are stored as (unsigned) 32-bit values, which covers any auto-increment id
+ * range a catalog will realistically reach.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class FacetValueBitmapIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+
+    /**
+     * Replaces the whole content of the index with the facet values of the given items.
+     */
+    public void rebuild(Collection<SearchIndexItemEntity> items) {
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+            items.forEach(this::putInternal);
+            bitmaps.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            bitmaps.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the facet values of the given items, replacing any they previously had.
+     */
+    public void putAll(Collection<SearchIndexItemEntity> items) {
+        lock.writeLock().lock();
+        try {
+            RoaringBitmap ids = new RoaringBitmap();
+            items.forEach(item -> ids.add(toIntId(item.getProductVariantId())));
+            removeInternal(ids);
+            items.forEach(this::putInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> productVariantIds) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(toBitmap(productVariantIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ProductVariants which have all (AND) or any (OR) of the given FacetValues.
+     */
+    public RoaringBitmap match(Collection<Long> facetValueIds, LogicalOperator operator) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> matches = new ArrayList<>();
+            for (Long facetValueId : facetValueIds) {
+                RoaringBitmap bitmap = bitmaps.get(facetValueId);
+                if (bitmap == null) {
+                    if (Objects.equals(operator, LogicalOperator.AND)) return new RoaringBitmap();
+                    continue;
+                }
+                matches.add(bitmap);
+            }
+            if (matches.isEmpty()) return new RoaringBitmap();
+            if (Objects.equals(operator, LogicalOperator.AND)) {
+                matches.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+                RoaringBitmap result = matches.get(0).clone();
+                for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+                    result.and(matches.get(i));
+                }
+                return result;
+            }
+            return RoaringBitmap.or(matches.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a map of `facetValueId` => `count`, providing the number of ProductVariants of the result set
+     * which have that FacetValue. FacetValues which do not occur in the result set are omitted.
+     */
+    public Map<Long, Integer> count(RoaringBitmap resultSet) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (resultSet.isEmpty()) return result;
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Long, RoaringBitmap> entry : bitmaps.entrySet()) {
+                int count = RoaringBitmap.andCardinality(entry.getValue(), resultSet);
+                if (count > 0) {
+                    result.put(entry.getKey(), count);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public static RoaringBitmap toBitmap(Collection<Long> productVariantIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        productVariantIds.forEach(id -> bitmap.add(toIntId(id)));
+        return bitmap;
+    }
+
+    public static int toIntId(Long productVariantId) {
+        if (productVariantId < 0 || productVariantId > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("ProductVariant id out of bitmap range: " + productVariantId);
+        }
+        return (int) productVariantId.longValue();
+    }
+
+    public static Long toLongId(int bitmapValue) {
+        return Integer.toUnsignedLong(bitmapValue);
+    }
+
+    private void putInternal(SearchIndexItemEntity item) {
+        if (CollectionUtils.isEmpty(item.getFacetValueIds())) return;
+        int id = toIntId(item.getProductVariantId());
+        for (Long facetValueId : item.getFacetValueIds()) {
+            bitmaps.computeIfAbsent(facetValueId, k -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    /**
+     * There are far fewer FacetValues than ProductVariants, so rather than keeping a reverse mapping
+     * we simply clear the ids from every bitmap in one `andNot` each.
+     */
+    private void removeInternal(RoaringBitmap ids) {
+        if (ids.isEmpty()) return;
+        Iterator<RoaringBitmap> iterator = bitmaps.values().iterator();
+        while (iterator.hasNext()) {
+            RoaringBitmap bitmap = iterator.next();
+            bitmap.andNot(ids);
+            if (bitmap.isEmpty()) iterator.remove();
+        }
+    }
+}
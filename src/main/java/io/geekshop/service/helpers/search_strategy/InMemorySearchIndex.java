@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.search_strategy;
+
+import io.geekshop.entity.SearchIndexItemEntity;
+import io.geekshop.types.common.SearchInput;
+import io.geekshop.types.common.SearchResultSortParameter;
+import io.geekshop.types.common.SortOrder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-process inverted index over the search index items.
+ *
+ * The text fields (sku, product name, variant name and description) are tokenized into lower-cased
+ * trigrams, so that any term of at least 3 characters can be answered by intersecting posting lists and
+ * then verifying the (few) candidates, which gives the same matches as the `LIKE '%term%'` predicates
+ * of the {@link DbSearchStrategy}. Facet values, collections and collection slugs have their own posting
+ * lists, so that all filters are answered without scanning the items.
+ *
+ * All posting lists are compressed bitmaps of ProductVariant ids (see {@link FacetValueBitmapIndex}), so
+ * the result set of a search is itself a bitmap which facet counting can intersect with directly.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class InMemorySearchIndex {
+    static final int GRAM_SIZE = 3;
+
+    static final int SKU_WEIGHT = 10;
+    static final int PRODUCT_NAME_WEIGHT = 3;
+    static final int PRODUCT_VARIANT_NAME_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, IndexedItem> items = new HashMap<>();
+    private final RoaringBitmap allIds = new RoaringBitmap();
+    private final RoaringBitmap enabledIds = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> termPostings = new HashMap<>();
+    private final Map<Long, RoaringBitmap> collectionPostings = new HashMap<>();
+    private final Map<String, RoaringBitmap> collectionSlugPostings = new HashMap<>();
+    private final FacetValueBitmapIndex facetValueIndex = new FacetValueBitmapIndex();
+
+    /**
+     * A single matching item, along with its relevance score (or `null` if no term was given).
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Hit {
+        private final SearchIndexItemEntity item;
+        private final Integer score;
+    }
+
+    private static class IndexedItem {
+        final SearchIndexItemEntity item;
+        final String sku;
+        final String productName;
+        final String productVariantName;
+        final String description;
+        final Set<String> grams = new HashSet<>();
+
+        IndexedItem(SearchIndexItemEntity item) {
+            this.item = item;
+            this.sku = normalize(item.getSku());
+            this.productName = normalize(item.getProductName());
+            this.productVariantName = normalize(item.getProductVariantName());
+            this.description = normalize(item.getDescription());
+            addGrams(this.grams, this.sku);
+            addGrams(this.grams, this.productName);
+            addGrams(this.grams, this.productVariantName);
+            addGrams(this.grams, this.description);
+        }
+
+        /**
+         * Uses the same field weights as the `case when` score column of the DbSearchStrategy.
+         */
+        int score(String term) {
+            if (contains(this.sku, term)) return SKU_WEIGHT;
+            if (contains(this.productName, term)) return PRODUCT_NAME_WEIGHT;
+            if (contains(this.productVariantName, term)) return PRODUCT_VARIANT_NAME_WEIGHT;
+            if (contains(this.description, term)) return DESCRIPTION_WEIGHT;
+            return 0;
+        }
+
+        private static boolean contains(String field, String term) {
+            return field != null && field.contains(term);
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole content of the index with the given items.
+     */
+    public void rebuild(Collection<SearchIndexItemEntity> newItems) {
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+            newItems.forEach(this::putInternal);
+            facetValueIndex.rebuild(newItems);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the given items to the index, replacing any existing entry for the same ProductVariant.
+     */
+    public void putAll(Collection<SearchIndexItemEntity> newItems) {
+        lock.writeLock().lock();
+        try {
+            newItems.forEach(this::putInternal);
+            facetValueIndex.putAll(newItems);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> productVariantIds) {
+        lock.writeLock().lock();
+        try {
+            productVariantIds.forEach(this::removeInternal);
+            facetValueIndex.removeAll(productVariantIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all items matching the term and filters of the input, in the order they should be presented.
+     */
+    public List<Hit> search(SearchInput input, boolean enabledOnly, int minTermLength) {
+        String term = input.getTerm() == null ? null : normalize(input.getTerm().trim());
+        boolean applyTerm = !StringUtils.isEmpty(term) && term.length() > minTermLength;
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = this.match(input, enabledOnly, applyTerm ? term : null);
+            List<Hit> hits = new ArrayList<>(candidates.getCardinality());
+            candidates.forEach((int value) -> {
+                IndexedItem indexedItem = items.get(FacetValueBitmapIndex.toLongId(value));
+                hits.add(new Hit(indexedItem.item, applyTerm ? indexedItem.score(term) : null));
+            });
+            hits.sort(this.buildComparator(input.getSort(), applyTerm));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a map of `facetValueId` => `count`, providing the number of times that
+     * facetValue occurs in the result set of the given search.
+     */
+    public Map<Long, Integer> countFacetValues(SearchInput input, boolean enabledOnly, int minTermLength) {
+        String term = input.getTerm() == null ? null : normalize(input.getTerm().trim());
+        boolean applyTerm = !StringUtils.isEmpty(term) && term.length() > minTermLength;
+
+        lock.readLock().lock();
+        try {
+            return facetValueIndex.count(this.match(input, enabledOnly, applyTerm ? term : null));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all matching items. Only the candidates of a term query are verified item by item,
+     * everything else is answered with bitmap operations.
+     */
+    private RoaringBitmap match(SearchInput input, boolean enabledOnly, String term) {
+        RoaringBitmap candidates = enabledOnly ? enabledIds.clone() : allIds.clone();
+        if (!CollectionUtils.isEmpty(input.getFacetValueIds())) {
+            candidates.and(facetValueIndex.match(input.getFacetValueIds(), input.getFacetValueOperator()));
+        }
+        if (input.getCollectionId() != null) {
+            candidates.and(collectionPostings.getOrDefault(input.getCollectionId(), new RoaringBitmap()));
+        }
+        if (!StringUtils.isEmpty(input.getCollectionSlug())) {
+            candidates.and(collectionSlugPostings.getOrDefault(input.getCollectionSlug().trim(), new RoaringBitmap()));
+        }
+        if (term != null && !candidates.isEmpty()) {
+            candidates = this.findTermCandidates(term, candidates);
+        }
+        return candidates;
+    }
+
+    private RoaringBitmap findTermCandidates(String term, RoaringBitmap candidates) {
+        Set<String> termGrams = new HashSet<>();
+        addGrams(termGrams, term);
+
+        RoaringBitmap result = candidates.clone();
+        for (String gram : termGrams) {
+            RoaringBitmap posting = termPostings.get(gram);
+            if (posting == null) return new RoaringBitmap();
+            result.and(posting);
+            if (result.isEmpty()) return result;
+        }
+
+        RoaringBitmap verified = new RoaringBitmap();
+        result.forEach((int value) -> {
+            if (items.get(FacetValueBitmapIndex.toLongId(value)).score(term) > 0) {
+                verified.add(value);
+            }
+        });
+        return verified;
+    }
+
+    private Comparator<Hit> buildComparator(SearchResultSortParameter sort, boolean sortByScore) {
+        List<Comparator<Hit>> comparators = new ArrayList<>();
+        if (sortByScore) {
+            comparators.add(Comparator.comparing(Hit::getScore, Comparator.reverseOrder()));
+        }
+        if (sort != null) {
+            if (sort.getName() != null) {
+                Comparator<String> byName = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+                comparators.add(Comparator.comparing(hit -> hit.getItem().getProductName(),
+                        SortOrder.ASC == sort.getName() ? byName : byName.reversed()));
+            }
+            if (sort.getPrice() != null) {
+                Comparator<Integer> byPrice = Comparator.nullsFirst(Comparator.<Integer>naturalOrder());
+                comparators.add(Comparator.comparing(hit -> hit.getItem().getPrice(),
+                        SortOrder.ASC == sort.getPrice() ? byPrice : byPrice.reversed()));
+            }
+        }
+        comparators.add(Comparator.comparing(hit -> hit.getItem().getProductVariantId()));
+
+        Comparator<Hit> comparator = comparators.get(0);
+        for (int i = 1; i < comparators.size(); i++) {
+            comparator = comparator.thenComparing(comparators.get(i));
+        }
+        return comparator;
+    }
+
+    /**
+     * Facet value postings are maintained by the {@link FacetValueBitmapIndex} in bulk by the callers.
+     */
+    private void putInternal(SearchIndexItemEntity item) {
+        Long id = item.getProductVariantId();
+        removeInternal(id);
+
+        int value = FacetValueBitmapIndex.toIntId(id);
+        IndexedItem indexedItem = new IndexedItem(item);
+        items.put(id, indexedItem);
+        allIds.add(value);
+        if (item.isEnabled()) enabledIds.add(value);
+        indexedItem.grams.forEach(gram -> addPosting(termPostings, gram, value));
+        distinct(item.getCollectionIds()).forEach(collectionId -> addPosting(collectionPostings, collectionId, value));
+        distinct(item.getCollectionSlugs()).forEach(slug -> addPosting(collectionSlugPostings, slug, value));
+    }
+
+    private void removeInternal(Long id) {
+        IndexedItem indexedItem = items.remove(id);
+        if (indexedItem == null) return;
+
+        int value = FacetValueBitmapIndex.toIntId(id);
+        SearchIndexItemEntity item = indexedItem.item;
+        allIds.remove(value);
+        enabledIds.remove(value);
+        indexedItem.grams.forEach(gram -> removePosting(termPostings, gram, value));
+        distinct(item.getCollectionIds()).forEach(collectionId -> removePosting(collectionPostings, collectionId, value));
+        distinct(item.getCollectionSlugs()).forEach(slug -> removePosting(collectionSlugPostings, slug, value));
+    }
+
+    private void clearInternal() {
+        items.clear();
+        allIds.clear();
+        enabledIds.clear();
+        termPostings.clear();
+        collectionPostings.clear();
+        collectionSlugPostings.clear();
+        facetValueIndex.clear();
+    }
+
+    private static <K> void addPosting(Map<K, RoaringBitmap> postings, K key, int value) {
+        postings.computeIfAbsent(key, k -> new RoaringBitmap()).add(value);
+    }
+
+    private static <K> void removePosting(Map<K, RoaringBitmap> postings, K key, int value) {
+        RoaringBitmap posting = postings.get(key);
+        if (posting == null) return;
+        posting.remove(value);
+        if (posting.isEmpty()) postings.remove(key);
+    }
+
+    private static <T> Set<T> distinct(List<T> values) {
+        if (CollectionUtils.isEmpty(values)) return Collections.emptySet();
+        return new HashSet<>(values);
+    }
+
+    private static void addGrams(Set<String> grams, String text) {
+        if (text == null) return;
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_SIZE));
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.search_strategy;
+
+import io.geekshop.entity.SearchIndexItemEntity;
+import io.geekshop.mapper.SearchIndexItemEntityMapper;
+import io.geekshop.types.common.SearchInput;
+import io.geekshop.types.search.SearchResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A search strategy which answers searches from an in-process inverted index rather than
+ * from the database. The index is loaded from the `search_index_item` table on startup, and is
+ * then kept current by the SearchIndexService, which notifies the strategy each time the
+ * index table is written to (see {@link SearchStrategy#onIndexItemsSaved(List)}).
+ *
+ * It uses the same field weights as the {@link DbSearchStrategy}, so results and scores are
+ * interchangeable between the two strategies. Note that the index lives in a single JVM, so it is
+ * only suitable for single-server setups.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Slf4j
+public class InMemorySearchStrategy implements SearchStrategy {
+    @Autowired
+    private SearchIndexItemEntityMapper searchIndexItemEntityMapper;
+    @Autowired
+    private SearchStrategyUtils searchStrategyUtils;
+    private final Integer minTermLength = 2;
+    private final InMemorySearchIndex index = new InMemorySearchIndex();
+
+    @PostConstruct
+    void init() {
+        List<SearchIndexItemEntity> items = this.searchIndexItemEntityMapper.selectList(null);
+        this.index.rebuild(items);
+        log.info("Loaded " + items.size() + " items into the in-memory search index");
+    }
+
+    @Override
+    public List<SearchResult> getSearchResults(SearchInput input, boolean enabledOnly) {
+        Integer pageSize = input.getPageSize() == null ? 25 : input.getPageSize();
+        Integer currentPage = input.getCurrentPage() == null ? 1 : input.getCurrentPage();
+
+        List<InMemorySearchIndex.Hit> hits = this.index.search(input, enabledOnly, this.minTermLength);
+        long skip = pageSize > 0 ? (long) (Math.max(currentPage, 1) - 1) * pageSize : 0;
+        long limit = pageSize > 0 ? pageSize : hits.size();
+
+        return hits.stream()
+                .skip(skip)
+                .limit(limit)
+                .map(hit -> searchStrategyUtils.mapToSearchResult(hit.getItem(), hit.getScore()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Integer getTotalCount(SearchInput input, boolean enabledOnly) {
+        return this.index.search(input, enabledOnly, this.minTermLength).size();
+    }
+
+    @Override
+    public Map<Long, Integer> getFacetValueIds(SearchInput input, boolean enabledOnly) {
+        return this.index.countFacetValues(input, enabledOnly, this.minTermLength);
+    }
+
+    @Override
+    public void onIndexItemsSaved(List<SearchIndexItemEntity> items) {
+        this.index.putAll(items);
+    }
+
+    @Override
+    public void onIndexItemsRemoved(List<Long> productVariantIds) {
+        this.index.removeAll(productVariantIds);
+    }
+
+    @Override
+    public void onIndexRebuilt() {
+        this.init();
+    }
+}
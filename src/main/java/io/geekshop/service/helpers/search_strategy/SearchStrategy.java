@@ -5,6 +5,7 @@
 
 package io.geekshop.service.helpers.search_strategy;
 
+import io.geekshop.entity.SearchIndexItemEntity;
 import io.geekshop.types.common.SearchInput;
 import io.geekshop.types.search.SearchResult;
 
@@ -24,4 +25,25 @@ public interface SearchStrategy {
      * facetValue occurs in the result set.
      */
     Map<Long, Integer> getFacetValueIds(SearchInput input, boolean enabledOnly);
+
+    /**
+     * Called by the SearchIndexService after the given items have been written to the search index table.
+     * Strategies which maintain their own index should apply the changes here.
+     */
+    default void onIndexItemsSaved(List<SearchIndexItemEntity> items) {
+    }
+
+    /**
+     * Called by the SearchIndexService after the items of the given ProductVariants have been removed
+     * from the search index table.
+     */
+    default void onIndexItemsRemoved(List<Long> productVariantIds) {
+    }
+
+    /**
+     * Called by the SearchIndexService after the search index table has been rebuilt from scratch by a reindex.
+     * Strategies which maintain their own index should reload it from the table.
+     */
+    default void onIndexRebuilt() {
+    }
 }
@@ -5,6 +5,7 @@
 
 package io.geekshop.service.helpers.search_strategy;
 
+import io.geekshop.entity.SearchIndexItemEntity;
 import io.geekshop.types.asset.Coordinate;
 import io.geekshop.types.search.SearchResult;
 import io.geekshop.types.search.SearchResultAsset;
@@ -89,6 +90,50 @@ public class SearchStrategyUtils {
         return searchResult;
     }
 
+    public SearchResult mapToSearchResult(SearchIndexItemEntity item, Integer score) {
+        SearchResult searchResult = new SearchResult();
+
+        if (item.getProductAssetId() != null) {
+            SearchResultAsset searchResultAsset = new SearchResultAsset();
+            searchResultAsset.setId(item.getProductAssetId());
+            searchResultAsset.setPreview(item.getProductPreview());
+            searchResultAsset.setFocalPoint(item.getProductPreviewFocalPoint());
+            searchResult.setProductAsset(searchResultAsset);
+        }
+
+        if (item.getProductVariantAssetId() != null) {
+            SearchResultAsset searchResultAsset = new SearchResultAsset();
+            searchResultAsset.setId(item.getProductVariantAssetId());
+            searchResultAsset.setPreview(item.getProductVariantPreview());
+            searchResultAsset.setFocalPoint(item.getProductVariantPreviewFocalPoint());
+            searchResult.setProductVariantAsset(searchResultAsset);
+        }
+
+        searchResult.setSku(item.getSku());
+        searchResult.setSlug(item.getSlug());
+        searchResult.setEnabled(item.isEnabled());
+        searchResult.setProductVariantId(item.getProductVariantId());
+        searchResult.setProductId(item.getProductId());
+        searchResult.setProductName(item.getProductName());
+        searchResult.setProductVariantName(item.getProductVariantName());
+        searchResult.setDescription(item.getDescription());
+        searchResult.setPrice(item.getPrice());
+
+        if (item.getFacetIds() != null) {
+            searchResult.setFacetIds(new ArrayList<>(item.getFacetIds()));
+        }
+        if (item.getFacetValueIds() != null) {
+            searchResult.setFacetValueIds(new ArrayList<>(item.getFacetValueIds()));
+        }
+        if (item.getCollectionIds() != null) {
+            searchResult.setCollectionIds(new ArrayList<>(item.getCollectionIds()));
+        }
+
+        searchResult.setScore(score == null ? null : score.floatValue());
+
+        return searchResult;
+    }
+
     // 参考：
     // https://stackoverflow.com/questions/2169732/most-efficient-solution-for-reading-clob-to-string-and-string-to-clob-in-java
     private String convertClob2String(NClob clob) {
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.session;
+
+import io.geekshop.config.session_cache.SessionCacheStrategy;
+import io.geekshop.entity.SessionEntity;
+import io.geekshop.mapper.SessionEntityMapper;
+import io.geekshop.service.ConfigService;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically deletes expired and invalidated sessions, which would otherwise accumulate in the session
+ * table forever (e.g. an anonymous session is created for each visitor without a session cookie).
+ *
+ * Sessions are deleted oldest first in batches of `authOptions.sessionReaperBatchSize`, using the index on
+ * `expires`, and are evicted from the SessionCacheStrategy as well.
+ *
+ * Exposes the following metrics:
+ * * `geekshop.session.reaper.reaped`: the number of deleted sessions, tagged by `reason` (expired or invalidated)
+ * * `geekshop.session.reaper.run`: the duration of each run
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@Slf4j
+public class ExpiredSessionReaper {
+    private final ConfigService configService;
+    private final SessionEntityMapper sessionEntityMapper;
+    private final SessionWriteBehindQueue sessionWriteBehindQueue;
+
+    private final Counter expiredCounter;
+    private final Counter invalidatedCounter;
+    private final Timer runTimer;
+    private ScheduledExecutorService scheduler;
+
+    public ExpiredSessionReaper(ConfigService configService,
+                                SessionEntityMapper sessionEntityMapper,
+                                SessionWriteBehindQueue sessionWriteBehindQueue,
+                                MeterRegistry meterRegistry) {
+        this.configService = configService;
+        this.sessionEntityMapper = sessionEntityMapper;
+        this.sessionWriteBehindQueue = sessionWriteBehindQueue;
+        this.expiredCounter = meterRegistry.counter("geekshop.session.reaper.reaped", "reason", "expired");
+        this.invalidatedCounter = meterRegistry.counter("geekshop.session.reaper.reaped", "reason", "invalidated");
+        this.runTimer = meterRegistry.timer("geekshop.session.reaper.run");
+    }
+
+    @PostConstruct
+    void init() {
+        long interval = this.configService.getAuthOptions().getSessionReaperInterval();
+        if (interval <= 0) return;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ExpiredSessionReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::reapSafely, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes all sessions which are expired or invalidated, and returns their number.
+     */
+    public int reap() {
+        return this.runTimer.record(() -> {
+            if (this.sessionWriteBehindQueue.isEnabled()) {
+                // pending expiry extensions must not be reaped
+                this.sessionWriteBehindQueue.flush();
+            }
+            Date now = new Date();
+            int expired = this.reapBatches(
+                    queryWrapper -> queryWrapper.lambda().lt(SessionEntity::getExpires, now)
+                            .orderByAsc(SessionEntity::getExpires),
+                    this.expiredCounter);
+            int invalidated = this.reapBatches(
+                    queryWrapper -> queryWrapper.lambda().eq(SessionEntity::isInvalidated, true),
+                    this.invalidatedCounter);
+            if (expired + invalidated > 0) {
+                log.info("Reaped " + expired + " expired and " + invalidated + " invalidated sessions");
+            }
+            return expired + invalidated;
+        });
+    }
+
+    private int reapBatches(Consumer<QueryWrapper<SessionEntity>> condition, Counter counter) {
+        int batchSize = this.configService.getAuthOptions().getSessionReaperBatchSize();
+        SessionCacheStrategy sessionCacheStrategy = this.configService.getAuthConfig().getSessionCacheStrategy();
+        int total = 0;
+        while (true) {
+            QueryWrapper<SessionEntity> queryWrapper = new QueryWrapper<>();
+            condition.accept(queryWrapper);
+            queryWrapper.lambda().select(SessionEntity::getId, SessionEntity::getToken);
+            queryWrapper.last("limit " + batchSize);
+            List<SessionEntity> sessions = this.sessionEntityMapper.selectList(queryWrapper);
+            if (sessions.isEmpty()) break;
+
+            sessions.forEach(session -> sessionCacheStrategy.delete(session.getToken()));
+            this.sessionEntityMapper.deleteBatchIds(
+                    sessions.stream().map(SessionEntity::getId).collect(Collectors.toList()));
+            counter.increment(sessions.size());
+            total += sessions.size();
+            if (sessions.size() < batchSize) break;
+        }
+        return total;
+    }
+
+    private void reapSafely() {
+        try {
+            this.reap();
+        } catch (Exception ex) {
+            log.error("Failed to reap expired sessions", ex);
+        }
+    }
+}
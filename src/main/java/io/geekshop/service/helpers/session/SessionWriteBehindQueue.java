@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers.session;
+
+import io.geekshop.entity.SessionEntity;
+import io.geekshop.options.ConfigOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects changes to the expiry and active order of sessions when `authOptions.sessionWriteBehind` is
+ * enabled, so that the request which made the change does not need to write to the session table.
+ *
+ * Changes to the same session are coalesced (the latest value wins), and are written by a background
+ * thread every `authOptions.sessionWriteBehindInterval` milliseconds with one JDBC batch per column.
+ * All pending changes are written on shutdown.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+@Component
+@Slf4j
+public class SessionWriteBehindQueue {
+    private static final String UPDATE_EXPIRES = "update tb_session set expires = ? where id = ?";
+    private static final String UPDATE_ACTIVE_ORDER = "update tb_session set active_order_id = ? where id = ?";
+
+    private static class PendingUpdate {
+        Date expires;
+        boolean activeOrderChanged;
+        Long activeOrderId;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigOptions configOptions;
+    private final Map<Long, PendingUpdate> pending = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public SessionWriteBehindQueue(JdbcTemplate jdbcTemplate, ConfigOptions configOptions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.configOptions = configOptions;
+    }
+
+    public boolean isEnabled() {
+        return this.configOptions.getAuthOptions().isSessionWriteBehind();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!this.isEnabled()) return;
+        long interval = this.configOptions.getAuthOptions().getSessionWriteBehindInterval();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SessionWriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void updateExpires(Long sessionId, Date expires) {
+        this.pending.computeIfAbsent(sessionId, id -> new PendingUpdate()).expires = expires;
+    }
+
+    public synchronized void updateActiveOrder(Long sessionId, Long activeOrderId) {
+        PendingUpdate update = this.pending.computeIfAbsent(sessionId, id -> new PendingUpdate());
+        update.activeOrderChanged = true;
+        update.activeOrderId = activeOrderId;
+    }
+
+    /**
+     * Applies the not yet written changes to a session which was just loaded from the database.
+     */
+    public synchronized void applyPending(SessionEntity session) {
+        PendingUpdate update = this.pending.get(session.getId());
+        if (update == null) return;
+        if (update.expires != null) session.setExpires(update.expires);
+        if (update.activeOrderChanged) session.setActiveOrderId(update.activeOrderId);
+    }
+
+    public synchronized int getDepth() {
+        return this.pending.size();
+    }
+
+    /**
+     * Writes all pending changes on the calling thread.
+     */
+    public void flush() {
+        Map<Long, PendingUpdate> updates;
+        synchronized (this) {
+            if (this.pending.isEmpty()) return;
+            updates = new HashMap<>(this.pending);
+            this.pending.clear();
+        }
+
+        List<Object[]> expiresRows = new ArrayList<>();
+        List<Object[]> activeOrderRows = new ArrayList<>();
+        updates.forEach((sessionId, update) -> {
+            if (update.expires != null) {
+                expiresRows.add(new Object[] { new Timestamp(update.expires.getTime()), sessionId });
+            }
+            if (update.activeOrderChanged) {
+                activeOrderRows.add(new Object[] { update.activeOrderId, sessionId });
+            }
+        });
+        try {
+            if (!expiresRows.isEmpty()) {
+                this.jdbcTemplate.batchUpdate(UPDATE_EXPIRES, expiresRows);
+            }
+            if (!activeOrderRows.isEmpty()) {
+                this.jdbcTemplate.batchUpdate(UPDATE_ACTIVE_ORDER, activeOrderRows);
+            }
+        } catch (RuntimeException ex) {
+            // keep the changes for the next flush, unless they were superseded in the meantime
+            synchronized (this) {
+                updates.forEach(this.pending::putIfAbsent);
+            }
+            throw ex;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            this.flush();
+        } catch (Exception ex) {
+            log.error("Failed to write pending session updates", ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            try {
+                this.scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.flush();
+    }
+}
@@ -36,6 +36,7 @@ public class ProductVariant implements Node {
     private List<FacetValue> facetValues = new ArrayList<>();
     private boolean enabled; // admin only
     private Integer stockOnHand; // admin only
+    private Integer stockAllocated; // admin only
     private boolean trackInventory; // admin only
     private StockMovementList stockMovements; // admin only
 }
@@ -12,5 +12,7 @@ public enum StockMovementType {
     ADJUSTMENT,
     SALE,
     CANCELLATION,
-    RETURN
+    RETURN,
+    ALLOCATION,
+    RELEASE
 }
@@ -230,6 +230,7 @@ create table tb_session (
 create index idx_session_user_id on tb_session(user_id);
 create index idx_session_token on tb_session(token);
 create index idx_session_active_order_id on tb_session(active_order_id);
+create index idx_session_expires on tb_session(expires);
 
 create table tb_customer_history_entry (
     id bigint not null auto_increment,
@@ -356,6 +357,7 @@ create table tb_product_variant (
    featured_asset_id bigint,
    product_id bigint not null,
    stock_on_hand bigint default 0,
+   stock_allocated bigint default 0,
    track_inventory boolean,
    deleted_at datetime default null,
    enabled boolean default true,
@@ -428,6 +430,8 @@ create table tb_stock_movement (
    foreign key (product_variant_id) references tb_product_variant(id)
 );
 
+create index idx_stock_movement_order_line_id on tb_stock_movement(order_line_id);
+
 create table tb_global_settings (
    id bigint not null auto_increment,
    track_inventory boolean default false,
@@ -681,4 +685,99 @@ create table tb_search_index_item (
 );
 
 create index idx_product_asset_id on tb_search_index_item(product_asset_id);
-create index idx_product_variant_asset_id on tb_search_index_item(product_variant_asset_id);
\ No newline at end of file
+create index idx_product_variant_asset_id on tb_search_index_item(product_variant_asset_id);
+
+/* normalized facet value & collection membership of the search index items, used for filtering */
+create table tb_search_index_facet_value (
+    product_variant_id bigint not null,
+    facet_value_id bigint not null,
+    primary key (product_variant_id, facet_value_id)
+);
+
+create index idx_search_index_facet_value_facet_value_id on tb_search_index_facet_value(facet_value_id);
+
+create table tb_search_index_collection (
+    product_variant_id bigint not null,
+    collection_id bigint not null,
+    collection_slug varchar(255),
+    primary key (product_variant_id, collection_id)
+);
+
+create index idx_search_index_collection_collection_id on tb_search_index_collection(collection_id);
+create index idx_search_index_collection_collection_slug on tb_search_index_collection(collection_slug);
+
+/* the version of the indexing which built the live search index tables, see SearchIndexService.INDEX_VERSION */
+create table tb_search_index_version (
+    id int not null,
+    version int not null,
+    primary key (id)
+);
+
+/* shadow copies of the search index tables, written by a reindex and then swapped with the live tables */
+create table tb_search_index_item_shadow (
+    product_variant_id bigint not null,
+    product_id bigint,
+    enabled boolean,
+    product_name varchar(255),
+    product_variant_name varchar(255),
+    description text,
+    slug varchar(255),
+    sku varchar(100),
+    price integer,
+    facet_ids text,
+    facet_value_ids text,
+    collection_ids text,
+    collection_slugs text,
+    product_preview varchar(255),
+    product_preview_focal_point tinytext,
+    product_variant_preview varchar(255),
+    product_variant_preview_focal_point tinytext,
+    product_asset_id bigint,
+    product_variant_asset_id bigint,
+    primary key (product_variant_id)
+);
+
+create index idx_shadow_product_asset_id on tb_search_index_item_shadow(product_asset_id);
+create index idx_shadow_product_variant_asset_id on tb_search_index_item_shadow(product_variant_asset_id);
+
+create table tb_search_index_facet_value_shadow (
+    product_variant_id bigint not null,
+    facet_value_id bigint not null,
+    primary key (product_variant_id, facet_value_id)
+);
+
+create index idx_shadow_search_index_facet_value_facet_value_id on tb_search_index_facet_value_shadow(facet_value_id);
+
+create table tb_search_index_collection_shadow (
+    product_variant_id bigint not null,
+    collection_id bigint not null,
+    collection_slug varchar(255),
+    primary key (product_variant_id, collection_id)
+);
+
+create index idx_shadow_search_index_collection_collection_id on tb_search_index_collection_shadow(collection_id);
+create index idx_shadow_search_index_collection_collection_slug on tb_search_index_collection_shadow(collection_slug);
+
+/* side-effects of Order transitions which are applied asynchronously, see OrderOutbox */
+create table tb_order_outbox_entry (
+    id bigint not null auto_increment,
+    order_id bigint not null,
+    type varchar(50) not null,
+    payload text,
+    attempts int default 0,
+    next_attempt_at datetime,
+    last_error varchar(1024),
+    created_by varchar(50),
+    created_at datetime,
+    updated_by varchar(50),
+    updated_at datetime,
+    primary key (id)
+);
+
+/* the number of placed Orders in which a Customer has used a Promotion, see PromotionUsageCounter */
+create table tb_promotion_customer_usage (
+    promotion_id bigint not null,
+    customer_id bigint not null,
+    usages int not null default 0,
+    primary key (promotion_id, customer_id)
+);
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+/*
+ * Incremental, idempotent schema changes for existing MySQL databases. This script is run on every
+ * startup of the mysql profile (spring.datasource.initialization-mode: always).
+ */
+
+/*
+ * Normalized facet value & collection membership of the search index items, used for filtering.
+ * Existing search indexes are backfilled by a reindex on the first startup, see tb_search_index_version.
+ */
+create table if not exists tb_search_index_facet_value (
+    product_variant_id bigint not null,
+    facet_value_id bigint not null,
+    primary key (product_variant_id, facet_value_id),
+    key idx_search_index_facet_value_facet_value_id (facet_value_id)
+);
+
+create table if not exists tb_search_index_collection (
+    product_variant_id bigint not null,
+    collection_id bigint not null,
+    collection_slug varchar(255),
+    primary key (product_variant_id, collection_id),
+    key idx_search_index_collection_collection_id (collection_id),
+    key idx_search_index_collection_collection_slug (collection_slug)
+);
+
+/*
+ * The version of the indexing which built the live search index tables, see SearchIndexService.INDEX_VERSION.
+ * Indexes without a recorded version are rebuilt once on startup.
+ */
+create table if not exists tb_search_index_version (
+    id int not null,
+    version int not null,
+    primary key (id)
+);
+
+/*
+ * Shadow copies of the search index tables, written by a reindex and then swapped with the live tables.
+ */
+create table if not exists tb_search_index_item_shadow like tb_search_index_item;
+create table if not exists tb_search_index_facet_value_shadow like tb_search_index_facet_value;
+create table if not exists tb_search_index_collection_shadow like tb_search_index_collection;
+
+/*
+ * Lets the expired session reaper find the oldest sessions without a full scan.
+ * MySQL has no `create index if not exists`, so the index is only created when information_schema lacks it.
+ */
+set @idx_session_expires_exists = (select count(*) from information_schema.statistics
+    where table_schema = database() and table_name = 'tb_session' and index_name = 'idx_session_expires');
+set @idx_session_expires_ddl = if(@idx_session_expires_exists = 0,
+    'create index idx_session_expires on tb_session(expires)', 'select 1');
+prepare idx_session_expires_stmt from @idx_session_expires_ddl;
+execute idx_session_expires_stmt;
+deallocate prepare idx_session_expires_stmt;
+
+/*
+ * Stock allocated to Orders which are arranging payment, and the index used to find the allocations of an Order.
+ */
+set @stock_allocated_exists = (select count(*) from information_schema.columns
+    where table_schema = database() and table_name = 'tb_product_variant' and column_name = 'stock_allocated');
+set @stock_allocated_ddl = if(@stock_allocated_exists = 0,
+    'alter table tb_product_variant add column stock_allocated bigint default 0 after stock_on_hand', 'select 1');
+prepare stock_allocated_stmt from @stock_allocated_ddl;
+execute stock_allocated_stmt;
+deallocate prepare stock_allocated_stmt;
+
+set @idx_stock_movement_order_line_id_exists = (select count(*) from information_schema.statistics
+    where table_schema = database() and table_name = 'tb_stock_movement'
+    and index_name = 'idx_stock_movement_order_line_id');
+set @idx_stock_movement_order_line_id_ddl = if(@idx_stock_movement_order_line_id_exists = 0,
+    'create index idx_stock_movement_order_line_id on tb_stock_movement(order_line_id)', 'select 1');
+prepare idx_stock_movement_order_line_id_stmt from @idx_stock_movement_order_line_id_ddl;
+execute idx_stock_movement_order_line_id_stmt;
+deallocate prepare idx_stock_movement_order_line_id_stmt;
+
+/*
+ * Side-effects of Order transitions which are applied asynchronously, see OrderOutbox.
+ */
+create table if not exists tb_order_outbox_entry (
+    id bigint not null auto_increment,
+    order_id bigint not null,
+    type varchar(50) not null,
+    payload text,
+    attempts int default 0,
+    next_attempt_at datetime,
+    last_error varchar(1024),
+    created_by varchar(50),
+    created_at datetime,
+    updated_by varchar(50),
+    updated_at datetime,
+    primary key (id)
+);
+
+/*
+ * The number of placed Orders in which a Customer has used a Promotion, see PromotionUsageCounter.
+ * When the table is still empty, it is backfilled from the recorded Promotions of existing Orders.
+ */
+create table if not exists tb_promotion_customer_usage (
+    promotion_id bigint not null,
+    customer_id bigint not null,
+    usages int not null default 0,
+    primary key (promotion_id, customer_id)
+);
+
+set @promotion_customer_usage_empty = (select count(*) = 0 from tb_promotion_customer_usage);
+set @promotion_customer_usage_ddl = if(@promotion_customer_usage_empty,
+    'insert into tb_promotion_customer_usage (promotion_id, customer_id, usages)
+        select j.promotion_id, o.customer_id, count(*) from tb_order_promotion_join j
+        join tb_order o on o.id = j.order_id
+        where o.customer_id is not null and o.state <> ''Cancelled''
+        group by j.promotion_id, o.customer_id', 'select 1');
+prepare promotion_customer_usage_stmt from @promotion_customer_usage_ddl;
+execute promotion_customer_usage_stmt;
+deallocate prepare promotion_customer_usage_stmt;
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.common.fsm;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class TransitionTableTest {
+    private final TransitionTable<TestState> table =
+            TransitionTable.of(TestState.class, new TestFSMConfig().getTransitions());
+
+    @Test
+    public void test_canTransition_works() {
+        assertThat(table.canTransition(TestState.DoorsClosed, TestState.Moving)).isTrue();
+        assertThat(table.canTransition(TestState.DoorsClosed, TestState.DoorsOpen)).isTrue();
+        assertThat(table.canTransition(TestState.DoorsOpen, TestState.Moving)).isFalse();
+        assertThat(table.canTransition(TestState.Moving, TestState.Moving)).isFalse();
+        assertThat(table.canTransition(null, TestState.Moving)).isFalse();
+    }
+
+    @Test
+    public void test_getNextStates_keeps_the_defined_order() {
+        Transitions<TestState> transitions = new Transitions<>();
+        transitions.put(TestState.DoorsClosed, ImmutableList.of(TestState.Moving, TestState.DoorsOpen));
+        TransitionTable<TestState> table = TransitionTable.of(TestState.class, transitions);
+
+        assertThat(table.getNextStates(TestState.DoorsClosed)).containsExactly(TestState.Moving, TestState.DoorsOpen);
+        assertThat(table.getNextStates(TestState.DoorsOpen)).isEmpty();
+        assertThat(table.getStates()).containsExactly(TestState.DoorsClosed);
+    }
+
+    @Test
+    public void test_merge_adds_transitions_without_changing_the_original_table() {
+        Transitions<TestState> extra = new Transitions<>();
+        extra.put(TestState.DoorsOpen, ImmutableList.of(TestState.DoorsClosed, TestState.Moving));
+        TransitionTable<TestState> merged = table.merge(extra);
+
+        assertThat(merged.getNextStates(TestState.DoorsOpen)).containsExactly(TestState.DoorsClosed, TestState.Moving);
+        assertThat(merged.canTransition(TestState.DoorsOpen, TestState.Moving)).isTrue();
+        assertThat(merged.getNextStates(TestState.DoorsClosed)).containsExactly(TestState.Moving, TestState.DoorsOpen);
+        assertThat(table.canTransition(TestState.DoorsOpen, TestState.Moving)).isFalse();
+    }
+
+    @Test
+    public void test_fsm_uses_the_table_of_the_config() {
+        TransitionTableConfig<TestState, Object> config = new TransitionTableConfig<TestState, Object>(table) {
+            @Override
+            public Object onTransitionStart(TestState fromState, TestState toState, Object data) {
+                return null;
+            }
+
+            @Override
+            public void onTransitionEnd(TestState fromState, TestState toState, Object data) {
+            }
+
+            @Override
+            public void onError(TestState fromState, TestState toState, String message) {
+            }
+        };
+        FSM<TestState, Object> fsm = new FSM<>(config, TestState.DoorsClosed);
+        assertThat(fsm.getNextStates()).containsExactly(TestState.Moving, TestState.DoorsOpen);
+
+        fsm.transitionTo(TestState.Moving);
+        assertThat(fsm.getCurrentState()).isEqualTo(TestState.Moving);
+        fsm.transitionTo(TestState.DoorsOpen);
+        assertThat(fsm.getCurrentState()).isEqualTo(TestState.Moving);
+
+        assertThat(FSM.transition(config, TestState.DoorsOpen, TestState.DoorsClosed, null))
+                .isEqualTo(TestState.DoorsClosed);
+        assertThat(FSM.transition(config, TestState.DoorsOpen, TestState.Moving, null))
+                .isEqualTo(TestState.DoorsOpen);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.order;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class TimeOrderedOrderCodeGeneratorTest {
+
+    @Test
+    public void test_codes_have_the_expected_format() {
+        String code = new TimeOrderedOrderCodeGenerator(0).generate(null);
+        assertThat(code).hasSize(21).matches("[0-9A-HJKMNP-TV-Z]{21}");
+    }
+
+    @Test
+    public void test_sequences_are_strictly_increasing() {
+        TimeOrderedOrderCodeGenerator generator = new TimeOrderedOrderCodeGenerator(1);
+        String previous = generator.generate(null).substring(0, 13);
+        // more codes than fit into the sequence of a single millisecond
+        for(int i = 0; i < 20000; i++) {
+            String sequence = generator.generate(null).substring(0, 13);
+            assertThat(sequence).isGreaterThan(previous);
+            previous = sequence;
+        }
+    }
+
+    @Test
+    public void test_codes_are_unique_across_threads_and_nodes() throws Exception {
+        List<TimeOrderedOrderCodeGenerator> generators = Arrays.asList(
+                new TimeOrderedOrderCodeGenerator(1), new TimeOrderedOrderCodeGenerator(2));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for(int i = 0; i < 4; i++) {
+                TimeOrderedOrderCodeGenerator generator = generators.get(i % 2);
+                futures.add(executor.submit(() -> {
+                    List<String> codes = new ArrayList<>();
+                    for(int j = 0; j < 10000; j++) {
+                        codes.add(generator.generate(null));
+                    }
+                    return codes;
+                }));
+            }
+            Set<String> sequences = new HashSet<>();
+            for(Future<List<String>> future : futures) {
+                for(String code : future.get()) {
+                    assertThat(sequences.add(code.substring(0, 13))).isTrue();
+                }
+            }
+            assertThat(sequences).hasSize(40000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_node_id_must_be_in_range() {
+        assertThatThrownBy(() -> new TimeOrderedOrderCodeGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TimeOrderedOrderCodeGenerator(TimeOrderedOrderCodeGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
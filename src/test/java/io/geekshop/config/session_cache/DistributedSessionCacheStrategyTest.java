@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.config.session_cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates two server instances, which share one store and one invalidation bus.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class DistributedSessionCacheStrategyTest {
+    InMemorySharedSessionStore sharedStore;
+    DistributedSessionCacheStrategy node1;
+    DistributedSessionCacheStrategy node2;
+
+    @BeforeEach
+    void beforeEach() {
+        sharedStore = new InMemorySharedSessionStore();
+        LoopbackSessionCacheInvalidationBus bus = new LoopbackSessionCacheInvalidationBus();
+        node1 = new DistributedSessionCacheStrategy(sharedStore, bus, 100, 60);
+        node2 = new DistributedSessionCacheStrategy(sharedStore, bus, 100, 60);
+    }
+
+    private CachedSession createSession(String token, Long activeOrderId) {
+        CachedSession session = new CachedSession();
+        session.setToken(token);
+        session.setActiveOrderId(activeOrderId);
+        return session;
+    }
+
+    @Test
+    public void session_set_on_one_instance_is_a_hit_on_the_other() {
+        node1.set(createSession("abc", null));
+
+        assertThat(node2.get("abc")).isNotNull();
+        assertThat(node2.get("unknown")).isNull();
+    }
+
+    @Test
+    public void near_cache_serves_reads_without_the_shared_store() {
+        node1.set(createSession("abc", 1L));
+        assertThat(node2.get("abc").getActiveOrderId()).isEqualTo(1L);
+
+        sharedStore.delete("abc");
+        assertThat(node1.get("abc")).isNotNull();
+        assertThat(node2.get("abc")).isNotNull();
+    }
+
+    @Test
+    public void set_invalidates_near_cached_copies_of_other_instances() {
+        node1.set(createSession("abc", 1L));
+        assertThat(node2.get("abc").getActiveOrderId()).isEqualTo(1L);
+
+        node1.set(createSession("abc", 2L));
+        assertThat(node2.get("abc").getActiveOrderId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void delete_fans_out_to_other_instances() {
+        node1.set(createSession("abc", null));
+        assertThat(node2.get("abc")).isNotNull();
+
+        node1.delete("abc");
+        assertThat(node1.get("abc")).isNull();
+        assertThat(node2.get("abc")).isNull();
+    }
+
+    @Test
+    public void clear_fans_out_to_other_instances() {
+        node1.set(createSession("abc", null));
+        node2.set(createSession("def", null));
+        assertThat(node1.get("def")).isNotNull();
+        assertThat(node2.get("abc")).isNotNull();
+
+        node2.clear();
+        assertThat(node1.get("abc")).isNull();
+        assertThat(node1.get("def")).isNull();
+        assertThat(node2.get("abc")).isNull();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.ConfigService;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import graphql.validation.ValidationError;
+import graphql.validation.ValidationErrorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class CachingPreparsedDocumentProviderTest {
+
+    @Test
+    public void parses_and_validates_each_query_once() {
+        CachingPreparsedDocumentProvider provider = newProvider(10);
+        AtomicInteger parses = new AtomicInteger();
+
+        PreparsedDocumentEntry first = provider.getDocument(input("{ me { id } }"), input -> {
+            parses.incrementAndGet();
+            return new PreparsedDocumentEntry(new Parser().parseDocument(input.getQuery()));
+        });
+        PreparsedDocumentEntry second = provider.getDocument(input("{ me { id } }"), input -> {
+            parses.incrementAndGet();
+            return new PreparsedDocumentEntry(new Parser().parseDocument(input.getQuery()));
+        });
+
+        assertThat(parses.get()).isEqualTo(1);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void does_not_cache_invalid_queries() {
+        CachingPreparsedDocumentProvider provider = newProvider(10);
+        AtomicInteger parses = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            provider.getDocument(input("{ unknownField }"), input -> {
+                parses.incrementAndGet();
+                return new PreparsedDocumentEntry(Collections.singletonList(
+                        new ValidationError(ValidationErrorType.FieldUndefined)));
+            });
+        }
+
+        assertThat(parses.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void parses_every_time_when_disabled() {
+        CachingPreparsedDocumentProvider provider = newProvider(0);
+        AtomicInteger parses = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            provider.getDocument(input("{ me { id } }"), input -> {
+                parses.incrementAndGet();
+                return new PreparsedDocumentEntry(Document.newDocument().build());
+            });
+        }
+
+        assertThat(parses.get()).isEqualTo(2);
+    }
+
+    private CachingPreparsedDocumentProvider newProvider(long documentCacheSize) {
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getApiOptions().setDocumentCacheSize(documentCacheSize);
+        return new CachingPreparsedDocumentProvider(new ConfigService(configOptions), new SimpleMeterRegistry());
+    }
+
+    private ExecutionInput input(String query) {
+        return ExecutionInput.newExecutionInput().query(query).build();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.options.DataLoaderExecutorType;
+import io.geekshop.service.ConfigService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class DataLoaderExecutorTest {
+
+    @Test
+    public void test_pool_runs_batch_loads_on_its_own_threads() throws Exception {
+        DataLoaderExecutor executor = newExecutor(DataLoaderExecutorType.pool, 1, 1);
+        try {
+            String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor)
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(threadName).startsWith("DataLoader-");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_full_pool_runs_batch_loads_on_the_calling_thread() throws Exception {
+        DataLoaderExecutor executor = newExecutor(DataLoaderExecutorType.pool, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // occupies the only thread and the only queue slot
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            String threadName = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor)
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(threadName).isEqualTo(Thread.currentThread().getName());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_inline_runs_batch_loads_on_the_calling_thread() {
+        DataLoaderExecutor executor = newExecutor(DataLoaderExecutorType.inline, 1, 1);
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName(), executor);
+        assertThat(future.isDone()).isTrue();
+        assertThat(future.join()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    private DataLoaderExecutor newExecutor(DataLoaderExecutorType type, int poolSize, int queueCapacity) {
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getApiOptions().setDataLoaderExecutor(type);
+        configOptions.getApiOptions().setDataLoaderPoolSize(poolSize);
+        configOptions.getApiOptions().setDataLoaderQueueCapacity(queueCapacity);
+        return new DataLoaderExecutor(new ConfigService(configOptions), new SimpleMeterRegistry());
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.ConfigService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.dataloader.DataLoader;
+import org.dataloader.MappedBatchLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class DataLoaderMetricsTest {
+
+    @Test
+    public void test_statistics_of_each_loader_are_recorded() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DataLoaderMetrics dataLoaderMetrics = newMetrics(true, meterRegistry);
+
+        for(int i = 0; i < 2; i++) {
+            DataLoader<Long, String> dataLoader = newDataLoader(dataLoaderMetrics);
+            dataLoader.load(1L);
+            dataLoader.load(2L);
+            dataLoader.load(1L);
+            assertThat(dataLoader.dispatchAndJoin()).containsExactly("1", "2");
+            assertThat(dataLoader.getStatistics().getLoadCount()).isEqualTo(3);
+        }
+
+        assertThat(meterRegistry.get("geekshop.dataloader.loads").tag("loader", "test").counter().count())
+                .isEqualTo(6);
+        assertThat(meterRegistry.get("geekshop.dataloader.cache.hits").tag("loader", "test").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("geekshop.dataloader.cache.hit.ratio").tag("loader", "test").gauge().value())
+                .isEqualTo(1.0 / 3);
+        assertThat(meterRegistry.get("geekshop.dataloader.batch.size").tag("loader", "test").summary().mean())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("geekshop.dataloader.batch").tag("loader", "test").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void test_nothing_is_recorded_when_disabled() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DataLoader<Long, String> dataLoader = newDataLoader(newMetrics(false, meterRegistry));
+        dataLoader.load(1L);
+        dataLoader.dispatchAndJoin();
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private DataLoaderMetrics newMetrics(boolean enabled, MeterRegistry meterRegistry) {
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getApiOptions().setDataLoaderMetricsEnabled(enabled);
+        return new DataLoaderMetrics(new ConfigService(configOptions), meterRegistry);
+    }
+
+    private DataLoader<Long, String> newDataLoader(DataLoaderMetrics dataLoaderMetrics) {
+        MappedBatchLoader<Long, String> batchLoader = keys -> CompletableFuture.completedFuture(
+                keys.stream().collect(Collectors.toMap(Function.identity(), String::valueOf)));
+        return dataLoaderMetrics.newMappedDataLoader("test", batchLoader);
+    }
+}
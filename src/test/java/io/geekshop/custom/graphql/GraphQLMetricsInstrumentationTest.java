@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.ConfigService;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class GraphQLMetricsInstrumentationTest {
+    static final String SDL = "type Query { product: Product } type Product { id: ID name: String }";
+
+    MeterRegistry meterRegistry;
+    ConfigOptions configOptions;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        configOptions = new ConfigOptions();
+    }
+
+    @Test
+    public void times_operations_and_sampled_non_trivial_fields() {
+        configOptions.getApiOptions().setTracingFieldSampleRate(1);
+        GraphQL graphQL = newGraphQL();
+
+        graphQL.execute("query GetProduct { product { id name } }");
+        graphQL.execute("query GetProduct { product { id name } }");
+        graphQL.execute("{ product { unknown } }");
+
+        assertThat(meterRegistry.get("geekshop.graphql.operation")
+                .tag("operation", "GetProduct").tag("type", "query").tag("outcome", "success")
+                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("geekshop.graphql.operation")
+                .tag("operation", "anonymous").tag("outcome", "error")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("geekshop.graphql.field").tag("field", "Query.product").timer().count())
+                .isEqualTo(2);
+        // resolved by the default PropertyDataFetcher, so not worth timing
+        assertThat(meterRegistry.find("geekshop.graphql.field").tag("field", "Product.name").timer()).isNull();
+    }
+
+    @Test
+    public void does_not_time_fields_of_unsampled_operations() {
+        configOptions.getApiOptions().setTracingFieldSampleRate(0);
+        GraphQL graphQL = newGraphQL();
+
+        graphQL.execute("query GetProduct { product { id name } }");
+
+        assertThat(meterRegistry.get("geekshop.graphql.operation").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("geekshop.graphql.field").timers()).isEmpty();
+    }
+
+    @Test
+    public void bounds_the_number_of_operation_names() {
+        configOptions.getApiOptions().setTracingMaxOperationNames(1);
+        GraphQL graphQL = newGraphQL();
+
+        graphQL.execute("query First { product { id } }");
+        graphQL.execute("query Second { product { id } }");
+
+        assertThat(meterRegistry.get("geekshop.graphql.operation").tag("operation", "First").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("geekshop.graphql.operation").tag("operation", "other").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void records_nothing_when_disabled() {
+        configOptions.getApiOptions().setTracingEnabled(false);
+        GraphQL graphQL = newGraphQL();
+
+        graphQL.execute("query GetProduct { product { id name } }");
+
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private GraphQL newGraphQL() {
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", builder -> builder.dataFetcher(
+                        "product", env -> Collections.singletonMap("name", "Laptop")))
+                .build();
+        GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL), wiring);
+        GraphQLMetricsInstrumentation instrumentation =
+                new GraphQLMetricsInstrumentation(new ConfigService(configOptions), meterRegistry);
+        return GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+    }
+}
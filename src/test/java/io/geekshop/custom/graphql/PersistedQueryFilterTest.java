@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.custom.graphql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class PersistedQueryFilterTest {
+    static final String QUERY = "query { activeOrder { id } }";
+
+    ObjectMapper objectMapper;
+    PersistedQueryFilter filter;
+
+    @BeforeEach
+    void beforeEach() {
+        objectMapper = new ObjectMapper();
+        filter = new PersistedQueryFilter(objectMapper, 10, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void asks_for_the_query_of_an_unknown_hash() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(post(null, PersistedQueryFilter.sha256(QUERY)), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        JsonNode error = objectMapper.readTree(response.getContentAsString()).path("errors").get(0);
+        assertThat(error.path("message").asText()).isEqualTo("PersistedQueryNotFound");
+        assertThat(error.path("extensions").path("code").asText()).isEqualTo("PERSISTED_QUERY_NOT_FOUND");
+    }
+
+    @Test
+    public void remembers_the_query_sent_with_its_hash() throws Exception {
+        String hash = PersistedQueryFilter.sha256(QUERY);
+        MockFilterChain registerChain = new MockFilterChain();
+        filter.doFilter(post(QUERY, hash), new MockHttpServletResponse(), registerChain);
+        assertThat(queryOf(registerChain)).isEqualTo(QUERY);
+
+        MockFilterChain postChain = new MockFilterChain();
+        filter.doFilter(post(null, hash), new MockHttpServletResponse(), postChain);
+        assertThat(queryOf(postChain)).isEqualTo(QUERY);
+
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/graphql");
+        get.setParameter("extensions", extensions(hash));
+        MockFilterChain getChain = new MockFilterChain();
+        filter.doFilter(get, new MockHttpServletResponse(), getChain);
+        assertThat(getChain.getRequest().getParameter("query")).isEqualTo(QUERY);
+    }
+
+    @Test
+    public void rejects_a_query_which_does_not_match_its_hash() throws Exception {
+        String hash = PersistedQueryFilter.sha256("query { me { id } }");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(post(QUERY, hash), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getContentAsString()).contains("provided sha does not match query");
+
+        MockFilterChain lookupChain = new MockFilterChain();
+        filter.doFilter(post(null, hash), new MockHttpServletResponse(), lookupChain);
+        assertThat(lookupChain.getRequest()).isNull();
+    }
+
+    @Test
+    public void passes_on_requests_without_a_persisted_query() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.setContentType("application/json");
+        String body = "{\"query\":\"" + QUERY + "\",\"variables\":{}}";
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(StreamUtils.copyToString(chain.getRequest().getInputStream(), StandardCharsets.UTF_8))
+                .isEqualTo(body);
+    }
+
+    @Test
+    public void notifies_a_read_listener_of_the_replayed_body() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(post(QUERY, PersistedQueryFilter.sha256(QUERY)), new MockHttpServletResponse(), chain);
+
+        ServletInputStream inputStream = chain.getRequest().getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        inputStream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (inputStream.isReady() && !inputStream.isFinished()) {
+                    body.write(inputStream.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+
+        assertThat(allDataRead.get()).isTrue();
+        assertThat(objectMapper.readTree(body.toByteArray()).path("query").asText()).isEqualTo(QUERY);
+    }
+
+    private MockHttpServletRequest post(String query, String hash) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.setContentType("application/json");
+        String body = "{" + (query != null ? "\"query\":" + objectMapper.writeValueAsString(query) + "," : "") +
+                "\"extensions\":" + extensions(hash) + "}";
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private String extensions(String hash) {
+        return "{\"persistedQuery\":{\"version\":1,\"sha256Hash\":\"" + hash + "\"}}";
+    }
+
+    private String queryOf(MockFilterChain chain) throws Exception {
+        HttpServletRequest request = (HttpServletRequest) chain.getRequest();
+        return objectMapper.readTree(request.getInputStream()).path("query").asText();
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.io.IOException;
@@ -109,6 +110,9 @@ public class CollectionTest {
     @Autowired
     MockDataService mockDataService;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     List<Asset> assets;
     List<FacetValue> facetValues;
     Collection electronicsCollection;
@@ -1249,6 +1253,9 @@ public class CollectionTest {
                 .filter(v -> v.getName().contains("240GB"))
                 .findFirst().get();
 
+        List<Map<String, Object>> joinRowsBefore = jdbcTemplate.queryForList(
+                "select id, product_variant_id, collection_id from tb_product_variant_collection_join order by id");
+
         UpdateProductVariantInput input = new UpdateProductVariantInput();
         input.setId(gamingPc240GB.getId());
         input.getFacetValueIds().add(getFacetValueId("pear"));
@@ -1279,6 +1286,18 @@ public class CollectionTest {
                 "Gaming PC i7-8700 240GB SSD",
                 "Instant Camera"
         );
+
+        // only the join rows of the updated variant are written, the others are left untouched
+        List<Map<String, Object>> joinRowsAfter = jdbcTemplate.queryForList(
+                "select id, product_variant_id, collection_id from tb_product_variant_collection_join order by id");
+        assertThat(joinRowsAfter).containsAll(joinRowsBefore);
+        List<Map<String, Object>> addedJoinRows = new ArrayList<>(joinRowsAfter);
+        addedJoinRows.removeAll(joinRowsBefore);
+        assertThat(addedJoinRows).isNotEmpty();
+        assertThat(addedJoinRows).allSatisfy(row ->
+                assertThat(((Number) row.get("product_variant_id")).longValue()).isEqualTo(gamingPc240GB.getId()));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from tb_product_variant_collection_join " +
+                "where created_by is null or updated_by is null", Integer.class)).isEqualTo(0);
     }
 
     @Test
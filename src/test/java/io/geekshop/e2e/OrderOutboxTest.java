@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.e2e;
+
+import io.geekshop.*;
+import io.geekshop.config.TestConfig;
+import io.geekshop.config.payment.TestSuccessfulPaymentMethod;
+import io.geekshop.config.payment_method.PaymentOptions;
+import io.geekshop.entity.OrderEntity;
+import io.geekshop.entity.OrderHistoryEntryEntity;
+import io.geekshop.entity.OrderOutboxEntryEntity;
+import io.geekshop.mapper.OrderHistoryEntryEntityMapper;
+import io.geekshop.mapper.OrderOutboxEntryEntityMapper;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.PromotionService;
+import io.geekshop.service.helpers.PromotionUsageCounter;
+import io.geekshop.service.helpers.order_outbox.OrderOutbox;
+import io.geekshop.service.helpers.order_outbox.OrderSideEffectType;
+import io.geekshop.types.common.Adjustment;
+import io.geekshop.types.common.AdjustmentType;
+import io.geekshop.types.common.CreateAddressInput;
+import io.geekshop.types.customer.Customer;
+import io.geekshop.types.customer.CustomerList;
+import io.geekshop.types.history.HistoryEntryType;
+import io.geekshop.types.order.Order;
+import io.geekshop.types.payment.PaymentInput;
+import io.geekshop.utils.TestHelper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphql.spring.boot.test.GraphQLResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+@GeekShopGraphQLTest
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+public class OrderOutboxTest {
+
+    static final String SHARED_GRAPHQL_RESOURCE_TEMPLATE = "graphql/shared/%s.graphqls";
+    static final String GET_CUSTOMER_LIST =
+            String.format(SHARED_GRAPHQL_RESOURCE_TEMPLATE, "get_customer_list");
+
+    static final String SHOP_GRAPHQL_RESOURCE_TEMPLATE = "graphql/shop/%s.graphqls";
+    static final String ADD_ITEM_TO_ORDER  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "add_item_to_order");
+    static final String SET_SHIPPING_ADDRESS  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "set_shipping_address");
+    static final String TRANSITION_TO_STATE  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "transition_to_state");
+    static final String ADD_PAYMENT  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "add_payment");
+    static final String TEST_ORDER_FRAGMENT  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "test_order_fragment");
+
+    @Autowired
+    TestHelper testHelper;
+
+    @Autowired
+    @Qualifier(TestConfig.ADMIN_CLIENT_BEAN)
+    ApiClient adminClient;
+
+    @Autowired
+    @Qualifier(TestConfig.SHOP_CLIENT_BEAN)
+    ApiClient shopClient;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MockDataService mockDataService;
+
+    @Autowired
+    PaymentOptions paymentOptions;
+
+    @Autowired
+    ConfigOptions configOptions;
+
+    @Autowired
+    OrderOutbox orderOutbox;
+
+    @Autowired
+    OrderOutboxEntryEntityMapper orderOutboxEntryEntityMapper;
+
+    @Autowired
+    OrderHistoryEntryEntityMapper orderHistoryEntryEntityMapper;
+
+    @Autowired
+    PromotionUsageCounter promotionUsageCounter;
+
+    @Autowired
+    PromotionService promotionService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    TestSuccessfulPaymentMethod testSuccessfulPaymentMethod;
+    Customer customer;
+    Order placedOrder;
+
+    @TestConfiguration
+    static class ContextConfiguration {
+        @Bean
+        @Primary
+        public PaymentOptions testPaymentOptions() {
+            return new PaymentOptions(
+                    Arrays.asList(
+                            new TestSuccessfulPaymentMethod()
+                    )
+            );
+        }
+    }
+
+    @BeforeAll
+    void beforeAll() throws IOException {
+        PopulateOptions populateOptions = PopulateOptions.builder().customerCount(1).build();
+        populateOptions.setInitialData(testHelper.getInitialData());
+        populateOptions.setProductCsvPath(testHelper.getTestFixture("e2e-products-stock-control.csv"));
+
+        mockDataService.populate(populateOptions);
+        adminClient.asSuperAdmin();
+
+        testSuccessfulPaymentMethod = (TestSuccessfulPaymentMethod) paymentOptions.getPaymentMethodHandlers().get(0);
+    }
+
+    @AfterAll
+    void afterAll() {
+        configOptions.getOrderOptions().setAsyncSideEffectsEnabled(false);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(1)
+    public void history_entries_of_transitions_are_applied_from_the_outbox() throws IOException {
+        configOptions.getOrderOptions().setAsyncSideEffectsEnabled(true);
+
+        GraphQLResponse graphQLResponse = adminClient.perform(GET_CUSTOMER_LIST, null);
+        customer = graphQLResponse.get("$.data.customers", CustomerList.class).getItems().get(0);
+        shopClient.asUserWithCredentials(customer.getEmailAddress(), MockDataService.TEST_PASSWORD);
+
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("productVariantId", 1L);
+        variables.put("quantity", 1);
+        graphQLResponse = shopClient.perform(ADD_ITEM_TO_ORDER, variables);
+        Order order = graphQLResponse.get("$.data.addItemToOrder", Order.class);
+        placedOrder = order;
+
+        CreateAddressInput input = new CreateAddressInput();
+        input.setStreetLine1("1 Test Street");
+        variables = objectMapper.createObjectNode();
+        variables.set("input", objectMapper.valueToTree(input));
+        shopClient.perform(SET_SHIPPING_ADDRESS, variables);
+
+        variables = objectMapper.createObjectNode();
+        variables.put("state", "ArrangingPayment");
+        shopClient.perform(TRANSITION_TO_STATE, variables);
+
+        PaymentInput paymentInput = new PaymentInput();
+        paymentInput.setMethod(testSuccessfulPaymentMethod.getCode());
+        variables = objectMapper.createObjectNode();
+        variables.set("input", objectMapper.valueToTree(paymentInput));
+        graphQLResponse = shopClient.perform(ADD_PAYMENT, variables, Arrays.asList(TEST_ORDER_FRAGMENT));
+        assertThat(graphQLResponse.get("$.data.addPaymentToOrder.state")).isEqualTo("PaymentSettled");
+
+        orderOutbox.drain();
+
+        assertThat(orderOutboxEntryEntityMapper.selectCount(null)).isEqualTo(0);
+        List<OrderHistoryEntryEntity> historyEntries = getHistoryEntries(order.getId());
+        assertThat(historyEntries.stream().map(OrderHistoryEntryEntity::getType).collect(Collectors.toList()))
+                .containsExactly(
+                        HistoryEntryType.ORDER_STATE_TRANSITION,
+                        HistoryEntryType.ORDER_PAYMENT_TRANSITION,
+                        HistoryEntryType.ORDER_STATE_TRANSITION);
+        assertThat(historyEntries.get(0).getData().get("to")).isEqualTo("ArrangingPayment");
+        assertThat(historyEntries.get(1).getData().get("to")).isEqualTo("Settled");
+        assertThat(historyEntries.get(2).getData().get("to")).isEqualTo("PaymentSettled");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(2)
+    public void failed_entries_are_retried_and_hold_back_later_entries_of_their_order() {
+        OrderOutboxEntryEntity failing = insertEntry(999L, "not json");
+        OrderOutboxEntryEntity later = insertEntry(999L, historyNotePayload("2"));
+        insertEntry(998L, historyNotePayload("1"));
+
+        orderOutbox.drain();
+
+        assertThat(getHistoryEntries(998L)).hasSize(1);
+        assertThat(getHistoryEntries(999L)).isEmpty();
+        OrderOutboxEntryEntity failed = orderOutboxEntryEntityMapper.selectById(failing.getId());
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).isNotNull();
+        assertThat(failed.getNextAttemptAt()).isAfter(new Date());
+        assertThat(orderOutboxEntryEntityMapper.selectById(later.getId())).isNotNull();
+
+        failed.setPayload(historyNotePayload("1"));
+        failed.setNextAttemptAt(new Date(0));
+        orderOutboxEntryEntityMapper.updateById(failed);
+
+        orderOutbox.drain();
+
+        assertThat(orderOutboxEntryEntityMapper.selectCount(null)).isEqualTo(0);
+        assertThat(getHistoryEntries(999L).stream().map(entry -> entry.getData().get("seq")))
+                .containsExactly("1", "2");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(3)
+    public void promotion_usages_are_counted_without_waiting_for_the_outbox() {
+        jdbcTemplate.update("insert into tb_promotion (name, enabled) values ('Outbox Promotion', true)");
+        Long promotionId = jdbcTemplate.queryForObject(
+                "select id from tb_promotion where name = 'Outbox Promotion'", Long.class);
+
+        OrderEntity order = new OrderEntity();
+        order.setId(placedOrder.getId());
+        order.setCustomerId(customer.getId());
+        Adjustment adjustment = new Adjustment();
+        adjustment.setType(AdjustmentType.PROMOTION);
+        adjustment.setAdjustmentSource(AdjustmentType.PROMOTION.name() + ":" + promotionId);
+        order.getAdjustments().add(adjustment);
+
+        orderOutbox.addPromotionsToOrder(order);
+        assertThat(promotionUsageCounter.getUsages(promotionId, customer.getId())).isEqualTo(1);
+
+        // whether or not the record of the Promotion has been applied from the outbox yet
+        orderOutbox.removePromotionUsagesOfOrder(order);
+        assertThat(promotionUsageCounter.getUsages(promotionId, customer.getId())).isEqualTo(0);
+
+        orderOutbox.drain();
+
+        assertThat(orderOutboxEntryEntityMapper.selectCount(null)).isEqualTo(0);
+        assertThat(promotionService.getRecordedPromotionIds(placedOrder.getId())).containsExactly(promotionId);
+        assertThat(promotionUsageCounter.getUsages(promotionId, customer.getId())).isEqualTo(0);
+    }
+
+    private OrderOutboxEntryEntity insertEntry(Long orderId, String payload) {
+        OrderOutboxEntryEntity entry = new OrderOutboxEntryEntity();
+        entry.setOrderId(orderId);
+        entry.setType(OrderSideEffectType.HISTORY_ENTRY);
+        entry.setPayload(payload);
+        entry.setNextAttemptAt(new Date());
+        orderOutboxEntryEntityMapper.insert(entry);
+        return entry;
+    }
+
+    private String historyNotePayload(String seq) {
+        return "{\"type\":\"ORDER_NOTE\",\"data\":{\"seq\":\"" + seq + "\"}}";
+    }
+
+    private List<OrderHistoryEntryEntity> getHistoryEntries(Long orderId) {
+        QueryWrapper<OrderHistoryEntryEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(OrderHistoryEntryEntity::getOrderId, orderId).orderByAsc(OrderHistoryEntryEntity::getId);
+        return orderHistoryEntryEntityMapper.selectList(queryWrapper);
+    }
+}
@@ -17,6 +17,8 @@ import io.geekshop.config.promotion.conditions.ContainsProductsCondition;
 import io.geekshop.config.promotion.conditions.CustomerGroupCondition;
 import io.geekshop.config.promotion.conditions.HasFacetValuesCondition;
 import io.geekshop.config.promotion.conditions.MinimumOrderAmountCondition;
+import io.geekshop.entity.OrderItemEntity;
+import io.geekshop.mapper.OrderItemEntityMapper;
 import io.geekshop.service.helpers.order_state_machine.OrderState;
 import io.geekshop.types.common.AdjustmentType;
 import io.geekshop.types.common.ConfigArgInput;
@@ -30,6 +32,7 @@ import io.geekshop.types.facet.FacetList;
 import io.geekshop.types.facet.FacetValue;
 import io.geekshop.types.history.HistoryEntry;
 import io.geekshop.types.history.HistoryEntryType;
+import io.geekshop.types.order.CancelOrderInput;
 import io.geekshop.types.order.Order;
 import io.geekshop.types.order.OrderLine;
 import io.geekshop.types.product.Product;
@@ -40,6 +43,7 @@ import io.geekshop.types.promotion.CreatePromotionInput;
 import io.geekshop.types.promotion.Promotion;
 import io.geekshop.utils.TestHelper;
 import io.geekshop.utils.TestOrderUtils;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -75,6 +79,8 @@ import static org.assertj.core.api.Assertions.*;
 public class OrderPromotionTest {
 
     static final String ADMIN_ORDER_GRAPHQL_RESOURCE_TEMPLATE = "graphql/admin/order/%s.graphqls";
+    static final String CANCEL_ORDER =
+            String.format(ADMIN_ORDER_GRAPHQL_RESOURCE_TEMPLATE, "cancel_order");
     static final String GET_PROMO_PRODUCTS  =
             String.format(ADMIN_ORDER_GRAPHQL_RESOURCE_TEMPLATE, "get_promo_products");
     static final String DELETE_PROMOTION  =
@@ -140,6 +146,9 @@ public class OrderPromotionTest {
     @Autowired
     MockDataService mockDataService;
 
+    @Autowired
+    OrderItemEntityMapper orderItemEntityMapper;
+
     @Autowired
     PaymentOptions paymentOptions;
 
@@ -775,6 +784,14 @@ public class OrderPromotionTest {
 
         assertThat(order.getTotal()).isEqualTo(2500);
         assertThat(order.getLines().get(0).getAdjustments()).hasSize(1);
+        // the pending adjustments are written in bulk, through the type handler & audit fields of the entity
+        QueryWrapper<OrderItemEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().eq(OrderItemEntity::getOrderLineId, order.getLines().get(0).getId());
+        List<OrderItemEntity> orderItems = orderItemEntityMapper.selectList(queryWrapper);
+        assertThat(orderItems).hasSize(1);
+        assertThat(orderItems.get(0).getPendingAdjustments()).hasSize(1);
+        assertThat(orderItems.get(0).getPendingAdjustments().get(0).getAmount()).isEqualTo(-2500);
+        assertThat(orderItems.get(0).getUpdatedBy()).isNotNull();
 
         variables = objectMapper.createObjectNode();
         variables.put("couponCode", couponCode);
@@ -785,6 +802,7 @@ public class OrderPromotionTest {
 
         assertThat(order.getLines().get(0).getAdjustments()).isEmpty();
         assertThat(order.getTotal()).isEqualTo(5000);
+        assertThat(orderItemEntityMapper.selectList(queryWrapper).get(0).getPendingAdjustments()).isEmpty();
 
         deletePromotion(promotion.getId());
     }
@@ -1022,6 +1040,8 @@ public class OrderPromotionTest {
         shopClient.asUserWithCredentials(customers.get(0).getEmailAddress(), password);
     }
 
+    Long registeredCustomerOrderId;
+
     @Test
     @org.junit.jupiter.api.Order(20)
     public void allows_initial_usage_02() throws IOException {
@@ -1042,6 +1062,7 @@ public class OrderPromotionTest {
         order = testOrderUtils.addPaymentToOrder(shopClient, testSuccessfulPaymentMethod);
         assertThat(order.getState()).isEqualTo(OrderState.PaymentSettled.name());
         assertThat(order.getActive()).isFalse();
+        registeredCustomerOrderId = order.getId();
     }
 
     @Test
@@ -1089,6 +1110,29 @@ public class OrderPromotionTest {
         assertThat(activeOrder.getCouponCodes()).isEmpty();
     }
 
+    @Test
+    @org.junit.jupiter.api.Order(23)
+    public void allows_usage_again_once_order_using_it_is_cancelled() throws IOException {
+        CancelOrderInput input = new CancelOrderInput();
+        input.setOrderId(registeredCustomerOrderId);
+
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.set("input", objectMapper.valueToTree(input));
+        adminClient.perform(CANCEL_ORDER, variables);
+
+        loginAsRegisteredCustomer();
+
+        variables = objectMapper.createObjectNode();
+        variables.put("couponCode", TEST_COUPON_CODE);
+
+        GraphQLResponse graphQLResponse =
+                shopClient.perform(APPLY_COUPON_CODE, variables, Arrays.asList(TEST_ORDER_FRAGMENT));
+        Order order = graphQLResponse.get("$.data.applyCouponCode", Order.class);
+
+        assertThat(order.getCouponCodes()).containsExactly(TEST_COUPON_CODE);
+        assertThat(order.getTotal()).isEqualTo(0);
+    }
+
     private void getProducts() throws IOException {
         ProductListOptions options = new ProductListOptions();
         options.setPageSize(10);
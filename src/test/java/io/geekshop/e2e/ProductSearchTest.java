@@ -11,6 +11,8 @@ import io.geekshop.MockDataService;
 import io.geekshop.PopulateOptions;
 import io.geekshop.config.TestConfig;
 import io.geekshop.config.collection.CollectionFilter;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.SearchIndexService;
 import io.geekshop.types.asset.Coordinate;
 import io.geekshop.types.asset.CoordinateInput;
 import io.geekshop.types.asset.UpdateAssetInput;
@@ -34,12 +36,14 @@ import com.graphql.spring.boot.test.GraphQLResponse;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -119,6 +123,15 @@ public class ProductSearchTest {
     @Autowired
     MockDataService mockDataService;
 
+    @Autowired
+    SearchIndexService searchIndexService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ConfigOptions configOptions;
+
     @Autowired
     @Qualifier("facetValueCollectionFilter")
     CollectionFilter facetValueCollectionFilter;
@@ -1016,4 +1029,61 @@ public class ProductSearchTest {
         assertThat(searchResult3.getProductVariantId()).isEqualTo(3L);
         assertThat(searchResult3.getEnabled()).isFalse();
     }
+
+    @Test
+    @Order(34)
+    public void records_the_index_version_instead_of_inferring_it_from_the_join_rows() throws IOException {
+        assertThat(searchIndexService.isIndexOutdated()).isFalse();
+
+        // e.g. a catalog without any facets or collections
+        jdbcTemplate.execute("delete from tb_search_index_facet_value");
+        jdbcTemplate.execute("delete from tb_search_index_collection");
+        assertThat(searchIndexService.isIndexOutdated()).isFalse();
+
+        jdbcTemplate.execute("delete from tb_search_index_version");
+        assertThat(searchIndexService.isIndexOutdated()).isTrue();
+
+        // restore the index for the following tests
+        adminClient.perform(REINDEX, null);
+        testHelper.awaitRunningTasks();
+        assertThat(searchIndexService.isIndexOutdated()).isFalse();
+    }
+
+    @Test
+    @Order(35)
+    public void reindex_in_small_batches_builds_the_same_index() throws IOException {
+        // the baseline is an index built with the default batch size
+        adminClient.perform(REINDEX, null);
+        testHelper.awaitRunningTasks();
+
+        SearchInput input = new SearchInput();
+        input.setPageSize(100);
+        JsonNode itemsBefore = objectMapper.valueToTree(doAdminSearchQuery(input).getItems());
+        List<Map<String, Object>> facetValueRowsBefore = jdbcTemplate.queryForList(
+                "select * from tb_search_index_facet_value order by product_variant_id, facet_value_id");
+        List<Map<String, Object>> collectionRowsBefore = jdbcTemplate.queryForList(
+                "select * from tb_search_index_collection order by product_variant_id, collection_id");
+        assertThat(facetValueRowsBefore).isNotEmpty();
+        assertThat(collectionRowsBefore).isNotEmpty();
+
+        int batchSize = configOptions.getSearchOptions().getReindexBatchSize();
+        configOptions.getSearchOptions().setReindexBatchSize(2);
+        try {
+            adminClient.perform(REINDEX, null);
+            testHelper.awaitRunningTasks();
+        } finally {
+            configOptions.getSearchOptions().setReindexBatchSize(batchSize);
+        }
+
+        JsonNode itemsAfter = objectMapper.valueToTree(doAdminSearchQuery(input).getItems());
+        assertThat(itemsAfter.size()).isGreaterThan(2);
+        assertThat(itemsAfter).isEqualTo(itemsBefore);
+        assertThat(jdbcTemplate.queryForList(
+                "select * from tb_search_index_facet_value order by product_variant_id, facet_value_id"))
+                .isEqualTo(facetValueRowsBefore);
+        assertThat(jdbcTemplate.queryForList(
+                "select * from tb_search_index_collection order by product_variant_id, collection_id"))
+                .isEqualTo(collectionRowsBefore);
+        assertThat(searchIndexService.isIndexOutdated()).isFalse();
+    }
 }
@@ -10,8 +10,12 @@ import io.geekshop.common.Constant;
 import io.geekshop.config.TestConfig;
 import io.geekshop.config.session_cache.CachedSession;
 import io.geekshop.config.session_cache.SessionCacheStrategy;
+import io.geekshop.entity.SessionEntity;
+import io.geekshop.mapper.SessionEntityMapper;
 import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.helpers.session.ExpiredSessionReaper;
 import io.geekshop.utils.TestHelper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphql.spring.boot.test.GraphQLResponse;
@@ -24,6 +28,7 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -71,6 +76,12 @@ public class SessionManagementTest {
     @Autowired
     Map<String, CachedSession> testSessionCache;
 
+    @Autowired
+    ExpiredSessionReaper expiredSessionReaper;
+
+    @Autowired
+    SessionEntityMapper sessionEntityMapper;
+
     @BeforeAll
     void beforeAll() throws IOException {
         PopulateOptions populateOptions = PopulateOptions.builder().customerCount(1).build();
@@ -186,4 +197,23 @@ public class SessionManagementTest {
             assertThat(apiEx.getMessage()).isEqualTo("You are not currently authorized to perform this action");
         }
     }
+
+    @Test
+    @Order(7)
+    public void reaper_deletes_expired_sessions() throws Exception {
+        Mockito.clearInvocations(sessionCacheStrategy);
+        QueryWrapper<SessionEntity> queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().lt(SessionEntity::getExpires, new Date());
+        Integer expiredCount = sessionEntityMapper.selectCount(queryWrapper);
+        assertThat(expiredCount).isGreaterThan(0);
+
+        configOptions.getAuthOptions().setSessionReaperBatchSize(1);
+        int reaped = expiredSessionReaper.reap();
+
+        assertThat(reaped).isGreaterThanOrEqualTo(expiredCount);
+        queryWrapper = new QueryWrapper<>();
+        queryWrapper.lambda().lt(SessionEntity::getExpires, new Date());
+        assertThat(sessionEntityMapper.selectCount(queryWrapper)).isEqualTo(0);
+        Mockito.verify(sessionCacheStrategy, Mockito.times(reaped)).delete(any());
+    }
 }
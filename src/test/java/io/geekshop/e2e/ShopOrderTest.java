@@ -41,6 +41,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.io.IOException;
@@ -132,6 +133,9 @@ public class ShopOrderTest {
     @Autowired
     ConfigOptions configOptions;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     TestSuccessfulPaymentMethod testSuccessfulPaymentMethod;
     TestFailingPaymentMethod testFailingPaymentMethod;
     TestErrorPaymentMethod testErrorPaymentMethod;
@@ -1160,8 +1164,11 @@ public class ShopOrderTest {
                 shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
         Order activeOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
 
+        assertThat(activeOrder.getId()).isEqualTo(order.getId());
         assertThat(activeOrder.getLines()).hasSize(1);
         assertThat(activeOrder.getLines().get(0).getProductVariant().getId()).isEqualTo(1);
+        assertThat(activeOrder.getLines().get(0).getQuantity()).isEqualTo(1);
+        assertThat(activeOrder.getTotal()).isEqualTo(order.getTotal());
     }
 
     @Test
@@ -1189,9 +1196,11 @@ public class ShopOrderTest {
                 shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
         Order activeOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
 
+        assertThat(activeOrder.getId()).isNotEqualTo(order.getId());
         assertThat(activeOrder.getLines()).hasSize(2);
         assertThat(activeOrder.getLines().get(0).getProductVariant().getId()).isEqualTo(1);
         assertThat(activeOrder.getLines().get(1).getProductVariant().getId()).isEqualTo(2);
+        assertThat(activeOrder.getLines().get(1).getQuantity()).isEqualTo(1);
     }
 
     @Test
@@ -1338,4 +1347,72 @@ public class ShopOrderTest {
         assertThat(activeOrder.getCustomer().getOrders().getItems()).isEmpty();
     }
 
+    @Test
+    @org.junit.jupiter.api.Order(63)
+    public void keeps_existing_order_when_logging_in_without_guest_order() throws IOException {
+        shopClient.asUserWithCredentials(customers.get(1).getEmailAddress(), password);
+        GraphQLResponse graphQLResponse =
+                shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
+        Order existingOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
+
+        shopClient.asAnonymousUser();
+
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("username", customers.get(1).getEmailAddress());
+        variables.put("password", password);
+
+        shopClient.perform(ATTEMPT_LOGIN, variables, Arrays.asList(CURRENT_USER_FRAGMENT));
+
+        graphQLResponse =
+                shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
+        Order activeOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
+
+        assertThat(activeOrder.getId()).isEqualTo(existingOrder.getId());
+        assertThat(activeOrder.getLines()).hasSize(2);
+        assertThat(activeOrder.getLines().get(0).getQuantity()).isEqualTo(1);
+        assertThat(activeOrder.getLines().get(1).getQuantity()).isEqualTo(1);
+        assertThat(activeOrder.getTotal()).isEqualTo(existingOrder.getTotal());
+        assertThat(activeOrder.getTotal()).isGreaterThan(0);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(64)
+    public void merges_guest_order_into_latest_active_order() throws IOException {
+        shopClient.asUserWithCredentials(customers.get(1).getEmailAddress(), password);
+        GraphQLResponse graphQLResponse =
+                shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
+        Order latestOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
+
+        // an older active Order of the same Customer, which must not be picked
+        jdbcTemplate.update("insert into tb_order (code, state, active, customer_id, sub_total, shipping, " +
+                "created_at, updated_at) values ('OLDER_ACTIVE_ORDER', 'AddingItems', true, ?, 0, 0, " +
+                "'2000-01-01 00:00:00', '2000-01-01 00:00:00')", customers.get(1).getId());
+
+        try {
+            shopClient.asAnonymousUser();
+
+            ObjectNode variables = objectMapper.createObjectNode();
+            variables.put("productVariantId", 3L);
+            variables.put("quantity", 1);
+            shopClient.perform(ADD_ITEM_TO_ORDER, variables);
+
+            variables = objectMapper.createObjectNode();
+            variables.put("username", customers.get(1).getEmailAddress());
+            variables.put("password", password);
+
+            shopClient.perform(ATTEMPT_LOGIN, variables, Arrays.asList(CURRENT_USER_FRAGMENT));
+
+            graphQLResponse =
+                    shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT));
+            Order activeOrder = graphQLResponse.get("$.data.activeOrder", Order.class);
+
+            assertThat(activeOrder.getId()).isEqualTo(latestOrder.getId());
+            assertThat(activeOrder.getLines()).hasSize(3);
+            assertThat(activeOrder.getLines().get(2).getProductVariant().getId()).isEqualTo(3L);
+            assertThat(activeOrder.getLines().get(2).getQuantity()).isEqualTo(1);
+        } finally {
+            jdbcTemplate.update("delete from tb_order where code = 'OLDER_ACTIVE_ORDER'");
+        }
+    }
+
 }
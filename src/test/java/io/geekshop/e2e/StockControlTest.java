@@ -9,13 +9,17 @@ import io.geekshop.*;
 import io.geekshop.config.TestConfig;
 import io.geekshop.config.payment.TestSuccessfulPaymentMethod;
 import io.geekshop.config.payment_method.PaymentOptions;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.helpers.StaleStockAllocationReaper;
 import io.geekshop.types.common.CreateAddressInput;
 import io.geekshop.types.customer.Customer;
 import io.geekshop.types.customer.CustomerList;
+import io.geekshop.types.order.Order;
 import io.geekshop.types.payment.PaymentInput;
 import io.geekshop.types.product.Product;
 import io.geekshop.types.product.ProductVariant;
 import io.geekshop.types.product.UpdateProductVariantInput;
+import io.geekshop.types.stock.StockMovement;
 import io.geekshop.types.stock.StockMovementType;
 import io.geekshop.utils.TestHelper;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -61,10 +65,14 @@ public class StockControlTest {
             String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "set_shipping_address");
     static final String TRANSITION_TO_STATE  =
             String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "transition_to_state");
+    static final String ADJUST_ITEM_QUANTITY  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "adjust_item_quantity");
     static final String ADD_PAYMENT  =
             String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "add_payment");
     static final String TEST_ORDER_FRAGMENT  =
             String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "test_order_fragment");
+    static final String GET_ACTIVE_ORDER  =
+            String.format(SHOP_GRAPHQL_RESOURCE_TEMPLATE, "get_active_order");
 
     static final String ADMIN_STOCK_GRAPHQL_RESOURCE_TEMPLATE = "graphql/admin/stock/%s.graphqls";
     static final String UPDATE_STOCK_ON_HAND  =
@@ -90,6 +98,12 @@ public class StockControlTest {
     @Autowired
     PaymentOptions paymentOptions;
 
+    @Autowired
+    ConfigOptions configOptions;
+
+    @Autowired
+    StaleStockAllocationReaper staleStockAllocationReaper;
+
     List<ProductVariant> variants;
 
     TestSuccessfulPaymentMethod testSuccessfulPaymentMethod;
@@ -119,6 +133,11 @@ public class StockControlTest {
         testSuccessfulPaymentMethod = (TestSuccessfulPaymentMethod) paymentOptions.getPaymentMethodHandlers().get(0);
     }
 
+    @AfterAll
+    void afterAll() {
+        configOptions.getOrderOptions().setStockAllocationEnabled(false);
+    }
+
     /**
      * stock adjustments
      */
@@ -348,4 +367,137 @@ public class StockControlTest {
         assertThat(variant2.getStockOnHand()).isEqualTo(2); // tracked inventory
     }
 
+    /**
+     * stock allocation
+     */
+
+    Long allocationOrderLineId;
+
+    private ProductVariant getStockTrackedVariant() throws IOException {
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("id", 2L);
+
+        GraphQLResponse graphQLResponse =
+                adminClient.perform(GET_STOCK_MOVEMENT, variables, Arrays.asList(VARIANT_WITH_STOCK_FRAGMENT));
+        Product product = graphQLResponse.get("$.data.adminProduct", Product.class);
+        return product.getVariants().get(1);
+    }
+
+    private void transitionToState(String state) throws IOException {
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("state", state);
+        shopClient.perform(TRANSITION_TO_STATE, variables);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(8)
+    public void allocation_fails_when_not_enough_stock_is_available() throws IOException {
+        configOptions.getOrderOptions().setStockAllocationEnabled(true);
+        ProductVariant variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(2);
+
+        shopClient.asUserWithCredentials(customers.get(1).getEmailAddress(), MockDataService.TEST_PASSWORD);
+
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("productVariantId", variant2.getId());
+        variables.put("quantity", 3);
+        GraphQLResponse graphQLResponse = shopClient.perform(ADD_ITEM_TO_ORDER, variables);
+        Order order = graphQLResponse.get("$.data.addItemToOrder", Order.class);
+        allocationOrderLineId = order.getLines().get(0).getId();
+
+        CreateAddressInput input = new CreateAddressInput();
+        input.setStreetLine1("2 Test Street");
+        variables = objectMapper.createObjectNode();
+        variables.set("input", objectMapper.valueToTree(input));
+        shopClient.perform(SET_SHIPPING_ADDRESS, variables);
+
+        try {
+            transitionToState("ArrangingPayment");
+            fail("should have thrown");
+        } catch (ApiException apiEx) {
+            assertThat(apiEx.getErrorMessage()).isEqualTo("Insufficient stock for { C27F390 }");
+        }
+
+        variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(2);
+        assertThat(variant2.getStockAllocated()).isEqualTo(0);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(9)
+    public void stock_is_allocated_when_order_transitions_to_ArrangingPayment() throws IOException {
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.put("orderLineId", allocationOrderLineId);
+        variables.put("quantity", 2);
+        shopClient.perform(ADJUST_ITEM_QUANTITY, variables, Arrays.asList(TEST_ORDER_FRAGMENT));
+
+        transitionToState("ArrangingPayment");
+
+        ProductVariant variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(2);
+        assertThat(variant2.getStockAllocated()).isEqualTo(2);
+        List<StockMovement> stockMovements = variant2.getStockMovements().getItems();
+        assertThat(stockMovements.get(stockMovements.size() - 1).getType()).isEqualTo(StockMovementType.ALLOCATION);
+        assertThat(stockMovements.get(stockMovements.size() - 1).getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(10)
+    public void allocated_stock_is_released_when_order_transitions_back_to_AddingItems() throws IOException {
+        transitionToState("AddingItems");
+
+        ProductVariant variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(2);
+        assertThat(variant2.getStockAllocated()).isEqualTo(0);
+        List<StockMovement> stockMovements = variant2.getStockMovements().getItems();
+        assertThat(stockMovements.get(stockMovements.size() - 1).getType()).isEqualTo(StockMovementType.RELEASE);
+        assertThat(stockMovements.get(stockMovements.size() - 1).getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(11)
+    public void allocated_stock_is_released_once_it_times_out() throws IOException {
+        transitionToState("ArrangingPayment");
+        assertThat(getStockTrackedVariant().getStockAllocated()).isEqualTo(2);
+
+        // not timed out yet
+        assertThat(staleStockAllocationReaper.reap()).isEqualTo(0);
+        assertThat(getStockTrackedVariant().getStockAllocated()).isEqualTo(2);
+
+        configOptions.getOrderOptions().setStockAllocationTimeout(0);
+        try {
+            assertThat(staleStockAllocationReaper.reap()).isEqualTo(1);
+        } finally {
+            configOptions.getOrderOptions().setStockAllocationTimeout(1800);
+        }
+
+        ProductVariant variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(2);
+        assertThat(variant2.getStockAllocated()).isEqualTo(0);
+        List<StockMovement> stockMovements = variant2.getStockMovements().getItems();
+        assertThat(stockMovements.get(stockMovements.size() - 1).getType()).isEqualTo(StockMovementType.RELEASE);
+        assertThat(stockMovements.get(stockMovements.size() - 1).getQuantity()).isEqualTo(2);
+        Order order = shopClient.perform(GET_ACTIVE_ORDER, null, Arrays.asList(TEST_ORDER_FRAGMENT))
+                .get("$.data.activeOrder", Order.class);
+        assertThat(order.getState()).isEqualTo("AddingItems");
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(12)
+    public void allocated_stock_is_sold_when_order_is_paid() throws IOException {
+        transitionToState("ArrangingPayment");
+
+        PaymentInput input = new PaymentInput();
+        input.setMethod(testSuccessfulPaymentMethod.getCode());
+        ObjectNode variables = objectMapper.createObjectNode();
+        variables.set("input", objectMapper.valueToTree(input));
+        shopClient.perform(ADD_PAYMENT, variables, Arrays.asList(TEST_ORDER_FRAGMENT));
+
+        ProductVariant variant2 = getStockTrackedVariant();
+        assertThat(variant2.getStockOnHand()).isEqualTo(0);
+        assertThat(variant2.getStockAllocated()).isEqualTo(0);
+        List<StockMovement> stockMovements = variant2.getStockMovements().getItems();
+        assertThat(stockMovements.get(stockMovements.size() - 1).getType()).isEqualTo(StockMovementType.SALE);
+        assertThat(stockMovements.get(stockMovements.size() - 1).getQuantity()).isEqualTo(-2);
+    }
 }
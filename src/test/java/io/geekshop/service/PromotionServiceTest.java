@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service;
+
+import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.PromotionCondition;
+import io.geekshop.config.promotion.PromotionOptions;
+import io.geekshop.entity.OrderEntity;
+import io.geekshop.entity.PromotionEntity;
+import io.geekshop.mapper.OrderPromotionJoinEntityMapper;
+import io.geekshop.mapper.PromotionEntityMapper;
+import io.geekshop.options.OrderOptions;
+import io.geekshop.service.helpers.PromotionUsageCounter;
+import io.geekshop.types.common.ConfigArgDefinition;
+import io.geekshop.types.common.ConfigurableOperation;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.google.common.collect.ImmutableMap;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class PromotionServiceTest {
+    PromotionCondition alwaysTrueCondition = new PromotionCondition("always_true_condition", "") {
+        @Override
+        public boolean check(OrderEntity order, ConfigArgValues argValues) {
+            return true;
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    PromotionEntityMapper promotionEntityMapper;
+    OrderOptions orderOptions;
+    PromotionService promotionService;
+
+    @BeforeEach
+    void beforeEach() {
+        // the lambda query wrappers need the table info, which is otherwise only initialised by the mappers
+        TableInfoHelper.initTableInfo(
+                new MapperBuilderAssistant(new MybatisConfiguration(), ""), PromotionEntity.class);
+
+        promotionEntityMapper = mock(PromotionEntityMapper.class);
+        when(promotionEntityMapper.selectList(any())).thenAnswer(invocation -> {
+            PromotionEntity promotion =
+                    new PromotionEntity(Arrays.asList(alwaysTrueCondition), Collections.emptyList());
+            promotion.setId(1L);
+            promotion.setName("promotion");
+            ConfigurableOperation conditionOp = new ConfigurableOperation();
+            conditionOp.setCode(alwaysTrueCondition.getCode());
+            promotion.getConditions().add(conditionOp);
+            return new ArrayList<>(Arrays.asList(promotion));
+        });
+        orderOptions = new OrderOptions();
+        promotionService = newPromotionService();
+    }
+
+    @Test
+    public void loads_the_active_promotions_once_until_they_expire() {
+        promotionService.getActivePromotions();
+        promotionService.getActivePromotions();
+        verify(promotionEntityMapper, times(1)).selectList(any());
+
+        orderOptions.setActivePromotionsCacheTtl(0);
+        promotionService = newPromotionService();
+        promotionService.getActivePromotions();
+        promotionService.getActivePromotions();
+        verify(promotionEntityMapper, times(3)).selectList(any());
+    }
+
+    @Test
+    public void hands_out_snapshots_which_do_not_change_the_cached_promotions() {
+        PromotionEntity first = promotionService.getActivePromotions().get(0);
+        assertThatThrownBy(() -> first.getConditions().add(new ConfigurableOperation()))
+                .isInstanceOf(UnsupportedOperationException.class);
+        first.setName("changed");
+        first.setConditions(Collections.emptyList());
+
+        PromotionEntity second = promotionService.getActivePromotions().get(0);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getId()).isEqualTo(1L);
+        assertThat(second.getName()).isEqualTo("promotion");
+        assertThat(second.getConditions()).hasSize(1);
+        assertThat(second.test(new OrderEntity())).isTrue();
+        verify(promotionEntityMapper, times(1)).selectList(any());
+    }
+
+    private PromotionService newPromotionService() {
+        ConfigService configService = mock(ConfigService.class);
+        when(configService.getOrderOptions()).thenReturn(orderOptions);
+        return new PromotionService(mock(PromotionOptions.class), promotionEntityMapper,
+                mock(OrderPromotionJoinEntityMapper.class), mock(PromotionUsageCounter.class), configService);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service;
+
+import io.geekshop.config.auth.AuthConfig;
+import io.geekshop.config.session_cache.CachedSession;
+import io.geekshop.config.session_cache.NoopSessionCacheStrategy;
+import io.geekshop.entity.SessionEntity;
+import io.geekshop.mapper.SessionEntityMapper;
+import io.geekshop.options.AuthOptions;
+import io.geekshop.service.helpers.session.SessionWriteBehindQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class SessionServiceTest {
+    static final String TOKEN = "token";
+
+    SessionEntityMapper sessionEntityMapper;
+    AuthOptions authOptions;
+    SessionService sessionService;
+
+    @BeforeEach
+    void beforeEach() {
+        sessionEntityMapper = mock(SessionEntityMapper.class);
+        authOptions = new AuthOptions();
+        authOptions.setUnknownSessionCacheTTL(1);
+        AuthConfig authConfig = new AuthConfig(Collections.emptyList(), Collections.emptyList());
+        authConfig.setSessionCacheStrategy(new NoopSessionCacheStrategy());
+        ConfigService configService = mock(ConfigService.class);
+        when(configService.getAuthOptions()).thenReturn(authOptions);
+        when(configService.getAuthConfig()).thenReturn(authConfig);
+
+        sessionService = spy(new SessionService(configService, sessionEntityMapper,
+                mock(UserService.class), mock(OrderService.class), mock(SessionWriteBehindQueue.class)));
+        sessionService.init();
+    }
+
+    @Test
+    public void concurrent_misses_of_the_same_token_share_one_load() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        when(sessionEntityMapper.selectOne(any())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            return session(TOKEN);
+        });
+
+        List<CachedSession> results = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> results.add(sessionService.getSessionFromToken(TOKEN))));
+        }
+        threads.get(0).start();
+        assertThat(loadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (Thread thread : threads.subList(1, threads.size())) {
+            thread.start();
+            awaitWaiting(thread);
+        }
+        releaseLoad.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        verify(sessionEntityMapper, times(1)).selectOne(any());
+        assertThat(results).hasSize(4);
+        assertThat(results).allSatisfy(session -> assertThat(session.getToken()).isEqualTo(TOKEN));
+    }
+
+    @Test
+    public void remembers_unknown_tokens_until_they_expire() throws Exception {
+        assertThat(sessionService.getSessionFromToken(TOKEN)).isNull();
+        assertThat(sessionService.getSessionFromToken(TOKEN)).isNull();
+        verify(sessionEntityMapper, times(1)).selectOne(any());
+
+        Thread.sleep(authOptions.getUnknownSessionCacheTTL() * 1000 + 100);
+
+        assertThat(sessionService.getSessionFromToken(TOKEN)).isNull();
+        verify(sessionEntityMapper, times(2)).selectOne(any());
+    }
+
+    @Test
+    public void forgets_an_unknown_token_once_a_session_is_created_for_it() {
+        assertThat(sessionService.getSessionFromToken(TOKEN)).isNull();
+        verify(sessionEntityMapper, times(1)).selectOne(any());
+
+        doReturn(TOKEN).when(sessionService).generateSessionToken();
+        sessionService.createAnonymousSession();
+        when(sessionEntityMapper.selectOne(any())).thenReturn(session(TOKEN));
+
+        assertThat(sessionService.getSessionFromToken(TOKEN)).isNotNull();
+        verify(sessionEntityMapper, times(2)).selectOne(any());
+    }
+
+    private SessionEntity session(String token) {
+        SessionEntity session = new SessionEntity();
+        session.setId(1L);
+        session.setToken(token);
+        session.setAnonymous(true);
+        session.setExpires(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(7)));
+        return session;
+    }
+
+    /**
+     * Waits until the thread is parked, i.e. waiting for the load in flight.
+     */
+    private void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+}
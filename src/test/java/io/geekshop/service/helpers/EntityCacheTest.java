@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.AssetEntity;
+import io.geekshop.options.CatalogCacheOptions;
+import io.geekshop.service.helpers.catalog_cache.EntityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class EntityCacheTest {
+    MeterRegistry meterRegistry;
+    CatalogCacheOptions options;
+    List<Set<Long>> loads;
+
+    @BeforeEach
+    void beforeEach() {
+        meterRegistry = new SimpleMeterRegistry();
+        options = new CatalogCacheOptions();
+        loads = new ArrayList<>();
+    }
+
+    @Test
+    public void loads_only_the_missing_ids() {
+        EntityCache<AssetEntity> cache = new EntityCache<>("assets", options, meterRegistry);
+
+        assertThat(ids(cache.getByIds(Arrays.asList(1L, 2L), this::load))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(cache.getByIds(Arrays.asList(1L, 2L, 3L), this::load))).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(ids(cache.getByIds(Arrays.asList(2L, 3L), this::load))).containsExactlyInAnyOrder(2L, 3L);
+
+        assertThat(loads).containsExactly(new HashSet<>(Arrays.asList(1L, 2L)), Collections.singleton(3L));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "catalog.assets").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "catalog.assets").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void does_not_cache_unknown_ids() {
+        EntityCache<AssetEntity> cache = new EntityCache<>("assets", options, meterRegistry);
+
+        assertThat(cache.getByIds(Collections.singletonList(-1L), this::load)).isEmpty();
+        assertThat(cache.getByIds(Collections.singletonList(-1L), this::load)).isEmpty();
+
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    public void reloads_invalidated_ids() {
+        EntityCache<AssetEntity> cache = new EntityCache<>("assets", options, meterRegistry);
+        cache.getByIds(Arrays.asList(1L, 2L), this::load);
+
+        cache.invalidate(1L);
+        cache.getByIds(Arrays.asList(1L, 2L), this::load);
+        cache.invalidateAll();
+        cache.getByIds(Arrays.asList(1L, 2L), this::load);
+
+        assertThat(loads).containsExactly(
+                new HashSet<>(Arrays.asList(1L, 2L)),
+                Collections.singleton(1L),
+                new HashSet<>(Arrays.asList(1L, 2L)));
+    }
+
+    @Test
+    public void a_load_overlapping_an_invalidation_is_not_cached() {
+        EntityCache<AssetEntity> cache = new EntityCache<>("assets", options, meterRegistry);
+
+        List<AssetEntity> entities = cache.getByIds(Collections.singletonList(1L), ids -> {
+            // the entity changes while it is being loaded
+            cache.invalidate(1L);
+            return load(ids);
+        });
+        assertThat(ids(entities)).containsExactly(1L);
+
+        cache.getByIds(Collections.singletonList(1L), this::load);
+        assertThat(loads).hasSize(2);
+    }
+
+    @Test
+    public void loads_every_time_when_disabled() {
+        options.setEnabled(false);
+        EntityCache<AssetEntity> cache = new EntityCache<>("assets", options, meterRegistry);
+
+        cache.getByIds(Arrays.asList(1L, 2L), this::load);
+        cache.getByIds(Arrays.asList(1L, 2L), this::load);
+
+        assertThat(loads).hasSize(2);
+        assertThat(meterRegistry.find("cache.gets").meters()).isEmpty();
+    }
+
+    private List<AssetEntity> load(Collection<Long> ids) {
+        loads.add(new HashSet<>(ids));
+        return ids.stream().filter(id -> id > 0).map(id -> {
+            AssetEntity assetEntity = new AssetEntity();
+            assetEntity.setId(id);
+            assetEntity.setName("asset-" + id);
+            return assetEntity;
+        }).collect(Collectors.toList());
+    }
+
+    private List<Long> ids(List<AssetEntity> entities) {
+        return entities.stream().map(AssetEntity::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.SearchIndexItemEntity;
+import io.geekshop.service.helpers.search_strategy.InMemorySearchIndex;
+import io.geekshop.types.common.LogicalOperator;
+import io.geekshop.types.common.SearchInput;
+import io.geekshop.types.common.SearchResultSortParameter;
+import io.geekshop.types.common.SortOrder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class InMemorySearchIndexTest {
+    InMemorySearchIndex index;
+
+    @BeforeEach
+    void beforeEach() {
+        index = new InMemorySearchIndex();
+        index.rebuild(Arrays.asList(
+                createItem(1L, "IHD455T1", "Laptop", "13 inch 8GB", "A laptop computer",
+                        Arrays.asList(1L, 2L), Arrays.asList(10L), "electronics", 129900, true),
+                createItem(2L, "IHD455T2", "Laptop", "15 inch 16GB", "A laptop computer",
+                        Arrays.asList(1L, 3L), Arrays.asList(10L), "electronics", 229900, true),
+                createItem(3L, "B07MG", "Curvy Monitor", "24 inch", "Suits any laptop",
+                        Arrays.asList(1L), Arrays.asList(10L, 11L), "computers", 14374, false),
+                createItem(4L, "LAPTOPBAG", "Messenger Bag", "Black", "Leather",
+                        Arrays.asList(4L), Arrays.asList(12L), "bags", 5000, true)
+        ));
+    }
+
+    private SearchIndexItemEntity createItem(Long id, String sku, String productName, String variantName,
+                                             String description, List<Long> facetValueIds,
+                                             List<Long> collectionIds, String collectionSlug,
+                                             Integer price, boolean enabled) {
+        SearchIndexItemEntity item = new SearchIndexItemEntity();
+        item.setProductVariantId(id);
+        item.setSku(sku);
+        item.setProductName(productName);
+        item.setProductVariantName(variantName);
+        item.setDescription(description);
+        item.setFacetValueIds(facetValueIds);
+        item.setCollectionIds(collectionIds);
+        item.setCollectionSlugs(Arrays.asList(collectionSlug));
+        item.setPrice(price);
+        item.setEnabled(enabled);
+        return item;
+    }
+
+    private List<Long> search(SearchInput input, boolean enabledOnly) {
+        return index.search(input, enabledOnly, 2).stream()
+                .map(hit -> hit.getItem().getProductVariantId())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void matches_substrings_case_insensitively_ranked_by_field_weight() {
+        SearchInput input = new SearchInput();
+        input.setTerm("lapt");
+
+        List<InMemorySearchIndex.Hit> hits = index.search(input, false, 2);
+        assertThat(hits.stream().map(hit -> hit.getItem().getProductVariantId()).collect(Collectors.toList()))
+                .containsExactly(4L, 1L, 2L, 3L);
+        assertThat(hits.stream().map(InMemorySearchIndex.Hit::getScore).collect(Collectors.toList()))
+                .containsExactly(10, 3, 3, 1);
+    }
+
+    @Test
+    public void ignores_terms_that_are_too_short() {
+        SearchInput input = new SearchInput();
+        input.setTerm("la");
+
+        List<InMemorySearchIndex.Hit> hits = index.search(input, false, 2);
+        assertThat(hits).hasSize(4);
+        assertThat(hits.get(0).getScore()).isNull();
+    }
+
+    @Test
+    public void returns_nothing_for_unknown_term() {
+        SearchInput input = new SearchInput();
+        input.setTerm("keyboard");
+
+        assertThat(search(input, false)).isEmpty();
+    }
+
+    @Test
+    public void filters_by_facet_values_with_and_and_or() {
+        SearchInput input = new SearchInput();
+        input.setFacetValueIds(Arrays.asList(2L, 3L));
+        input.setFacetValueOperator(LogicalOperator.OR);
+        assertThat(search(input, false)).containsExactly(1L, 2L);
+
+        input.setFacetValueOperator(LogicalOperator.AND);
+        assertThat(search(input, false)).isEmpty();
+
+        input.setFacetValueIds(Arrays.asList(1L, 3L));
+        assertThat(search(input, false)).containsExactly(2L);
+    }
+
+    @Test
+    public void filters_by_collection_and_enabled() {
+        SearchInput input = new SearchInput();
+        input.setCollectionId(10L);
+        assertThat(search(input, false)).containsExactly(1L, 2L, 3L);
+        assertThat(search(input, true)).containsExactly(1L, 2L);
+
+        input = new SearchInput();
+        input.setCollectionSlug("computers");
+        assertThat(search(input, false)).containsExactly(3L);
+    }
+
+    @Test
+    public void counts_facet_values_of_the_result_set() {
+        SearchInput input = new SearchInput();
+        assertThat(index.countFacetValues(input, false, 2))
+                .containsOnly(entry(1L, 3), entry(2L, 1), entry(3L, 1), entry(4L, 1));
+        assertThat(index.countFacetValues(input, true, 2))
+                .containsOnly(entry(1L, 2), entry(2L, 1), entry(3L, 1), entry(4L, 1));
+
+        input.setTerm("inch");
+        input.setCollectionId(10L);
+        assertThat(index.countFacetValues(input, true, 2))
+                .containsOnly(entry(1L, 2), entry(2L, 1), entry(3L, 1));
+
+        input.setTerm("keyboard");
+        assertThat(index.countFacetValues(input, false, 2)).isEmpty();
+    }
+
+    @Test
+    public void sorts_by_price() {
+        SearchInput input = new SearchInput();
+        SearchResultSortParameter sort = new SearchResultSortParameter();
+        sort.setPrice(SortOrder.DESC);
+        input.setSort(sort);
+
+        assertThat(search(input, false)).containsExactly(2L, 1L, 3L, 4L);
+    }
+
+    @Test
+    public void replaces_and_removes_items() {
+        SearchIndexItemEntity updated = createItem(3L, "B07MG", "Curvy Monitor", "24 inch", "Wide screen",
+                Arrays.asList(1L), Arrays.asList(11L), "computers", 14374, false);
+        index.putAll(Arrays.asList(updated));
+
+        SearchInput input = new SearchInput();
+        input.setTerm("laptop");
+        assertThat(search(input, false)).containsExactly(4L, 1L, 2L);
+
+        index.removeAll(Arrays.asList(4L));
+        assertThat(search(input, false)).containsExactly(1L, 2L);
+
+        input = new SearchInput();
+        input.setCollectionId(12L);
+        assertThat(search(input, false)).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+}
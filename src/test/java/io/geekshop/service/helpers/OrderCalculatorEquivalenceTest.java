@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.common.ConfigArgValues;
+import io.geekshop.config.promotion.*;
+import io.geekshop.entity.*;
+import io.geekshop.mapper.ShippingMethodEntityMapper;
+import io.geekshop.service.helpers.order_calculator.OrderCalculator;
+import io.geekshop.service.helpers.shipping_calculator.ShippingCalculator;
+import io.geekshop.types.common.*;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.util.CollectionUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Checks that the incremental {@link OrderCalculator} produces exactly the same adjustments, totals and updated
+ * OrderItems as the previous implementation (kept below as {@link ReferenceOrderCalculator}), for randomly
+ * generated orders and promotions, and when single lines of an already priced order change.
+ *
+ * Created on Jan, 2021 by @author bobo
+ */
+public class OrderCalculatorEquivalenceTest {
+    static final int SCENARIOS = 300;
+
+    OrderCalculator orderCalculator;
+    ReferenceOrderCalculator referenceOrderCalculator = new ReferenceOrderCalculator();
+    int conditionChecks;
+
+    @BeforeEach
+    void beforeEach() {
+        ShippingCalculator shippingCalculator = Mockito.mock(ShippingCalculator.class);
+        Mockito.when(shippingCalculator.getEligibleShippingMethods(any())).thenReturn(new ArrayList<>());
+        ShippingMethodEntityMapper shippingMethodEntityMapper = Mockito.mock(ShippingMethodEntityMapper.class);
+        orderCalculator = new OrderCalculator(shippingCalculator, shippingMethodEntityMapper);
+        conditionChecks = 0;
+    }
+
+    PromotionCondition minimumSubTotalCondition = new PromotionCondition("minimum_sub_total", "") {
+        @Override
+        public boolean check(OrderEntity order, ConfigArgValues argValues) {
+            conditionChecks++;
+            return order.getSubTotal() >= argValues.getInteger("amount");
+        }
+
+        @Override
+        public Set<OrderFact> getOrderFacts() {
+            return EnumSet.of(OrderFact.SUB_TOTAL);
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    PromotionCondition containsVariantCondition = new PromotionCondition("contains_variant", "") {
+        @Override
+        public boolean check(OrderEntity order, ConfigArgValues argValues) {
+            conditionChecks++;
+            Long variantId = argValues.getId("variantId");
+            int quantity = order.getLines().stream()
+                    .filter(line -> Objects.equals(line.getProductVariantId(), variantId))
+                    .mapToInt(OrderLineEntity::getQuantity).sum();
+            return quantity >= argValues.getInteger("minimum");
+        }
+
+        @Override
+        public Set<OrderFact> getOrderFacts() {
+            return EnumSet.of(OrderFact.LINES);
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    // does not declare its OrderFacts, so it is tested every time
+    PromotionCondition minimumTotalCondition = new PromotionCondition("minimum_total", "") {
+        @Override
+        public boolean check(OrderEntity order, ConfigArgValues argValues) {
+            conditionChecks++;
+            return order.getTotal() >= argValues.getInteger("amount");
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    PromotionItemAction percentageItemAction = new PromotionItemAction("percentage_item", "") {
+        @Override
+        public float execute(OrderItemEntity orderItem, OrderLineEntity orderLine, ConfigArgValues argValues) {
+            return -orderItem.getUnitPriceWithPromotions() * (argValues.getInteger("discount") / 100.0F);
+        }
+
+        @Override
+        public boolean isUniformPerItemGroup() {
+            return true;
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    PromotionItemAction variantItemAction = new PromotionItemAction("variant_item", "") {
+        @Override
+        public float execute(OrderItemEntity orderItem, OrderLineEntity orderLine, ConfigArgValues argValues) {
+            if (!Objects.equals(orderLine.getProductVariantId(), argValues.getId("variantId"))) return 0;
+            return -Math.min(orderItem.getUnitPriceWithPromotions(), argValues.getInteger("amount"));
+        }
+
+        @Override
+        public boolean isUniformPerItemGroup() {
+            return true;
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    PromotionOrderAction percentageOrderAction = new PromotionOrderAction("percentage_order", "") {
+        @Override
+        public float execute(OrderEntity order, ConfigArgValues argValues) {
+            return -order.getSubTotal() * (argValues.getInteger("discount") / 100.0F);
+        }
+
+        @Override
+        public Map<String, ConfigArgDefinition> getArgSpec() {
+            return ImmutableMap.of();
+        }
+    };
+
+    private ConfigurableOperation createOperation(String code, Object... nameValuePairs) {
+        List<ConfigArg> args = new ArrayList<>();
+        for(int i = 0; i < nameValuePairs.length; i += 2) {
+            ConfigArg configArg = new ConfigArg();
+            configArg.setName((String) nameValuePairs[i]);
+            configArg.setValue(String.valueOf(nameValuePairs[i + 1]));
+            args.add(configArg);
+        }
+        ConfigurableOperation operation = new ConfigurableOperation();
+        operation.setCode(code);
+        operation.setArgs(args);
+        return operation;
+    }
+
+    private List<PromotionEntity> createPromotions(Random random) {
+        List<PromotionCondition> allConditions =
+                Arrays.asList(minimumSubTotalCondition, containsVariantCondition, minimumTotalCondition);
+        List<PromotionAction> allActions = Arrays.asList(percentageItemAction, variantItemAction, percentageOrderAction);
+        List<PromotionEntity> promotions = new ArrayList<>();
+        int count = 1 + random.nextInt(5);
+        for(int i = 0; i < count; i++) {
+            PromotionEntity promotion = new PromotionEntity(allConditions, allActions);
+            promotion.setId((long) i + 1);
+            promotion.setName("promotion " + i);
+
+            List<ConfigurableOperation> conditions = new ArrayList<>();
+            if (random.nextInt(2) == 0) {
+                conditions.add(createOperation(minimumSubTotalCondition.getCode(), "amount", random.nextInt(3000)));
+            }
+            if (random.nextInt(3) == 0) {
+                conditions.add(createOperation(containsVariantCondition.getCode(),
+                        "variantId", 1 + random.nextInt(4), "minimum", 1 + random.nextInt(3)));
+            }
+            if (random.nextInt(4) == 0) {
+                conditions.add(createOperation(minimumTotalCondition.getCode(), "amount", random.nextInt(3000)));
+            }
+            if (random.nextInt(4) == 0) {
+                promotion.setCouponCode("COUPON" + random.nextInt(2));
+            }
+            promotion.setConditions(conditions);
+
+            List<ConfigurableOperation> actions = new ArrayList<>();
+            switch (random.nextInt(3)) {
+                case 0:
+                    actions.add(createOperation(percentageItemAction.getCode(), "discount", 1 + random.nextInt(50)));
+                    break;
+                case 1:
+                    actions.add(createOperation(variantItemAction.getCode(),
+                            "variantId", 1 + random.nextInt(4), "amount", 1 + random.nextInt(200)));
+                    break;
+                default:
+                    actions.add(createOperation(percentageOrderAction.getCode(), "discount", 1 + random.nextInt(50)));
+            }
+            promotion.setActions(actions);
+            promotions.add(promotion);
+        }
+        return promotions;
+    }
+
+    private OrderEntity createOrder(Random random, List<PromotionEntity> promotions) {
+        OrderEntity order = new OrderEntity();
+        int lineCount = 1 + random.nextInt(8);
+        for(int i = 0; i < lineCount; i++) {
+            OrderLineEntity line = new OrderLineEntity();
+            line.setProductVariantId((long) 1 + random.nextInt(4));
+            int unitPrice = 50 + random.nextInt(1000);
+            int quantity = 1 + random.nextInt(5);
+            // adjustments left over from a previous calculation, possibly of a promotion which no longer exists
+            Adjustment previousAdjustment = null;
+            if (random.nextInt(3) == 0) {
+                previousAdjustment = new Adjustment();
+                previousAdjustment.setType(AdjustmentType.PROMOTION);
+                previousAdjustment.setAdjustmentSource(
+                        AdjustmentType.PROMOTION + ":" + (1 + random.nextInt(promotions.size() + 1)));
+                previousAdjustment.setAmount(-random.nextInt(unitPrice));
+            }
+            for(int j = 0; j < quantity; j++) {
+                OrderItemEntity item = new OrderItemEntity();
+                item.setUnitPrice(unitPrice);
+                if (previousAdjustment != null) {
+                    item.getPendingAdjustments().add(previousAdjustment);
+                }
+                line.getItems().add(item);
+            }
+            order.getLines().add(line);
+        }
+        if (random.nextInt(2) == 0) {
+            order.getCouponCodes().add("COUPON" + random.nextInt(2));
+        }
+        return order;
+    }
+
+    /**
+     * Changes a single line of the order, as e.g. adding an item to the cart would.
+     */
+    private OrderLineEntity changeOneLine(Random random, OrderEntity order) {
+        OrderLineEntity line = order.getLines().get(random.nextInt(order.getLines().size()));
+        if (random.nextInt(2) == 0 || line.getItems().size() == 1) {
+            OrderItemEntity item = new OrderItemEntity();
+            item.setUnitPrice(line.getItems().get(0).getUnitPrice());
+            line.getItems().add(item);
+        } else {
+            line.getItems().remove(line.getItems().size() - 1);
+        }
+        return line;
+    }
+
+    private void assertEquivalent(OrderEntity expected, List<OrderItemEntity> expectedUpdatedItems,
+                                  OrderEntity actual, List<OrderItemEntity> actualUpdatedItems, long seed) {
+        String description = "scenario with seed " + seed;
+        assertThat(actual.getSubTotal()).as(description).isEqualTo(expected.getSubTotal());
+        assertThat(actual.getTotal()).as(description).isEqualTo(expected.getTotal());
+        assertThat(actual.getAdjustments()).as(description).isEqualTo(expected.getAdjustments());
+        assertThat(actual.getLines()).hasSameSizeAs(expected.getLines());
+        for(int i = 0; i < expected.getLines().size(); i++) {
+            List<OrderItemEntity> expectedItems = expected.getLines().get(i).getItems();
+            List<OrderItemEntity> actualItems = actual.getLines().get(i).getItems();
+            assertThat(actualItems).hasSameSizeAs(expectedItems);
+            for(int j = 0; j < expectedItems.size(); j++) {
+                assertThat(actualItems.get(j).getPendingAdjustments()).as(description)
+                        .isEqualTo(expectedItems.get(j).getPendingAdjustments());
+            }
+        }
+        assertThat(itemPositions(actual, actualUpdatedItems)).as(description)
+                .isEqualTo(itemPositions(expected, expectedUpdatedItems));
+    }
+
+    private Set<String> itemPositions(OrderEntity order, List<OrderItemEntity> items) {
+        Set<String> positions = new HashSet<>();
+        for(int i = 0; i < order.getLines().size(); i++) {
+            List<OrderItemEntity> lineItems = order.getLines().get(i).getItems();
+            for(int j = 0; j < lineItems.size(); j++) {
+                OrderItemEntity lineItem = lineItems.get(j);
+                if (items.stream().anyMatch(item -> item == lineItem)) {
+                    positions.add(i + ":" + j);
+                }
+            }
+        }
+        return positions;
+    }
+
+    @Test
+    public void produces_the_same_adjustments_as_the_reference_calculator() {
+        for(long seed = 0; seed < SCENARIOS; seed++) {
+            List<PromotionEntity> promotions = createPromotions(new Random(seed));
+            OrderEntity expected = createOrder(new Random(seed), promotions);
+            OrderEntity actual = createOrder(new Random(seed), promotions);
+
+            List<OrderItemEntity> expectedUpdatedItems =
+                    referenceOrderCalculator.applyPriceAdjustments(expected, promotions, null);
+            List<OrderItemEntity> actualUpdatedItems =
+                    orderCalculator.applyPriceAdjustments(actual, promotions, null);
+
+            assertEquivalent(expected, expectedUpdatedItems, actual, actualUpdatedItems, seed);
+        }
+    }
+
+    @Test
+    public void produces_the_same_adjustments_when_one_line_changes() {
+        for(long seed = 0; seed < SCENARIOS; seed++) {
+            List<PromotionEntity> promotions = createPromotions(new Random(seed));
+            OrderEntity expected = createOrder(new Random(seed), promotions);
+            OrderEntity actual = createOrder(new Random(seed), promotions);
+            referenceOrderCalculator.applyPriceAdjustments(expected, promotions, null);
+            orderCalculator.applyPriceAdjustments(actual, promotions, null);
+
+            OrderLineEntity expectedLine = changeOneLine(new Random(seed * 31), expected);
+            OrderLineEntity actualLine = changeOneLine(new Random(seed * 31), actual);
+            List<OrderItemEntity> expectedUpdatedItems =
+                    referenceOrderCalculator.applyPriceAdjustments(expected, promotions, expectedLine);
+            List<OrderItemEntity> actualUpdatedItems =
+                    orderCalculator.applyPriceAdjustments(actual, promotions, actualLine);
+
+            assertEquivalent(expected, expectedUpdatedItems, actual, actualUpdatedItems, seed);
+        }
+    }
+
+    @Test
+    public void promotions_are_only_tested_again_when_their_facts_change() {
+        PromotionEntity promotion = new PromotionEntity(
+                Arrays.asList(containsVariantCondition), Arrays.asList(percentageItemAction));
+        promotion.setId(1L);
+        promotion.setConditions(Arrays.asList(
+                createOperation(containsVariantCondition.getCode(), "variantId", 1, "minimum", 1)));
+        promotion.setActions(Arrays.asList(createOperation(percentageItemAction.getCode(), "discount", 10)));
+
+        OrderEntity order = new OrderEntity();
+        for(int i = 0; i < 20; i++) {
+            OrderLineEntity line = new OrderLineEntity();
+            line.setProductVariantId(1L);
+            OrderItemEntity item = new OrderItemEntity();
+            item.setUnitPrice(100);
+            line.getItems().add(item);
+            order.getLines().add(line);
+        }
+
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+
+        assertThat(order.getSubTotal()).isEqualTo(20 * 90);
+        // the reference calculator checks the condition twice per line, and once more for the order promotions
+        assertThat(conditionChecks).isEqualTo(1);
+    }
+
+    /**
+     * The OrderCalculator before it became incremental: it tests every promotion against the whole order for
+     * each line, and re-calculates the totals of all lines after each applied promotion.
+     */
+    static class ReferenceOrderCalculator {
+        List<OrderItemEntity> applyPriceAdjustments(
+                OrderEntity order, List<PromotionEntity> promotions, OrderLineEntity updatedOrderLine) {
+            Set<OrderItemEntity> updatedOrderItems = new HashSet<>();
+            if (updatedOrderLine != null) {
+                updatedOrderLine.getActiveItems().forEach(item -> updatedOrderItems.add(item));
+            }
+            order.clearAdjustments(null);
+            this.calculatoOrderTotal(order);
+            if (!CollectionUtils.isEmpty(order.getLines())) {
+                updatedOrderItems.addAll(this.applyOrderItemPromotions(order, promotions));
+                this.applyOrderPromotions(order, promotions);
+            }
+            this.calculatoOrderTotal(order);
+            return new ArrayList<>(updatedOrderItems);
+        }
+
+        private List<OrderItemEntity> applyOrderItemPromotions(OrderEntity order, List<PromotionEntity> promotions) {
+            Set<OrderItemEntity> updatedOrderItems = new HashSet<>();
+
+            for(OrderLineEntity line : order.getLines()) {
+                List<PromotionEntity> applicablePromotions = promotions.stream()
+                        .filter(p -> p.test(order)).collect(Collectors.toList());
+
+                boolean lineHasExistingPromotions = line.getItems().get(0).getPendingAdjustments().stream()
+                        .anyMatch(a -> a.getType() == AdjustmentType.PROMOTION);
+                boolean forceUpdateItems = this.orderLineHasInapplicablePromotions(applicablePromotions, line);
+
+                if (forceUpdateItems || lineHasExistingPromotions) {
+                    line.clearAdjustments(AdjustmentType.PROMOTION);
+                }
+                if (forceUpdateItems) {
+                    line.getItems().forEach(i -> updatedOrderItems.add(i));
+                }
+
+                for(PromotionEntity promotion : applicablePromotions) {
+                    boolean priceAdjusted = false;
+                    if (promotion.test(order)) {
+                        for(List<OrderItemEntity> group : line.getItemGroups()) {
+                            Adjustment adjustment = promotion.apply(group.get(0), line);
+                            if (adjustment != null) {
+                                group.forEach(item -> item.getPendingAdjustments().add(adjustment));
+                                priceAdjusted = true;
+                                updatedOrderItems.addAll(group);
+                            }
+                        }
+                        if (priceAdjusted) {
+                            this.calculatoOrderTotal(order);
+                        }
+                    }
+                }
+                boolean lineNoLongerHasPromotions = !line.getItems().get(0).getPendingAdjustments().stream()
+                        .anyMatch(a -> a.getType() == AdjustmentType.PROMOTION);
+                if (lineHasExistingPromotions && lineNoLongerHasPromotions) {
+                    line.getItems().forEach(i -> updatedOrderItems.add(i));
+                }
+
+                if (forceUpdateItems) {
+                    this.calculatoOrderTotal(order);
+                }
+            }
+            return new ArrayList<>(updatedOrderItems);
+        }
+
+        private boolean orderLineHasInapplicablePromotions(
+                List<PromotionEntity> applicablePromotions, OrderLineEntity line) {
+            List<String> applicablePromotionIds = applicablePromotions.stream()
+                    .map(PromotionEntity::getSourceId).collect(Collectors.toList());
+            List<String> linePromotionIds = line.getAdjustments().stream()
+                    .filter(a -> a.getType() == AdjustmentType.PROMOTION)
+                    .map(Adjustment::getAdjustmentSource).collect(Collectors.toList());
+            return !linePromotionIds.stream().allMatch(id -> applicablePromotionIds.contains(id));
+        }
+
+        private void applyOrderPromotions(OrderEntity order, List<PromotionEntity> promotions) {
+            order.clearAdjustments(AdjustmentType.PROMOTION);
+            List<PromotionEntity> applicableOrderPromotions = promotions.stream()
+                    .filter(p -> p.test(order)).collect(Collectors.toList());
+            if (!CollectionUtils.isEmpty(applicableOrderPromotions)) {
+                for (PromotionEntity promotion : applicableOrderPromotions) {
+                    if (promotion.test(order)) {
+                        Adjustment adjustment = promotion.apply(order);
+                        if (adjustment != null) {
+                            order.getPendingAdjustments().add(adjustment);
+                        }
+                    }
+                }
+                this.calculatoOrderTotal(order);
+            }
+        }
+
+        private void calculatoOrderTotal(OrderEntity order) {
+            int totalPrice = 0;
+            for(OrderLineEntity line : order.getLines()) {
+                totalPrice += line.getTotalPrice();
+            }
+            order.setSubTotal(totalPrice);
+        }
+    }
+}
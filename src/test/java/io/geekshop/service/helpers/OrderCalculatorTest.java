@@ -24,10 +24,7 @@ import lombok.Data;
 import org.junit.jupiter.api.*;
 import org.mockito.Mockito;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -493,6 +490,156 @@ public class OrderCalculatorTest {
         assertThat(order.getAdjustments().get(0).getDescription()).isEqualTo(hasEmptyStringCouponCode.getName());
     }
 
+    @Test
+    @Order(8)
+    public void item_promotion_is_applied_once_per_group_of_identical_items() {
+        int[] executions = new int[1];
+        PromotionItemAction countingItemAction = new PromotionItemAction("counting_item_action", "") {
+            @Override
+            public float execute(OrderItemEntity orderItem, OrderLineEntity orderLine, ConfigArgValues argValues) {
+                executions[0]++;
+                return -10;
+            }
+
+            @Override
+            public boolean isUniformPerItemGroup() {
+                return true;
+            }
+
+            @Override
+            public Map<String, ConfigArgDefinition> getArgSpec() {
+                return ImmutableMap.of();
+            }
+        };
+        PromotionEntity promotion =
+                new PromotionEntity(Arrays.asList(alwaysTrueCondition), Arrays.asList(countingItemAction));
+        promotion.setId(1L);
+        ConfigurableOperation conditionOp = new ConfigurableOperation();
+        conditionOp.setCode(alwaysTrueCondition.getCode());
+        promotion.getConditions().add(conditionOp);
+        ConfigurableOperation actionOp = new ConfigurableOperation();
+        actionOp.setCode(countingItemAction.getCode());
+        promotion.getActions().add(actionOp);
+
+        TestLineItem testLineItem = new TestLineItem();
+        testLineItem.setUnitPrice(100);
+        testLineItem.setQuantity(500);
+        OrderConfig orderConfig = new OrderConfig();
+        orderConfig.getLines().add(testLineItem);
+        OrderEntity order = createOrder(orderConfig);
+        // an item added at a different price forms a group of its own
+        OrderItemEntity repricedItem = new OrderItemEntity();
+        repricedItem.setUnitPrice(120);
+        order.getLines().get(0).getItems().add(repricedItem);
+
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+
+        assertThat(executions[0]).isEqualTo(2);
+        assertThat(order.getLines().get(0).getQuantity()).isEqualTo(501);
+        assertThat(order.getLines().get(0).getAdjustments()).hasSize(501);
+        assertThat(order.getSubTotal()).isEqualTo(500 * 90 + 110);
+    }
+
+    @Test
+    @Order(9)
+    public void promotion_arguments_are_bound_once() {
+        Set<ConfigArgValues> boundArgValues = Collections.newSetFromMap(new IdentityHashMap<>());
+        PromotionCondition recordingCondition = new PromotionCondition("recording_condition", "") {
+            @Override
+            public boolean check(OrderEntity order, ConfigArgValues argValues) {
+                boundArgValues.add(argValues);
+                return argValues.getInteger("minimum") <= order.getTotal();
+            }
+
+            @Override
+            public Map<String, ConfigArgDefinition> getArgSpec() {
+                ConfigArgDefinition argDef = new ConfigArgDefinition();
+                argDef.setType("int");
+                return ImmutableMap.of("minimum", argDef);
+            }
+        };
+        PromotionEntity promotion =
+                new PromotionEntity(Arrays.asList(recordingCondition), Arrays.asList(percentageOrderAction));
+        promotion.setId(1L);
+        promotion.setConditions(Arrays.asList(createOperation(recordingCondition.getCode(), "minimum", "10")));
+        promotion.setActions(Arrays.asList(createOperation(percentageOrderAction.getCode(), "discount", "50")));
+
+        TestLineItem testLineItem = new TestLineItem();
+        testLineItem.setUnitPrice(100);
+        testLineItem.setQuantity(1);
+        OrderConfig orderConfig = new OrderConfig();
+        orderConfig.getLines().add(testLineItem);
+
+        OrderEntity order = createOrder(orderConfig);
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+        assertThat(order.getTotal()).isEqualTo(50);
+        order = createOrder(orderConfig);
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+        assertThat(order.getTotal()).isEqualTo(50);
+        assertThat(boundArgValues).hasSize(1);
+
+        // changing the conditions binds them again
+        promotion.setConditions(Arrays.asList(createOperation(recordingCondition.getCode(), "minimum", "1000")));
+        order = createOrder(orderConfig);
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+        assertThat(order.getTotal()).isEqualTo(100);
+        assertThat(boundArgValues).hasSize(2);
+    }
+
+    @Test
+    @Order(10)
+    public void item_promotion_which_tells_items_apart_is_applied_to_each_item() {
+        int[] executions = new int[1];
+        // every second item of a line is free
+        PromotionItemAction everySecondItemFreeAction = new PromotionItemAction("every_second_item_free", "") {
+            @Override
+            public float execute(OrderItemEntity orderItem, OrderLineEntity orderLine, ConfigArgValues argValues) {
+                executions[0]++;
+                int position = 0;
+                while (orderLine.getItems().get(position) != orderItem) position++;
+                return position % 2 == 1 ? -orderItem.getUnitPriceWithPromotions() : 0;
+            }
+
+            @Override
+            public Map<String, ConfigArgDefinition> getArgSpec() {
+                return ImmutableMap.of();
+            }
+        };
+        PromotionEntity promotion =
+                new PromotionEntity(Arrays.asList(alwaysTrueCondition), Arrays.asList(everySecondItemFreeAction));
+        promotion.setId(1L);
+        ConfigurableOperation conditionOp = new ConfigurableOperation();
+        conditionOp.setCode(alwaysTrueCondition.getCode());
+        promotion.getConditions().add(conditionOp);
+        ConfigurableOperation actionOp = new ConfigurableOperation();
+        actionOp.setCode(everySecondItemFreeAction.getCode());
+        promotion.getActions().add(actionOp);
+
+        TestLineItem testLineItem = new TestLineItem();
+        testLineItem.setUnitPrice(100);
+        testLineItem.setQuantity(4);
+        OrderConfig orderConfig = new OrderConfig();
+        orderConfig.getLines().add(testLineItem);
+        OrderEntity order = createOrder(orderConfig);
+
+        orderCalculator.applyPriceAdjustments(order, Arrays.asList(promotion));
+
+        assertThat(promotion.isUniformPerItemGroup()).isFalse();
+        assertThat(executions[0]).isEqualTo(4);
+        assertThat(order.getLines().get(0).getAdjustments()).hasSize(2);
+        assertThat(order.getSubTotal()).isEqualTo(200);
+    }
+
+    private ConfigurableOperation createOperation(String code, String argName, String argValue) {
+        ConfigArg configArg = new ConfigArg();
+        configArg.setName(argName);
+        configArg.setValue(argValue);
+        ConfigurableOperation operation = new ConfigurableOperation();
+        operation.setCode(code);
+        operation.setArgs(Arrays.asList(configArg));
+        return operation;
+    }
+
 
     @Data
     static class OrderConfig {
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.BaseEntity;
+import io.geekshop.entity.OrderEntity;
+import io.geekshop.entity.OrderItemEntity;
+import io.geekshop.entity.OrderLineEntity;
+import io.geekshop.mapper.OrderEntityMapper;
+import io.geekshop.mapper.OrderItemEntityMapper;
+import io.geekshop.mapper.OrderLineEntityMapper;
+import io.geekshop.mapper.PaymentEntityMapper;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class OrderHelperTest {
+    OrderEntityMapper orderEntityMapper;
+    OrderLineEntityMapper orderLineEntityMapper;
+    OrderItemEntityMapper orderItemEntityMapper;
+    OrderHelper orderHelper;
+
+    @BeforeEach
+    void beforeEach() {
+        // the lambda query wrappers need the table info, which is otherwise only initialised by the mappers
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, OrderLineEntity.class);
+        TableInfoHelper.initTableInfo(assistant, OrderItemEntity.class);
+
+        orderEntityMapper = mock(OrderEntityMapper.class);
+        orderLineEntityMapper = mock(OrderLineEntityMapper.class);
+        orderItemEntityMapper = mock(OrderItemEntityMapper.class);
+        orderHelper = new OrderHelper(mock(PaymentEntityMapper.class), orderEntityMapper,
+                orderItemEntityMapper, orderLineEntityMapper);
+    }
+
+    @Test
+    public void hydrates_any_number_of_orders_with_three_queries() {
+        when(orderEntityMapper.selectBatchIds(any())).thenReturn(Arrays.asList(order(1L), order(2L), order(3L)));
+        when(orderLineEntityMapper.selectList(any())).thenReturn(Arrays.asList(
+                line(10L, 1L), line(20L, 2L), line(11L, 1L)));
+        when(orderItemEntityMapper.selectList(any())).thenReturn(Arrays.asList(
+                item(100L, 10L), item(101L, 10L), item(110L, 11L), item(200L, 20L)));
+
+        List<OrderEntity> orders = orderHelper.findOrdersWithItems(Arrays.asList(3L, 1L, 4L, 2L, 1L));
+
+        // in the order of the given ids, without missing or duplicate ids
+        assertThat(ids(orders)).containsExactly(3L, 1L, 2L);
+        OrderEntity order1 = orders.get(1);
+        assertThat(ids(order1.getLines())).containsExactly(10L, 11L);
+        assertThat(ids(order1.getLines().get(0).getItems())).containsExactly(100L, 101L);
+        assertThat(ids(order1.getLines().get(1).getItems())).containsExactly(110L);
+        OrderEntity order2 = orders.get(2);
+        assertThat(ids(order2.getLines())).containsExactly(20L);
+        assertThat(ids(order2.getLines().get(0).getItems())).containsExactly(200L);
+        assertThat(orders.get(0).getLines()).isEmpty();
+
+        verify(orderEntityMapper, times(1)).selectBatchIds(any());
+        verify(orderLineEntityMapper, times(1)).selectList(any());
+        verify(orderItemEntityMapper, times(1)).selectList(any());
+    }
+
+    @Test
+    public void does_not_query_items_of_orders_without_lines() {
+        when(orderEntityMapper.selectBatchIds(any())).thenReturn(Arrays.asList(order(1L)));
+
+        List<OrderEntity> orders = orderHelper.findOrdersWithItems(Arrays.asList(1L));
+
+        assertThat(orders.get(0).getLines()).isEmpty();
+        verify(orderItemEntityMapper, never()).selectList(any());
+    }
+
+    @Test
+    public void does_not_query_without_ids() {
+        assertThat(orderHelper.findOrdersWithItems(Collections.emptyList())).isEmpty();
+
+        verifyNoInteractions(orderEntityMapper, orderLineEntityMapper, orderItemEntityMapper);
+    }
+
+    private OrderEntity order(Long id) {
+        OrderEntity order = new OrderEntity();
+        order.setId(id);
+        return order;
+    }
+
+    private OrderLineEntity line(Long id, Long orderId) {
+        OrderLineEntity line = new OrderLineEntity();
+        line.setId(id);
+        line.setOrderId(orderId);
+        return line;
+    }
+
+    private OrderItemEntity item(Long id, Long orderLineId) {
+        OrderItemEntity item = new OrderItemEntity();
+        item.setId(id);
+        item.setOrderLineId(orderLineId);
+        return item;
+    }
+
+    private List<Long> ids(List<? extends BaseEntity> entities) {
+        return entities.stream().map(BaseEntity::getId).collect(Collectors.toList());
+    }
+}
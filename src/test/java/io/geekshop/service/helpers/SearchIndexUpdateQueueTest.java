@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.SearchIndexService;
+import io.geekshop.service.helpers.search_index.SearchIndexUpdateQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class SearchIndexUpdateQueueTest {
+    SearchIndexService searchIndexService;
+    MeterRegistry meterRegistry;
+    SearchIndexUpdateQueue queue;
+
+    @BeforeEach
+    void beforeEach() {
+        searchIndexService = mock(SearchIndexService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getSearchOptions().setIndexUpdateWindow(60000);
+        configOptions.getSearchOptions().setIndexUpdateMaxBatchSize(1000);
+        queue = new SearchIndexUpdateQueue(searchIndexService, configOptions, meterRegistry);
+    }
+
+    @Test
+    public void coalesces_updates_of_the_same_ids() {
+        queue.updateVariants(Arrays.asList(1L, 2L));
+        queue.updateVariants(Arrays.asList(2L, 3L));
+        queue.updateProduct(10L);
+        queue.updateProduct(10L);
+
+        assertThat(queue.getDepth()).isEqualTo(4);
+        assertThat(meterRegistry.get("geekshop.search.index.queue.depth").gauge().value()).isEqualTo(4);
+        verifyNoInteractions(searchIndexService);
+
+        queue.flush();
+
+        verify(searchIndexService, times(1)).updateVariants(Arrays.asList(1L, 2L, 3L));
+        verify(searchIndexService, times(1)).updateProducts(Collections.singletonList(10L));
+        verifyNoMoreInteractions(searchIndexService);
+        assertThat(queue.isIdle()).isTrue();
+        assertThat(meterRegistry.get("geekshop.search.index.queue.events").counter().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("geekshop.search.index.queue.flush").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void last_operation_wins() {
+        queue.updateVariants(Arrays.asList(1L, 2L));
+        queue.deleteVariants(Collections.singletonList(2L));
+        queue.deleteProduct(10L);
+        queue.updateProduct(10L);
+
+        queue.flush();
+
+        verify(searchIndexService, times(1)).deleteVariants(Collections.singletonList(2L));
+        verify(searchIndexService, times(1)).updateVariants(Collections.singletonList(1L));
+        verify(searchIndexService, times(1)).updateProducts(Collections.singletonList(10L));
+        verifyNoMoreInteractions(searchIndexService);
+    }
+
+    @Test
+    public void flushes_immediately_without_window() {
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getSearchOptions().setIndexUpdateWindow(0);
+        queue = new SearchIndexUpdateQueue(searchIndexService, configOptions, new SimpleMeterRegistry());
+
+        queue.deleteProduct(10L);
+
+        verify(searchIndexService, times(1)).deleteProducts(Collections.singletonList(10L));
+        assertThat(queue.isIdle()).isTrue();
+    }
+
+    @Test
+    public void runs_one_flush_at_a_time_without_window() throws Exception {
+        ConfigOptions configOptions = new ConfigOptions();
+        configOptions.getSearchOptions().setIndexUpdateWindow(0);
+        queue = new SearchIndexUpdateQueue(searchIndexService, configOptions, new SimpleMeterRegistry());
+        CountDownLatch firstFlushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstFlush = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> applied = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            applied.add("update " + invocation.getArgument(0));
+            firstFlushStarted.countDown();
+            releaseFirstFlush.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return true;
+        }).when(searchIndexService).updateVariants(anyList());
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            applied.add("delete " + invocation.getArgument(0));
+            running.decrementAndGet();
+            return true;
+        }).when(searchIndexService).deleteVariants(anyList());
+
+        Thread first = new Thread(() -> queue.updateVariants(Collections.singletonList(1L)));
+        first.start();
+        assertThat(firstFlushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // the first flush is still running, so it is left to apply this update as well
+        queue.deleteVariants(Collections.singletonList(1L));
+        assertThat(queue.isIdle()).isFalse();
+
+        releaseFirstFlush.countDown();
+        first.join(5000);
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(applied).containsExactly("update [1]", "delete [1]");
+        assertThat(queue.isIdle()).isTrue();
+    }
+}
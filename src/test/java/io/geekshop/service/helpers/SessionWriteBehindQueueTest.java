@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2021 GeekXYZ.
+ * All rights reserved.
+ */
+
+package io.geekshop.service.helpers;
+
+import io.geekshop.entity.SessionEntity;
+import io.geekshop.options.ConfigOptions;
+import io.geekshop.service.helpers.session.SessionWriteBehindQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Created on Jan, 2021 by @author bobo
+ */
+public class SessionWriteBehindQueueTest {
+    JdbcTemplate jdbcTemplate;
+    SessionWriteBehindQueue queue;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        queue = new SessionWriteBehindQueue(jdbcTemplate, new ConfigOptions());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureBatch(String sqlPrefix) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(sqlPrefix), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void coalesces_changes_per_session() {
+        queue.updateActiveOrder(1L, 10L);
+        queue.updateActiveOrder(1L, 11L);
+        queue.updateActiveOrder(2L, 20L);
+        queue.updateActiveOrder(2L, null);
+        queue.updateExpires(1L, new Date(1000));
+        queue.updateExpires(1L, new Date(2000));
+        assertThat(queue.getDepth()).isEqualTo(2);
+
+        queue.flush();
+
+        List<Object[]> activeOrderRows = captureBatch("update tb_session set active_order_id");
+        assertThat(activeOrderRows).hasSize(2);
+        assertThat(activeOrderRows).anySatisfy(row -> assertThat(row).containsExactly(11L, 1L));
+        assertThat(activeOrderRows).anySatisfy(row -> assertThat(row).containsExactly(null, 2L));
+        List<Object[]> expiresRows = captureBatch("update tb_session set expires");
+        assertThat(expiresRows).hasSize(1);
+        assertThat(((Date) expiresRows.get(0)[0]).getTime()).isEqualTo(2000);
+        assertThat(queue.getDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void applies_pending_changes_to_loaded_sessions() {
+        queue.updateActiveOrder(1L, 11L);
+        queue.updateExpires(1L, new Date(2000));
+
+        SessionEntity session = new SessionEntity();
+        session.setId(1L);
+        session.setActiveOrderId(10L);
+        session.setExpires(new Date(1000));
+        queue.applyPending(session);
+
+        assertThat(session.getActiveOrderId()).isEqualTo(11L);
+        assertThat(session.getExpires().getTime()).isEqualTo(2000);
+    }
+
+    @Test
+    public void keeps_changes_when_the_write_fails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        queue.updateActiveOrder(1L, 11L);
+
+        assertThatThrownBy(() -> queue.flush()).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(queue.getDepth()).isEqualTo(1);
+    }
+}
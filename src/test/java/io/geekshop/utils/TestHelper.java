@@ -10,6 +10,7 @@ import io.geekshop.data_import.FacetValueCollectionFilterDefinition;
 import io.geekshop.data_import.InitialData;
 import io.geekshop.data_import.ShippingMethodData;
 import io.geekshop.service.ConfigService;
+import io.geekshop.service.helpers.search_index.SearchIndexUpdateQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -32,6 +33,9 @@ public class TestHelper {
     @Autowired
     private ConfigService configService;
 
+    @Autowired
+    private SearchIndexUpdateQueue searchIndexUpdateQueue;
+
     public String getImportAssetsDir() {
         Path productsCsvPath = Paths.get("src","test", "resources", "fixtures", "assets");
         return productsCsvPath.toFile().getAbsolutePath();
@@ -91,6 +95,8 @@ public class TestHelper {
 
         do {
             runningTasks = this.executor.getActiveCount();
+            // pending search index updates are applied by the queue's own thread
+            if (!this.searchIndexUpdateQueue.isIdle()) runningTasks++;
             timedOut = timeout < System.currentTimeMillis() - startTime;
         } while (runningTasks > 0 && !timedOut);
     }